@@ -0,0 +1,83 @@
+// Base64OrderBenchmark.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.cora.order;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.kelondro.index.IndexTest;
+
+/**
+ * comparison of hashes in the enhanced base64 order, which is done in every sort and lookup of the kelondro indexes.
+ * The common prefix of the compared hashes is a parameter because the comparison stops at the first different byte.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base64OrderBenchmark {
+
+    private static final int pairs = 4096;
+
+    @Param({"0", "6", "12"})
+    public int commonPrefix;
+
+    private byte[][] a;
+    private byte[][] b;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        final Random r = new Random(0); // the dataset is the same in every run
+        this.a = new byte[pairs][];
+        this.b = new byte[pairs][];
+        for (int i = 0; i < pairs; i++) {
+            this.a[i] = IndexTest.randomHash(r);
+            this.b[i] = IndexTest.randomHash(r);
+            System.arraycopy(this.a[i], 0, this.b[i], 0, this.commonPrefix);
+        }
+        this.next = 0;
+    }
+
+    @Benchmark
+    public int compare() {
+        final int i = this.next;
+        if (++this.next == pairs) this.next = 0;
+        return Base64Order.enhancedCoder.compare(this.a[i], this.b[i]);
+    }
+}
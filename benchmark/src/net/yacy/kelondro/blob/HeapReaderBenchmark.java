@@ -0,0 +1,102 @@
+// HeapReaderBenchmark.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.blob;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.IndexTest;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * get from a closed and reopened heap file, which is the access path of the RWI BLOB files and the url metadata BLOBs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapReaderBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"100", "2000"})
+    public int blobSize;
+
+    private File location;
+    private HeapReader heap;
+    private byte[][] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        this.location = new File(System.getProperty("java.io.tmpdir"), "HeapReaderBenchmark" + System.currentTimeMillis());
+        this.location.mkdirs();
+        final File heapFile = new File(this.location, "benchmark.heap");
+        final Random r = new Random(0); // the dataset is the same in every run
+        this.keys = new byte[this.size][];
+        final Heap writer = new Heap(heapFile, 12, Base64Order.enhancedCoder, 1024 * 1024);
+        final byte[] blob = new byte[this.blobSize];
+        for (int i = 0; i < this.size; i++) {
+            this.keys[i] = IndexTest.randomHash(r);
+            r.nextBytes(blob);
+            writer.insert(this.keys[i], blob);
+        }
+        writer.close(true);
+        this.heap = new HeapReader(heapFile, 12, Base64Order.enhancedCoder);
+        this.next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        this.heap.close(false);
+        FileUtils.deletedelete(this.location);
+    }
+
+    @Benchmark
+    public byte[] get() throws IOException, SpaceExceededException {
+        final byte[] key = this.keys[this.next];
+        if (++this.next == this.size) this.next = 0;
+        return this.heap.get(key);
+    }
+}
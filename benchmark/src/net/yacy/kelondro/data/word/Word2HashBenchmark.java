@@ -0,0 +1,80 @@
+// Word2HashBenchmark.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.data.word;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * word hashing during parsing and search. Word.word2hash has a cache of at most 200000 words:
+ * a small vocabulary measures the cache hits, a vocabulary which is much larger than the cache
+ * measures mostly the MD5 computation and the encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Word2HashBenchmark {
+
+    @Param({"1000", "2000000"})
+    public int vocabulary;
+
+    private String[] words;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        final Random r = new Random(0); // the dataset is the same in every run
+        this.words = new String[this.vocabulary];
+        final StringBuilder sb = new StringBuilder(16);
+        for (int i = 0; i < this.vocabulary; i++) {
+            sb.setLength(0);
+            final int length = 3 + r.nextInt(10);
+            for (int j = 0; j < length; j++) sb.append((char) ('a' + r.nextInt(26)));
+            this.words[i] = sb.toString();
+        }
+        this.next = 0;
+    }
+
+    @Benchmark
+    public byte[] word2hash() {
+        final String word = this.words[this.next];
+        if (++this.next == this.vocabulary) this.next = 0;
+        return Word.word2hash(word);
+    }
+}
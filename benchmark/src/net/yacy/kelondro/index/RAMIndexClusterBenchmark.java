@@ -0,0 +1,109 @@
+// RAMIndexClusterBenchmark.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * put and get in a RAMIndexCluster, the in-memory index of the kelondro tables and handle maps
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RAMIndexClusterBenchmark {
+
+    private static final Row rowdef = new Row("byte[] key-12, Cardinal x-8 {b256}", Base64Order.enhancedCoder);
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"16"})
+    public int clusterSize;
+
+    private Row.Entry[] rows;
+    private byte[][] keys;
+    private RAMIndexCluster filled;
+    private RAMIndexCluster target;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() throws SpaceExceededException {
+        final Random r = new Random(0); // the dataset is the same in every run
+        this.rows = new Row.Entry[this.size];
+        this.keys = new byte[this.size][];
+        this.filled = new RAMIndexCluster("benchmark", rowdef, this.clusterSize);
+        for (int i = 0; i < this.size; i++) {
+            this.keys[i] = IndexTest.randomHash(r);
+            this.rows[i] = rowdef.newEntry(new byte[][]{this.keys[i], new byte[]{0, 0, 0, 0, 0, 0, 0, (byte) i}});
+            this.filled.put(this.rows[i]);
+        }
+        this.next = 0;
+    }
+
+    /**
+     * the put benchmark starts with an empty index in each iteration; the index is cleared
+     * when all rows of the dataset had been put
+     */
+    @Setup(Level.Iteration)
+    public void emptyTarget() {
+        this.target = new RAMIndexCluster("benchmark.put", rowdef, this.clusterSize);
+        this.next = 0;
+    }
+
+    @Benchmark
+    public boolean put() throws SpaceExceededException {
+        final Row.Entry row = this.rows[this.next];
+        if (++this.next == this.size) {
+            this.next = 0;
+            this.target.clear();
+        }
+        return this.target.put(row);
+    }
+
+    @Benchmark
+    public Row.Entry get() {
+        final byte[] key = this.keys[this.next];
+        if (++this.next == this.size) this.next = 0;
+        return this.filled.get(key, false);
+    }
+}
@@ -0,0 +1,110 @@
+// RowSetBenchmark.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * sort and lookup in a RowSet with url hash keys, the same key type as in the RWI containers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowSetBenchmark {
+
+    private static final Row rowdef = new Row("byte[] key-12, Cardinal x-4 {b256}", Base64Order.enhancedCoder);
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private byte[] unsorted;
+    private RowSet sorted;
+    private RowSet sortTarget;
+    private byte[][] keys;
+    private byte[][] missing;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() throws SpaceExceededException {
+        final Random r = new Random(0); // the dataset is the same in every run
+        final RowSet set = new RowSet(rowdef, this.size);
+        this.keys = new byte[this.size][];
+        this.missing = new byte[this.size][];
+        for (int i = 0; i < this.size; i++) {
+            this.keys[i] = IndexTest.randomHash(r);
+            this.missing[i] = IndexTest.randomHash(r); // almost never in the set
+            set.addUnique(rowdef.newEntry(new byte[][]{this.keys[i], new byte[]{0, 0, 0, (byte) i}}));
+        }
+        this.unsorted = new byte[this.size * rowdef.objectsize];
+        System.arraycopy(set.chunkcache, 0, this.unsorted, 0, this.unsorted.length);
+        set.sort();
+        this.sorted = set;
+        this.next = 0;
+    }
+
+    @Setup(Level.Invocation)
+    public void copyUnsorted() {
+        this.sortTarget = new RowSet(rowdef, this.size, this.unsorted.clone(), 0);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public RowSet sort() {
+        this.sortTarget.sort();
+        return this.sortTarget;
+    }
+
+    @Benchmark
+    public Row.Entry lookup() {
+        final byte[] key = this.keys[this.next];
+        if (++this.next == this.size) this.next = 0;
+        return this.sorted.get(key, false);
+    }
+
+    @Benchmark
+    public Row.Entry lookupMissing() {
+        final byte[] key = this.missing[this.next];
+        if (++this.next == this.size) this.next = 0;
+        return this.sorted.get(key, false);
+    }
+}
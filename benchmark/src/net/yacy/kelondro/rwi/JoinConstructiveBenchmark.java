@@ -0,0 +1,96 @@
+// JoinConstructiveBenchmark.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.index.IndexTest;
+
+/**
+ * join of the reference containers of two terms, the core operation of a search with several words.
+ * The larger container contains every second url of a random url universe, the smaller one is spread
+ * over the universe so that half of its references are in the join result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JoinConstructiveBenchmark {
+
+    private static final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+
+    @Param({"100", "10000"})
+    public int smallSize;
+
+    @Param({"100000"})
+    public int largeSize;
+
+    private ReferenceContainer<WordReference> small;
+    private ReferenceContainer<WordReference> large;
+
+    @Setup(Level.Trial)
+    public void prepare() throws SpaceExceededException {
+        final Random r = new Random(0); // the dataset is the same in every run
+        final byte[][] urls = new byte[2 * this.largeSize][];
+        for (int i = 0; i < urls.length; i++) urls[i] = IndexTest.randomHash(r);
+        this.large = new ReferenceContainer<WordReference>(factory, Word.word2hash("large"), this.largeSize);
+        for (int i = 0; i < urls.length; i += 2) this.large.add(reference(urls[i]));
+        this.small = new ReferenceContainer<WordReference>(factory, Word.word2hash("small"), this.smallSize);
+        final int step = urls.length / this.smallSize;
+        for (int i = 0; i < this.smallSize; i++) this.small.add(reference(urls[i * step + (i & 1)]));
+        this.large.sort();
+        this.small.sort();
+    }
+
+    private static WordReferenceRow reference(final byte[] urlhash) {
+        return new WordReferenceRow(urlhash, 30, 3, 0, 100, 10, 0L, 0L, ASCII.getBytes("en"), Response.DT_TEXT, 0, 0);
+    }
+
+    @Benchmark
+    public ReferenceContainer<WordReference> joinConstructive() throws SpaceExceededException {
+        return ReferenceContainer.joinConstructive(factory, this.small, this.large, Integer.MAX_VALUE);
+    }
+}
@@ -27,16 +27,20 @@
 // javac -classpath .:../classes transferRWI.java
 
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.document.feed.RSSMessage;
 import net.yacy.cora.federate.yacy.Distribution;
+import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.storage.HandleSet;
@@ -44,6 +48,7 @@ import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.Memory;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReferenceChunk;
 import net.yacy.kelondro.data.word.WordReferenceRow;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.util.FileUtils;
@@ -115,7 +120,8 @@ public final class transferRWI {
 //      final String key      = (String) post.get("key", "");             // transmission key
         final int wordc       = post.getInt("wordc", 0);                  // number of different words
         final int entryc      = post.getInt("entryc", 0);                 // number of entries in indexes
-        byte[] indexes        = post.get("indexes", "").getBytes();       // the indexes, as list of word entries
+        final boolean binary  = post.containsKey("indexes$file");         // the indexes are a gzipped binary chunk
+        byte[] indexes        = binary ? Base64Order.standardCoder.decode(post.get("indexes$file", "")) : post.get("indexes", "").getBytes(); // the indexes, as list of word entries
         boolean granted       = sb.getConfigBool(SwitchboardConstants.INDEX_RECEIVE_ALLOW, false);
         final boolean blockBlacklist = sb.getConfigBool(SwitchboardConstants.INDEX_RECEIVE_BLOCK_BLACKLIST, false);
         final long cachelimit = sb.getConfigLong(SwitchboardConstants.WORDCACHE_MAX_COUNT, 100000);
@@ -172,7 +178,18 @@ public final class transferRWI {
 
             // decode request
             //System.out.println("STRINGS " + UTF8.String(indexes));
-            final Iterator<String> it = FileUtils.strings(indexes);
+            Iterator<String> it = null;
+            WordReferenceChunk.Reader reader = null;
+            if (binary) {
+                try {
+                    reader = new WordReferenceChunk.Reader(new GZIPInputStream(new ByteArrayInputStream(indexes)));
+                } catch (final IOException e) {
+                    sb.getLog().warn("transferRWI: cannot read index chunk from peer " + otherPeerName + ": " + e.getMessage());
+                    it = Collections.<String>emptyIterator();
+                }
+            } else {
+                it = FileUtils.strings(indexes);
+            }
 
             // free memory
             indexes = null;
@@ -189,20 +206,34 @@ public final class transferRWI {
             int blocked = 0;
             int count = 0;
             Set<String> testids = new HashSet<String>();
-            while (it.hasNext()) {
-                estring = it.next();
-                count++;
-                if (count > 1000) break; // protection against flooding
+            while (true) {
+                if (reader == null) {
+                    if (!it.hasNext()) break;
+                    estring = it.next();
+                    count++;
+                    if (count > 1000) break; // protection against flooding
 
-                // check if RWI entry is well-formed
-                p = estring.indexOf('{',0);
-                if (p < 0 || estring.indexOf("x=",0) < 0 || !(estring.indexOf("[B@",0) < 0)) {
-                    blocked++;
-                    continue;
+                    // check if RWI entry is well-formed
+                    p = estring.indexOf('{',0);
+                    if (p < 0 || estring.indexOf("x=",0) < 0 || !(estring.indexOf("[B@",0) < 0)) {
+                        blocked++;
+                        continue;
+                    }
+                    wordHash = estring.substring(0, p);
+                    iEntry = new WordReferenceRow(estring.substring(p));
+                } else {
+                    try {
+                        iEntry = reader.next();
+                    } catch (final IOException e) {
+                        sb.getLog().warn("transferRWI: broken index chunk from peer " + otherPeerName + ": " + e.getMessage());
+                        break;
+                    }
+                    if (iEntry == null) break;
+                    count++;
+                    if (count > 1000) break; // protection against flooding
+                    wordHash = ASCII.String(reader.termHash());
                 }
-                wordHash = estring.substring(0, p);
                 wordhashes.add(wordHash);
-                iEntry = new WordReferenceRow(estring.substring(p));
                 urlHash = iEntry.urlhash();
 
                 // block blacklisted entries
@@ -353,7 +353,16 @@ public class DigestURL extends MultiProtocolURL implements Serializable {
         // generates an estimation of the original domain length
         assert (urlHashBytes != null);
         assert (urlHashBytes.length == 12) : "urlhash = " + ASCII.String(urlHashBytes);
-        final int flagbyte = Base64Order.enhancedCoder.decodeByte(urlHashBytes[11]);
+        return domLengthEstimation(urlHashBytes, 0);
+    }
+
+    /**
+     * estimation of the original domain length for an url hash inside of a byte array
+     * @param b the array
+     * @param offset the position of the url hash in the array
+     */
+    public static final int domLengthEstimation(final byte[] b, final int offset) {
+        final int flagbyte = Base64Order.enhancedCoder.decodeByte(b[offset + 11]);
         final int domLengthKey = flagbyte & 3;
         switch (domLengthKey) {
         case 0:
@@ -373,6 +382,10 @@ public class DigestURL extends MultiProtocolURL implements Serializable {
         return domLengthEstimation(urlHashBytes) << 8 / 20;
     }
 
+    public static int domLengthNormalized(final byte[] b, final int offset) {
+        return domLengthEstimation(b, offset) << 8 / 20;
+    }
+
     @Deprecated
     private static final int domDomain(final byte[] urlHash) {
         // returns the ID of the domain of the domain
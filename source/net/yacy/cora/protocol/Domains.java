@@ -47,10 +47,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -92,10 +96,13 @@ public class Domains {
     private static final int MAX_NAME_CACHE_HIT_SIZE = 10000;
     private static final int MAX_NAME_CACHE_MISS_SIZE = 1000;
     private static final int CONCURRENCY_LEVEL = Runtime.getRuntime().availableProcessors() * 2;
+    private static final long NAME_CACHE_HIT_TTL = 60L * 60L * 1000L; // time in milliseconds until a resolved address is looked up again
+    private static final long NAME_CACHE_MISS_TTL = 10L * 60L * 1000L; // time in milliseconds until an unknown host is looked up again
 
     // a dns cache
     private static final ARC<String, InetAddress> NAME_CACHE_HIT = new ConcurrentARC<>(MAX_NAME_CACHE_HIT_SIZE, CONCURRENCY_LEVEL);
     private static final ARC<String, String> NAME_CACHE_MISS = new ConcurrentARC<>(MAX_NAME_CACHE_MISS_SIZE, CONCURRENCY_LEVEL);
+    private static final ARC<String, Long> NAME_CACHE_EXPIRES = new ConcurrentARC<>(MAX_NAME_CACHE_HIT_SIZE + MAX_NAME_CACHE_MISS_SIZE, CONCURRENCY_LEVEL);
     private static final ConcurrentHashMap<String, Object> LOOKUP_SYNC = new ConcurrentHashMap<>(100, 0.75f, Runtime.getRuntime().availableProcessors() * 2);
     private static       List<Pattern> nameCacheNoCachingPatterns = Collections.synchronizedList(new LinkedList<Pattern>());
     public static long cacheHit_Hit = 0, cacheHit_Miss = 0, cacheHit_Insert = 0; // for statistics only; do not write
@@ -760,11 +767,61 @@ public class Domains {
 
     public static synchronized void close() {
         if (globalHosts != null) try {globalHosts.close();} catch (final IOException e) {log.warn(e);}
+        PREFETCH_QUEUE.clear();
+        prefetchService.shutdownNow();
         if(getByNameService != null) {
         	getByNameService.shutdownNow();
         }
     }
 
+    /**
+     * get an address from the name cache
+     * @param host a normalized host name
+     * @return the address or null if the host is not in the cache or the cache entry is expired
+     */
+    private static InetAddress cachedAddress(final String host) {
+        final InetAddress ip = NAME_CACHE_HIT.get(host);
+        if (ip == null) return null;
+        if (expired(host)) {
+            NAME_CACHE_HIT.remove(host);
+            return null;
+        }
+        return ip;
+    }
+
+    /**
+     * check if a host is known to be not resolvable
+     * @param host a normalized host name
+     * @return true if a lookup of the host failed and the cache entry is not expired
+     */
+    private static boolean cachedMiss(final String host) {
+        if (!NAME_CACHE_MISS.containsKey(host)) return false;
+        if (expired(host)) {
+            NAME_CACHE_MISS.remove(host);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean expired(final String host) {
+        final Long expires = NAME_CACHE_EXPIRES.get(host);
+        if (expires == null || expires.longValue() > System.currentTimeMillis()) return false;
+        NAME_CACHE_EXPIRES.remove(host);
+        return true;
+    }
+
+    private static void cacheAddress(final String host, final InetAddress ip) {
+        NAME_CACHE_HIT.insertIfAbsent(host, ip);
+        NAME_CACHE_EXPIRES.insert(host, System.currentTimeMillis() + NAME_CACHE_HIT_TTL);
+        cacheHit_Insert++;
+    }
+
+    private static void cacheMiss(final String host) {
+        NAME_CACHE_MISS.insertIfAbsent(host, PRESENT);
+        NAME_CACHE_EXPIRES.insert(host, System.currentTimeMillis() + NAME_CACHE_MISS_TTL);
+        cacheMiss_Insert++;
+    }
+
     /**
     * Does an DNS-Check to resolve a hostname to an IP.
     *
@@ -776,14 +833,14 @@ public class Domains {
         host = host.toLowerCase(Locale.ROOT).trim();
 
         // trying to resolve host by doing a name cache lookup
-        InetAddress ip = NAME_CACHE_HIT.get(host);
+        InetAddress ip = cachedAddress(host);
         if (ip != null) {
             cacheHit_Hit++;
             return ip;
         }
         cacheHit_Miss++;
 
-        if (NAME_CACHE_MISS.containsKey(host)) {
+        if (cachedMiss(host)) {
             cacheMiss_Hit++;
             return null;
         }
@@ -815,8 +872,7 @@ public class Domains {
         final Collection<String> hosts = NAME_CACHE_HIT.getKeys(i);
         if (!hosts.isEmpty()) return hosts.iterator().next();
         final String host = i.getHostName();
-        NAME_CACHE_HIT.insertIfAbsent(host, i);
-        cacheHit_Insert++;
+        cacheAddress(host, i);
         return host;
     }
 
@@ -827,8 +883,7 @@ public class Domains {
      * @param host the known host name
      */
     public static void setHostName(final InetAddress i, final String host) {
-        NAME_CACHE_HIT.insertIfAbsent(host, i);
-        cacheHit_Insert++;
+        cacheAddress(host, i);
     }
     
 	final private static ExecutorService getByNameService = Executors
@@ -836,6 +891,89 @@ public class Domains {
 
 	final private static TimeLimiter timeLimiter = new SimpleTimeLimiter(getByNameService);
 
+    // the dns prefetch: host names are queued and resolved in batches by a bounded number of workers
+    private static final int PREFETCH_THREADS = 8;
+    private static final int PREFETCH_BATCH = 32;
+    private static final BlockingQueue<String> PREFETCH_QUEUE = new ArrayBlockingQueue<String>(10000);
+    private static final Set<String> PREFETCH_PENDING = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private static final AtomicInteger prefetchWorkers = new AtomicInteger(0);
+    final private static ExecutorService prefetchService = Executors
+            .newFixedThreadPool(PREFETCH_THREADS, new NamePrefixThreadFactory("Domains.prefetch"));
+
+    /**
+     * check if a host name can be resolved without a dns lookup, because the host is an ip
+     * or because the result of a lookup is in the name cache
+     * @param host0 a host name
+     * @return true if a call to dnsResolve(host0) does not need to wait for a dns server
+     */
+    public static boolean isResolved(final String host0) {
+        if (host0 == null || host0.isEmpty()) return true;
+        final String host = host0.toLowerCase(Locale.ROOT).trim();
+        if (InetAddresses.isInetAddress(host)) return true;
+        if (!NAME_CACHE_HIT.containsKey(host) && !NAME_CACHE_MISS.containsKey(host)) return false;
+        final Long expires = NAME_CACHE_EXPIRES.get(host);
+        return expires == null || expires.longValue() > System.currentTimeMillis();
+    }
+
+    /**
+     * resolve a host name asynchronously so that the address is in the name cache when it is used.
+     * If the prefetch queue is full, the host is not queued and will be resolved when it is used.
+     * @param host0 a host name
+     */
+    public static void prefetch(final String host0) {
+        if (host0 == null || host0.isEmpty() || host0.endsWith(".yacyh")) return;
+        final String host = host0.toLowerCase(Locale.ROOT).trim();
+        if (isResolved(host) || LOOKUP_SYNC.containsKey(host)) return;
+        if (!PREFETCH_PENDING.add(host)) return;
+        if (!PREFETCH_QUEUE.offer(host)) {
+            PREFETCH_PENDING.remove(host);
+            return;
+        }
+        startPrefetchWorker();
+    }
+
+    /**
+     * @return the number of host names waiting for a prefetch
+     */
+    public static int prefetchQueueSize() {
+        return PREFETCH_QUEUE.size();
+    }
+
+    private static void startPrefetchWorker() {
+        int w;
+        do {
+            w = prefetchWorkers.get();
+            if (w >= PREFETCH_THREADS) return;
+        } while (!prefetchWorkers.compareAndSet(w, w + 1));
+        try {
+            prefetchService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final List<String> batch = new ArrayList<String>(PREFETCH_BATCH);
+                    try {
+                        while (PREFETCH_QUEUE.drainTo(batch, PREFETCH_BATCH) > 0) {
+                            for (final String host: batch) {
+                                try {
+                                    dnsResolve(host);
+                                } finally {
+                                    PREFETCH_PENDING.remove(host);
+                                }
+                            }
+                            batch.clear();
+                        }
+                    } finally {
+                        prefetchWorkers.decrementAndGet();
+                        // a host may have been queued after the queue was found empty
+                        if (!PREFETCH_QUEUE.isEmpty()) startPrefetchWorker();
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // the service is shut down
+            prefetchWorkers.decrementAndGet();
+        }
+    }
+
     /**
      * strip off any parts of an url, address string (containing host/ip:port) or raw IPs/Hosts,
      * considering that the host may also be an (IPv4) IP or a IPv6 IP in brackets.
@@ -924,6 +1062,7 @@ public class Domains {
         if (MemoryControl.shortStatus()) {
             NAME_CACHE_HIT.clear();
             NAME_CACHE_MISS.clear();
+            NAME_CACHE_EXPIRES.clear();
         }
         
         if (host0.endsWith(".yacyh")) {
@@ -932,14 +1071,14 @@ public class Domains {
         }
 
         // try to resolve host by doing a name cache lookup
-        InetAddress ip = NAME_CACHE_HIT.get(host);
+        InetAddress ip = cachedAddress(host);
         if (ip != null) {
             //System.out.println("DNSLOOKUP-CACHE-HIT(CONC) " + host);
             cacheHit_Hit++;
             return ip;
         }
         cacheHit_Miss++;
-        if (NAME_CACHE_MISS.containsKey(host)) {
+        if (cachedMiss(host)) {
             //System.out.println("DNSLOOKUP-CACHE-MISS(CONC) " + host);
             cacheMiss_Hit++;
             return null;
@@ -953,7 +1092,7 @@ public class Domains {
         synchronized (sync_obj) {
             // now look again if the host is in the cache where it may be meanwhile because of the synchronization
 
-            ip = NAME_CACHE_HIT.get(host);
+            ip = cachedAddress(host);
             if (ip != null) {
                 //System.out.println("DNSLOOKUP-CACHE-HIT(SYNC) " + host);
                 LOOKUP_SYNC.remove(host);
@@ -961,7 +1100,7 @@ public class Domains {
                 return ip;
             }
             cacheHit_Miss++;
-            if (NAME_CACHE_MISS.containsKey(host)) {
+            if (cachedMiss(host)) {
                 //System.out.println("DNSLOOKUP-CACHE-MISS(SYNC) " + host);
                 LOOKUP_SYNC.remove(host);
                 cacheMiss_Hit++;
@@ -1000,24 +1139,21 @@ public class Domains {
                 //.out.println("DNSLOOKUP-*LOOKUP* " + host + ", time = " + (System.currentTimeMillis() - t) + "ms");
             } catch (final Throwable e) {
                 // add new entries
-                NAME_CACHE_MISS.insertIfAbsent(host, PRESENT);
-                cacheMiss_Insert++;
+                cacheMiss(host);
                 LOOKUP_SYNC.remove(host);
                 return null;
             }
 
             if (ip == null) {
                 // add new entries
-                NAME_CACHE_MISS.insertIfAbsent(host, PRESENT);
-                cacheMiss_Insert++;
+                cacheMiss(host);
                 LOOKUP_SYNC.remove(host);
                 return null;
             }
 
             if (!ip.isLoopbackAddress() && !matchesList(host, nameCacheNoCachingPatterns)) {
                 // add new ip cache entries
-                NAME_CACHE_HIT.insertIfAbsent(host, ip);
-                cacheHit_Insert++;
+                cacheAddress(host, ip);
 
                 // add also the isLocal host name caches
                 final boolean localp = ip.isAnyLocalAddress() || ip.isLinkLocalAddress() || ip.isSiteLocalAddress();
@@ -1037,6 +1173,7 @@ public class Domains {
         	globalHosts.clear();
         	NAME_CACHE_HIT.clear();
         	NAME_CACHE_MISS.clear();
+        	NAME_CACHE_EXPIRES.clear();
         } catch (final IOException e) {}
     }
 
@@ -0,0 +1,701 @@
+/**
+ *  OffHeapHandleMap
+ *  Copyright 2026 by the YaCy contributors
+ *  First published 17.10.2026 on http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * A HandleMap which stores its entries outside of the java heap in direct byte buffers.
+ * The map is an open-addressed hash table with linear probing, split into shards which are
+ * locked independently. Keys have a fixed length (usually the 12 byte Base64 hashes) and values
+ * are non-negative longs stored with a fixed number of bytes, just like in a RowHandleMap.
+ *
+ * Lookup, insertion and deletion are O(1) and do not create garbage on the java heap. Operations which
+ * require an order of the keys (smallestKey, largestKey, keys, dump) are not supported by the hash
+ * table itself; they create a sorted copy of all keys on the heap and should therefore be used rarely.
+ */
+public final class OffHeapHandleMap implements HandleMap {
+
+    private static final int SHARD_BITS = 6;
+    private static final int SHARDS = 1 << SHARD_BITS;
+    private static final int MIN_CAPACITY = 16;
+    private static final byte FREE = 0, USED = 1;
+
+    private final int keylength;
+    private final int idxbytes;
+    private final int slotsize;
+    private final ByteOrder ordering;
+    private final String name;
+    private volatile Shard[] shards;
+
+    /**
+     * initialize an off-heap HandleMap
+     * @param keylength the length of the keys
+     * @param ordering the order of the keys, used for the sorted access methods only
+     * @param idxbytes the number of bytes used for each value, between 1 and 8
+     * @param expectedspace the expected number of entries; this is not used for an allocation in advance,
+     *        the shards allocate their tables lazily with the first entry and grow as needed
+     * @param name a name for logging and debugging
+     */
+    public OffHeapHandleMap(final int keylength, final ByteOrder ordering, final int idxbytes, final int expectedspace, final String name) {
+        assert idxbytes > 0 && idxbytes <= 8 : "idxbytes = " + idxbytes;
+        this.keylength = keylength;
+        this.idxbytes = idxbytes;
+        this.slotsize = 1 + keylength + idxbytes;
+        this.ordering = ordering;
+        this.name = name;
+        this.shards = newShards();
+    }
+
+    /**
+     * initialize an off-heap HandleMap with the content of a dump written by dump() of this class or of a RowHandleMap
+     * @param keylength the length of the keys
+     * @param ordering the order of the keys
+     * @param idxbytes the number of bytes used for each value, must be the same as when the dump was written
+     * @param file the dump file
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public OffHeapHandleMap(final int keylength, final ByteOrder ordering, final int idxbytes, final File file) throws IOException, SpaceExceededException {
+        this(keylength, ordering, idxbytes, 0, file.getAbsolutePath());
+        // the number of entries is known here, therefore the tables are allocated at once
+        final int capacity = capacityFor((int) (file.length() / (keylength + idxbytes) / SHARDS));
+        for (final Shard shard: this.shards) shard.allocate(capacity);
+        InputStream is = new BufferedInputStream(new FileInputStream(file), 1024 * 1024);
+        try {
+            if (file.getName().endsWith(".gz")) is = new GZIPInputStream(is);
+            final byte[] a = new byte[keylength + idxbytes];
+            final byte[] key = new byte[keylength];
+            while (readFully(is, a)) {
+                System.arraycopy(a, 0, key, 0, keylength);
+                long l = 0;
+                for (int i = keylength; i < a.length; i++) l = (l << 8) | (a[i] & 0xff);
+                put(key, l);
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    private static boolean readFully(final InputStream is, final byte[] a) throws IOException {
+        int p = 0;
+        while (p < a.length) {
+            final int c = is.read(a, p, a.length - p);
+            if (c <= 0) return false;
+            p += c;
+        }
+        return true;
+    }
+
+    private Shard[] newShards() {
+        final Shard[] s = new Shard[SHARDS];
+        for (int i = 0; i < SHARDS; i++) s[i] = new Shard();
+        return s;
+    }
+
+    private Shard[] shards() {
+        final Shard[] s = this.shards;
+        if (s == null) throw new IllegalStateException("OffHeapHandleMap " + this.name + " is closed");
+        return s;
+    }
+
+    private static int capacityFor(final int entries) {
+        // keep the load factor below 0.75
+        final long needed = Math.max(MIN_CAPACITY, (long) entries * 4L / 3L + 1L);
+        return (int) Math.min(1L << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    private static long hash(final byte[] key, final int keylength) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < keylength; i++) {
+            h ^= key[i];
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private Shard shard(final long hash) {
+        return shards()[(int) (hash & (SHARDS - 1))];
+    }
+
+    /**
+     * one independently locked hash table; the table is allocated with the first entry
+     */
+    private final class Shard {
+
+        private ByteBuffer table;
+        private int capacity;
+        private int count;
+
+        private Shard() {
+            this.table = null;
+            this.capacity = 0;
+            this.count = 0;
+        }
+
+        private void allocate(final int newCapacity) {
+            assert this.count == 0;
+            this.table = ByteBuffer.allocateDirect(newCapacity * OffHeapHandleMap.this.slotsize);
+            this.capacity = newCapacity;
+        }
+
+        private int home(final long hash) {
+            return (int) (hash >>> 32) & (this.capacity - 1);
+        }
+
+        private boolean used(final int slot) {
+            return this.table.get(slot * OffHeapHandleMap.this.slotsize) == USED;
+        }
+
+        private boolean keyEquals(final int slot, final byte[] key) {
+            final int p = slot * OffHeapHandleMap.this.slotsize + 1;
+            for (int i = 0; i < OffHeapHandleMap.this.keylength; i++) {
+                if (this.table.get(p + i) != key[i]) return false;
+            }
+            return true;
+        }
+
+        private byte[] key(final int slot) {
+            final byte[] key = new byte[OffHeapHandleMap.this.keylength];
+            final int p = slot * OffHeapHandleMap.this.slotsize + 1;
+            for (int i = 0; i < key.length; i++) key[i] = this.table.get(p + i);
+            return key;
+        }
+
+        private long value(final int slot) {
+            final int p = slot * OffHeapHandleMap.this.slotsize + 1 + OffHeapHandleMap.this.keylength;
+            long l = 0;
+            for (int i = 0; i < OffHeapHandleMap.this.idxbytes; i++) l = (l << 8) | (this.table.get(p + i) & 0xff);
+            return l;
+        }
+
+        private void setValue(final int slot, long l) {
+            final int p = slot * OffHeapHandleMap.this.slotsize + 1 + OffHeapHandleMap.this.keylength;
+            for (int i = OffHeapHandleMap.this.idxbytes - 1; i >= 0; i--) {
+                this.table.put(p + i, (byte) (l & 0xff));
+                l >>= 8;
+            }
+        }
+
+        private void set(final int slot, final byte[] key, final long l) {
+            final int p = slot * OffHeapHandleMap.this.slotsize;
+            this.table.put(p, USED);
+            for (int i = 0; i < OffHeapHandleMap.this.keylength; i++) this.table.put(p + 1 + i, key[i]);
+            setValue(slot, l);
+        }
+
+        /**
+         * @return the slot of the key or -1 if the key does not exist
+         */
+        private int find(final byte[] key, final long hash) {
+            if (this.capacity == 0) return -1;
+            int slot = home(hash);
+            while (used(slot)) {
+                if (keyEquals(slot, key)) return slot;
+                slot = (slot + 1) & (this.capacity - 1);
+            }
+            return -1;
+        }
+
+        private long put(final byte[] key, final long hash, final long l) throws SpaceExceededException {
+            if (this.capacity == 0) grow();
+            int slot = home(hash);
+            while (used(slot)) {
+                if (keyEquals(slot, key)) {
+                    final long old = value(slot);
+                    setValue(slot, l);
+                    return old;
+                }
+                slot = (slot + 1) & (this.capacity - 1);
+            }
+            if ((this.count + 1) * 4L > this.capacity * 3L) {
+                grow();
+                slot = home(hash);
+                while (used(slot)) slot = (slot + 1) & (this.capacity - 1);
+            }
+            set(slot, key, l);
+            this.count++;
+            return -1;
+        }
+
+        private void grow() throws SpaceExceededException {
+            final long newCapacity = this.capacity == 0 ? MIN_CAPACITY : ((long) this.capacity) << 1;
+            final long needed = newCapacity * OffHeapHandleMap.this.slotsize;
+            if (needed > Integer.MAX_VALUE) throw new SpaceExceededException(needed, "OffHeapHandleMap.grow()/" + OffHeapHandleMap.this.name);
+            final ByteBuffer newTable;
+            try {
+                newTable = ByteBuffer.allocateDirect((int) needed);
+            } catch (final OutOfMemoryError e) {
+                throw new SpaceExceededException(needed, "OffHeapHandleMap.grow()/" + OffHeapHandleMap.this.name);
+            }
+            final ByteBuffer oldTable = this.table;
+            final int oldCapacity = this.capacity;
+            this.table = newTable;
+            this.capacity = (int) newCapacity;
+            final byte[] entry = new byte[OffHeapHandleMap.this.slotsize];
+            final byte[] key = new byte[OffHeapHandleMap.this.keylength];
+            for (int i = 0; i < oldCapacity; i++) {
+                final int p = i * OffHeapHandleMap.this.slotsize;
+                if (oldTable.get(p) != USED) continue;
+                for (int j = 0; j < entry.length; j++) entry[j] = oldTable.get(p + j);
+                System.arraycopy(entry, 1, key, 0, key.length);
+                int slot = home(hash(key, key.length));
+                while (used(slot)) slot = (slot + 1) & (this.capacity - 1);
+                final int q = slot * OffHeapHandleMap.this.slotsize;
+                for (int j = 0; j < entry.length; j++) this.table.put(q + j, entry[j]);
+            }
+        }
+
+        /**
+         * remove the entry in the given slot and move following entries of the probe sequence
+         * into the gap, so that no tombstones are needed
+         */
+        private long removeSlot(int gap) {
+            final long old = value(gap);
+            final int mask = this.capacity - 1;
+            final int ss = OffHeapHandleMap.this.slotsize;
+            int next = gap;
+            while (true) {
+                next = (next + 1) & mask;
+                if (!used(next)) break;
+                final int home = home(hash(key(next), OffHeapHandleMap.this.keylength));
+                // move the entry if its home position is not cyclically within (gap, next]
+                final boolean inRange = (gap <= next) ? (gap < home && home <= next) : (gap < home || home <= next);
+                if (inRange) continue;
+                for (int j = 0; j < ss; j++) this.table.put(gap * ss + j, this.table.get(next * ss + j));
+                gap = next;
+            }
+            this.table.put(gap * ss, FREE);
+            this.count--;
+            return old;
+        }
+
+        private void collect(final List<byte[]> keys, final List<Long> values) {
+            for (int i = 0; i < this.capacity; i++) {
+                if (!used(i)) continue;
+                keys.add(key(i));
+                if (values != null) values.add(value(i));
+            }
+        }
+    }
+
+    @Override
+    public long mem() {
+        final Shard[] s = this.shards;
+        if (s == null) return 0;
+        long m = 0;
+        for (final Shard shard: s) m += ((long) shard.capacity) * this.slotsize;
+        return m;
+    }
+
+    @Override
+    public void optimize() {
+        // the hash table has no sorting or compaction step
+    }
+
+    public int keylength() {
+        return this.keylength;
+    }
+
+    public ByteOrder ordering() {
+        return this.ordering;
+    }
+
+    @Override
+    public int dump(final File file) throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".prt");
+        final List<Map.Entry<byte[], Long>> entries = sortedEntries();
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp), 4 * 1024 * 1024);
+        try {
+            if (file.getName().endsWith(".gz")) os = new GZIPOutputStream(os, 65536);
+            final byte[] b = new byte[this.keylength + this.idxbytes];
+            for (final Map.Entry<byte[], Long> entry: entries) {
+                System.arraycopy(entry.getKey(), 0, b, 0, this.keylength);
+                long l = entry.getValue().longValue();
+                for (int i = b.length - 1; i >= this.keylength; i--) {
+                    b[i] = (byte) (l & 0xff);
+                    l >>= 8;
+                }
+                os.write(b);
+            }
+            os.flush();
+        } finally {
+            os.close();
+        }
+        tmp.renameTo(file);
+        return entries.size();
+    }
+
+    private List<Map.Entry<byte[], Long>> sortedEntries() {
+        final List<byte[]> keys = new ArrayList<byte[]>();
+        final List<Long> values = new ArrayList<Long>();
+        for (final Shard shard: shards()) {
+            synchronized (shard) {
+                shard.collect(keys, values);
+            }
+        }
+        final List<Map.Entry<byte[], Long>> entries = new ArrayList<Map.Entry<byte[], Long>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) entries.add(new AbstractMap.SimpleImmutableEntry<byte[], Long>(keys.get(i), values.get(i)));
+        Collections.sort(entries, (a, b) -> this.ordering.compare(a.getKey(), b.getKey()));
+        return entries;
+    }
+
+    private List<byte[]> sortedKeys() {
+        final List<byte[]> keys = new ArrayList<byte[]>();
+        for (final Shard shard: shards()) {
+            synchronized (shard) {
+                shard.collect(keys, null);
+            }
+        }
+        Collections.sort(keys, this.ordering);
+        return keys;
+    }
+
+    @Override
+    public void clear() {
+        shards(); // fail on a closed map
+        this.shards = newShards();
+    }
+
+    @Override
+    public byte[] smallestKey() {
+        byte[] smallest = null;
+        for (final Shard shard: shards()) {
+            synchronized (shard) {
+                for (int i = 0; i < shard.capacity; i++) {
+                    if (!shard.used(i)) continue;
+                    final byte[] k = shard.key(i);
+                    if (smallest == null || this.ordering.compare(k, smallest) < 0) smallest = k;
+                }
+            }
+        }
+        return smallest;
+    }
+
+    @Override
+    public byte[] largestKey() {
+        byte[] largest = null;
+        for (final Shard shard: shards()) {
+            synchronized (shard) {
+                for (int i = 0; i < shard.capacity; i++) {
+                    if (!shard.used(i)) continue;
+                    final byte[] k = shard.key(i);
+                    if (largest == null || this.ordering.compare(k, largest) > 0) largest = k;
+                }
+            }
+        }
+        return largest;
+    }
+
+    @Override
+    public boolean has(final byte[] key) {
+        assert key != null && key.length >= this.keylength;
+        final long h = hash(key, this.keylength);
+        final Shard shard = shard(h);
+        synchronized (shard) {
+            return shard.find(key, h) >= 0;
+        }
+    }
+
+    @Override
+    public long get(final byte[] key) {
+        assert key != null && key.length >= this.keylength;
+        final long h = hash(key, this.keylength);
+        final Shard shard = shard(h);
+        synchronized (shard) {
+            final int slot = shard.find(key, h);
+            return slot < 0 ? -1 : shard.value(slot);
+        }
+    }
+
+    @Override
+    public long put(final byte[] key, final long l) throws SpaceExceededException {
+        assert l >= 0 : "l = " + l;
+        assert key != null && key.length >= this.keylength;
+        final long h = hash(key, this.keylength);
+        final Shard shard = shard(h);
+        synchronized (shard) {
+            return shard.put(key, h, l);
+        }
+    }
+
+    @Override
+    public void putUnique(final byte[] key, final long l) throws SpaceExceededException {
+        put(key, l);
+    }
+
+    /**
+     * add a value to the value of the given key; a missing key is inserted with the given value.
+     * Values are unsigned: a missing key is not inserted with a negative value, and a value which
+     * would become negative is set to zero.
+     * @return the new value, or -1 if the key is missing and a is negative
+     */
+    @Override
+    public long add(final byte[] key, final long a) throws SpaceExceededException {
+        assert key != null && key.length >= this.keylength;
+        final long h = hash(key, this.keylength);
+        final Shard shard = shard(h);
+        synchronized (shard) {
+            final int slot = shard.find(key, h);
+            if (slot < 0) {
+                if (a < 0) return -1;
+                shard.put(key, h, a);
+                return a;
+            }
+            final long l = Math.max(0, shard.value(slot) + a);
+            shard.setValue(slot, l);
+            return l;
+        }
+    }
+
+    @Override
+    public long inc(final byte[] key) throws SpaceExceededException {
+        return add(key, 1);
+    }
+
+    @Override
+    public long dec(final byte[] key) throws SpaceExceededException {
+        return add(key, -1);
+    }
+
+    /**
+     * a hash map cannot contain double entries
+     * @return an empty list
+     */
+    @Override
+    public ArrayList<long[]> removeDoubles() {
+        return new ArrayList<long[]>(0);
+    }
+
+    /**
+     * @return up to count keys; there is no order in a hash table, so these are arbitrary keys
+     */
+    @Override
+    public ArrayList<byte[]> top(final int count) {
+        final ArrayList<byte[]> list = new ArrayList<byte[]>();
+        for (final Shard shard: shards()) {
+            synchronized (shard) {
+                for (int i = 0; i < shard.capacity && list.size() < count; i++) {
+                    if (shard.used(i)) list.add(shard.key(i));
+                }
+            }
+            if (list.size() >= count) break;
+        }
+        return list;
+    }
+
+    @Override
+    public long remove(final byte[] key) {
+        assert key != null && key.length >= this.keylength;
+        final long h = hash(key, this.keylength);
+        final Shard shard = shard(h);
+        synchronized (shard) {
+            final int slot = shard.find(key, h);
+            if (slot < 0) return -1;
+            return shard.removeSlot(slot);
+        }
+    }
+
+    @Override
+    public long removeone() {
+        for (final Shard shard: shards()) {
+            synchronized (shard) {
+                if (shard.count == 0) continue;
+                for (int i = 0; i < shard.capacity; i++) {
+                    if (shard.used(i)) return shard.removeSlot(i);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * remove the same entry as removeone() would remove, which is also the first entry returned by top()
+     * @return the key of the removed entry or null if the map is empty
+     */
+    public byte[] removeOneKey() {
+        for (final Shard shard: shards()) {
+            synchronized (shard) {
+                if (shard.count == 0) continue;
+                for (int i = 0; i < shard.capacity; i++) {
+                    if (shard.used(i)) {
+                        final byte[] key = shard.key(i);
+                        shard.removeSlot(i);
+                        return key;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        final Shard[] s = this.shards;
+        if (s == null) return 0;
+        int c = 0;
+        for (final Shard shard: s) {
+            synchronized (shard) {
+                c += shard.count;
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) {
+        final List<byte[]> keys = sortedKeys();
+        if (!up) Collections.reverse(keys);
+        int start = 0;
+        if (firstKey != null) {
+            while (start < keys.size()) {
+                final int c = this.ordering.compare(keys.get(start), firstKey);
+                if (up ? c >= 0 : c <= 0) break;
+                start++;
+            }
+        }
+        return new KeyIterator(keys, start);
+    }
+
+    private final class KeyIterator implements CloneableIterator<byte[]> {
+
+        private final List<byte[]> keys;
+        private int p;
+
+        private KeyIterator(final List<byte[]> keys, final int start) {
+            this.keys = keys;
+            this.p = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.p < this.keys.size();
+        }
+
+        @Override
+        public byte[] next() {
+            if (this.p >= this.keys.size()) throw new NoSuchElementException();
+            return this.keys.get(this.p++);
+        }
+
+        @Override
+        public void remove() {
+            OffHeapHandleMap.this.remove(this.keys.get(this.p - 1));
+        }
+
+        @Override
+        public CloneableIterator<byte[]> clone(final Object modifier) {
+            return keys(true, (byte[]) modifier);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * iterate over all entries in no specific order. Each shard is copied when the iteration reaches it,
+     * therefore the iterator does not fail on concurrent modifications and supports remove().
+     */
+    @Override
+    public Iterator<Map.Entry<byte[], Long>> iterator() {
+        final Shard[] s = shards();
+        return new Iterator<Map.Entry<byte[], Long>>() {
+
+            private int shardIndex = 0;
+            private final List<byte[]> keys = new ArrayList<byte[]>();
+            private final List<Long> values = new ArrayList<Long>();
+            private int p = 0;
+            private byte[] last = null;
+
+            @Override
+            public boolean hasNext() {
+                while (this.p >= this.keys.size()) {
+                    if (this.shardIndex >= s.length) return false;
+                    this.keys.clear();
+                    this.values.clear();
+                    this.p = 0;
+                    final Shard shard = s[this.shardIndex++];
+                    synchronized (shard) {
+                        shard.collect(this.keys, this.values);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Map.Entry<byte[], Long> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                this.last = this.keys.get(this.p);
+                return new AbstractMap.SimpleEntry<byte[], Long>(this.last, this.values.get(this.p++));
+            }
+
+            @Override
+            public void remove() {
+                if (this.last == null) throw new IllegalStateException();
+                OffHeapHandleMap.this.remove(this.last);
+                this.last = null;
+            }
+        };
+    }
+
+    /**
+     * release the off-heap memory. The direct buffers are freed by the garbage collector.
+     */
+    @Override
+    public void close() {
+        this.shards = null;
+    }
+
+    @Override
+    public String toString() {
+        return this.name + ": " + size() + " entries, " + (mem() / 1024) + " KB off-heap";
+    }
+}
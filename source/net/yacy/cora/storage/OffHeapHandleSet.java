@@ -0,0 +1,230 @@
+/**
+ *  OffHeapHandleSet
+ *  Copyright 2026 by the YaCy contributors
+ *  First published 17.10.2026 on http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * A HandleSet which stores its keys outside of the java heap, see {@link OffHeapHandleMap}.
+ * The set has no order, the sorted access methods create a sorted copy of the keys.
+ */
+public final class OffHeapHandleSet implements HandleSet {
+
+    private static final long serialVersionUID = -2812392045612398641L;
+
+    private transient OffHeapHandleMap map;
+
+    public OffHeapHandleSet(final int keylength, final ByteOrder ordering, final int expectedspace) {
+        this.map = new OffHeapHandleMap(keylength, ordering, 1, expectedspace, "OffHeapHandleSet");
+    }
+
+    @Override
+    public OffHeapHandleSet clone() {
+        final OffHeapHandleSet clone = new OffHeapHandleSet(this.map.keylength(), this.map.ordering(), size());
+        try {
+            clone.putAll(this);
+        } catch (final SpaceExceededException e) {
+            throw new OutOfMemoryError(e.getMessage());
+        }
+        return clone;
+    }
+
+    /**
+     * @return all keys in sorted order, concatenated into one array
+     */
+    @Override
+    public byte[] export() {
+        final int keylength = this.map.keylength();
+        final CloneableIterator<byte[]> i = this.map.keys(true, null);
+        final byte[] b = new byte[size() * keylength];
+        int p = 0;
+        while (i.hasNext() && p < b.length) {
+            System.arraycopy(i.next(), 0, b, p, keylength);
+            p += keylength;
+        }
+        return b;
+    }
+
+    @Override
+    public void optimize() {
+    }
+
+    @Override
+    public int dump(final File file) throws IOException {
+        return this.map.dump(file);
+    }
+
+    @Override
+    public byte[] smallestKey() {
+        return this.map.smallestKey();
+    }
+
+    @Override
+    public byte[] largestKey() {
+        return this.map.largestKey();
+    }
+
+    @Override
+    public ByteOrder comparator() {
+        return this.map.ordering();
+    }
+
+    @Override
+    public void clear() {
+        this.map.clear();
+    }
+
+    @Override
+    public boolean has(final byte[] key) {
+        return this.map.has(key);
+    }
+
+    @Override
+    public void putAll(final HandleSet aset) throws SpaceExceededException {
+        for (final byte[] b: aset) put(b);
+    }
+
+    @Override
+    public boolean put(final byte[] key) throws SpaceExceededException {
+        return this.map.put(key, 0) < 0;
+    }
+
+    @Override
+    public void putUnique(final byte[] key) throws SpaceExceededException {
+        this.map.put(key, 0);
+    }
+
+    @Override
+    public boolean remove(final byte[] key) {
+        return this.map.remove(key) >= 0;
+    }
+
+    @Override
+    public byte[] removeOne() {
+        return this.map.removeOneKey();
+    }
+
+    /**
+     * get one entry; getOne(0) returns the same entry that removeOne() would remove
+     */
+    @Override
+    public byte[] getOne(final int idx) {
+        final List<byte[]> top = this.map.top(idx + 1);
+        return top.size() > idx ? top.get(idx) : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.map.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public int keylen() {
+        return this.map.keylength();
+    }
+
+    @Override
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) {
+        return this.map.keys(up, firstKey);
+    }
+
+    @Override
+    public void excludeDestructive(final Set<byte[]> other) {
+        if (other == null || other.isEmpty()) return;
+        if (other.size() <= size()) {
+            for (final byte[] b: other) this.map.remove(b);
+        } else {
+            final Iterator<byte[]> i = iterator();
+            while (i.hasNext()) if (other.contains(i.next())) i.remove();
+        }
+    }
+
+    /**
+     * iterate the keys in no specific order
+     */
+    @Override
+    public Iterator<byte[]> iterator() {
+        final Iterator<Map.Entry<byte[], Long>> i = this.map.iterator();
+        return new Iterator<byte[]>() {
+            @Override
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+            @Override
+            public byte[] next() {
+                return i.next().getKey();
+            }
+            @Override
+            public void remove() {
+                i.remove();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        this.map.close();
+    }
+
+    @Override
+    public String toString() {
+        return this.map.toString();
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.writeInt(this.map.keylength());
+        out.writeObject(this.map.ordering());
+        out.writeInt(size());
+        for (final byte[] key: this) out.write(key, 0, this.map.keylength());
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final int keylength = in.readInt();
+        final ByteOrder ordering = (ByteOrder) in.readObject();
+        final int size = in.readInt();
+        this.map = new OffHeapHandleMap(keylength, ordering, 1, size, "OffHeapHandleSet");
+        final byte[] key = new byte[keylength];
+        try {
+            for (int i = 0; i < size; i++) {
+                in.readFully(key);
+                this.map.put(key, 0);
+            }
+        } catch (final SpaceExceededException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+}
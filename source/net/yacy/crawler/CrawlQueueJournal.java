@@ -0,0 +1,165 @@
+/**
+ *  CrawlQueueJournal
+ *  Copyright 2026 by the YaCy contributors
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.crawler.retrieval.Request;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * An append-only journal of crawl requests which had been accepted by a {@link HostBalancer}
+ * but not yet written to the stacks of their host queue. Each entry is the row of the request
+ * in the format of {@link Request#rowdef}, so the entries have a fixed length.
+ *
+ * The journal has two files: the current file where new entries are appended, and a rotated file
+ * which holds the entries of a group commit while that commit is running. The rotated file is deleted
+ * when the group commit has finished. After a crash both files are replayed.
+ *
+ * Each entry is written to the file when it is appended, so it survives a crash of the process.
+ * The file is synchronized with the disk once for each batch, when the journal is rotated at the start
+ * of a group commit: a crash of the operating system may lose the entries of the last commit cycle.
+ */
+public class CrawlQueueJournal {
+
+    private final static ConcurrentLog log = new ConcurrentLog("CrawlQueueJournal");
+
+    private final File file;
+    private final File rotated;
+    private FileOutputStream os;
+
+    /**
+     * @param file the journal file; the rotated file has the same name with the extension '.1'
+     */
+    public CrawlQueueJournal(final File file) {
+        this.file = file;
+        this.rotated = new File(file.getParentFile(), file.getName() + ".1");
+        this.os = null;
+    }
+
+    /**
+     * append a request to the journal; the entry is written to the file at once
+     * but synchronized with the disk only when the journal is rotated or closed
+     * @param entry
+     * @throws IOException
+     */
+    public synchronized void append(final Request entry) throws IOException {
+        if (this.os == null) this.os = new FileOutputStream(this.file, true);
+        this.os.write(entry.toRow().bytes());
+    }
+
+    /**
+     * start a group commit: the entries which had been appended so far are moved to the rotated file.
+     * If a rotated file from a failed commit still exists, the current entries are added to it.
+     * @throws IOException
+     */
+    public synchronized void rotate() throws IOException {
+        close();
+        if (!this.file.exists()) return;
+        if (!this.rotated.exists() && this.file.renameTo(this.rotated)) return;
+        final OutputStream out = new FileOutputStream(this.rotated, true);
+        try {
+            FileUtils.copy(this.file, out);
+        } finally {
+            out.close();
+        }
+        FileUtils.deletedelete(this.file);
+    }
+
+    /**
+     * finish a group commit: the entries of the rotated file are stored in their host queues
+     */
+    public synchronized void release() {
+        if (this.rotated.exists()) FileUtils.deletedelete(this.rotated);
+    }
+
+    /**
+     * read all entries of the rotated and the current file in the order in which they had been appended
+     * @return the requests in the journal
+     */
+    public synchronized List<Request> replay() {
+        final List<Request> entries = new ArrayList<Request>();
+        read(this.rotated, entries);
+        read(this.file, entries);
+        return entries;
+    }
+
+    /**
+     * delete all entries of the journal
+     */
+    public synchronized void clear() {
+        close();
+        if (this.file.exists()) FileUtils.deletedelete(this.file);
+        release();
+    }
+
+    public synchronized void close() {
+        if (this.os == null) return;
+        try {
+            this.os.getFD().sync();
+        } catch (final IOException e) {
+            log.warn("cannot sync journal " + this.file + ": " + e.getMessage());
+        }
+        try {
+            this.os.close();
+        } catch (final IOException e) {
+            log.warn("cannot close journal " + this.file + ": " + e.getMessage());
+        }
+        this.os = null;
+    }
+
+    private static void read(final File f, final List<Request> entries) {
+        if (!f.exists()) return;
+        final byte[] b = new byte[Request.rowdef.objectsize];
+        InputStream is = null;
+        try {
+            is = new BufferedInputStream(new FileInputStream(f), 16 * 1024);
+            final DataInputStream dis = new DataInputStream(is);
+            while (true) {
+                try {
+                    dis.readFully(b);
+                } catch (final EOFException e) {
+                    break; // the last entry may be incomplete if the process was killed while it was written
+                }
+                try {
+                    entries.add(new Request(Request.rowdef.newEntry(b.clone())));
+                } catch (final IOException e) {
+                    log.warn("skipped broken journal entry in " + f + ": " + e.getMessage());
+                }
+            }
+        } catch (final IOException e) {
+            log.warn("cannot read journal " + f + ": " + e.getMessage());
+        } finally {
+            if (is != null) try {is.close();} catch (final IOException e) {}
+        }
+    }
+}
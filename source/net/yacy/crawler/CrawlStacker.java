@@ -155,6 +155,8 @@ public final class CrawlStacker implements WorkflowTask<Request>{
 
         // DEBUG
         if (CrawlStacker.log.isFinest()) CrawlStacker.log.finest("ENQUEUE " + entry.url() + ", referer=" + entry.referrerhash() + ", initiator=" + ((entry.initiator() == null) ? "" : ASCII.String(entry.initiator())) + ", name=" + entry.name() + ", appdate=" + entry.appdate() + ", depth=" + entry.depth());
+        // resolve the host while the entry waits in the queue; the stacker and the loader find the address in the name cache
+        Domains.prefetch(entry.url().getHost());
         this.requestQueue.enQueue(entry);
     }
     
@@ -427,7 +429,7 @@ public final class CrawlStacker implements WorkflowTask<Request>{
         String urlhash = ASCII.String(url.hash());
         LoadTimeURL oldEntry = null;
         try {
-            oldEntry = this.indexSegment.fulltext().getDefaultConnector().getLoadTimeURL(urlhash);
+            oldEntry = this.indexSegment.fulltext().getLoadTimeURL(urlhash); // the url hash filter answers for new urls without a solr request
         } catch (IOException e) {
             // if an exception here occurs then there is the danger that urls which had been in the crawler are overwritten a second time
             // to prevent that, we reject urls in these events
@@ -26,7 +26,7 @@ import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -34,13 +34,17 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.protocol.ClientIdentification;
+import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.storage.HandleMap;
 import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.storage.OffHeapHandleMap;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.crawler.data.CrawlProfile;
@@ -48,7 +52,6 @@ import net.yacy.crawler.data.Latency;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.robots.RobotsTxt;
 import net.yacy.kelondro.data.word.Word;
-import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.util.FileUtils;
 
@@ -64,13 +67,39 @@ import net.yacy.kelondro.util.FileUtils;
 public class HostBalancer implements Balancer {
 
     private final static ConcurrentLog log = new ConcurrentLog("HostBalancer");
-    public final static HandleMap depthCache = new RowHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, 8 * 1024 * 1024, "HostBalancer.DepthCache");
+    /** url hash to crawl depth; held off-heap because it may contain tens of millions of entries */
+    public final static HandleMap depthCache = new OffHeapHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, 8 * 1024 * 1024, "HostBalancer.DepthCache");
     
     private final File hostsPath;
     private final boolean exceed134217727;
     private final Map<String, HostQueue> queues;
-    private final Set<String> roundRobinHostHashes;
+    /** the hosts which are ready to be popped, ordered by the time when the host may be accessed next */
+    private final ConcurrentSkipListSet<ScheduledHost> schedule;
+    /** the scheduled hosts and the hosts which are currently popped by a loader, by host hash */
+    private final ConcurrentHashMap<String, ScheduledHost> slots;
+    private final AtomicLong sequence;
     private final int onDemandLimit;
+    /** write-behind journal of the pushed requests which are not yet stored in the stacks of their host queue */
+    private final CrawlQueueJournal journal;
+    /** the pushed requests which are not yet stored in the stacks of their host queue, by host hash; guarded by this */
+    private final Map<String, List<Request>> pending;
+    /** the hosts whose pending requests are being stored by a commit; guarded by this */
+    private final Set<String> committing;
+    private volatile int pendingCount;
+    /** serializes group commits so that the rotated journal is released only after all its entries are stored */
+    private final Object commitLock;
+    private final Object commitSignal;
+    private volatile boolean commitShallRun;
+    private final Thread committer;
+    /** true until the journal of the last run is replayed; the rotated journal must not be released before */
+    private volatile boolean replaying;
+
+    /** maximum time until a pushed request is stored in the stacks of its host queue */
+    private final static long commitCycle = 1000;
+    /** number of pending requests which start a group commit before the commit cycle has passed */
+    private final static int commitLimit = 1000;
+    /** number of due hosts which are looked at to find one with a resolved address */
+    private final static int resolvedLookahead = 16;
 
     /**
      * Create a new instance and asynchronously fills the queue by scanning the hostsPath directory.
@@ -104,34 +133,58 @@ public class HostBalancer implements Balancer {
         // create a stack for newly entered entries
         if (!(hostsPath.exists())) hostsPath.mkdirs(); // make the path
         this.queues = new ConcurrentHashMap<String, HostQueue>();
-        this.roundRobinHostHashes = new HashSet<String>();
-        init(asyncInit); // return without wait but starts a thread to fill the queues
+        this.schedule = new ConcurrentSkipListSet<ScheduledHost>();
+        this.slots = new ConcurrentHashMap<String, ScheduledHost>();
+        this.sequence = new AtomicLong(0);
+        this.pending = new HashMap<String, List<Request>>();
+        this.committing = new HashSet<String>();
+        this.pendingCount = 0;
+        this.commitLock = new Object();
+        this.commitSignal = new Object();
+
+        // requests which were pushed but not committed before the last shutdown are replayed during the init;
+        // the rotated journal keeps them until the replay has finished
+        this.journal = new CrawlQueueJournal(new File(hostsPath.getAbsoluteFile().getParentFile(), hostsPath.getName() + ".journal"));
+        final List<Request> replay = this.journal.replay();
+        this.replaying = true;
+        try {
+            this.journal.rotate();
+        } catch (final IOException e) {
+            log.warn("cannot rotate journal for " + hostsPath.getName() + ": " + e.getMessage());
+        }
+        init(asyncInit, replay); // return without wait but starts a thread to fill the queues
+
+        this.commitShallRun = true;
+        this.committer = new CommitThread(hostsPath.getName());
+        this.committer.setDaemon(true);
+        this.committer.start();
     }
 
     /**
      * Fills the queue by scanning the hostsPath directory. 
      * @param async when true, launch in a dedicated thread to
      * return immediately (as large unfinished crawls may take longer to load)
+     * @param replay requests from the journal which must be stored in their host queues
      */
-    private void init(final boolean async) {
+    private void init(final boolean async, final List<Request> replay) {
     	if(async) {
             Thread t = new Thread("HostBalancer.init") {
                 @Override
                 public void run() {
-                    runInit();
+                    runInit(replay);
                 }
             };
 
             t.start();    		
     	} else {
-    		runInit();
+    		runInit(replay);
     	}
     }
 
     /**
-     * Fills the queue by scanning the hostsPath directory. 
+     * Fills the queue by scanning the hostsPath directory and replays the journal.
      */
-    private void runInit() {
+    private void runInit(final List<Request> replay) {
         final String[] hostlist = hostsPath.list();
         for (String hoststr : hostlist) {
             try {
@@ -142,6 +195,7 @@ public class HostBalancer implements Balancer {
                     FileUtils.deletedelete(queuePath);
                 } else {
                     queues.put(queue.getHostHash(), queue);
+                    schedule(queue, null);
                 }
             } catch (MalformedURLException | RuntimeException e) {
                 log.warn("delete queue due to init error for " + hostsPath.getName() + " host=" + hoststr + " " + e.getLocalizedMessage());
@@ -149,29 +203,207 @@ public class HostBalancer implements Balancer {
                 FileUtils.deletedelete(new File(hostsPath, hoststr));
             }
         }
+        if (replay.isEmpty()) {
+            this.replaying = false;
+            return;
+        }
+
+        // the entries are stored like pending requests; entries which are already stored in a queue are rejected as double occurrence
+        int c = 0;
+        synchronized (this.commitLock) {
+            final List<String> hosthashes;
+            synchronized (this) {
+                for (final Request request: replay) {
+                    try {
+                        getQueue(request, null, null);
+                    } catch (final MalformedURLException e) {
+                        log.warn("cannot replay journal entry " + request.url().toNormalform(true) + ": " + e.getMessage());
+                        continue;
+                    }
+                    depthCache.put(request.url().hash(), request.depth());
+                    addPending(request);
+                }
+                hosthashes = new ArrayList<String>(this.pending.keySet());
+            }
+            for (String hosthash: hosthashes) c += commit(hosthash);
+            for (HostQueue queue: this.queues.values()) {
+                if (!queue.isEmpty()) schedule(queue, null);
+            }
+            this.journal.release();
+            this.replaying = false;
+        }
+        log.info("replayed " + c + " of " + replay.size() + " journal entries for " + hostsPath.getName());
+    }
+
+    /**
+     * get the queue of the host of a request; the queue is created if it does not exist.
+     * Must be called while synchronized with this balancer.
+     * @param robots the robots.txt database to start loading the robots.txt of a new host, may be null
+     */
+    private HostQueue getQueue(final Request entry, final CrawlProfile profile, final RobotsTxt robots) throws MalformedURLException {
+        final String hosthash = entry.url().hosthash();
+        HostQueue queue = this.queues.get(hosthash);
+        if (queue == null) {
+            queue = new HostQueue(this.hostsPath, entry.url(), this.queues.size() > this.onDemandLimit, this.exceed134217727);
+            this.queues.put(hosthash, queue);
+            // profile might be null when continue crawls after YaCy restart
+            if (robots != null) robots.ensureExist(entry.url(), profile == null ? ClientIdentification.yacyInternetCrawlerAgent : profile.getAgent(), true); // concurrently load all robots.txt
+        }
+        return queue;
+    }
+
+    /**
+     * add a request to the pending requests of its host. Must be called while synchronized with this balancer.
+     */
+    private void addPending(final Request entry) {
+        final String hosthash = entry.url().hosthash();
+        List<Request> batch = this.pending.get(hosthash);
+        if (batch == null) {
+            batch = new ArrayList<Request>();
+            this.pending.put(hosthash, batch);
+        }
+        batch.add(entry);
+        this.pendingCount++;
+    }
+
+    private class CommitThread extends Thread {
+        public CommitThread(final String name) {
+            super("HostBalancer.CommitThread(" + name + ")");
+        }
+
+        @Override
+        public void run() {
+            while (HostBalancer.this.commitShallRun) {
+                synchronized (HostBalancer.this.commitSignal) {
+                    if (HostBalancer.this.pendingCount < commitLimit) try {
+                        HostBalancer.this.commitSignal.wait(commitCycle);
+                    } catch (final InterruptedException e) {}
+                }
+                if (!HostBalancer.this.commitShallRun) break;
+                try {
+                    commit();
+                } catch (final Throwable e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * group commit: store all pending requests in the stacks of their host queues and release the journal
+     */
+    private void commit() {
+        synchronized (this.commitLock) {
+            if (this.pendingCount == 0) return;
+            // the journal is rotated before the pending hosts are collected: an entry in the rotated journal
+            // had been appended together with its pending request, so its host is always collected
+            try {
+                this.journal.rotate();
+            } catch (final IOException e) {
+                log.warn("cannot rotate journal for " + this.hostsPath.getName() + ": " + e.getMessage());
+                return;
+            }
+            final List<String> hosthashes;
+            synchronized (this) {
+                hosthashes = new ArrayList<String>(this.pending.keySet());
+            }
+            // the hosts are committed one after another so that pushes are not blocked during the whole commit;
+            // requests which are pushed meanwhile may be committed as well, then they are replayed as double occurrences
+            for (String hosthash: hosthashes) commit(hosthash);
+            if (!this.replaying) this.journal.release();
+        }
+    }
+
+    /**
+     * store the pending requests of one host in the stacks of its host queue. The requests are written
+     * with one batch push outside of the monitor of this balancer, so that pushes and pops of other hosts
+     * are not blocked by the disk access. A commit of the same host in another thread is waited for,
+     * so that the requests of the host are stored when this method returns.
+     * @return the number of requests which had been stored; the other requests were double occurrences
+     */
+    private int commit(final String hosthash) {
+        final List<Request> batch;
+        final HostQueue queue;
+        synchronized (this) {
+            while (this.committing.contains(hosthash)) try {
+                this.wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+            batch = this.pending.remove(hosthash);
+            if (batch == null) return 0;
+            try {
+                queue = getQueue(batch.get(0), null, null);
+            } catch (final MalformedURLException e) {
+                this.pendingCount -= batch.size();
+                log.warn("cannot store " + batch.size() + " crawl requests for host " + hosthash + ": " + e.getMessage());
+                return 0;
+            }
+            // the queue is not removed by a reschedule and the pending requests are counted until they are stored
+            this.committing.add(hosthash);
+        }
+        try {
+            return queue.push(batch);
+        } catch (final IOException | SpaceExceededException e) {
+            log.warn("cannot store " + batch.size() + " crawl requests for host " + hosthash + ": " + e.getMessage());
+            return 0;
+        } finally {
+            synchronized (this) {
+                this.pendingCount -= batch.size();
+                this.committing.remove(hosthash);
+                this.notifyAll();
+            }
+        }
     }
 
     @Override
-    public synchronized void close() {
-        if (depthCache != null) {
-            depthCache.clear();
+    public void close() {
+        this.commitShallRun = false;
+        synchronized (this.commitSignal) {
+            this.commitSignal.notifyAll();
+        }
+        // a running group commit must store its batches before the journal is cleared and the queues are closed
+        try {
+            this.committer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this.commitLock) {
+            synchronized (this) {
+                for (String hosthash: new ArrayList<String>(this.pending.keySet())) commit(hosthash);
+                this.journal.clear();
+                if (depthCache != null) {
+                    depthCache.clear();
+                }
+                for (HostQueue queue: this.queues.values()) queue.close();
+                this.queues.clear();
+                this.schedule.clear();
+                this.slots.clear();
+            }
         }
-        for (HostQueue queue: this.queues.values()) queue.close();
-        this.queues.clear();
     }
 
     @Override
     public void clear() {
+        synchronized (this) {
+            this.pending.clear();
+            this.pendingCount = 0;
+            this.journal.clear();
+        }
         if (depthCache != null) {
             depthCache.clear();
         }
         for (HostQueue queue: this.queues.values()) queue.clear();
         this.queues.clear();
+        this.schedule.clear();
+        this.slots.clear();
     }
 
     @Override
     public Request get(final byte[] urlhash) throws IOException {
         String hosthash = ASCII.String(urlhash, 6, 6);
+        commit(hosthash);
         HostQueue queue = this.queues.get(hosthash);
         if (queue == null) return null;
         return queue.get(urlhash);
@@ -179,6 +411,7 @@ public class HostBalancer implements Balancer {
 
     @Override
     public int removeAllByProfileHandle(final String profileHandle, final long timeout) throws IOException, SpaceExceededException {
+        commit();
         int c = 0;
         for (HostQueue queue: this.queues.values()) {
             c += queue.removeAllByProfileHandle(profileHandle, timeout);
@@ -195,6 +428,7 @@ public class HostBalancer implements Balancer {
     public int removeAllByHostHashes(final Set<String> hosthashes) {
         int c = 0;
         for (String h: hosthashes) {
+            commit(h);
             HostQueue hq = this.queues.get(h);
             if (hq != null) c += hq.removeAllByHostHashes(hosthashes);
         }
@@ -224,6 +458,7 @@ public class HostBalancer implements Balancer {
         }
         int c = 0;
         for (Map.Entry<String, HandleSet> entry: removeLists.entrySet()) {
+            commit(entry.getKey());
             HostQueue queue = this.queues.get(entry.getKey());
             if (queue != null) c += queue.remove(entry.getValue());
         }
@@ -246,7 +481,7 @@ public class HostBalancer implements Balancer {
 
     @Override
     public int size() {
-        int c = 0;
+        int c = this.pendingCount;
         for (HostQueue queue: this.queues.values()) {
             c += queue.size();
         }
@@ -255,6 +490,7 @@ public class HostBalancer implements Balancer {
 
     @Override
     public boolean isEmpty() {
+        if (this.pendingCount > 0) return false;
         for (HostQueue queue: this.queues.values()) {
             if (!queue.isEmpty()) return false;
         }
@@ -271,7 +507,9 @@ public class HostBalancer implements Balancer {
         return this.exceed134217727;
     }
     /**
-     * push a request to one of the host queues. If the queue does not exist, it is created
+     * push a request to one of the host queues. If the queue does not exist, it is created.
+     * The request is written to the journal and stored in the stacks of the host queue later
+     * with a group commit, or when the host is popped.
      * @param entry
      * @param profile
      * @param robots
@@ -283,17 +521,126 @@ public class HostBalancer implements Balancer {
     public String push(final Request entry, CrawlProfile profile, final RobotsTxt robots) throws IOException, SpaceExceededException {
         if (this.has(entry.url().hash())) return "double occurrence";
         depthCache.put(entry.url().hash(), entry.depth());
-        String hosthash = entry.url().hosthash();
+        final HostQueue queue;
+        synchronized (this) {
+            queue = getQueue(entry, profile, robots);
+            this.journal.append(entry);
+            addPending(entry);
+        }
+
+        // increase dom counter
+        if (profile != null) {
+            int maxPages = profile.domMaxPages();
+            if (maxPages != Integer.MAX_VALUE && maxPages > 0) {
+                String host = entry.url().getHost();
+                profile.domInc(host);
+            }
+        }
+
+        // a host which is new or had been empty is scheduled
+        schedule(queue, robots);
+        if (this.pendingCount >= commitLimit) synchronized (this.commitSignal) {
+            this.commitSignal.notifyAll();
+        }
+        return null;
+    }
+
+    /**
+     * A host in the schedule. The order is given by the time when the host may be accessed next;
+     * hosts which may be accessed at the same time are ordered by the size of their queue, larger first.
+     * The values are not changed while the object is in the schedule; a host is rescheduled with a new object.
+     */
+    private static final class ScheduledHost implements Comparable<ScheduledHost> {
+        private final String hosthash;
+        private final long due;
+        private final int size;
+        private final long seq;
+
+        private ScheduledHost(final String hosthash, final long due, final int size, final long seq) {
+            this.hosthash = hosthash;
+            this.due = due;
+            this.size = size;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(final ScheduledHost o) {
+            if (this.due != o.due) return this.due < o.due ? -1 : 1;
+            if (this.size != o.size) return this.size > o.size ? -1 : 1;
+            return Long.compare(this.seq, o.seq);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof ScheduledHost && ((ScheduledHost) o).seq == this.seq;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (this.seq ^ (this.seq >>> 32));
+        }
+    }
+
+    /**
+     * put a host into the schedule if it is neither scheduled nor currently popped by a loader
+     * @param queue the queue of the host
+     * @param robots the robots.txt database to guess the next access time, may be null
+     */
+    private void schedule(final HostQueue queue, final RobotsTxt robots) {
+        final String hosthash = queue.getHostHash();
+        if (this.slots.containsKey(hosthash)) return;
+        final long due = Latency.nextAccessGuessed(queue.getHost(), queue.getPort(), hosthash, robots, ClientIdentification.yacyInternetCrawlerAgent);
+        final ScheduledHost sh = new ScheduledHost(hosthash, due, queue.size(), this.sequence.incrementAndGet());
+        if (this.slots.putIfAbsent(hosthash, sh) == null) this.schedule.add(sh);
+    }
+
+    /**
+     * put a host which was popped by a loader back into the schedule, or remove its queue if it is empty
+     */
+    private void reschedule(final String hosthash, final HostQueue queue, final RobotsTxt robots) {
         synchronized (this) {
-            HostQueue queue = this.queues.get(hosthash);
-            if (queue == null) {
-                queue = new HostQueue(this.hostsPath, entry.url(), this.queues.size() > this.onDemandLimit, this.exceed134217727);
-                this.queues.put(hosthash, queue);
-                // profile might be null when continue crawls after YaCy restart
-                robots.ensureExist(entry.url(), profile == null ? ClientIdentification.yacyInternetCrawlerAgent : profile.getAgent(), true); // concurrently load all robots.txt
+            // synchronized with push to prevent that an entry is pushed into a queue which is removed
+            if (queue.isEmpty() && !this.pending.containsKey(hosthash) && !this.committing.contains(hosthash)) {
+                this.queues.remove(hosthash);
+                this.slots.remove(hosthash);
+                queue.close();
+                return;
+            }
+        }
+        final long due = Latency.nextAccessGuessed(queue.getHost(), queue.getPort(), hosthash, robots, ClientIdentification.yacyInternetCrawlerAgent);
+        final ScheduledHost sh = new ScheduledHost(hosthash, due, queue.size(), this.sequence.incrementAndGet());
+        this.slots.put(hosthash, sh);
+        this.schedule.add(sh);
+    }
+
+    /**
+     * take the first host from the schedule. If the address of that host is not yet resolved, another host
+     * which is also due and which has a resolved address is preferred, so that the loader does not wait for the dns.
+     * @return the host to be accessed next or null if the schedule is empty
+     */
+    private ScheduledHost pollScheduled() {
+        final ScheduledHost first = this.schedule.pollFirst();
+        if (first == null || isResolved(first)) return first;
+        final long now = System.currentTimeMillis();
+        if (first.due > now) return first;
+        int c = 0;
+        for (final ScheduledHost sh: this.schedule) {
+            if (sh.due > now || c++ >= resolvedLookahead) break;
+            if (isResolved(sh) && this.schedule.remove(sh)) {
+                this.schedule.add(first);
+                return sh;
             }
-            return queue.push(entry, profile, robots);
         }
+        return first;
+    }
+
+    private boolean isResolved(final ScheduledHost sh) {
+        final HostQueue queue = this.queues.get(sh.hosthash);
+        if (queue == null) return true;
+        final String host = queue.getHost();
+        if (Domains.isResolved(host)) return true;
+        Domains.prefetch(host); // in case that the prefetch queue was full when the host was stacked
+        return false;
     }
 
     /**
@@ -301,7 +648,9 @@ public class HostBalancer implements Balancer {
      * and always above the given minimum delay time. An additional delay time is computed using the robots.txt
      * crawl-delay time which is always respected. In case the minimum time cannot ensured, this method pauses
      * the necessary time until the url is released and returned as CrawlEntry object. In case that a profile
-     * for the computed Entry does not exist, null is returned
+     * for the computed Entry does not exist, null is returned.
+     * The hosts are taken from a schedule which is ordered by the guessed next access time of the host,
+     * so a pop costs O(log hosts) and concurrent loaders take different hosts without a common lock.
      * @param delay true if the requester demands forced delays using explicit thread sleep
      * @param profile
      * @return a url in a CrawlEntry object
@@ -311,179 +660,34 @@ public class HostBalancer implements Balancer {
     @Override
     public Request pop(boolean delay, CrawlSwitchboard cs, RobotsTxt robots) throws IOException {
         tryagain: while (true) try {
-            HostQueue rhq = null;
-            String rhh = null;
-        
-            synchronized (this) {
-                if (this.roundRobinHostHashes.size() == 0) {
-                    // refresh the round-robin cache
-                    this.roundRobinHostHashes.addAll(this.queues.keySet());
-                    // quickly get rid of small stacks to reduce number of files:
-                    // remove all stacks with more than 10 entries
-                    // this shall kick out small stacks to prevent that too many files are opened for very wide crawls
-                    boolean smallStacksExist = false;
-                    boolean singletonStacksExist = false;
-                    smallsearch: for (String s: this.roundRobinHostHashes) {
-                        HostQueue hq = this.queues.get(s);
-                        if (hq != null) {
-                            int size = hq.size();
-                            if (size ==  1) {singletonStacksExist = true; break smallsearch;}
-                            if (size <= 10) {smallStacksExist = true; break smallsearch;}
-                        }
-                    }
-                    if (singletonStacksExist || smallStacksExist) {
-                        Iterator<String> i = this.roundRobinHostHashes.iterator();
-                        smallstacks: while (i.hasNext()) {
-                            if (this.roundRobinHostHashes.size() <= 10) break smallstacks; // don't shrink the hosts until nothing is left
-                            String s = i.next();
-                            HostQueue hq = this.queues.get(s);
-                            if (hq == null) {i.remove(); continue smallstacks;}
-                            int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), s, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                            if (delta < 0) continue; // keep all non-waiting stacks; they are useful to speed up things
-                            // to protect all small stacks which have a fast throughput, remove all with long waiting time
-                            if (delta >= 1000) {i.remove(); continue smallstacks;}
-                            int size = hq.size();
-                            if (singletonStacksExist) {
-                                if (size != 1) {i.remove(); continue smallstacks;} // remove all non-singletons
-                            } else /*smallStacksExist*/ {
-                                if (size > 10) {i.remove(); continue smallstacks;} // remove all large stacks
-                            }
-                        }
+            // take the host which may be accessed first; other loaders take other hosts at the same time
+            final ScheduledHost sh = pollScheduled();
+            if (sh == null) {
+                // all hosts are empty or popped by other loaders; schedule queues which got lost, i.e. by a concurrent clear
+                boolean found = false;
+                for (HostQueue hq: this.queues.values()) {
+                    if (!this.slots.containsKey(hq.getHostHash()) && !hq.isEmpty()) {
+                        schedule(hq, robots);
+                        found = true;
                     }
-                    if (this.roundRobinHostHashes.size() == 1) {
-                        if (log.isFine()) log.fine("(re-)initialized the round-robin queue with one host");
-                    } else {
-                        log.info("(re-)initialized the round-robin queue; " + this.roundRobinHostHashes.size() + " hosts.");
-                    }
-                }
-                if (this.roundRobinHostHashes.size() == 0) return null;
-                
-                // if the queue size is 1, just take that
-                if (this.roundRobinHostHashes.size() == 1) {
-                    rhh = this.roundRobinHostHashes.iterator().next();
-                    rhq = this.queues.get(rhh);
                 }
-                
-                if (rhq == null) {
-                    // mixed minimum sleep time / largest queue strategy:
-                    // create a map of sleep time / queue relations with a fuzzy sleep time (ms / 500).
-                    // if the entry with the smallest sleep time contains at least two entries,
-                    // then the larger one from these queues are selected.
-                    TreeMap<Integer, List<String>> fastTree = new TreeMap<>();
-                    mixedstrategy: for (String h: this.roundRobinHostHashes) {
-                        HostQueue hq = this.queues.get(h);
-                        if (hq != null) {
-                            int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), h, robots, ClientIdentification.yacyInternetCrawlerAgent) / 200;
-                            if (delta < 0) delta = 0;
-                            List<String> queueHashes = fastTree.get(delta);
-                            if (queueHashes == null) {
-                                queueHashes = new ArrayList<>(2);
-                                fastTree.put(delta, queueHashes);
-                            }
-                            queueHashes.add(h);
-                            // check stop criteria
-                            List<String> firstEntries = fastTree.firstEntry().getValue();
-                            if (firstEntries.size() > 1) {
-                                // select larger queue from that list
-                                int largest = Integer.MIN_VALUE;
-                                for (String hh: firstEntries) {
-                                    HostQueue hhq = this.queues.get(hh);
-                                    if (hhq != null) {
-                                        int s = hhq.size();
-                                        if (s > largest) {
-                                            largest = s;
-                                            rhh = hh;
-                                        }
-                                    }
-                                }
-                                rhq = this.queues.get(rhh);
-                                break mixedstrategy;
-                            }
-                        }
-                    }
-                    if (rhq == null && fastTree.size() > 0) {
-                        // it may be possible that the lowest entry never has more than one queues assigned
-                        // in this case just take the smallest entry
-                        List<String> firstEntries = fastTree.firstEntry().getValue();
-                        assert firstEntries.size() == 1;
-                        rhh = firstEntries.get(0);
-                        rhq = this.queues.get(rhh);
-                    }
-                    // to prevent that the complete roundrobinhosthashes are taken for each round, we remove the entries from the top of the fast queue
-                    List<String> lastEntries = fastTree.size() > 0 ? fastTree.lastEntry().getValue() : null;
-                    if (lastEntries != null) {
-                        for (String h: lastEntries) this.roundRobinHostHashes.remove(h);
-                    }
-                }
-
-                /*
-                // first strategy: get one entry which does not need sleep time
-                Iterator<String> nhhi = this.roundRobinHostHashes.iterator();
-                nosleep: while (nhhi.hasNext()) {
-                    rhh = nhhi.next();
-                    rhq = this.queues.get(rhh);
-                    if (rhq == null) {
-                        nhhi.remove();
-                        continue nosleep;
+                if (found) continue tryagain;
+                return null;
             }
-                    int delta = Latency.waitingRemainingGuessed(rhq.getHost(), rhh, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                    if (delta <= 10 || this.roundRobinHostHashes.size() == 1 || rhq.size() == 1) {
-                        nhhi.remove();
-                        break nosleep;
-                    }
-                }
-                if (rhq == null) {
-                    // second strategy: take from the largest stack
-                    int largest = Integer.MIN_VALUE;
-                    for (String h: this.roundRobinHostHashes) {
-                        HostQueue hq = this.queues.get(h);
-                        if (hq != null) {
-                            int s = hq.size();
-                            if (s > largest) {
-                                largest = s;
-                                rhh = h;
-                            }
-                        }
-                    }
-                    rhq = this.queues.get(rhh);
-                }
-                */
-            }
-            
+            final HostQueue rhq = this.queues.get(sh.hosthash);
             if (rhq == null) {
-                this.roundRobinHostHashes.clear(); // force re-initialization
+                this.slots.remove(sh.hosthash, sh);
                 continue tryagain;
             }
-            this.roundRobinHostHashes.remove(rhh); // prevent that the queue is used again
-            long timestamp = System.currentTimeMillis();
-            Request request = rhq.pop(delay, cs, robots); // this pop is outside of synchronization to prevent blocking of pushes
-            long actualwaiting = System.currentTimeMillis() - timestamp;
-            
-            if (actualwaiting > 1000) {
-                synchronized (this) {
-                    // to prevent that this occurs again, remove all stacks with positive delay times (which may be less after that waiting)
-                    Iterator<String> i = this.roundRobinHostHashes.iterator();
-                    protectcheck: while (i.hasNext()) {
-                        if (this.roundRobinHostHashes.size() <= 3) break protectcheck; // don't shrink the hosts until nothing is left
-                        String s = i.next();
-                        HostQueue hq = this.queues.get(s);
-                        if (hq == null) {i.remove(); continue protectcheck;}
-                        int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), s, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                        if (delta >= 0) {i.remove();}
-                    }
-                }
-            }
-            
-            if (rhq.isEmpty()) {
-                synchronized (this) {
-                    this.queues.remove(rhh);
-                }
-                rhq.close();
+            final Request request;
+            try {
+                commit(sh.hosthash);
+                request = rhq.pop(delay, cs, robots); // waits if the host is not due yet
+            } finally {
+                reschedule(sh.hosthash, rhq, robots);
             }
             if (request == null) continue tryagain;
             return request;
-        } catch (ConcurrentModificationException e) {
-            continue tryagain;
         } catch (IOException e) {
             throw e;
         } catch (Throwable e) {
@@ -494,6 +698,7 @@ public class HostBalancer implements Balancer {
 
     @Override
     public Iterator<Request> iterator() throws IOException {
+        commit();
         final Iterator<HostQueue> hostsIterator = this.queues.values().iterator();
         @SuppressWarnings("unchecked")
         final Iterator<Request>[] hostIterator = (Iterator<Request>[]) Array.newInstance(Iterator.class, 1);
@@ -527,6 +732,7 @@ public class HostBalancer implements Balancer {
      */
     @Override
     public Map<String, Integer[]> getDomainStackHosts(RobotsTxt robots) {
+        commit();
         Map<String, Integer[]> map = new TreeMap<String, Integer[]>(); // we use a tree map to get a stable ordering
         for (HostQueue hq: this.queues.values()) {
             int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), hq.getHostHash(), robots, ClientIdentification.yacyInternetCrawlerAgent);
@@ -547,6 +753,7 @@ public class HostBalancer implements Balancer {
         if (host == null) {
         	return Collections.emptyList();
         }
+        commit();
         try {
             HostQueue hq = this.queues.get(DigestURL.hosthash(host, host.startsWith("ftp.") ? 21 : 80));
             if (hq == null) hq = this.queues.get(DigestURL.hosthash(host, 443));
@@ -446,6 +446,51 @@ public class HostQueue implements Balancer {
         return null;
     }
 
+    /**
+     * push a batch of requests. The requests are sorted by url hash and the double-check is done
+     * with one lookup for the whole batch in each depth stack, so that a stack which is opened on demand
+     * is opened only once for the lookup and once when the requests are written.
+     * @param entries requests of this host; the dom counter of their profile is not increased
+     * @return the number of requests which had been stored; the other requests are double occurrences
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public int push(final List<Request> entries) throws IOException, SpaceExceededException {
+        final TreeMap<byte[], Request> batch = new TreeMap<byte[], Request>(Request.rowdef.objectOrder);
+        for (final Request entry: entries) {
+            final byte[] hash = entry.url().hash();
+            if (!batch.containsKey(hash)) batch.put(hash, entry);
+        }
+        synchronized (this) {
+            // double-check
+            for (Index depthStack: this.depthStacks.values()) {
+                if (batch.isEmpty()) return 0;
+                try {
+                    batch.keySet().removeAll(depthStack.get(batch.keySet(), false).keySet());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while pushing to " + this.hostPath);
+                }
+            }
+
+            // add to index, grouped by depth and in the order of the url hashes
+            final TreeMap<Integer, List<Row.Entry>> depths = new TreeMap<Integer, List<Row.Entry>>();
+            for (final Request entry: batch.values()) {
+                List<Row.Entry> rows = depths.get(entry.depth());
+                if (rows == null) {
+                    rows = new ArrayList<Row.Entry>();
+                    depths.put(entry.depth(), rows);
+                }
+                rows.add(entry.toRow());
+            }
+            for (Map.Entry<Integer, List<Row.Entry>> depth: depths.entrySet()) {
+                Index depthStack = getStack(depth.getKey());
+                for (final Row.Entry row: depth.getValue()) depthStack.put(row);
+            }
+        }
+        return batch.size();
+    }
+
 
     @Override
     public Request pop(boolean delay, CrawlSwitchboard cs, RobotsTxt robots) throws IOException {
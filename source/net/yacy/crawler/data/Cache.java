@@ -34,12 +34,26 @@
 
 package net.yacy.crawler.data;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import net.yacy.cora.document.encoding.ASCII;
@@ -49,11 +63,13 @@ import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.document.SentenceIndex;
 import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.blob.Compressor;
 import net.yacy.kelondro.blob.MapHeap;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.index.RowHandleSet;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
 
 
 public final class Cache {
@@ -70,12 +86,45 @@ public final class Cache {
 	
     private static final String RESPONSE_HEADER_DB_NAME = "responseHeader.heap";
     private static final String FILE_DB_NAME = "file.array";
+    private static final String SENTENCE_DB_NAME = "sentence.array";
+    private static final String DICTIONARY_DIR_NAME = "dictionaries";
+
+    /** Number of sample documents of one content type used to train a compression dictionary */
+    protected static final int DICTIONARY_SAMPLES = 32;
+
+    /** Maximum number of bytes of a sample document used to train a compression dictionary */
+    private static final int DICTIONARY_SAMPLE_SIZE = 8 * 1024;
+
+    /** Maximum number of content types with a compression dictionary */
+    private static final int MAX_DICTIONARIES = 16;
 
     private static MapHeap responseHeaderDB = null;
     private static Compressor fileDB = null;
     private static ArrayStack fileDBunbuffered = null;
 
+    /** The sentence indexes of the cached documents, computed when the documents are indexed */
+    private static Compressor sentenceDB = null;
+    private static ArrayStack sentenceDBunbuffered = null;
+
     private static volatile long maxCacheSize = Long.MAX_VALUE;
+
+    /** When true, text content is compressed with a preset dictionary trained for its content type */
+    private static volatile boolean dictionaryCompression = false;
+
+    /** Sample documents for the content types which do not have a compression dictionary yet */
+    private static final Map<String, List<byte[]>> dictionarySamples = new HashMap<String, List<byte[]>>();
+
+    /** Number of content types with a compression dictionary */
+    private static final AtomicInteger dictionaryCount = new AtomicInteger(0);
+
+    /** The thread which trains the compression dictionaries, one after another */
+    private static final ThreadPoolExecutor DICTIONARY_EXECUTOR = new ThreadPoolExecutor(
+            1, 1, 1000, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new NamePrefixThreadFactory(Cache.class.getSimpleName() + ".trainDictionary"));
+    static {
+        DICTIONARY_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
     
     /** Total number of requests for cached response since last start/initialization or cache clear */
     private static AtomicLong totalRequests = new AtomicLong(0);
@@ -126,7 +175,6 @@ public final class Cache {
         // open the cache file
         try {
             fileDBunbuffered = new ArrayStack(new File(cachePath, FILE_DB_NAME), prefix, Base64Order.enhancedCoder, 12, DEFAULT_BACKEND_BUFFER_SIZE, false, true);
-            fileDBunbuffered.setMaxSize(maxCacheSize);
             fileDB = new Compressor(fileDBunbuffered, DEFAULT_COMPRESSOR_BUFFER_SIZE, lockTimeout, compressionLevel);
         } catch (final IOException e) {
             ConcurrentLog.logException(e);
@@ -135,13 +183,23 @@ public final class Cache {
                 cachePath.delete();
                 try {
                     fileDBunbuffered = new ArrayStack(new File(cachePath, FILE_DB_NAME), prefix, Base64Order.enhancedCoder, 12, DEFAULT_BACKEND_BUFFER_SIZE, false, true);
-                    fileDBunbuffered.setMaxSize(maxCacheSize);
                     fileDB = new Compressor(fileDBunbuffered, DEFAULT_COMPRESSOR_BUFFER_SIZE, lockTimeout, compressionLevel);
                 } catch (final IOException ee) {
                     ConcurrentLog.logException(e);
                 }
             }
         }
+        // open the sentence index of the cached documents
+        try {
+            sentenceDBunbuffered = new ArrayStack(new File(cachePath, SENTENCE_DB_NAME), prefix, Base64Order.enhancedCoder, 12, DEFAULT_BACKEND_BUFFER_SIZE / 2, false, true);
+            sentenceDB = new Compressor(sentenceDBunbuffered, DEFAULT_COMPRESSOR_BUFFER_SIZE / 4, lockTimeout, compressionLevel);
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+            sentenceDB = null;
+            sentenceDBunbuffered = null;
+        }
+        setMaxSizes();
+        loadDictionaries();
         ConcurrentLog.info("Cache", "initialized cache database responseHeaderDB.size() = " + (responseHeaderDB == null ? "NULL" : responseHeaderDB.size()) + ", fileDB.size() = " + (fileDB == null ? "NULL" : fileDB.size()));
 
         // clean up the responseHeaderDB which cannot be cleaned the same way as the cache files.
@@ -191,8 +249,113 @@ public final class Cache {
         }
     }
 
+    /**
+     * load the compression dictionaries of the cache; they are needed to decompress entries even when
+     * no new dictionaries are trained. For each content type, the newest dictionary is used for compression.
+     */
+    private static void loadDictionaries() {
+        synchronized (dictionarySamples) {
+            dictionarySamples.clear();
+        }
+        dictionaryCount.set(0);
+        final File[] files = new File(cachePath, DICTIONARY_DIR_NAME).listFiles();
+        if (files == null || fileDB == null) return;
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(final File a, final File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (final File file: files) {
+            if (!file.getName().endsWith(".dict")) continue;
+            try {
+                final DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    final String contentType = is.readUTF();
+                    final byte[] dictionary = new byte[(int) file.length() - 2 - contentType.length()];
+                    is.readFully(dictionary);
+                    if (!fileDB.hasDictionary(contentType)) dictionaryCount.incrementAndGet();
+                    fileDB.setDictionary(contentType, dictionary);
+                } finally {
+                    is.close();
+                }
+            } catch (final IOException e) {
+                log.warn("cannot load compression dictionary " + file.toString() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param contentType the content type (a MIME type)
+     * @return true when content of this type is compressed with a preset dictionary if dictionary compression is enabled
+     */
+    private static boolean isDictionaryType(final String contentType) {
+        return contentType.startsWith("text/") || contentType.endsWith("xml") || contentType.endsWith("javascript") || contentType.endsWith("json");
+    }
+
+    /**
+     * collect a sample document for the compression dictionary of its content type; when enough samples are
+     * collected, a dictionary is trained in the dictionary thread. Content stored after that is compressed with the dictionary.
+     */
+    private static void sampleDictionary(final String contentType, final byte[] file) {
+        final List<byte[]> samples;
+        synchronized (dictionarySamples) {
+            List<byte[]> s = dictionarySamples.get(contentType);
+            if (s == null) {
+                if (dictionarySamples.size() + dictionaryCount.get() >= MAX_DICTIONARIES) return;
+                s = new ArrayList<byte[]>(DICTIONARY_SAMPLES);
+                dictionarySamples.put(contentType, s);
+            }
+            if (s.size() >= DICTIONARY_SAMPLES) return; // the dictionary is in training
+            s.add(file.length <= DICTIONARY_SAMPLE_SIZE ? file : Arrays.copyOf(file, DICTIONARY_SAMPLE_SIZE));
+            if (s.size() < DICTIONARY_SAMPLES) return;
+            samples = s;
+        }
+        final Compressor compressor = fileDB;
+        final File dictionaryDir = new File(cachePath, DICTIONARY_DIR_NAME);
+        DICTIONARY_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final byte[] dictionary = Compressor.trainDictionary(samples, Compressor.MAX_DICTIONARY_SIZE);
+                // a dictionary which is too small is not worth it; the samples stay, so that no other dictionary is trained for this content type
+                if (dictionary.length < 1024) return;
+                // the dictionary must be stored before it is used, otherwise the compressed content could not be read after a restart
+                dictionaryDir.mkdirs();
+                final File file = new File(dictionaryDir, contentType.replaceAll("[^a-zA-Z0-9]", "_") + "_" + System.currentTimeMillis() + ".dict");
+                try {
+                    final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                    try {
+                        os.writeUTF(contentType);
+                        os.write(dictionary);
+                    } finally {
+                        os.close();
+                    }
+                } catch (final IOException e) {
+                    log.warn("cannot store compression dictionary " + file.toString() + ": " + e.getMessage());
+                    return;
+                }
+                compressor.setDictionary(contentType, dictionary);
+                dictionaryCount.incrementAndGet();
+                synchronized (dictionarySamples) {
+                    dictionarySamples.remove(contentType);
+                }
+                log.info("trained compression dictionary for " + contentType + ", " + dictionary.length + " bytes");
+            }
+        });
+    }
+
+    /**
+     * Enable or disable the compression of text content with preset dictionaries trained for each content type.
+     * Dictionaries which are already trained are kept to decompress the stored content.
+     * @param enabled the new state
+     */
+    public static void setDictionaryCompression(final boolean enabled) {
+        dictionaryCompression = enabled;
+    }
+
     public static void commit() {
     	fileDB.flushAll();
+    	if (sentenceDB != null) sentenceDB.flushAll();
     }
 
     /**
@@ -210,6 +373,12 @@ public final class Cache {
         } catch (final IOException e) {
             ConcurrentLog.logException(e);
         }
+        if (sentenceDB != null) try {
+            sentenceDB.clear();
+            sentenceDBunbuffered.clear();
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
         /* Clear statistics */
         totalRequests.set(0);
         hits.set(0);
@@ -221,7 +390,17 @@ public final class Cache {
      */
     public static void setMaxCacheSize(final long newCacheSize) {
         maxCacheSize = newCacheSize;
-        fileDBunbuffered.setMaxSize(maxCacheSize);
+        setMaxSizes();
+    }
+
+    /**
+     * Share the maximum cache size between the cached files and the sentence index,
+     * which takes at most a quarter of it, so that both together stay within the limit.
+     */
+    private static void setMaxSizes() {
+        final long sentenceDBMaxSize = sentenceDBunbuffered == null ? 0 : maxCacheSize / 4;
+        if (fileDBunbuffered != null) fileDBunbuffered.setMaxSize(maxCacheSize - sentenceDBMaxSize);
+        if (sentenceDBunbuffered != null) sentenceDBunbuffered.setMaxSize(sentenceDBMaxSize);
     }
 
     /**
@@ -246,6 +425,7 @@ public final class Cache {
      */
     public static void setCompressionLevel(final int newCompressionLevel) {
     	fileDB.setCompressionLevel(newCompressionLevel);
+    	if (sentenceDB != null) sentenceDB.setCompressionLevel(newCompressionLevel);
     }
     
     /**
@@ -254,6 +434,7 @@ public final class Cache {
      */
     public static void setLockTimeout(final long lockTimeout) {
     	fileDB.setLockTimeout(lockTimeout);
+    	if (sentenceDB != null) sentenceDB.setLockTimeout(lockTimeout);
     }
 
     /**
@@ -262,6 +443,7 @@ public final class Cache {
     public static void close() {
         responseHeaderDB.close();
         fileDB.close(true);
+        if (sentenceDB != null) sentenceDB.close(true);
     }
 
     public static void store(final DigestURL url, final ResponseHeader responseHeader, final byte[] file) throws IOException {
@@ -271,9 +453,14 @@ public final class Cache {
         if (file == null) throw new IOException("Cache.store of url " + url.toNormalform(false) + " not possible: file == null");
         log.info("storing content of url " + url.toNormalform(false) + ", " + file.length + " bytes");
 
+        // the sentence index of an older version of the document is not valid any more
+        if (sentenceDB != null) sentenceDB.delete(url.hash());
+
         // store the file
+        final String mime = responseHeader.mime();
+        final boolean dictionary = dictionaryCompression && isDictionaryType(mime);
         try {
-            fileDB.insert(url.hash(), file);
+            fileDB.insert(url.hash(), file, dictionary ? mime : null);
         } catch (final UnsupportedEncodingException e) {
             throw new IOException("Cache.store: cannot write to fileDB (1): " + e.getMessage());
         } catch (final IOException e) {
@@ -290,6 +477,7 @@ public final class Cache {
             fileDB.delete(url.hash());
             throw new IOException("Cache.store: cannot write to headerDB: " + e.getMessage());
         }
+        if (dictionary && !fileDB.hasDictionary(mime)) sampleDictionary(mime, file);
         if (log.isFine()) log.fine("stored in cache: " + url.toNormalform(true));
     }
 
@@ -407,6 +595,38 @@ public final class Cache {
     public static void delete(final byte[] hash) throws IOException {
         responseHeaderDB.delete(hash);
         fileDB.delete(hash);
+        if (sentenceDB != null) sentenceDB.delete(hash);
+    }
+
+    /**
+     * store the sentence index of a cached document, to compute snippets without parsing the document again
+     * @param hash the url hash of the document
+     * @param text the text of the document
+     */
+    public static void storeSentenceIndex(final byte[] hash, final String text) {
+        if (sentenceDB == null || maxCacheSize == 0 || !fileDB.containsKey(hash)) return;
+        try {
+            sentenceDB.insert(hash, new SentenceIndex(text).toBytes());
+        } catch (final IOException e) {
+            log.warn("Cache.storeSentenceIndex: cannot write to sentenceDB: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param hash the url hash of a cached document
+     * @return the sentence index of the document or null if the document was not indexed since it was cached
+     */
+    public static SentenceIndex getSentenceIndex(final byte[] hash) {
+        if (sentenceDB == null) return null;
+        try {
+            final byte[] b = sentenceDB.get(hash);
+            return b == null ? null : SentenceIndex.fromBytes(b);
+        } catch (final IOException e) {
+            log.warn("Cache.getSentenceIndex: cannot read from sentenceDB: " + e.getMessage());
+            return null;
+        } catch (final SpaceExceededException e) {
+            return null;
+        }
     }
     
     /**
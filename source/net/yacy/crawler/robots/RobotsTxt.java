@@ -48,6 +48,8 @@ import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.federate.yacy.CacheStrategy;
 import net.yacy.cora.protocol.ClientIdentification;
 import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.storage.ARC;
+import net.yacy.cora.storage.ConcurrentARC;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.crawler.retrieval.Request;
@@ -65,8 +67,11 @@ public class RobotsTxt {
     protected static final String ROBOTS_TXT_PATH = "/robots.txt";
     protected static final String ROBOTS_DB_PATH_SEPARATOR = ";";
     protected static final Pattern ROBOTS_DB_PATH_SEPARATOR_MATCHER = Pattern.compile(ROBOTS_DB_PATH_SEPARATOR);
+    private static final int MAX_ENTRY_CACHE_SIZE = 10000;
 
     private final ConcurrentMap<String, DomSync> syncObjects;
+    /** parsed entries of the robots table by host:port; an entry is replaced whenever its record in the table is written */
+    private final ARC<String, RobotsTxtEntry> entryCache;
     //private static final HashSet<String> loadedRobots = new HashSet<String>(); // only for debugging
     private final WorkTables tables;
     private final LoaderDispatcher loader;
@@ -89,6 +94,7 @@ public class RobotsTxt {
                 new LinkedBlockingQueue<Runnable>(),
                 new NamePrefixThreadFactory(RobotsTxt.class.getSimpleName()));
         this.syncObjects = new ConcurrentHashMap<String, DomSync>();
+        this.entryCache = new ConcurrentARC<String, RobotsTxtEntry>(MAX_ENTRY_CACHE_SIZE, Runtime.getRuntime().availableProcessors() * 2);
         this.tables = worktables;
         this.loader = loader;
         try {
@@ -106,6 +112,7 @@ public class RobotsTxt {
         log.info("clearing robots table");
         this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME).clear();
         this.syncObjects.clear();
+        this.entryCache.clear();
     }
     
     public void close() {
@@ -127,24 +134,14 @@ public class RobotsTxt {
 
     public RobotsTxtEntry getEntry(final String urlHostPort, final ClientIdentification.Agent agent, final boolean fetchOnlineIfNotAvailableOrNotFresh) {
             // this method will always return a non-null value
-        RobotsTxtEntry robotsTxt4Host = null;
-        Map<String, byte[]> record;
+        RobotsTxtEntry robotsTxt4Host;
         BEncodedHeap robotsTable = null;
         try {
             robotsTable = this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME);
         } catch (final IOException e1) {
             log.severe("tables not available", e1);
         }
-        try {
-            record = robotsTable.get(robotsTable.encodedKey(urlHostPort));
-        } catch (final SpaceExceededException e) {
-            log.warn("memory exhausted", e);
-            record = null;
-        } catch (final IOException e) {
-            log.warn("cannot get robotstxt from table", e);
-            record = null;
-        }
-        if (record != null) robotsTxt4Host = new RobotsTxtEntry(urlHostPort, record);
+        robotsTxt4Host = readEntry(urlHostPort, robotsTable);
 
         if (fetchOnlineIfNotAvailableOrNotFresh && (
              robotsTxt4Host == null ||
@@ -164,16 +161,8 @@ public class RobotsTxt {
                 // if we have not found any data or the data is older than 7 days, we need to load it from the remote server
                 // check the robots table again for all threads that come here because they waited for another one
                 // to complete a download
-                try {
-                    record = robotsTable.get(robotsTable.encodedKey(urlHostPort));
-                } catch (final SpaceExceededException e) {
-                    log.warn("memory exhausted", e);
-                    record = null;
-                } catch (final IOException e) {
-                    log.warn("cannot get robotstxt from table", e);
-                    record = null;
-                }
-                if (record != null) robotsTxt4Host = new RobotsTxtEntry(urlHostPort, record);
+                final RobotsTxtEntry stored = readEntry(urlHostPort, robotsTable);
+                if (stored != null) robotsTxt4Host = stored;
                 if (robotsTxt4Host != null &&
                     robotsTxt4Host.getLoadedDate() != null &&
                     System.currentTimeMillis() - robotsTxt4Host.getLoadedDate().getTime() <= 1*24*60*60*1000) {
@@ -205,10 +194,36 @@ public class RobotsTxt {
 
         return robotsTxt4Host;
     }
+
+    /**
+     * get a parsed entry from the cache or, if it is not cached, from the robots table
+     * @param urlHostPort
+     * @param robotsTable
+     * @return the entry or null if the robots table has no record for the host
+     */
+    private RobotsTxtEntry readEntry(final String urlHostPort, final BEncodedHeap robotsTable) {
+        RobotsTxtEntry entry = this.entryCache.get(urlHostPort);
+        if (entry != null) return entry;
+        Map<String, byte[]> record;
+        try {
+            record = robotsTable.get(robotsTable.encodedKey(urlHostPort));
+        } catch (final SpaceExceededException e) {
+            log.warn("memory exhausted", e);
+            record = null;
+        } catch (final IOException e) {
+            log.warn("cannot get robotstxt from table", e);
+            record = null;
+        }
+        if (record == null) return null;
+        entry = new RobotsTxtEntry(urlHostPort, record);
+        this.entryCache.insertIfAbsent(urlHostPort, entry);
+        return entry;
+    }
     
     public void delete(final MultiProtocolURL theURL) {
         final String urlHostPort = getHostPort(theURL);
         if (urlHostPort == null) return;
+        this.entryCache.remove(urlHostPort);
         final BEncodedHeap robotsTable;
         try {
             robotsTable = this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME);
@@ -300,6 +315,8 @@ public class RobotsTxt {
                     Integer.valueOf(0),
                     null);
         } else {
+            // the entry may be shared by other threads through the entry cache, change a copy
+            robotsTxt4Host = robotsTxt4Host.copy();
             robotsTxt4Host.setLoadedDate(new Date());
         }
 
@@ -362,7 +379,9 @@ public class RobotsTxt {
         // writes a new page and returns key
         try {
             final BEncodedHeap robotsTable = this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME);
+            this.entryCache.remove(entry.getHostName());
             robotsTable.insert(robotsTable.encodedKey(entry.getHostName()), entry.getMem());
+            this.entryCache.insert(entry.getHostName(), entry);
             return entry.getHostName();
         } catch (final Exception e) {
             log.warn("cannot write robots.txt entry", e);
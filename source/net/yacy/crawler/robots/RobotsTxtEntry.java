@@ -60,12 +60,12 @@ public class RobotsTxtEntry {
     private final Map<String, byte[]> mem;
     private final List<String> allowPathList, denyPathList, sitemapList;
     private final String hostName, agentName;
-    private String info; // this is filled if robots disallowed access; then the reason is noted there;
+    private final String[] denyPrefixes; // the deny paths, sorted and without paths which start with another deny path
+    private final int crawlDelayMillis;
 
     protected RobotsTxtEntry(final String hostName, final Map<String, byte[]> mem) {
         this.hostName = hostName.toLowerCase(Locale.ROOT);
         this.mem = mem;
-        this.info = "";
 
         this.denyPathList = new LinkedList<String>();
         fillMultiValue(this.denyPathList, DISALLOW_PATH_LIST);
@@ -74,6 +74,8 @@ public class RobotsTxtEntry {
         this.sitemapList = new LinkedList<String>();
         fillMultiValue(this.sitemapList, SITEMAP_LIST);
         this.agentName = this.mem.containsKey(AGENT_NAME) ? UTF8.String(this.mem.get(AGENT_NAME)) : null;
+        this.denyPrefixes = prefixes(this.denyPathList);
+        this.crawlDelayMillis = parseCrawlDelayMillis();
     }
 
     private void fillMultiValue(List<String> list, String listName) {
@@ -118,6 +120,33 @@ public class RobotsTxtEntry {
         readMultiValue(allowPathList,    this.allowPathList, ALLOW_PATH_LIST);
         readMultiValue(disallowPathList, this.denyPathList,  DISALLOW_PATH_LIST);
         readMultiValue(sitemapList,      this.sitemapList,   SITEMAP_LIST);
+        this.denyPrefixes = prefixes(this.denyPathList);
+        this.crawlDelayMillis = parseCrawlDelayMillis();
+    }
+
+    /**
+     * @return a copy of this entry which can be changed without changing this entry
+     */
+    protected RobotsTxtEntry copy() {
+        return new RobotsTxtEntry(this.hostName, new LinkedHashMap<String, byte[]>(this.mem));
+    }
+
+    /**
+     * compute a sorted array of path prefixes where no element starts with another element.
+     * A path starts with one of the given paths if and only if it starts with the element in the
+     * array which is the greatest element that is not greater than the path.
+     * @param paths
+     * @return the sorted prefixes
+     */
+    private static String[] prefixes(final List<String> paths) {
+        final String[] sorted = paths.toArray(new String[paths.size()]);
+        Arrays.sort(sorted);
+        int c = 0;
+        for (final String path: sorted) {
+            if (c > 0 && path.startsWith(sorted[c - 1])) continue;
+            sorted[c++] = path;
+        }
+        return c == sorted.length ? sorted : Arrays.copyOf(sorted, c);
     }
 
     private void readMultiValue(List<String> externallist, List<String> internallist, String listName) {
@@ -198,6 +227,10 @@ public class RobotsTxtEntry {
     }
 
     public int getCrawlDelayMillis() {
+        return this.crawlDelayMillis;
+    }
+
+    private int parseCrawlDelayMillis() {
         if (this.mem.containsKey(CRAWL_DELAY_MILLIS)) try {
             return (int) ByteArray.parseDecimal(this.mem.get(CRAWL_DELAY_MILLIS));
         } catch (final NumberFormatException e) {
@@ -212,15 +245,27 @@ public class RobotsTxtEntry {
     }
 
     public boolean isDisallowed(final MultiProtocolURL subpathURL) {
+        if (this.mem == null || this.denyPathList.isEmpty()) return false;
+        return denyPrefix(path(subpathURL)) >= 0;
+    }
+
+    /**
+     * get the reason for the result of {@link #isDisallowed(MultiProtocolURL)}. The reason is computed
+     * for each call and not stored in the entry, because entries are shared by concurrent requests.
+     * @param subpathURL
+     * @return a description of the rule which allows or disallows access to the url
+     */
+    public String getInfo(final MultiProtocolURL subpathURL) {
+        if (this.mem == null) return "no robots file available";
+        if (this.denyPathList.isEmpty()) return "no entry in robots.txt";
+        final String path = path(subpathURL);
+        final int p = denyPrefix(path);
+        if (p >= 0) return "path '" + path + "' starts with '" + this.denyPrefixes[p] + "' from deny path list = " + this.denyPathList.toString();
+        return "path '" + path + "' does not start with any element from deny path list";
+    }
+
+    private static String path(final MultiProtocolURL subpathURL) {
         String path = subpathURL.getFile();
-        if (this.mem == null) {
-            this.info = "no robots file available";
-            return false;
-        }
-        if (this.denyPathList.isEmpty()) {
-            this.info = "no entry in robots.txt";
-            return false;
-        }
 
         // if the path is null or empty we set it to /
         if (path == null || path.isEmpty()) {
@@ -236,20 +281,16 @@ public class RobotsTxtEntry {
             // escaping all occurences of ; because this char is used as special char in the Robots DB
         	path = RobotsTxt.ROBOTS_DB_PATH_SEPARATOR_MATCHER.matcher(path).replaceAll("%3B");
         }
-
-        for (final String element : this.denyPathList) {
-
-            // disallow rule
-            if (path.startsWith(element)) {
-                this.info = "path '" + path + "' starts with '" + element + "' from deny path list = " + this.denyPathList.toString();
-                return true;
-            }
-        }
-        this.info = "path '" + path + "' does not start with any element from deny path list";
-        return false;
+        return path;
     }
 
-    public String getInfo() {
-        return this.info;
+    /**
+     * @return the position of the deny prefix of the path in the deny prefixes or -1 if no deny path is a prefix of the path
+     */
+    private int denyPrefix(final String path) {
+        // disallow rule: only the greatest prefix which is not greater than the path can be a prefix of the path
+        int p = Arrays.binarySearch(this.denyPrefixes, path);
+        if (p < 0) p = -p - 2;
+        return p >= 0 && path.startsWith(this.denyPrefixes[p]) ? p : -1;
     }
 }
\ No newline at end of file
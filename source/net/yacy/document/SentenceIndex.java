@@ -0,0 +1,212 @@
+/**
+ *  SentenceIndex
+ *  Copyright 2026 by the YaCy contributors
+ *  first published 17.10.2026 on http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import net.yacy.kelondro.data.word.Word;
+
+/**
+ * The sentences of a document text together with the hashes of the words in each sentence.
+ * It is computed once when a document is indexed, so that a snippet can be computed later
+ * without parsing the document again: only the sentences which contain query words are
+ * handed to the {@link SnippetExtractor}.
+ * The sentences are the same as those of a {@link SentenceReader} on the text, the words
+ * of a sentence are those which are found by the {@link SnippetExtractor}.
+ */
+public class SentenceIndex {
+
+    private static final byte VERSION = 1;
+
+    /** maximum number of words of a sentence that are considered, the same as in the SnippetExtractor */
+    private static final int MAX_WORDS = 100;
+
+    /** the sentence used in place of sentences without query words */
+    private static final StringBuilder NO_MATCH = new StringBuilder(0);
+
+    /** all sentences concatenated */
+    private final String text;
+
+    /** the start of each sentence in text; the last entry is the length of text */
+    private final int[] offsets;
+
+    /** the start of the word fingerprints of each sentence in fingerprints; the last entry is the length of fingerprints */
+    private final int[] wordOffsets;
+
+    /** the word fingerprints of all sentences, ordered within each sentence */
+    private final int[] fingerprints;
+
+    /**
+     * compute the sentence index of a text
+     * @param text the text of a document
+     */
+    public SentenceIndex(final String text) {
+        final StringBuilder all = new StringBuilder(text.length());
+        final List<Integer> offsets = new ArrayList<Integer>();
+        final List<int[]> words = new ArrayList<int[]>();
+        int wordCount = 0;
+        final SentenceReader sr = new SentenceReader(text, false);
+        for (final StringBuilder sentence: sr) {
+            offsets.add(all.length());
+            all.append(sentence);
+            final Collection<String> w = WordTokenizer.tokenizeSentence(sentence.toString(), MAX_WORDS).keySet();
+            final int[] f = new int[w.size()];
+            int c = 0;
+            for (final String word: w) f[c++] = fingerprint(Word.word2hash(word));
+            Arrays.sort(f);
+            words.add(f);
+            wordCount += f.length;
+        }
+        sr.close();
+        this.text = all.toString();
+        final int size = words.size();
+        this.offsets = new int[size + 1];
+        this.wordOffsets = new int[size + 1];
+        this.fingerprints = new int[wordCount];
+        int q = 0;
+        for (int i = 0; i < size; i++) {
+            this.offsets[i] = offsets.get(i).intValue();
+            this.wordOffsets[i] = q;
+            final int[] f = words.get(i);
+            System.arraycopy(f, 0, this.fingerprints, q, f.length);
+            q += f.length;
+        }
+        this.offsets[size] = this.text.length();
+        this.wordOffsets[size] = q;
+    }
+
+    private SentenceIndex(final String text, final int[] offsets, final int[] wordOffsets, final int[] fingerprints) {
+        this.text = text;
+        this.offsets = offsets;
+        this.wordOffsets = wordOffsets;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * @param wordhash a word hash as computed by {@link Word#word2hash(String)}
+     * @return a compact representation of the word hash which is stored in the index
+     */
+    public static int fingerprint(final byte[] wordhash) {
+        int h = 0;
+        for (final byte b: wordhash) h = 31 * h + b;
+        return h;
+    }
+
+    /**
+     * @return the number of sentences
+     */
+    public int size() {
+        return this.offsets.length - 1;
+    }
+
+    public String sentence(final int i) {
+        return this.text.substring(this.offsets[i], this.offsets[i + 1]);
+    }
+
+    /**
+     * @return true if the sentence contains a word with the given fingerprint
+     */
+    public boolean contains(final int i, final int fingerprint) {
+        return Arrays.binarySearch(this.fingerprints, this.wordOffsets[i], this.wordOffsets[i + 1], fingerprint) >= 0;
+    }
+
+    /**
+     * Get the sentences for a snippet computation. The sentences which do not contain any of the
+     * words are replaced by an empty sentence, so that the sentence numbers stay the same.
+     * @param words the words which shall appear in the snippet
+     * @return all sentences of the text in their original order
+     */
+    public List<StringBuilder> sentences(final Collection<String> words) {
+        final int[] f = new int[words.size()];
+        int c = 0;
+        for (final String word: words) f[c++] = fingerprint(Word.word2hash(word));
+        final int size = size();
+        final List<StringBuilder> sentences = new ArrayList<StringBuilder>(size);
+        for (int i = 0; i < size; i++) {
+            boolean match = false;
+            for (int j = 0; j < f.length && !match; j++) match = contains(i, f[j]);
+            sentences.add(match ? new StringBuilder(sentence(i)) : NO_MATCH);
+        }
+        return sentences;
+    }
+
+    /**
+     * @return the index in a binary form which can be read with {@link #fromBytes(byte[])}
+     */
+    public byte[] toBytes() {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(this.text.length() + this.fingerprints.length * 4 + 64);
+        final DataOutputStream os = new DataOutputStream(baos);
+        try {
+            os.writeByte(VERSION);
+            final int size = size();
+            os.writeInt(size);
+            final byte[] b = this.text.getBytes(StandardCharsets.UTF_8);
+            os.writeInt(b.length);
+            os.write(b);
+            for (int i = 0; i < size; i++) os.writeInt(this.offsets[i + 1] - this.offsets[i]);
+            for (int i = 0; i < size; i++) {
+                os.writeByte(this.wordOffsets[i + 1] - this.wordOffsets[i]);
+                for (int p = this.wordOffsets[i]; p < this.wordOffsets[i + 1]; p++) os.writeInt(this.fingerprints[p]);
+            }
+            os.close();
+        } catch (final IOException e) {
+            // a ByteArrayOutputStream does not throw an IOException
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * @param b an index in the binary form
+     * @return the index
+     * @throws IOException if the binary form is not valid
+     */
+    public static SentenceIndex fromBytes(final byte[] b) throws IOException {
+        final DataInputStream is = new DataInputStream(new ByteArrayInputStream(b));
+        if (is.readByte() != VERSION) throw new IOException("unknown version");
+        final int size = is.readInt();
+        final int length = is.readInt();
+        if (size < 0 || length < 0 || length > b.length) throw new IOException("wrong size");
+        final byte[] t = new byte[length];
+        is.readFully(t);
+        final String text = new String(t, StandardCharsets.UTF_8);
+        final int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) offsets[i + 1] = offsets[i] + is.readInt();
+        if (offsets[size] != text.length()) throw new IOException("wrong sentence lengths");
+        final int[] wordOffsets = new int[size + 1];
+        int[] fingerprints = new int[size * 8];
+        for (int i = 0; i < size; i++) {
+            final int count = is.readUnsignedByte();
+            wordOffsets[i + 1] = wordOffsets[i] + count;
+            if (wordOffsets[i + 1] > fingerprints.length) fingerprints = Arrays.copyOf(fingerprints, Math.max(wordOffsets[i + 1], fingerprints.length * 2));
+            for (int p = wordOffsets[i]; p < wordOffsets[i + 1]; p++) fingerprints[p] = is.readInt();
+        }
+        return new SentenceIndex(text, offsets, wordOffsets, fingerprints.length == wordOffsets[size] ? fingerprints : Arrays.copyOf(fingerprints, wordOffsets[size]));
+    }
+}
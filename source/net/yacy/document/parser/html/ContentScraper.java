@@ -257,6 +257,9 @@ public class ContentScraper extends AbstractScraper implements Scraper {
     /** Set to true when a limit on content size scraped has been exceeded */
     private boolean contentSizeLimitExceeded;
     
+    /** Set to true when scraping was stopped because the time limit to parse the document has been exceeded */
+    private boolean parseTimeLimitExceeded;
+    
     /** Set to true when the maxAnchors limit has been exceeded */
     private boolean maxAnchorsExceeded;
     
@@ -314,6 +317,7 @@ public class ContentScraper extends AbstractScraper implements Scraper {
         this.publisher = null;
         this.breadcrumbs = 0;
         this.contentSizeLimitExceeded = false;
+        this.parseTimeLimitExceeded = false;
         this.maxAnchorsExceeded = false;
         this.maxAnchors = maxAnchors;
     }
@@ -1273,6 +1277,20 @@ public class ContentScraper extends AbstractScraper implements Scraper {
 		this.contentSizeLimitExceeded = contentSizeLimitExceeded;
 	}
     
+    /**
+     * @return true when scraping was stopped because the time limit to parse the document has been exceeded
+     */
+    public boolean isParseTimeLimitExceeded() {
+		return this.parseTimeLimitExceeded;
+	}
+    
+    /**
+     * @param parseTimeLimitExceeded set to true when scraping was stopped because the time limit to parse the document has been exceeded
+     */
+    public void setParseTimeLimitExceeded(final boolean parseTimeLimitExceeded) {
+		this.parseTimeLimitExceeded = parseTimeLimitExceeded;
+	}
+    
     /**
      * @return true when the maxAnchors limit has been exceeded
      */
@@ -1281,10 +1299,10 @@ public class ContentScraper extends AbstractScraper implements Scraper {
 	}
     
     /**
-     * @return true when at least one limit on content size, anchors number or links number has been exceeded
+     * @return true when at least one limit on content size, parse time, anchors number or links number has been exceeded
      */
 	public boolean isLimitsExceeded() {
-		return this.contentSizeLimitExceeded || this.maxAnchorsExceeded || this.css.isLimitExceeded()
+		return this.contentSizeLimitExceeded || this.parseTimeLimitExceeded || this.maxAnchorsExceeded || this.css.isLimitExceeded()
 				|| this.rss.isLimitExceeded() || this.embeds.isLimitExceeded() || this.metas.isLimitExceeded()
 				|| this.hreflang.isLimitExceeded() || this.navigation.isLimitExceeded() || this.script.isLimitExceeded()
 				|| this.frames.isLimitExceeded() || this.iframes.isLimitExceeded() || this.linkedDataTypes.isLimitExceeded();
@@ -54,6 +54,9 @@ public final class TransformerWriter extends Writer {
     public static final char singlequote = '\'';
     public static final char doublequote = '"';
 
+    /** returned by the token processor when nothing is passed on */
+    private static final char[] EMPTY = new char[0];
+
     private final OutputStream outStream;
     private OutputStreamWriter out;
     private CharBuffer buffer;
@@ -199,7 +202,7 @@ public final class TransformerWriter extends Writer {
 
         // don't add text from within <script> section, here e.g. a "if 1<a" expression could confuse tag detection
         if (this.tagStack.size()>0 && this.tagStack.lastElement().name.equals(TagName.script.name())) {
-            return new char[0];
+            return EMPTY;
         }
 
         // an opening tag
@@ -240,7 +243,7 @@ public final class TransformerWriter extends Writer {
             this.scraper.scrapeText(content, this.tagStack.lastElement());
         }
         this.tagStack.lastElement().content.append(content);
-        return new char[0];
+        return EMPTY;
     }
             
     private char[] filterTag(final char[] content, final char quotechar, final String tagname, final boolean opening) {
@@ -257,7 +260,7 @@ public final class TransformerWriter extends Writer {
 
             // its a close tag where no should be
             // case (3): we ignore that thing and return it again
-            return genTag0raw(tagname, false, content);
+            return this.out == null ? EMPTY : genTag0raw(tagname, false, content);
 
         }
 
@@ -268,13 +271,13 @@ public final class TransformerWriter extends Writer {
         if (opening) {
             // case (5): the opening should not be here. But we keep the order anyway
             this.tagStack.lastElement().content.append(filterTagOpening(tagname, content));
-            return new char[0];
+            return EMPTY;
         }
 
         if (!tagname.equalsIgnoreCase(this.tagStack.lastElement().name)) {
             // case (6): its a closing tag, but the wrong one. just add it.
             this.tagStack.lastElement().content.append(genTag0raw(tagname, opening, content));
-            return new char[0];
+            return EMPTY;
         }
 
         // it's our closing tag! return complete result.
@@ -282,9 +285,14 @@ public final class TransformerWriter extends Writer {
     }
 
     private char[] filterTagOpening(final String tagname, final char[] content) {
-        final CharBuffer charBuffer = new CharBuffer(ContentScraper.MAX_DOCSIZE, content);
-        ContentScraper.Tag tag = new ContentScraper.Tag(tagname, charBuffer.propParser());
-        charBuffer.close();
+        final ContentScraper.Tag tag;
+        if (hasAttributes(content)) {
+            final CharBuffer charBuffer = new CharBuffer(ContentScraper.MAX_DOCSIZE, content);
+            tag = new ContentScraper.Tag(tagname, charBuffer.propParser());
+            charBuffer.close();
+        } else {
+            tag = new ContentScraper.Tag(tagname, new Properties());
+        }
         
         final ContentScraper.Tag parentTag;
         if(this.tagStack.size() > 0) {
@@ -310,9 +318,10 @@ public final class TransformerWriter extends Writer {
         if (this.scraper != null && this.scraper.isTag1(tagname)) {
             // ok, start collecting; we don't push this here to the scraper or transformer; we do that when the tag is closed.
             this.tagStack.push(tag);
-            return new char[0];
+            return EMPTY;
         }
-        // we ignore that thing and return it again
+        // we ignore that thing and return it again; without an output and an enclosing tag, nobody would read it
+        if (this.out == null && this.tagStack.isEmpty()) return EMPTY;
         return genTag0raw(tagname, true, content);
     }
 
@@ -320,19 +329,33 @@ public final class TransformerWriter extends Writer {
         char[] ret;
         ContentScraper.Tag tag = this.tagStack.lastElement();
         if (this.scraper != null) this.scraper.scrapeTag1(tag);
-        ret = genTag1(tag.name, tag.opts, tag.content.getChars(), quotechar);
         if (this.scraper != null && this.scraper.isTag1(tag.name)) {
             // remove the tag from the stack as soon as the tag is processed
             this.tagStack.pop();
+            // the complete tag is only needed for the output or an enclosing tag
+            if (this.out == null && this.tagStack.isEmpty()) return EMPTY;
+            ret = genTag1(tag.name, tag.opts, tag.content.getChars(), quotechar);
             // at this point the characters from the recently processed tag must be attached to the previous tag
             if (this.tagStack.size() > 0) this.tagStack.lastElement().content.append(ret);
+            return ret;
         }
-        return ret;
+        return genTag1(tag.name, tag.opts, tag.content.getChars(), quotechar);
+    }
+
+    /**
+     * @param content the characters of an opening tag following the tag name
+     * @return false when the content contains only white space and slashes, so that there is nothing to parse
+     */
+    private static boolean hasAttributes(final char[] content) {
+        for (final char c: content) {
+            if (c > 32 && c != '/') return true;
+        }
+        return false;
     }
 
     private char[] filterFinalize(final char quotechar) {
         if (this.tagStack.size() == 0) {
-            return new char[0];
+            return EMPTY;
         }
 
         // it's our closing tag! return complete result.
@@ -479,7 +502,7 @@ public final class TransformerWriter extends Writer {
     public void write(final char b[], final int off, final int len) throws IOException {
 //      System.out.println(UTF8.String(b, off, len));
         if ((off | len | (b.length - (len + off)) | (off + len)) < 0) throw new IndexOutOfBoundsException();
-        for (int i = off ; i < (len - off) ; i++) this.write(b[i]);
+        for (int i = off ; i < (off + len) ; i++) this.write(b[i]);
     }
 
     @Override
@@ -36,12 +36,13 @@ import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Set;
-
-import org.apache.commons.io.IOUtils;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.ibm.icu.text.CharsetDetector;
 
@@ -50,13 +51,13 @@ import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.protocol.ClientIdentification;
 import net.yacy.cora.util.CommonPattern;
+import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.document.parser.html.ContentScraper;
 import net.yacy.document.parser.html.ImageEntry;
-import net.yacy.document.parser.html.ScraperInputStream;
 import net.yacy.document.parser.html.TransformerWriter;
 
 
@@ -65,6 +66,15 @@ public class htmlParser extends AbstractParser implements Parser {
 	/** The default maximum number of links (other than a, area, and canonical and stylesheet links) to add to a parsed document */
     private static final int DEFAULT_MAX_LINKS = 10000;
 
+    /** The number of bytes at the beginning of a document which are inspected to detect the charset */
+    private static final int CHARSET_PREFIX_SIZE = 8192;
+
+    /** A meta tag declaring the charset, either with a charset attribute or within the content attribute of a http-equiv meta tag */
+    private static final Pattern META_CHARSET = Pattern.compile("<meta\\s[^>]*?charset\\s*=\\s*[\"']?([a-zA-Z0-9_:.\\-]+)", Pattern.CASE_INSENSITIVE);
+
+    /** The maximum time in milliseconds to parse one document; when exceeded, the partially parsed document is used. 0 means no limit. */
+    public static long maxParseTime = 0;
+
     public htmlParser() {
         super("Streaming HTML Parser");
         this.SUPPORTED_EXTENSIONS.add("htm");
@@ -237,6 +247,40 @@ public class htmlParser extends AbstractParser implements Parser {
         return scraper;
     }
     
+    /**
+     * Read the beginning of a stream without consuming it
+     * @param sourceStream a stream supporting mark and reset
+     * @param size the maximum number of bytes to read
+     * @return the first bytes of the stream, at most size bytes
+     * @throws IOException when a read error occurred
+     */
+    private static byte[] readPrefix(final InputStream sourceStream, final int size) throws IOException {
+        final byte[] prefix = new byte[size];
+        sourceStream.mark(size);
+        int length = 0;
+        int n;
+        try {
+            while (length < size && (n = sourceStream.read(prefix, length, size - length)) > 0) length += n;
+        } finally {
+            sourceStream.reset();
+        }
+        return length == size ? prefix : Arrays.copyOf(prefix, length);
+    }
+
+    /**
+     * Detect the charset of a html document from a byte order mark or a meta tag at its beginning
+     * @param prefix the first bytes of the document
+     * @return the declared charset name or null when the document does not declare it
+     */
+    public static String sniffCharset(final byte[] prefix) {
+        if (prefix.length >= 3 && (prefix[0] & 0xff) == 0xef && (prefix[1] & 0xff) == 0xbb && (prefix[2] & 0xff) == 0xbf) return StandardCharsets.UTF_8.name();
+        if (prefix.length >= 2 && (prefix[0] & 0xff) == 0xfe && (prefix[1] & 0xff) == 0xff) return StandardCharsets.UTF_16BE.name();
+        if (prefix.length >= 2 && (prefix[0] & 0xff) == 0xff && (prefix[1] & 0xff) == 0xfe) return StandardCharsets.UTF_16LE.name();
+        // the tags of all ascii compatible charsets can be read as latin-1
+        final Matcher matcher = META_CHARSET.matcher(new String(prefix, StandardCharsets.ISO_8859_1));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
     /**
      * Parse the resource at location and return the resulting ContentScraper
      * @param location the URL of the resource to parse
@@ -272,28 +316,29 @@ public class htmlParser extends AbstractParser implements Parser {
             charset = patchCharsetEncoding(documentCharset);
         }
 
-        // nothing found: try to find a meta-tag
+        // read the beginning of the document once; it is used for all charset detection methods
+        if (!sourceStream.markSupported()) sourceStream = new BufferedInputStream(sourceStream, CHARSET_PREFIX_SIZE);
+        byte[] prefix = null;
         if (charset == null) {
-            ScraperInputStream htmlFilter = null;
             try {
-                htmlFilter = new ScraperInputStream(sourceStream, documentCharset, ignore_class_name, vocabularyScraper, location, false, maxLinks, timezoneOffset);
-                sourceStream = htmlFilter;
-                charset = htmlFilter.detectCharset();
-            } catch (final IOException e1) {
-                throw new Parser.Failure("Charset error:" + e1.getMessage(), location);
-            } finally {
-                if (htmlFilter != null) htmlFilter.close();
+                prefix = readPrefix(sourceStream, CHARSET_PREFIX_SIZE);
+            } catch (final IOException e) {
+                throw new Parser.Failure("Charset error:" + e.getMessage(), location);
             }
         }
 
-        // the author didn't tell us the encoding, try the mozilla-heuristic
+        // nothing found: try to find a meta-tag
         if (charset == null) {
+            charset = sniffCharset(prefix);
+            if (charset != null) charset = patchCharsetEncoding(charset);
+        }
+
+        // the author didn't tell us the encoding, try the mozilla-heuristic
+        if (charset == null && prefix.length > 0) {
             final CharsetDetector det = new CharsetDetector();
             det.enableInputFilter(true);
-            final InputStream detStream = new BufferedInputStream(sourceStream);
-            det.setText(detStream);
+            det.setText(prefix);
             charset = det.detect().getName();
-            sourceStream = detStream;
         }
 
         // wtf? still nothing, just take system-standard
@@ -315,17 +360,32 @@ public class htmlParser extends AbstractParser implements Parser {
         final TransformerWriter writer = new TransformerWriter(null, null, scraper, false, Math.max(64, Math.min(4096, sourceStream.available())));
         try {
         	final long maxChars = (long)(maxBytes * detectedcharsetcontainer[0].newDecoder().averageCharsPerByte());
+        	final long deadline = maxParseTime > 0 ? System.currentTimeMillis() + maxParseTime : Long.MAX_VALUE;
         	final Reader sourceReader = new InputStreamReader(sourceStream, detectedcharsetcontainer[0]);
-			final long copiedChars = IOUtils.copyLarge(sourceReader, writer, 0, maxChars);
-            if(copiedChars > maxChars) {
-            	/* maxChars limit has been exceeded : do not fail here as we want to use the partially obtained results. */
-            	scraper.setContentSizeLimitExceeded(true);
-            } else if(copiedChars == maxChars) {
-            	/* Exactly maxChars limit reached : let's check if more to read remain. */
-            	if(sourceReader.read() >= 0) {
-            		scraper.setContentSizeLimitExceeded(true);
-            	}
-            }
+        	final char[] chunk = new char[4096];
+        	long copiedChars = 0;
+        	int n;
+        	/* the document is parsed chunk by chunk, so that the limits are checked while reading */
+        	while ((n = sourceReader.read(chunk, 0, maxChars - copiedChars < chunk.length ? (int) (maxChars - copiedChars + 1) : chunk.length)) > 0) {
+        		if (copiedChars + n > maxChars) {
+        			/* maxChars limit has been exceeded : do not fail here as we want to use the partially obtained results. */
+        			writer.write(chunk, 0, (int) (maxChars - copiedChars));
+        			scraper.setContentSizeLimitExceeded(true);
+        			break;
+        		}
+        		writer.write(chunk, 0, n);
+        		copiedChars += n;
+        		if (writer.binarySuspect()) {
+        			/* the document is rejected anyway, there is no need to read the remaining bytes */
+        			break;
+        		}
+        		if (System.currentTimeMillis() > deadline) {
+        			/* parsing takes too much time (i.e. a very large or malformed document) : stop here and use the partially obtained results. */
+        			scraper.setParseTimeLimitExceeded(true);
+        			ConcurrentLog.info("htmlParser", "parse time limit of " + maxParseTime + " ms exceeded after " + copiedChars + " chars, using the partially parsed document " + location.toNormalform(false));
+        			break;
+        		}
+        	}
         } catch (final IOException e) {
        		throw new Parser.Failure("IO error:" + e.getMessage(), location);
         } finally {
@@ -35,10 +35,12 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.common.params.MultiMapSolrParams;
+import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.handler.UpdateRequestHandler;
 import org.apache.solr.handler.admin.LukeRequestHandler;
+import org.apache.solr.handler.loader.ContentStreamLoader;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestHandler;
 import org.apache.solr.request.SolrRequestInfo;
@@ -48,11 +50,14 @@ import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.servlet.ResponseUtils;
 import org.apache.solr.servlet.SolrRequestParsers;
 import org.apache.solr.servlet.cache.Method;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.processor.UpdateRequestProcessor;
 
 import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
 import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.search.Switchboard;
+import net.yacy.search.index.Fulltext;
 import net.yacy.search.schema.CollectionSchema;
 import net.yacy.search.schema.WebgraphSchema;
 
@@ -94,7 +99,7 @@ public class SolrServlet extends HttpServlet {
 			SolrRequestHandler handler;
 			if ("/solr/collection1/update".equals(hrequest.getServletPath())
 					|| "/solr/webgraph/update".equals(hrequest.getServletPath())) {
-				handler = new UpdateRequestHandler();
+				handler = defaultConnector ? new URLHashFilterUpdateRequestHandler(sb.index.fulltext()) : new UpdateRequestHandler();
 			} else {
 				handler = new LukeRequestHandler();
 			}
@@ -121,6 +126,39 @@ public class SolrServlet extends HttpServlet {
 
 	}
 
+	/**
+	 * An update handler for the default core which registers the ids of the added documents in the url hash filter
+	 * of the fulltext, because these documents are not written with {@link Fulltext#putDocument}. Deleted documents
+	 * may stay in the filter: a false positive only costs a lookup in the index.
+	 */
+	private static class URLHashFilterUpdateRequestHandler extends UpdateRequestHandler {
+
+		private final Fulltext fulltext;
+
+		public URLHashFilterUpdateRequestHandler(final Fulltext fulltext) {
+			this.fulltext = fulltext;
+		}
+
+		@Override
+		protected ContentStreamLoader newLoader(final SolrQueryRequest req, final UpdateRequestProcessor processor) {
+			final ContentStreamLoader loader = super.newLoader(req, processor);
+			return new ContentStreamLoader() {
+				@Override
+				public void load(final SolrQueryRequest req, final SolrQueryResponse rsp, final ContentStream stream,
+						final UpdateRequestProcessor processor) throws Exception {
+					loader.load(req, rsp, stream, new UpdateRequestProcessor(processor) {
+						@Override
+						public void processAdd(final AddUpdateCommand cmd) throws IOException {
+							super.processAdd(cmd);
+							final Object id = cmd.getSolrInputDocument().getFieldValue(CollectionSchema.id.getSolrFieldName());
+							if (id != null) URLHashFilterUpdateRequestHandler.this.fulltext.addToURLHashFilter(id.toString());
+						}
+					});
+				}
+			};
+		}
+	}
+
 	private void writeResponse(SolrQueryRequest solrReq, SolrQueryResponse solrRsp, HttpServletResponse response, QueryResponseWriter responseWriter,
 			Method reqMethod) throws IOException {
 		try {
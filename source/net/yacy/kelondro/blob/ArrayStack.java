@@ -28,13 +28,18 @@ package net.yacy.kelondro.blob;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Array;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -98,6 +103,7 @@ public class ArrayStack implements BLOB {
     private final String         prefix;
     private final int            buffersize;
     private final boolean        trimall;
+    private final boolean        mapped;
 
     /** the thread pool for the keeperOf executor service */
     private final ExecutorService executor;
@@ -114,6 +120,22 @@ public class ArrayStack implements BLOB {
             final int buffersize,
             final boolean trimall,
             final boolean deleteonfail) throws IOException {
+        this(heapLocation, prefix, ordering, keylength, buffersize, trimall, deleteonfail, false);
+    }
+
+    /**
+     * @param mapped if true, all heap files which are not written any more are mapped read-only into memory
+     * to enable concurrent read access without locking; see {@link HeapReader#mapReadOnly()}
+     */
+    public ArrayStack(
+            final File heapLocation,
+            final String prefix,
+            final ByteOrder ordering,
+            final int keylength,
+            final int buffersize,
+            final boolean trimall,
+            final boolean deleteonfail,
+            final boolean mapped) throws IOException {
         this.keylength = keylength;
         this.prefix = prefix;
         this.ordering = ordering;
@@ -124,6 +146,7 @@ public class ArrayStack implements BLOB {
         this.repositoryAgeMax = Long.MAX_VALUE;
         this.repositorySizeMax = Long.MAX_VALUE;
         this.trimall = trimall;
+        this.mapped = mapped;
 
         // init the thread pool for the keeperOf executor service
         this.executor = new ThreadPoolExecutor(
@@ -206,8 +229,10 @@ public class ArrayStack implements BLOB {
                        if (time == maxtime && !trimall) {
                            oneBlob = new Heap(f, keylength, ordering, buffersize);
                        } else {
-                           oneBlob = new HeapModifier(f, keylength, ordering);
-                           oneBlob.optimize(); // no writings here, can be used with minimum memory
+                           final HeapModifier sealed = new HeapModifier(f, keylength, ordering);
+                           sealed.optimize(); // no writings here, can be used with minimum memory
+                           mapSealed(sealed);
+                           oneBlob = sealed;
                        }
                        sortedItems.put(Long.valueOf(time), new blobItem(d, f, oneBlob));
                    } catch (final IOException e) {
@@ -261,12 +286,24 @@ public class ArrayStack implements BLOB {
         if (full && this.buffersize > 0 && !this.trimall) {
             oneBlob = new Heap(location, this.keylength, this.ordering, this.buffersize);
         } else {
-            oneBlob = new HeapModifier(location, this.keylength, this.ordering);
-            oneBlob.optimize();
+            final HeapModifier sealed = new HeapModifier(location, this.keylength, this.ordering);
+            sealed.optimize();
+            mapSealed(sealed);
+            oneBlob = sealed;
         }
         this.blobs.add(new blobItem(d, location, oneBlob));
     }
 
+    private void mapSealed(final HeapModifier sealed) {
+        if (!this.mapped) return;
+        try {
+            sealed.mapReadOnly();
+        } catch (final IOException e) {
+            // not fatal, the heap is read with the synchronized file access instead
+            ConcurrentLog.warn("ArrayStack", "cannot map file " + sealed.name() + ": " + e.getMessage());
+        }
+    }
+
     private synchronized void unmountBLOB(final File location, final boolean writeIDX) {
         blobItem b;
         for (int i = 0; i < this.blobs.size(); i++) {
@@ -291,7 +328,20 @@ public class ArrayStack implements BLOB {
         return f;
     }
 
-    public synchronized File[] unmountBestMatch(final float maxq, long maxResultSize) {
+    public synchronized File[] unmountBestMatch(final float maxq, final long maxResultSize) {
+        return unmountBestMatch(2, maxq, maxResultSize);
+    }
+
+    /**
+     * unmount a group of BLOB files with similar sizes for a merge. The best matching pair is searched first,
+     * then the group is extended with the files that keep the size quotient of the largest and the smallest
+     * file in the group lowest, as long as that quotient does not exceed maxq.
+     * @param maxFiles the maximum number of files that shall be unmounted
+     * @param maxq the maximum quotient of the largest and the smallest file size
+     * @param maxResultSize the maximum sum of the file sizes
+     * @return at least two and at most maxFiles files, or null if there is no matching pair
+     */
+    public synchronized File[] unmountBestMatch(final int maxFiles, final float maxq, long maxResultSize) {
     	if (this.blobs.size() < 2) return null;
         long l, r, m;
         File lf, rf;
@@ -320,9 +370,43 @@ public class ArrayStack implements BLOB {
             }
         }
         if (min > maxq) return null;
-        unmountBLOB(bestMatch[1], false);
-        unmountBLOB(bestMatch[0], false);
-        return bestMatch;
+
+        // extend the pair with further files of similar size
+        final List<File> group = new ArrayList<File>(maxFiles);
+        final HashSet<String> excluding = new HashSet<String>();
+        for (final File f: bestMatch) {
+            group.add(f);
+            excluding.add(f.getAbsolutePath());
+        }
+        l = 1 + (bestMatch[0].length() >> 1);
+        r = 1 + (bestMatch[1].length() >> 1);
+        long sum = l + r, gmin = Math.min(l, r), gmax = Math.max(l, r);
+        while (group.size() < maxFiles) {
+            blobItem best = null;
+            float bestq = Float.MAX_VALUE;
+            long bestl = 0;
+            for (final blobItem b: this.blobs) {
+                if (excluding.contains(b.location.getAbsolutePath())) continue;
+                final long x = 1 + (b.location.length() >> 1);
+                if (sum + x > maxResultSize) continue;
+                final float q = (float) Math.max(gmax, x) / (float) Math.min(gmin, x);
+                if (q < bestq) {
+                    bestq = q;
+                    best = b;
+                    bestl = x;
+                }
+            }
+            if (best == null || bestq > maxq) break;
+            if (!MemoryControl.request(best.blob.mem(), true)) break;
+            group.add(best.location);
+            excluding.add(best.location.getAbsolutePath());
+            sum += bestl;
+            gmin = Math.min(gmin, bestl);
+            gmax = Math.max(gmax, bestl);
+        }
+
+        for (final File f: group) unmountBLOB(f, false);
+        return group.toArray(new File[group.size()]);
     }
 
     public synchronized File unmountOldest() {
@@ -334,25 +418,41 @@ public class ArrayStack implements BLOB {
     }
 
     public synchronized File[] unmountSmallest(final long maxResultSize) {
-    	if (this.blobs.size() < 2) return null;
-    	final File f0 = smallestBLOB(null, maxResultSize);
-        if (f0 == null) return null;
-        final File f1 = smallestBLOB(f0, maxResultSize - f0.length());
-        if (f1 == null) return null;
-
-        unmountBLOB(f0, false);
-        unmountBLOB(f1, false);
-        return new File[]{f0, f1};
+        return unmountSmallest(2, maxResultSize);
     }
 
-    private synchronized File smallestBLOB(final File excluding, final long maxsize) {
+    /**
+     * unmount the smallest BLOB files for a merge
+     * @param maxFiles the maximum number of files that shall be unmounted
+     * @param maxResultSize the maximum sum of the file sizes
+     * @return at least two and at most maxFiles files, or null if there are no two files that fit into maxResultSize
+     */
+    public synchronized File[] unmountSmallest(final int maxFiles, final long maxResultSize) {
+        if (this.blobs.size() < 2) return null;
+        final List<File> selected = new ArrayList<File>(maxFiles);
+        final HashSet<String> excluding = new HashSet<String>();
+        long remaining = maxResultSize;
+        while (selected.size() < maxFiles) {
+            final File f = smallestBLOB(excluding, remaining);
+            if (f == null) break;
+            selected.add(f);
+            excluding.add(f.getAbsolutePath());
+            remaining -= f.length();
+        }
+        if (selected.size() < 2) return null;
+
+        for (final File f: selected) unmountBLOB(f, false);
+        return selected.toArray(new File[selected.size()]);
+    }
+
+    private synchronized File smallestBLOB(final Set<String> excluding, final long maxsize) {
         if (this.blobs.isEmpty()) return null;
         File bestFile = null;
         long smallest = Long.MAX_VALUE;
         File f = null;
         for (int i = 0; i < this.blobs.size(); i++) {
         	f = this.blobs.get(i).location;
-            if (excluding != null && f.getAbsolutePath().equals(excluding.getAbsolutePath())) continue;
+            if (excluding.contains(f.getAbsolutePath())) continue;
             if (f.length() < smallest) {
                 smallest = f.length();
                 bestFile = f;
@@ -728,6 +828,54 @@ public class ArrayStack implements BLOB {
         return -1;
     }
 
+    /**
+     * get the first bytes of all BLOBs for the given key
+     * @param key
+     * @param len the maximum number of bytes for each BLOB
+     * @return the heads of the BLOBs, see {@link HeapReader#head(byte[], int)}
+     */
+    public Iterable<byte[]> headAll(final byte[] key, final int len) {
+        return new BlobHeads(key, len);
+    }
+
+    private class BlobHeads extends LookAheadIterator<byte[]> {
+
+        private final Iterator<blobItem> bii;
+        private final byte[] key;
+        private final int len;
+
+        public BlobHeads(final byte[] key, final int len) {
+            this.bii = ArrayStack.this.blobs.iterator();
+            this.key = key;
+            this.len = len;
+        }
+
+        @Override
+        protected byte[] next0() {
+            while (this.bii.hasNext()) {
+                final BLOB b = this.bii.next().blob;
+                if (b == null) continue;
+                try {
+                    final byte[] n;
+                    if (b instanceof HeapReader) {
+                        n = ((HeapReader) b).head(this.key, this.len);
+                    } else {
+                        final byte[] a = b.get(this.key);
+                        n = a == null || a.length <= this.len ? a : Arrays.copyOf(a, this.len);
+                    }
+                    if (n != null) return n;
+                } catch (final IOException e) {
+                    ConcurrentLog.severe("ArrayStack", "BlobHeads - IOException: " + e.getMessage(), e);
+                    return null;
+                } catch (final SpaceExceededException e) {
+                    ConcurrentLog.severe("ArrayStack", "BlobHeads - RowSpaceExceededException: " + e.getMessage(), e);
+                    break;
+                }
+            }
+            return null;
+        }
+    }
+
     /**
      * get all BLOBs in the array.
      * this is useful when it is not clear if an entry is unique in all BLOBs in this array.
@@ -923,8 +1071,25 @@ public class ArrayStack implements BLOB {
     public File mergeMount(final File f1, final File f2,
             final ReferenceFactory<? extends Reference> factory,
             final File newFile, final int writeBuffer) {
-        if (f2 == null) {
+        return mergeMount(f2 == null ? new File[]{f1} : new File[]{f1, f2}, factory, newFile, writeBuffer, 0);
+    }
+
+    /**
+     * merge any number of blob files into one in a single streaming pass.
+     * If only one file is given, then this file is only rewritten into a new one.
+     * @param files the unmounted files to be merged
+     * @param factory
+     * @param newFile
+     * @param writeBuffer
+     * @param maxBytesPerSecond the maximum write rate of the merge, 0 for no limit
+     * @return the target file where the given files are merged in
+     */
+    public File mergeMount(final File[] files,
+            final ReferenceFactory<? extends Reference> factory,
+            final File newFile, final int writeBuffer, final long maxBytesPerSecond) {
+        if (files.length == 1) {
             // this is a rewrite
+            final File f1 = files[0];
             ConcurrentLog.info("BLOBArray", "rewrite of " + f1.getName());
             final File resultFile = rewriteWorker(factory, this.keylength, this.ordering, f1, newFile, writeBuffer);
             if (resultFile == null) {
@@ -940,79 +1105,89 @@ public class ArrayStack implements BLOB {
             ConcurrentLog.info("BLOBArray", "rewrite of " + f1.getName() + " into " + resultFile);
             return resultFile;
         }
-        ConcurrentLog.info("BLOBArray", "merging " + f1.getName() + " with " + f2.getName());
-        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, f1, f2, newFile, writeBuffer);
+        final String names = names(files);
+        ConcurrentLog.info("BLOBArray", "merging " + names);
+        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, files, newFile, writeBuffer, maxBytesPerSecond);
         if (resultFile == null) {
-            ConcurrentLog.warn("BLOBArray", "merge of files " + f1 + ", " + f2 + " returned null. newFile = " + newFile);
+            ConcurrentLog.warn("BLOBArray", "merge of files " + names + " returned null. newFile = " + newFile);
             return null;
         }
         try {
             mountBLOB(resultFile, false);
         } catch (final IOException e) {
-            ConcurrentLog.warn("BLOBArray", "merge of files " + f1 + ", " + f2 + " successfull, but read failed. resultFile = " + resultFile);
+            ConcurrentLog.warn("BLOBArray", "merge of files " + names + " successfull, but read failed. resultFile = " + resultFile);
             return null;
         }
-        ConcurrentLog.info("BLOBArray", "merged " + f1.getName() + " with " + f2.getName() + " into " + resultFile);
+        ConcurrentLog.info("BLOBArray", "merged " + names + " into " + resultFile);
         return resultFile;
     }
 
+    /**
+     * @return the comma-separated names of the given files, used for logging
+     */
+    public static String names(final File[] files) {
+        final StringBuilder sb = new StringBuilder(files.length * 40);
+        for (final File f: files) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(f.getName());
+        }
+        return sb.toString();
+    }
+
     private static <ReferenceType extends Reference> File mergeWorker(
                     final ReferenceFactory<ReferenceType> factory,
-                    final int keylength, final ByteOrder order, final File f1, final File f2, final File newFile, final int writeBuffer) {
-        // iterate both files and write a new one
-        ReferenceIterator<ReferenceType> i1 = null;
+                    final int keylength, final ByteOrder order, final File[] files, final File newFile,
+                    final int writeBuffer, final long maxBytesPerSecond) {
+        // open all files and drop those which are empty
+        final List<ReferenceIterator<ReferenceType>> iterators = new ArrayList<ReferenceIterator<ReferenceType>>(files.length);
+        final List<File> inputs = new ArrayList<File>(files.length);
         try {
-            i1 = new ReferenceIterator<ReferenceType>(f1, factory);
-            ReferenceIterator<ReferenceType> i2 = null;
-            try {
-                i2 = new ReferenceIterator<ReferenceType>(f2, factory);
-                if (!i1.hasNext()) {
-                    if (i2.hasNext()) {
-                        HeapWriter.delete(f1);
-                        if (f2.renameTo(newFile)) return newFile;
-                        return f2;
-                    }
-                    HeapWriter.delete(f1);
-                    HeapWriter.delete(f2);
-                    return null;
-                } else if (!i2.hasNext()) {
-                    HeapWriter.delete(f2);
-                    if (f1.renameTo(newFile)) return newFile;
-                    return f1;
-                }
-                assert i1.hasNext();
-                assert i2.hasNext();
-                final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
+            for (final File f: files) {
+                final ReferenceIterator<ReferenceType> i;
                 try {
-                    final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
-                    merge(i1, i2, order, writer);
-                    writer.close(true);
+                    i = new ReferenceIterator<ReferenceType>(f, factory);
                 } catch (final IOException e) {
-                    ConcurrentLog.severe("ArrayStack", "cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
-                    HeapWriter.delete(tmpFile);
-                    HeapWriter.delete(newFile);
-                    return null;
-                } catch (final SpaceExceededException e) {
-                    ConcurrentLog.severe("ArrayStack", "cannot merge because of memory failure: " + e.getMessage(), e);
-                    HeapWriter.delete(tmpFile);
-                    HeapWriter.delete(newFile);
+                    ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f = " + f.toString() + ": " + e.getMessage(), e);
                     return null;
                 }
-                // we don't need the old files any more
-                HeapWriter.delete(f1);
-                HeapWriter.delete(f2);
-                return newFile;
+                if (i.hasNext()) {
+                    iterators.add(i);
+                    inputs.add(f);
+                } else {
+                    i.close();
+                    HeapWriter.delete(f);
+                }
+            }
+            if (inputs.isEmpty()) return null;
+            if (inputs.size() == 1) {
+                final File f = inputs.get(0);
+                iterators.get(0).close();
+                if (f.renameTo(newFile)) return newFile;
+                return f;
+            }
+            final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
+            try {
+                final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
+                merge(iterators, order, writer, maxBytesPerSecond);
+                writer.close(true);
             } catch (final IOException e) {
-                ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f2 = " + f2.toString() + ": " + e.getMessage(), e);
+                ConcurrentLog.severe("ArrayStack", "cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
+                HeapWriter.delete(tmpFile);
+                HeapWriter.delete(newFile);
+                return null;
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.severe("ArrayStack", "cannot merge because of memory failure: " + e.getMessage(), e);
+                HeapWriter.delete(tmpFile);
+                HeapWriter.delete(newFile);
                 return null;
-            } finally {
-                if (i2 != null) i2.close();
             }
-        } catch (final IOException e) {
-            ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f1 = " + f1.toString() + ": " + e.getMessage(), e);
-            return null;
+            // we don't need the old files any more
+            for (final ReferenceIterator<ReferenceType> i: iterators) i.close();
+            iterators.clear();
+            for (final File f: inputs) HeapWriter.delete(f);
+            return newFile;
         } finally {
-            if (i1 != null) i1.close();
+            for (final ReferenceIterator<ReferenceType> i: iterators) i.close();
         }
     }
 
@@ -1055,102 +1230,78 @@ public class ArrayStack implements BLOB {
         return newFile;
     }
 
+    /**
+     * the current element of one input of a k-way merge
+     */
+    private static final class MergeHead<ReferenceType extends Reference> {
+        private final int input;
+        private final CloneableIterator<ReferenceContainer<ReferenceType>> iterator;
+        private ReferenceContainer<ReferenceType> container;
+        private MergeHead(final int input, final CloneableIterator<ReferenceContainer<ReferenceType>> iterator) {
+            this.input = input;
+            this.iterator = iterator;
+            this.container = iterator.next();
+        }
+        private boolean advance(final ByteOrder ordering) {
+            if (!this.iterator.hasNext()) return false;
+            final byte[] lh = this.container.getTermHash();
+            this.container = this.iterator.next();
+            assert ordering.compare(this.container.getTermHash(), lh) > 0;
+            return true;
+        }
+    }
+
+    /**
+     * merge sorted container streams into one writer. All inputs are read only once;
+     * containers with the same term hash are joined before they are written.
+     * @param inputs the sorted input streams, each must have at least one element
+     * @param ordering the ordering of the term hashes
+     * @param writer the target heap
+     * @param maxBytesPerSecond the maximum write rate, 0 for no limit
+     */
     private static <ReferenceType extends Reference> void merge(
-            final CloneableIterator<ReferenceContainer<ReferenceType>> i1,
-            final CloneableIterator<ReferenceContainer<ReferenceType>> i2,
-            final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
-        assert i1.hasNext();
-        assert i2.hasNext();
-        byte[] c1lh, c2lh;
-        ReferenceContainer<ReferenceType> c1, c2;
-        c1 = i1.next();
-        c2 = i2.next();
-        int e, s;
-        while (true) {
-            assert c1 != null;
-            assert c2 != null;
-            e = ordering.compare(c1.getTermHash(), c2.getTermHash());
-            if (e < 0) {
-            	s = c1.shrinkReferences();
-            	if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-                writer.add(c1.getTermHash(), c1.exportCollection());
-                if (i1.hasNext()) {
-                    c1lh = c1.getTermHash();
-                    c1 = i1.next();
-                    assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-                    continue;
-                }
-                c1 = null;
-                break;
+            final List<? extends CloneableIterator<ReferenceContainer<ReferenceType>>> inputs,
+            final ByteOrder ordering, final HeapWriter writer, final long maxBytesPerSecond) throws IOException, SpaceExceededException {
+        final PriorityQueue<MergeHead<ReferenceType>> heads = new PriorityQueue<MergeHead<ReferenceType>>(inputs.size(), new Comparator<MergeHead<ReferenceType>>() {
+            @Override
+            public int compare(final MergeHead<ReferenceType> h1, final MergeHead<ReferenceType> h2) {
+                final int c = ordering.compare(h1.container.getTermHash(), h2.container.getTermHash());
+                return c != 0 ? c : (h1.input < h2.input ? -1 : (h1.input == h2.input ? 0 : 1));
             }
-            if (e > 0) {
-                s = c2.shrinkReferences();
-                if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
-                writer.add(c2.getTermHash(), c2.exportCollection());
-                if (i2.hasNext()) {
-                    c2lh = c2.getTermHash();
-                    c2 = i2.next();
-                    assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-                    continue;
-                }
-                c2 = null;
-                break;
-            }
-            assert e == 0;
-            // merge the entries
-            c1 = c1.merge(c2);
-            s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-            writer.add(c1.getTermHash(), c1.exportCollection());
-            c1lh = c1.getTermHash();
-            c2lh = c2.getTermHash();
-            if (i1.hasNext() && i2.hasNext()) {
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-                continue;
-            }
-            c1 = null;
-            c2 = null;
-            if (i1.hasNext()) {
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-            }
-            if (i2.hasNext()) {
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-            }
-            break;
-
+        });
+        for (int i = 0; i < inputs.size(); i++) {
+            assert inputs.get(i).hasNext();
+            heads.add(new MergeHead<ReferenceType>(i, inputs.get(i)));
         }
-        // catch up remaining entries
-        assert !(i1.hasNext() && i2.hasNext());
-        assert (c1 == null) || (c2 == null);
-        while (c1 != null) {
-            //System.out.println("FLUSH REMAINING 1: " + c1.getWordHash());
-            s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-            writer.add(c1.getTermHash(), c1.exportCollection());
-            if (i1.hasNext()) {
-                c1lh = c1.getTermHash();
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-            } else {
-                c1 = null;
+        final long start = System.currentTimeMillis();
+        long written = 0;
+        MergeHead<ReferenceType> head;
+        ReferenceContainer<ReferenceType> c;
+        byte[] b;
+        int s;
+        while ((head = heads.poll()) != null) {
+            c = head.container;
+            if (head.advance(ordering)) heads.add(head);
+            // join all containers with the same term hash
+            while (!heads.isEmpty() && ordering.compare(heads.peek().container.getTermHash(), c.getTermHash()) == 0) {
+                head = heads.poll();
+                c = c.merge(head.container);
+                if (head.advance(ordering)) heads.add(head);
             }
-        }
-        while (c2 != null) {
-            //System.out.println("FLUSH REMAINING 2: " + c2.getWordHash());
-            s = c2.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
-            writer.add(c2.getTermHash(), c2.exportCollection());
-            if (i2.hasNext()) {
-                c2lh = c2.getTermHash();
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-            } else {
-                c2 = null;
+            s = c.shrinkReferences();
+            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c.getTermHash()) + " by " + s + " to " + c.size() + " entries");
+            b = c.exportColumnar();
+            writer.add(c.getTermHash(), b);
+            written += b.length;
+            if (maxBytesPerSecond > 0) {
+                // throttle the merge if it is ahead of the allowed write rate
+                final long ahead = written * 1000L / maxBytesPerSecond - (System.currentTimeMillis() - start);
+                if (ahead > 10) try {
+                    Thread.sleep(ahead);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("merge interrupted");
+                }
             }
         }
         // finished with writing
@@ -1168,7 +1319,7 @@ public class ArrayStack implements BLOB {
             assert c != null;
             s = c.shrinkReferences();
             if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c.getTermHash()) + " by " + s + " to " + c.size() + " entries");
-            writer.add(c.getTermHash(), c.exportCollection());
+            writer.add(c.getTermHash(), c.exportColumnar());
             if (i.hasNext()) {
                 clh = c.getTermHash();
                 c = i.next();
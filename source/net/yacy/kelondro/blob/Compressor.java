@@ -32,14 +32,29 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.order.CloneableIterator;
@@ -47,20 +62,43 @@ import net.yacy.cora.util.ByteArray;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+import net.yacy.kelondro.workflow.WorkflowProcessor;
 
 
 public class Compressor implements BLOB, Iterable<byte[]> {
 
     private static byte[] gzipMagic  = {(byte) 'z', (byte) '|'}; // magic for gzip-encoded content
     private static byte[] plainMagic = {(byte) 'p', (byte) '|'}; // magic for plain content (no encoding)
+    private static byte[] dictMagic  = {(byte) 'd', (byte) '|'}; // magic for deflate-encoded content with a preset dictionary
+
+    /** Maximum size of a preset dictionary: the deflate window size */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    /** The thread pool compressing the entries of all instances */
+    private static final ThreadPoolExecutor COMPRESSION_EXECUTOR = new ThreadPoolExecutor(
+            WorkflowProcessor.availableCPU,
+            WorkflowProcessor.availableCPU, 1000,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new NamePrefixThreadFactory(Compressor.class.getSimpleName() + ".COMPRESSION_EXECUTOR"));
+    static {
+        COMPRESSION_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
 
     private final BLOB backend;
     
     /** entries which are not yet compressed, format is RAW (without magic) */
-    private TreeMap<byte[], byte[]> buffer;
+    private TreeMap<byte[], Entry> buffer;
     
-    /** Total size (in bytes) of uncompressed entries in buffer */
+    /** entries which are currently compressed by the thread pool; they are removed when they are written to the backend */
+    private TreeMap<byte[], Entry> inflight;
+
+    /** Total size (in bytes) of uncompressed entries in buffer and inflight */
     private volatile long bufferlength;
+
+    /** Total size (in bytes) of uncompressed entries in inflight */
+    private long inflightlength;
     
     /** Maximum {@link #bufferlength} value before compressing and flushing to the backend */
     private final long maxbufferlength;
@@ -71,9 +109,31 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     /** Synchronization lock */
     private final ReentrantLock lock;
     
+    /** Signaled each time a compressed entry has been written to the backend */
+    private final Condition flushed;
+
     /** The compression level */
     private volatile int compressionLevel;
 
+    /** The preset dictionaries used to compress new entries, by content type */
+    private final Map<String, byte[]> dictionaries;
+
+    /** All known preset dictionaries by their Adler-32 checksum, to decompress entries */
+    private final Map<Integer, byte[]> dictionariesById;
+
+    /**
+     * An uncompressed entry with the preset dictionary to use for its compression
+     */
+    private static final class Entry {
+        private final byte[] b;
+        private final byte[] dictionary;
+
+        private Entry(final byte[] b, final byte[] dictionary) {
+            this.b = b;
+            this.dictionary = dictionary;
+        }
+    }
+
     /**
      * @param backend the backend storage
      * @param buffersize the maximum total size (in bytes) of uncompressed in-memory entries before compressing and flushing to the backend
@@ -85,8 +145,11 @@ public class Compressor implements BLOB, Iterable<byte[]> {
         this.maxbufferlength = buffersize;
         this.lockTimeout = lockTimeout;
         this.lock = new ReentrantLock();
+        this.flushed = this.lock.newCondition();
         /* Ensure a value within the range supported by the Deflater class */
         this.compressionLevel = Math.max(Deflater.NO_COMPRESSION, Math.min(Deflater.BEST_COMPRESSION, compressionLevel));
+        this.dictionaries = new ConcurrentHashMap<String, byte[]>();
+        this.dictionariesById = new ConcurrentHashMap<Integer, byte[]>();
         initBuffer();
     }
 
@@ -117,8 +180,10 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     }
 
     private void initBuffer() {
-        this.buffer = new TreeMap<byte[], byte[]>(this.backend.ordering());
+        this.buffer = new TreeMap<byte[], Entry>(this.backend.ordering());
+        this.inflight = new TreeMap<byte[], Entry>(this.backend.ordering());
         this.bufferlength = 0;
+        this.inflightlength = 0;
     }
 
     @Override
@@ -138,11 +203,36 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     	}
     }
 
-    private static byte[] compress(final byte[] b, final int compressionLevel) {
+    /**
+     * Set the preset dictionary used to compress new entries of the given content type.
+     * Entries compressed with a preset dictionary can only be decompressed when the same
+     * dictionary has been set before, so dictionaries must be kept as long as such entries exist.
+     * @param contentType the content type (i.e. a MIME type)
+     * @param dictionary the preset dictionary, at most {@link #MAX_DICTIONARY_SIZE} bytes are used
+     */
+    public void setDictionary(final String contentType, final byte[] dictionary) {
+        if (dictionary == null || dictionary.length == 0) return;
+        final byte[] d = dictionary.length <= MAX_DICTIONARY_SIZE ? dictionary : Arrays.copyOfRange(dictionary, dictionary.length - MAX_DICTIONARY_SIZE, dictionary.length);
+        final Adler32 adler = new Adler32();
+        adler.update(d);
+        this.dictionariesById.put((int) adler.getValue(), d);
+        this.dictionaries.put(contentType, d);
+    }
+
+    /**
+     * @param contentType the content type (i.e. a MIME type)
+     * @return true when new entries of the given content type are compressed with a preset dictionary
+     */
+    public boolean hasDictionary(final String contentType) {
+        return contentType != null && this.dictionaries.containsKey(contentType);
+    }
+
+    private static byte[] compress(final Entry entry, final int compressionLevel) {
+        final byte[] b = entry.b;
         final int l = b.length;
         if (l < 100) return markWithPlainMagic(b);
-        final byte[] bb = compressAddMagic(b, compressionLevel);
-        if (bb.length >= l) return markWithPlainMagic(b);
+        final byte[] bb = entry.dictionary == null ? compressAddMagic(b, compressionLevel) : compressWithDictionary(b, compressionLevel, entry.dictionary);
+        if (bb == null || bb.length >= l) return markWithPlainMagic(b);
         return bb;
     }
 
@@ -163,6 +253,26 @@ public class Compressor implements BLOB, Iterable<byte[]> {
         }
     }
 
+    private static byte[] compressWithDictionary(final byte[] b, final int compressionLevel, final byte[] dictionary) {
+        // compress a byte array to a zlib stream, which contains the checksum of the dictionary, and add a leading magic
+        final Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setDictionary(dictionary);
+            deflater.setInput(b);
+            deflater.finish();
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream(b.length / 5);
+            baos.write(dictMagic, 0, dictMagic.length);
+            final byte[] buf = new byte[1024 * 8];
+            while (!deflater.finished()) {
+                final int n = deflater.deflate(buf);
+                baos.write(buf, 0, n);
+            }
+            return baos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
     private static byte[] markWithPlainMagic(final byte[] b) {
         //System.out.print("+"); // DEBUG
         final byte[] r = new byte[b.length + 2];
@@ -172,7 +282,7 @@ public class Compressor implements BLOB, Iterable<byte[]> {
         return r;
     }
 
-    private static byte[] decompress(final byte[] b) {
+    private byte[] decompress(final byte[] b) {
         // use a magic in the head of the bytes to identify compression type
         if (b == null) return null;
         if (ByteArray.startsWith(b, gzipMagic)) {
@@ -198,6 +308,36 @@ public class Compressor implements BLOB, Iterable<byte[]> {
                 ConcurrentLog.logException(e);
                 return null;
             }
+        } else if (ByteArray.startsWith(b, dictMagic)) {
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(b, 2, b.length - 2);
+                final ByteArrayOutputStream baos = new ByteArrayOutputStream(b.length * 4);
+                final byte[] buf = new byte[1024 * 8];
+                while (!inflater.finished()) {
+                    final int n = inflater.inflate(buf);
+                    if (n == 0) {
+                        if (inflater.needsDictionary()) {
+                            final byte[] dictionary = this.dictionariesById.get(inflater.getAdler());
+                            if (dictionary == null) {
+                                ConcurrentLog.fine("Compressor", "Unknown preset dictionary " + Integer.toHexString(inflater.getAdler()));
+                                return null;
+                            }
+                            inflater.setDictionary(dictionary);
+                        } else if (inflater.needsInput()) {
+                            ConcurrentLog.warn("Compressor", "Truncated compressed entry");
+                            return null;
+                        }
+                    }
+                    baos.write(buf, 0, n);
+                }
+                return baos.toByteArray();
+            } catch (final DataFormatException e) {
+                ConcurrentLog.logException(e);
+                return null;
+            } finally {
+                inflater.end();
+            }
         } else if (ByteArray.startsWith(b, plainMagic)) {
             //System.out.print("-"); // DEBUG
             final byte[] r = new byte[b.length - 2];
@@ -209,6 +349,86 @@ public class Compressor implements BLOB, Iterable<byte[]> {
         }
     }
 
+    /**
+     * Compute a preset dictionary from sample contents, to be used with {@link #setDictionary(String, byte[])}.
+     * The dictionary is made of the longest strings which occur in many samples; the most frequent strings are
+     * placed at the end of the dictionary, where they can be referenced with the shortest distances.
+     * @param samples sample contents of the same content type
+     * @param size the maximum size of the dictionary
+     * @return the dictionary, which may be empty if the samples have nothing in common
+     */
+    public static byte[] trainDictionary(final List<byte[]> samples, final int size) {
+        final int k = 8; // length of the strings which are counted
+        // count in how many samples each string of length k occurs
+        final Map<Long, int[]> frequency = new HashMap<Long, int[]>();
+        for (int s = 0; s < samples.size(); s++) {
+            final byte[] sample = samples.get(s);
+            long gram = 0;
+            for (int p = 0; p < sample.length; p++) {
+                gram = (gram << 8) | (sample[p] & 0xff);
+                if (p < k - 1) continue;
+                final int[] f = frequency.get(gram);
+                if (f == null) {
+                    frequency.put(gram, new int[]{1, s});
+                } else if (f[1] != s) {
+                    f[0]++;
+                    f[1] = s;
+                }
+            }
+        }
+        // collect segments of the samples which consist of frequent strings only
+        final int threshold = Math.max(2, samples.size() / 8);
+        final Map<String, int[]> segments = new HashMap<String, int[]>();
+        for (final byte[] sample: samples) {
+            long gram = 0;
+            int start = -1, score = 0;
+            for (int p = 0; p <= sample.length; p++) {
+                int f = 0;
+                if (p < sample.length) {
+                    gram = (gram << 8) | (sample[p] & 0xff);
+                    if (p < k - 1) continue;
+                    f = frequency.get(gram)[0];
+                }
+                if (f >= threshold) {
+                    if (start < 0) start = p - k + 1;
+                    score += f;
+                } else if (start >= 0) {
+                    // the last frequent string ends at p - 1
+                    if (p - start <= size) {
+                        final String segment = new String(sample, start, p - start, StandardCharsets.ISO_8859_1);
+                        final int[] c = segments.get(segment);
+                        if (c == null) segments.put(segment, new int[]{score}); else c[0] = Math.max(c[0], score);
+                    }
+                    start = -1;
+                    score = 0;
+                }
+            }
+        }
+        frequency.clear();
+        // take the segments with the highest score until the dictionary is full
+        final List<Map.Entry<String, int[]>> ordered = new ArrayList<Map.Entry<String, int[]>>(segments.entrySet());
+        Collections.sort(ordered, new Comparator<Map.Entry<String, int[]>>() {
+            @Override
+            public int compare(final Map.Entry<String, int[]> a, final Map.Entry<String, int[]> b) {
+                final int c = Integer.compare(b.getValue()[0], a.getValue()[0]);
+                return c != 0 ? c : a.getKey().compareTo(b.getKey());
+            }
+        });
+        final List<String> selected = new ArrayList<String>();
+        final StringBuilder dictionary = new StringBuilder(size);
+        for (final Map.Entry<String, int[]> segment: ordered) {
+            final String s = segment.getKey();
+            if (dictionary.length() + s.length() > size) continue;
+            if (dictionary.indexOf(s) >= 0) continue;
+            dictionary.append(s);
+            selected.add(s);
+        }
+        // the most frequent segments go to the end
+        final StringBuilder reversed = new StringBuilder(dictionary.length());
+        for (int i = selected.size() - 1; i >= 0; i--) reversed.append(selected.get(i));
+        return reversed.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
     @Override
     public byte[] get(final byte[] key) throws IOException, SpaceExceededException {
         // depending on the source of the result, we additionally do entry compression
@@ -223,12 +443,13 @@ public class Compressor implements BLOB, Iterable<byte[]> {
 		}
         if(locked) {
         	try {
-        		b = this.buffer.remove(key);
-        		if (b != null) {
-        			this.bufferlength = this.bufferlength - b.length;
-           			this.backend.insert(key, compress(b, this.compressionLevel));
-        			return b;
+        		Entry entry = this.buffer.remove(key);
+        		if (entry != null) {
+        			dispatch(key, entry);
+        			return entry.b;
         		}
+        		entry = this.inflight.get(key);
+        		if (entry != null) return entry.b;
         	} finally {
         		this.lock.unlock();
         	}
@@ -262,7 +483,7 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     public boolean containsKey(final byte[] key) {
         this.lock.lock();
         try {
-            return this.buffer.containsKey(key) || this.backend.containsKey(key);
+            return this.buffer.containsKey(key) || this.inflight.containsKey(key) || this.backend.containsKey(key);
         } finally {
         	this.lock.unlock();
         }
@@ -290,10 +511,11 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     public long length(final byte[] key) throws IOException {
         this.lock.lock();
         try {
-            byte[] b = this.buffer.get(key);
-            if (b != null) return b.length;
+            Entry entry = this.buffer.get(key);
+            if (entry == null) entry = this.inflight.get(key);
+            if (entry != null) return entry.b.length;
             try {
-                b = this.backend.get(key);
+                byte[] b = this.backend.get(key);
                 if (b == null) return 0;
                 b = decompress(b);
                 return (b == null) ? 0 : b.length;
@@ -306,13 +528,30 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     }
 
     private int removeFromQueues(final byte[] key) {
-        final byte[] b = this.buffer.remove(key);
-        if (b != null) return b.length;
+        Entry entry = this.buffer.remove(key);
+        if (entry != null) return entry.b.length;
+        entry = this.inflight.remove(key);
+        if (entry != null) {
+            // the compression result is dropped when the compression task finishes
+            this.inflightlength -= entry.b.length;
+            return entry.b.length;
+        }
         return 0;
     }
 
     @Override
     public void insert(final byte[] key, final byte[] b) throws IOException {
+        insert(key, b, null);
+    }
+
+    /**
+     * Insert an entry which is compressed with the preset dictionary of its content type when one is set
+     * @param key the entry key
+     * @param b the uncompressed content
+     * @param contentType the content type (i.e. a MIME type) or null
+     * @throws IOException
+     */
+    public void insert(final byte[] key, final byte[] b, final String contentType) throws IOException {
     	boolean locked = false;
     	try {
 			locked = this.lock.tryLock(this.lockTimeout, TimeUnit.MILLISECONDS);
@@ -328,18 +567,28 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     			// check if the buffer is full or could be full after this write
     			if (this.bufferlength + b.length * 2 > this.maxbufferlength) {
     				// in case that we compress, just compress as much as is necessary to get enough room
-    				while (this.bufferlength + b.length * 2 > this.maxbufferlength) {
+    				while (this.bufferlength - this.inflightlength + b.length * 2 > this.maxbufferlength) {
     					if (this.buffer.isEmpty()) break;
-    					flushOne();
+    					dispatchOne();
+    				}
+    				// the entries are compressed concurrently; wait until there is enough room,
+    				// so that the memory used by entries in flight is bounded
+    				long wait = TimeUnit.MILLISECONDS.toNanos(this.lockTimeout);
+    				while (this.bufferlength + b.length * 2 > this.maxbufferlength && !this.inflight.isEmpty() && wait > 0) {
+    					try {
+    						wait = this.flushed.awaitNanos(wait);
+    					} catch (final InterruptedException e) {
+    						Thread.currentThread().interrupt();
+    						break;
+    					}
     				}
-    				// in case that this was not enough, just flush all
-    				if (this.bufferlength + b.length * 2 > this.maxbufferlength) flushAll();
     			}
 
     			// files are written uncompressed to the uncompressed-queue
     			// they are either written uncompressed to the database
     			// or compressed later
-   				this.buffer.put(key, b);
+    			final byte[] dictionary = contentType == null ? null : this.dictionaries.get(contentType);
+   				this.buffer.put(key, new Entry(b, dictionary));
    				this.bufferlength += b.length;
     		} finally {
     			this.lock.unlock();
@@ -369,7 +618,7 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     public int size() {
     	this.lock.lock();
     	try {
-    		return this.backend.size() + this.buffer.size();
+    		return this.backend.size() + this.buffer.size() + this.inflight.size();
     	} finally {
     		this.lock.unlock();
     	}
@@ -381,6 +630,7 @@ public class Compressor implements BLOB, Iterable<byte[]> {
     	try {
     		if (!this.backend.isEmpty()) return false;
     		if (!this.buffer.isEmpty()) return false;
+    		if (!this.inflight.isEmpty()) return false;
     		return true;
     	} finally {
     		this.lock.unlock();
@@ -419,29 +669,70 @@ public class Compressor implements BLOB, Iterable<byte[]> {
         }
     }
 
-    private boolean flushOne() {
-        if (this.buffer.isEmpty()) return false;
-        // depending on process case, write it to the file or compress it to the other queue
-        final Map.Entry<byte[], byte[]> entry = this.buffer.entrySet().iterator().next();
-        this.buffer.remove(entry.getKey());
+    /**
+     * hand over the first buffered entry to the compression thread pool; the lock must be held
+     */
+    private void dispatchOne() {
+        final Map.Entry<byte[], Entry> entry = this.buffer.pollFirstEntry();
+        if (entry != null) dispatch(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * hand over an entry which has been removed from the buffer to the compression thread pool; the lock must be held
+     */
+    private void dispatch(final byte[] key, final Entry entry) {
+        this.inflight.put(key, entry);
+        this.inflightlength += entry.b.length;
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                byte[] c = null;
+                try {
+                    c = compress(entry, Compressor.this.compressionLevel);
+                } finally {
+                    finish(key, entry, c);
+                }
+            }
+        };
         try {
-            this.backend.insert(entry.getKey(), compress(entry.getValue(), this.compressionLevel));
-            this.bufferlength -= entry.getValue().length;
-            return true;
-        } catch (final IOException e) {
-            this.buffer.put(entry.getKey(), entry.getValue());
-            return false;
+            COMPRESSION_EXECUTOR.execute(task);
+        } catch (final RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * write a compressed entry to the backend, unless it has been deleted or replaced in the meantime
+     * @param c the compressed entry, null if the compression failed
+     */
+    private void finish(final byte[] key, final Entry entry, final byte[] c) {
+        this.lock.lock();
+        try {
+            if (this.inflight.get(key) != entry) return;
+            this.inflight.remove(key);
+            this.inflightlength -= entry.b.length;
+            boolean written = false;
+            if (c != null) try {
+                this.backend.insert(key, c);
+                this.bufferlength -= entry.b.length;
+                written = true;
+            } catch (final IOException e) {
+                ConcurrentLog.warn("Compressor", "Could not write compressed entry: " + e.getMessage());
+            }
+            // keep the entry in the buffer, it is written with the next flush
+            if (!written) this.buffer.put(key, entry);
+        } finally {
+            this.flushed.signalAll();
+            this.lock.unlock();
         }
     }
 
     public void flushAll() {
     	this.lock.lock();
     	try {
-    		while (!this.buffer.isEmpty()) {
-    			if (!flushOne()) {
-    				break;
-    			}
-    		}
+    		while (!this.buffer.isEmpty()) dispatchOne();
+    		// entries which could not be written are back in the buffer and stay there
+    		while (!this.inflight.isEmpty()) this.flushed.awaitUninterruptibly();
     	} finally {
     		this.lock.unlock();
     	}
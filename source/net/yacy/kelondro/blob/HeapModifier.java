@@ -64,6 +64,7 @@ public class HeapModifier extends HeapReader implements BLOB {
      */
     @Override
     public synchronized void clear() throws IOException {
+        unmapReadOnly();
         this.index.clear();
         this.free.clear();
         this.file.close();
@@ -78,6 +79,7 @@ public class HeapModifier extends HeapReader implements BLOB {
      */
     @Override
     public synchronized void close(boolean writeIDX) {
+        unmapReadOnly(); // the mapping must not survive a truncation of the file
         shrinkWithGapsAtEnd();
         super.close(writeIDX);
     }
@@ -110,6 +112,7 @@ public class HeapModifier extends HeapReader implements BLOB {
             // check again if the index contains the key
             seek = this.index.get(key);
             if (seek < 0) return;
+            unmapReadOnly(); // the file is written below
 
             // check consistency of the index
             //assert (checkKey(key, seek)) : "key compare failed; key = " + UTF8.String(key) + ", seek = " + seek;
@@ -266,6 +269,7 @@ public class HeapModifier extends HeapReader implements BLOB {
             // check again if the index contains the key
             pos = this.index.get(key);
             if (pos < 0) return 0;
+            unmapReadOnly(); // the file is written below
 
             // check consistency of the index
             //assert checkKey(key, pos) : "key compare failed; key = " + UTF8.String(key) + ", seek = " + pos;
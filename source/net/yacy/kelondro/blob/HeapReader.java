@@ -35,6 +35,8 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.encoding.UTF8;
@@ -48,6 +50,7 @@ import net.yacy.cora.util.LookAheadIterator;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.io.CachedFileWriter;
+import net.yacy.kelondro.io.MappedFileReader;
 import net.yacy.kelondro.io.Writer;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
@@ -71,6 +74,11 @@ public class HeapReader {
     protected Gap                free;       // set of {seek, size} pairs denoting space and position of free records
     private   File               fingerprintFileIdx, fingerprintFileGap; // files with dumped indexes. Will be deleted if file is written
     private   Date               closeDate;  // records a time when the file was closed; used for debugging
+    protected volatile MappedFileReader mapped; // read-only memory mapping of the heap file, only present for sealed heaps
+    private   final ReadWriteLock    mapLock = new ReentrantReadWriteLock(); // shared by mapped reads, exclusive for unmapping
+
+    /** marker returned by mapped reads for entries which must be removed from the index */
+    private static final byte[] CORRUPTED = new byte[0];
 
     public HeapReader(
             final File heapFile,
@@ -84,6 +92,7 @@ public class HeapReader {
         this.heapFile.getParentFile().mkdirs();
         this.file = new CachedFileWriter(this.heapFile);
         this.closeDate = null;
+        this.mapped = null;
 
         // read or initialize the index
         this.fingerprintFileIdx = null;
@@ -127,6 +136,55 @@ public class HeapReader {
         // the file will be opened again automatically when the next access to it comes.
     }
 
+    /**
+     * map the heap file read-only into memory. After this, the methods get, length and containsKey
+     * do not take the heap lock any more and read the file with positional access without a shared file pointer;
+     * concurrent mapped reads only share a read lock which keeps the mapping alive while they run.
+     * This must only be used for sealed heap files which do not grow any more. Any write or truncation of the
+     * file must call {@link #unmapReadOnly()} first.
+     * Mapped reads never take the index monitor while they hold the read lock of the mapping, because
+     * {@link #unmapReadOnly()} takes the index monitor first and then the write lock.
+     * The mapping is released by the garbage collector, see {@link MappedFileReader#close()}.
+     * @throws IOException
+     */
+    public void mapReadOnly() throws IOException {
+        if (this.mapped != null) return;
+        if (this.heapFile.length() == 0) return; // nothing to map
+        this.mapped = new MappedFileReader(this.heapFile);
+    }
+
+    /**
+     * release the memory mapping; read access goes again through the synchronized file access.
+     * This must be called before the heap file is written, truncated or deleted. It waits until
+     * all running mapped reads are finished.
+     */
+    protected void unmapReadOnly() {
+        if (this.mapped == null) return;
+        final HandleMap idx = this.index;
+        if (idx == null) {
+            unmapExclusive();
+            return;
+        }
+        synchronized (idx) {
+            unmapExclusive();
+        }
+    }
+
+    private void unmapExclusive() {
+        this.mapLock.writeLock().lock();
+        try {
+            final MappedFileReader m = this.mapped;
+            this.mapped = null;
+            if (m != null) m.close();
+        } finally {
+            this.mapLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isMapped() {
+        return this.mapped != null;
+    }
+
     public long mem() {
         return this.index.mem(); // don't add the memory for free here since then the asserts for memory management don't work
     }
@@ -388,6 +446,10 @@ public class HeapReader {
         }
         key = normalizeKey(key);
 
+        // the index is thread-safe, sealed heaps do not need the additional lock
+        final HandleMap idx = this.index;
+        if (this.mapped != null && idx != null) return idx.get(key) >= 0;
+
         synchronized (this.index) {
             // check if the file index contains the key
             return this.index.get(key) >= 0;
@@ -489,6 +551,28 @@ public class HeapReader {
         }
         key = normalizeKey(key);
 
+        if (this.mapped != null) {
+            byte[] blob = null;
+            boolean isMapped = false;
+            this.mapLock.readLock().lock();
+            try {
+                final MappedFileReader m = this.mapped;
+                if (m != null) {
+                    blob = getMapped(m, key);
+                    isMapped = true;
+                }
+            } finally {
+                this.mapLock.readLock().unlock();
+            }
+            if (isMapped) {
+                if (blob != CORRUPTED) return blob;
+                // remove the entry only after the read lock is released: the index monitor
+                // is taken before the map lock in unmapReadOnly()
+                removeCorrupted(key);
+                return null;
+            }
+        }
+
         synchronized (this.index) {
             // check if the index contains the key
             final long pos = this.index.get(key);
@@ -549,6 +633,59 @@ public class HeapReader {
         }
     }
 
+    /**
+     * variant of get() using positional reads on the mapped heap file; the caller must hold the read lock of mapLock
+     * @return the blob, null if the key does not exist or {@link #CORRUPTED} if the entry must be removed from the index
+     */
+    private byte[] getMapped(final MappedFileReader m, final byte[] key) throws IOException, SpaceExceededException {
+        final HandleMap idx = this.index;
+        if (idx == null) return null;
+        final long pos = idx.get(key);
+        if (pos < 0) return null;
+
+        final int len = m.readInt(pos) - this.keylength;
+        if (len < 0) {
+            log.severe("file " + m.file() + " corrupted at " + pos + ": negative len. len = " + len + ", pk.len = " + this.keylength);
+            return CORRUPTED;
+        }
+        long memr = len + this.keylength + 64;
+        if (MemoryControl.available() < memr) {
+            if (!MemoryControl.request(memr, true)) throw new SpaceExceededException(memr, "HeapReader.getMapped()/check"); // not enough memory available for this blob
+        }
+
+        // verify the key
+        final byte[] keyf = new byte[this.keylength];
+        m.readFully(pos + 4, keyf, 0, keyf.length);
+        if (!this.ordering.equal(key, keyf)) {
+            log.severe("indexed verification access failed for " + this.heapFile.toString());
+            return CORRUPTED;
+        }
+
+        // read the blob
+        byte[] blob;
+        try {
+            blob = new byte[len];
+        } catch (final OutOfMemoryError e) {
+            MemoryControl.gc(1000, "HeapReader.getMapped()/blob");
+            try {
+                blob = new byte[len];
+            } catch (final OutOfMemoryError ee) {
+                throw new SpaceExceededException(len, "HeapReader.getMapped()/blob");
+            }
+        }
+        m.readFully(pos + 4 + this.keylength, blob, 0, len);
+        return blob;
+    }
+
+    /**
+     * remove an entry from the index which was found corrupted during a mapped read.
+     * The caller must not hold the read lock of mapLock.
+     */
+    private void removeCorrupted(final byte[] key) {
+        final HandleMap idx = this.index;
+        if (idx != null) idx.remove(key);
+    }
+
     public byte[] get(Object key) {
         if (!(key instanceof byte[])) return null;
         try {
@@ -586,6 +723,29 @@ public class HeapReader {
         }
         key = normalizeKey(key);
 
+        if (this.mapped != null) {
+            boolean corrupted = false;
+            this.mapLock.readLock().lock();
+            try {
+                final MappedFileReader m = this.mapped;
+                final HandleMap idx = this.index;
+                if (m != null && idx != null) {
+                    final long pos = idx.get(key);
+                    if (pos < 0) return -1;
+                    final int len = m.readInt(pos) - this.keylength;
+                    if (len >= 0) return len;
+                    log.severe("file " + m.file() + " corrupted at " + pos + ": negative len. len = " + len + ", pk.len = " + this.keylength);
+                    corrupted = true;
+                }
+            } finally {
+                this.mapLock.readLock().unlock();
+            }
+            if (corrupted) {
+                removeCorrupted(key);
+                return -1;
+            }
+        }
+
         synchronized (this.index) {
             // check if the index contains the key
             final long pos = this.index.get(key);
@@ -597,11 +757,51 @@ public class HeapReader {
         }
     }
 
+    /**
+     * read the first bytes of a BLOB, i.e. a header, without reading the whole BLOB
+     * @param key
+     * @param len the maximum number of bytes to read
+     * @return the first min(len, length(key)) bytes of the BLOB or null if the BLOB does not exist
+     * @throws IOException
+     */
+    public byte[] head(byte[] key, final int len) throws IOException {
+        if (this.index == null) return null;
+        key = normalizeKey(key);
+
+        if (this.mapped != null) {
+            this.mapLock.readLock().lock();
+            try {
+                final MappedFileReader m = this.mapped;
+                final HandleMap idx = this.index;
+                if (m != null && idx != null) {
+                    final long pos = idx.get(key);
+                    if (pos < 0) return null;
+                    final byte[] b = new byte[Math.max(0, Math.min(len, m.readInt(pos) - this.keylength))];
+                    m.readFully(pos + 4 + this.keylength, b, 0, b.length);
+                    return b;
+                }
+            } finally {
+                this.mapLock.readLock().unlock();
+            }
+        }
+
+        synchronized (this.index) {
+            final long pos = this.index.get(key);
+            if (pos < 0) return null;
+            this.file.seek(pos);
+            final byte[] b = new byte[Math.max(0, Math.min(len, this.file.readInt() - this.keylength))];
+            this.file.seek(pos + 4 + this.keylength);
+            this.file.readFully(b, 0, b.length);
+            return b;
+        }
+    }
+
     /**
      * close the BLOB table
      */
     public void close(boolean writeIDX) {
         if (this.index == null) return;
+        unmapReadOnly();
         synchronized (this.index) {
             try {
             if (this.file != null)
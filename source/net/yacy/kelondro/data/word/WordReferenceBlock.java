@@ -0,0 +1,386 @@
+// WordReferenceBlock.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.data.word;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.StreamingTermSearch;
+import net.yacy.kelondro.rwi.TermCursor;
+
+/**
+ * A block of word references in primitive arrays. The ranking criteria of the references are read
+ * directly from the byte layout of {@link WordReferenceRow#urlEntryRow}, so that references can be
+ * normalized, checked and ranked without creating objects for each reference. Only references which
+ * are finally kept are turned into {@link WordReferenceVars} with {@link #vars(int, boolean)}.
+ * The criteria of a reference are stored in one row of the {@link #values()} array, at the positions
+ * given by the criterion constants.
+ * The block can also be filled by a {@link StreamingTermSearch}, which joins the references of the query
+ * terms in the block.
+ */
+public final class WordReferenceBlock implements StreamingTermSearch.JoinTarget<WordReference> {
+
+    // the ranking criteria, positions in a row of the values array
+    public static final int HITCOUNT      =  0;
+    public static final int LLOCAL        =  1;
+    public static final int LOTHER        =  2;
+    public static final int VIRTUALAGE    =  3;
+    public static final int WORDSINTEXT   =  4;
+    public static final int PHRASESINTEXT =  5;
+    public static final int POSINTEXT     =  6;
+    public static final int POSINPHRASE   =  7;
+    public static final int POSOFPHRASE   =  8;
+    public static final int URLLENGTH     =  9;
+    public static final int URLCOMPS      = 10;
+    public static final int WORDSINTITLE  = 11;
+    public static final int DISTANCE      = 12;
+    public static final int CRITERIA      = 13;
+
+    private static final Row row = WordReferenceRow.urlEntryRow;
+    private static final int objectsize = row.objectsize;
+    private static final int hashLength = Word.commonHashLength;
+
+    private final int capacity;
+    private final byte[] rows;
+    private final WordReference[] references;
+    private final int[] values;
+    private final double[] termFrequency;
+    private final int[] flags;
+    private final int[] language;
+    private final char[] doctype;
+    private final int[] domcount;
+    private final boolean[] joined;
+    private final byte[] joinRow;
+    private int[] positions;
+    private int size;
+
+    /**
+     * @param capacity the maximum number of references in the block
+     */
+    public WordReferenceBlock(final int capacity) {
+        this.capacity = capacity;
+        this.rows = new byte[capacity * objectsize];
+        this.references = new WordReference[capacity];
+        this.values = new int[capacity * CRITERIA];
+        this.termFrequency = new double[capacity];
+        this.flags = new int[capacity];
+        this.language = new int[capacity];
+        this.doctype = new char[capacity];
+        this.domcount = new int[capacity];
+        this.joined = new boolean[capacity];
+        this.joinRow = new byte[objectsize];
+        this.positions = new int[4];
+        this.size = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean isFull() {
+        return this.size >= this.capacity;
+    }
+
+    public void clear() {
+        for (int i = 0; i < this.size; i++) this.references[i] = null;
+        this.size = 0;
+    }
+
+    /**
+     * fill the block with a range of rows of a container; the block is cleared before
+     * @param container a container with references in the row layout of {@link WordReferenceRow#urlEntryRow}
+     * @param from the index of the first reference in the container
+     * @param to the index after the last reference
+     */
+    public void addRows(final ReferenceContainer<WordReference> container, final int from, final int to) {
+        clear();
+        final int count = Math.min(to - from, this.capacity);
+        this.size = container.copyRows(from, count, this.rows, 0);
+        for (int i = 0; i < this.size; i++) decode(i);
+    }
+
+    /**
+     * add the join of the rows at the position of the cursors in the same way as {@link WordReferenceVars#join(net.yacy.kelondro.rwi.Reference)}
+     * joins the references of the cursors into the reference of the first cursor; no objects are created for the references
+     */
+    @Override
+    public boolean addJoined(final List<TermCursor<WordReference>> cursors, final int maxDistance) {
+        assert this.size < this.capacity;
+        final int i = this.size;
+        cursors.get(0).copyRow(this.rows, i * objectsize);
+        decode(i);
+        if (cursors.size() == 1) {
+            this.size++;
+            return true;
+        }
+        final int v = i * CRITERIA;
+        final int[] t = this.values;
+        final byte[] b = this.joinRow;
+        final int storedDistance = t[v + DISTANCE];
+        int p = 0; // the number of remembered positions
+        for (int k = 1; k < cursors.size(); k++) {
+            cursors.get(k).copyRow(b, 0);
+
+            // choose min posintext (for > 0) and remember the other position for the distance
+            final int posintext = b256(b, 0, WordReferenceRow.col_posintext);
+            int position = 0;
+            if (t[v + POSINTEXT] > 0 && posintext > 0) {
+                if (t[v + POSINTEXT] > posintext) {
+                    position = t[v + POSINTEXT];
+                    t[v + POSINTEXT] = posintext;
+                } else {
+                    position = posintext;
+                }
+            } else if (t[v + POSINTEXT] == 0) {
+                t[v + POSINTEXT] = posintext;
+            }
+            if (position > 0) {
+                if (p == this.positions.length) this.positions = Arrays.copyOf(this.positions, 2 * p);
+                this.positions[p++] = position;
+            }
+
+            // join phrase
+            final int posofphrase = b256(b, 0, WordReferenceRow.col_posofphrase);
+            if (t[v + POSOFPHRASE] == posofphrase) {
+                t[v + POSINPHRASE] = Math.min(t[v + POSINPHRASE], b256(b, 0, WordReferenceRow.col_posinphrase));
+            } else if (t[v + POSOFPHRASE] > posofphrase) {
+                t[v + POSOFPHRASE] = posofphrase;
+                t[v + POSINPHRASE] = b256(b, 0, WordReferenceRow.col_posinphrase);
+            }
+
+            // combine term frequency
+            final int hitcount = b256(b, 0, WordReferenceRow.col_hitcount);
+            final int wordsintext = b256(b, 0, WordReferenceRow.col_wordsInText);
+            final int wordsintitle = b256(b, 0, WordReferenceRow.col_wordsInTitle);
+            this.termFrequency[i] += ((double) hitcount) / ((double) (wordsintext + wordsintitle + 1));
+
+            t[v + WORDSINTEXT] = Math.max(t[v + WORDSINTEXT], wordsintext);
+            t[v + WORDSINTITLE] = Math.max(t[v + WORDSINTITLE], wordsintitle);
+            t[v + PHRASESINTEXT] = Math.max(t[v + PHRASESINTEXT], b256(b, 0, WordReferenceRow.col_phrasesInText));
+            t[v + HITCOUNT] = Math.max(t[v + HITCOUNT], hitcount);
+
+            // the distance as in AbstractReference.distance(), or the stored distance if there is none
+            int d = 0;
+            int s0 = t[v + POSINTEXT];
+            for (int j = 0; j < p; j++) {
+                if (s0 > 0) d += Math.abs(s0 - this.positions[j]);
+                s0 = this.positions[j];
+            }
+            t[v + DISTANCE] = d == 0 ? storedDistance : d / p;
+            if (t[v + DISTANCE] > maxDistance) return false;
+        }
+        this.joined[i] = true;
+        this.size++;
+        return true;
+    }
+
+    /**
+     * add a reference object to the block
+     * @param reference
+     */
+    public void add(final WordReference reference) {
+        assert this.size < this.capacity;
+        final int i = this.size++;
+        this.references[i] = reference;
+        System.arraycopy(reference.urlhash(), 0, this.rows, i * objectsize, hashLength);
+        final int v = i * CRITERIA;
+        this.values[v + HITCOUNT] = reference.hitcount();
+        this.values[v + LLOCAL] = reference.llocal();
+        this.values[v + LOTHER] = reference.lother();
+        this.values[v + VIRTUALAGE] = reference.virtualAge();
+        this.values[v + WORDSINTEXT] = reference.wordsintext();
+        this.values[v + PHRASESINTEXT] = reference.phrasesintext();
+        this.values[v + POSINTEXT] = reference.posintext();
+        this.values[v + POSINPHRASE] = reference.posinphrase();
+        this.values[v + POSOFPHRASE] = reference.posofphrase();
+        this.values[v + URLLENGTH] = reference.urllength();
+        this.values[v + URLCOMPS] = reference.urlcomps();
+        this.values[v + WORDSINTITLE] = reference.wordsintitle();
+        this.values[v + DISTANCE] = reference.distance();
+        this.termFrequency[i] = reference.termFrequency();
+        final byte[] f = reference.flags().bytes();
+        int fv = 0;
+        for (int j = Math.min(4, f.length) - 1; j >= 0; j--) fv = (fv << 8) | (f[j] & 0xff);
+        this.flags[i] = fv;
+        final byte[] l = reference.getLanguage();
+        this.language[i] = l == null || l.length != 2 ? 0 : languageKey(l);
+        this.doctype[i] = reference.getType();
+        this.domcount[i] = 0;
+        this.joined[i] = false;
+    }
+
+    private void decode(final int i) {
+        final byte[] b = this.rows;
+        final int o = i * objectsize;
+        final int v = i * CRITERIA;
+        this.references[i] = null;
+        final int hitcount = b256(b, o, WordReferenceRow.col_hitcount);
+        final int wordsintext = b256(b, o, WordReferenceRow.col_wordsInText);
+        final int wordsintitle = b256(b, o, WordReferenceRow.col_wordsInTitle);
+        this.values[v + HITCOUNT] = hitcount;
+        this.values[v + LLOCAL] = b256(b, o, WordReferenceRow.col_llocal);
+        this.values[v + LOTHER] = b256(b, o, WordReferenceRow.col_lother);
+        this.values[v + VIRTUALAGE] = b256(b, o, WordReferenceRow.col_lastModified);
+        this.values[v + WORDSINTEXT] = wordsintext;
+        this.values[v + PHRASESINTEXT] = b256(b, o, WordReferenceRow.col_phrasesInText);
+        this.values[v + POSINTEXT] = b256(b, o, WordReferenceRow.col_posintext);
+        this.values[v + POSINPHRASE] = b256(b, o, WordReferenceRow.col_posinphrase);
+        this.values[v + POSOFPHRASE] = b256(b, o, WordReferenceRow.col_posofphrase);
+        this.values[v + URLLENGTH] = b256(b, o, WordReferenceRow.col_urlLength);
+        this.values[v + URLCOMPS] = b256(b, o, WordReferenceRow.col_urlComps);
+        this.values[v + WORDSINTITLE] = wordsintitle;
+        this.values[v + DISTANCE] = b256(b, o, WordReferenceRow.col_worddistance);
+        this.termFrequency[i] = ((double) hitcount) / ((double) (wordsintext + wordsintitle + 1));
+        // the bitfield stores bit n in byte n / 8
+        final int f = o + row.colstart[WordReferenceRow.col_flags];
+        this.flags[i] = (b[f] & 0xff) | ((b[f + 1] & 0xff) << 8) | ((b[f + 2] & 0xff) << 16) | ((b[f + 3] & 0xff) << 24);
+        final int l = o + row.colstart[WordReferenceRow.col_language];
+        this.language[i] = ((b[l] & 0xff) << 8) | (b[l + 1] & 0xff);
+        this.doctype[i] = (char) b[o + row.colstart[WordReferenceRow.col_doctype]];
+        this.domcount[i] = 0;
+        this.joined[i] = false;
+    }
+
+    private static int b256(final byte[] b, final int offset, final int column) {
+        final int start = offset + row.colstart[column];
+        final int end = start + row.width(column);
+        int c = 0;
+        for (int p = start; p < end; p++) c = (c << 8) | (b[p] & 0xff);
+        return c;
+    }
+
+    /**
+     * @param language a two-letter language code
+     * @return the key of the language as it is stored in the block
+     */
+    public static int languageKey(final byte[] language) {
+        return ((language[0] & 0xff) << 8) | (language[1] & 0xff);
+    }
+
+    /**
+     * @return the criteria of all references, CRITERIA values for each reference
+     */
+    public int[] values() {
+        return this.values;
+    }
+
+    public int value(final int i, final int criterion) {
+        return this.values[i * CRITERIA + criterion];
+    }
+
+    public double termFrequency(final int i) {
+        return this.termFrequency[i];
+    }
+
+    /**
+     * @return the flags bitfield of the reference as int, bit n is flag n
+     */
+    public int flags(final int i) {
+        return this.flags[i];
+    }
+
+    public boolean flag(final int i, final int flag) {
+        return ((this.flags[i] >>> flag) & 1) != 0;
+    }
+
+    public int language(final int i) {
+        return this.language[i];
+    }
+
+    public char getType(final int i) {
+        return this.doctype[i];
+    }
+
+    /**
+     * the number of references of the host of the reference, as known when the block was normalized
+     */
+    public int domcount(final int i) {
+        return this.domcount[i];
+    }
+
+    public void setDomcount(final int i, final int count) {
+        this.domcount[i] = count;
+    }
+
+    /**
+     * compare the host hash of a reference with a host hash, see {@link #hosthash(int)}
+     */
+    public boolean hosthashEquals(final int i, final String hosthash) {
+        if (hosthash.length() != 6) return false;
+        final int o = i * objectsize + 6;
+        for (int j = 0; j < 6; j++) if (this.rows[o + j] != (byte) hosthash.charAt(j)) return false;
+        return true;
+    }
+
+    /**
+     * copy the url hash of a reference
+     */
+    public void urlhash(final int i, final byte[] target) {
+        System.arraycopy(this.rows, i * objectsize, target, 0, hashLength);
+    }
+
+    /**
+     * @return the normalized estimation of the domain length, see {@link DigestURL#domLengthNormalized(byte[])}
+     */
+    public int domLengthNormalized(final int i) {
+        return DigestURL.domLengthNormalized(this.rows, i * objectsize);
+    }
+
+    /**
+     * a key of the host hash of the reference, the same for all references of one host
+     */
+    public long hostkey(final int i) {
+        final int o = i * objectsize + 6;
+        long k = 0;
+        for (int j = 0; j < 6; j++) k = (k << 7) | (this.rows[o + j] & 0x7f);
+        return k;
+    }
+
+    /**
+     * @return the host hash of the reference; this creates a string object
+     */
+    public String hosthash(final int i) {
+        return ASCII.String(this.rows, i * objectsize + 6, 6);
+    }
+
+    /**
+     * create the reference object of a reference in the block
+     */
+    public WordReferenceVars vars(final int i, final boolean local) {
+        final WordReference r = this.references[i];
+        if (r != null) return r instanceof WordReferenceVars ? (WordReferenceVars) r : new WordReferenceVars(r, local);
+        final byte[] b = new byte[objectsize];
+        System.arraycopy(this.rows, i * objectsize, b, 0, objectsize);
+        final WordReferenceVars vars = new WordReferenceVars(new WordReferenceRow(row.newEntry(b)), local);
+        if (this.joined[i]) vars.setJoined(this.values, i * CRITERIA, this.termFrequency[i]);
+        return vars;
+    }
+}
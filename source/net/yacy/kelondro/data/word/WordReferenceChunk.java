@@ -0,0 +1,191 @@
+// WordReferenceChunk.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.data.word;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import net.yacy.cora.document.encoding.ASCII;
+
+/**
+ * A binary format for the transfer of word references (RWI entries) between peers.
+ * The references are grouped by term; a term block has the term hash, the number of references and the references
+ * in the row layout of {@link WordReferenceRow#urlEntryRow}. The url hash of a reference is delta-coded: only the bytes
+ * which differ from the url hash of the previous reference of the same term are written, which saves most of the
+ * url hash bytes if the references are ordered by url hash as in a {@link net.yacy.kelondro.rwi.ReferenceContainer}.
+ * <pre>
+ * chunk     = magic version termblock* 0x00
+ * termblock = 0x01 termhash(12) count(int) reference{count}
+ * reference = prefixlength(byte) urlhashsuffix(12 - prefixlength) row(urlEntryRow.objectsize - 12)
+ * </pre>
+ * The chunk is not compressed; it should be written into a compressing stream.
+ */
+public final class WordReferenceChunk {
+
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = ASCII.getBytes("YRWI");
+    private static final int TERM = 1;
+    private static final int END = 0;
+
+    private static final int hashLength = Word.commonHashLength;
+    private static final int restLength = WordReferenceRow.urlEntryRow.objectsize - hashLength;
+
+    /**
+     * the maximum number of references in a term block; longer blocks are treated as broken input
+     */
+    public static final int MAX_TERM_REFERENCES = 1000000;
+
+    /**
+     * streaming encoder of a chunk
+     */
+    public static final class Writer {
+
+        private final DataOutputStream os;
+        private final byte[] previous;
+        private boolean closed;
+
+        public Writer(final OutputStream os) throws IOException {
+            this.os = new DataOutputStream(os);
+            this.previous = new byte[hashLength];
+            this.closed = false;
+            this.os.write(MAGIC);
+            this.os.writeByte(VERSION);
+        }
+
+        /**
+         * write a term block
+         * @param termHash the term hash
+         * @param count the number of references which the iterator returns
+         * @param references the references of the term
+         * @throws IOException
+         */
+        public void write(final byte[] termHash, final int count, final Iterator<WordReference> references) throws IOException {
+            assert termHash.length == hashLength;
+            if (count == 0) return;
+            this.os.writeByte(TERM);
+            this.os.write(termHash, 0, hashLength);
+            this.os.writeInt(count);
+            int written = 0;
+            byte[] row;
+            int prefix;
+            while (references.hasNext() && written < count) {
+                row = references.next().toKelondroEntry().bytes();
+                prefix = 0;
+                // the previous url hash is not valid for the first reference of a term
+                if (written > 0) while (prefix < hashLength && row[prefix] == this.previous[prefix]) prefix++;
+                this.os.writeByte(prefix);
+                this.os.write(row, prefix, hashLength - prefix);
+                this.os.write(row, hashLength, restLength);
+                System.arraycopy(row, 0, this.previous, 0, hashLength);
+                written++;
+            }
+            if (written != count) throw new IOException("term " + ASCII.String(termHash) + ": expected " + count + " references, got " + written);
+        }
+
+        /**
+         * finish the chunk; the underlying stream is flushed but not closed
+         * @throws IOException
+         */
+        public void finish() throws IOException {
+            if (this.closed) return;
+            this.os.writeByte(END);
+            this.os.flush();
+            this.closed = true;
+        }
+    }
+
+    /**
+     * streaming decoder of a chunk
+     */
+    public static final class Reader {
+
+        private final DataInputStream is;
+        private final byte[] termHash;
+        private final byte[] previous;
+        private int remaining;
+        private boolean first;
+        private boolean finished;
+
+        /**
+         * @param is the chunk input stream
+         * @throws IOException if the stream is not a chunk or has an unknown version
+         */
+        public Reader(final InputStream is) throws IOException {
+            this.is = new DataInputStream(is);
+            final byte[] magic = new byte[MAGIC.length];
+            this.is.readFully(magic);
+            for (int i = 0; i < MAGIC.length; i++) if (magic[i] != MAGIC[i]) throw new IOException("not a word reference chunk");
+            final int version = this.is.readUnsignedByte();
+            if (version != VERSION) throw new IOException("unsupported word reference chunk version " + version);
+            this.termHash = new byte[hashLength];
+            this.previous = new byte[hashLength];
+            this.remaining = 0;
+            this.first = false;
+            this.finished = false;
+        }
+
+        /**
+         * read the next reference
+         * @return the next reference or null if the chunk is finished
+         * @throws IOException if the chunk is broken or truncated
+         */
+        public WordReferenceRow next() throws IOException {
+            while (this.remaining == 0) {
+                if (this.finished) return null;
+                final int tag = this.is.readUnsignedByte();
+                if (tag == END) {
+                    this.finished = true;
+                    return null;
+                }
+                if (tag != TERM) throw new IOException("broken word reference chunk: tag " + tag);
+                this.is.readFully(this.termHash);
+                this.remaining = this.is.readInt();
+                if (this.remaining < 0 || this.remaining > MAX_TERM_REFERENCES) throw new IOException("broken word reference chunk: count " + this.remaining);
+                this.first = true;
+            }
+            final int prefix = this.is.readUnsignedByte();
+            // each term block starts with a complete url hash
+            if (prefix > hashLength || (this.first && prefix > 0)) throw new IOException("broken word reference chunk: url hash prefix " + prefix);
+            final byte[] row = new byte[WordReferenceRow.urlEntryRow.objectsize];
+            System.arraycopy(this.previous, 0, row, 0, prefix);
+            this.is.readFully(row, prefix, hashLength - prefix);
+            this.is.readFully(row, hashLength, restLength);
+            System.arraycopy(row, 0, this.previous, 0, hashLength);
+            this.remaining--;
+            this.first = false;
+            return new WordReferenceRow(WordReferenceRow.urlEntryRow.newEntry(row));
+        }
+
+        /**
+         * @return the term hash of the reference which was returned by the last call of next()
+         */
+        public byte[] termHash() {
+            return this.termHash;
+        }
+    }
+}
@@ -78,28 +78,28 @@ public final class WordReferenceRow extends AbstractReference implements WordRef
     protected static final Row.Entry poisonRowEntry = urlEntryRow.newEntry();
     
 	// static properties
-    private static final int col_urlhash       =  0; // h 12 the url hash b64-encoded
-    private static final int col_lastModified  =  1; // a  2 last-modified time of the document where word appears
-    private static final int col_freshUntil    =  2; // s  2 TTL for the word, so it can be removed easily if the TTL is short
-    private static final int col_wordsInTitle  =  3; // u  1 words in description/length (longer are better?)
-    private static final int col_wordsInText   =  4; // w  2 total number of words in document
-    private static final int col_phrasesInText =  5; // p  2 total number of phrases in document
-    private static final int col_doctype       =  6; // d  1 type of document
-    private static final int col_language      =  7; // l  2 (guessed) language of document
-    private static final int col_llocal        =  8; // x  1 outlinks to same domain
-    private static final int col_lother        =  9; // y  1 outlinks to other domain
-    private static final int col_urlLength     = 10; // m  1 byte-length of complete URL
-    private static final int col_urlComps      = 11; // n  1 number of path components
+    static final int col_urlhash               =  0; // h 12 the url hash b64-encoded
+    static final int col_lastModified          =  1; // a  2 last-modified time of the document where word appears
+    static final int col_freshUntil            =  2; // s  2 TTL for the word, so it can be removed easily if the TTL is short
+    static final int col_wordsInTitle          =  3; // u  1 words in description/length (longer are better?)
+    static final int col_wordsInText           =  4; // w  2 total number of words in document
+    static final int col_phrasesInText         =  5; // p  2 total number of phrases in document
+    static final int col_doctype               =  6; // d  1 type of document
+    static final int col_language              =  7; // l  2 (guessed) language of document
+    static final int col_llocal                =  8; // x  1 outlinks to same domain
+    static final int col_lother                =  9; // y  1 outlinks to other domain
+    static final int col_urlLength             = 10; // m  1 byte-length of complete URL
+    static final int col_urlComps              = 11; // n  1 number of path components
 
     // dynamic properties
-    private static final int col_typeofword    = 12; // g  1 grammatical classification
-    private static final int col_flags         = 13; // z  4 b64-encoded appearance flags (24 bit, see definition below)
-    private static final int col_hitcount      = 14; // c  1 number of occurrences of this word in text
-    private static final int col_posintext     = 15; // t  2 first appearance of word in text
-    private static final int col_posinphrase   = 16; // r  1 position of word in its phrase
-    private static final int col_posofphrase   = 17; // o  1 number of the phrase where word appears
-    private static final int col_worddistance  = 18; // i  avg distance of search query words
-    private static final int col_reserve2      = 19; // k  1 reserve2
+    static final int col_typeofword            = 12; // g  1 grammatical classification
+    static final int col_flags                 = 13; // z  4 b64-encoded appearance flags (24 bit, see definition below)
+    static final int col_hitcount              = 14; // c  1 number of occurrences of this word in text
+    static final int col_posintext             = 15; // t  2 first appearance of word in text
+    static final int col_posinphrase           = 16; // r  1 position of word in its phrase
+    static final int col_posofphrase           = 17; // o  1 number of the phrase where word appears
+    static final int col_worddistance          = 18; // i  avg distance of search query words
+    static final int col_reserve2              = 19; // k  1 reserve2
 
     // appearance flags, used in RWI entry
     // some names are derived from the Dublin Core Metadata tag set
@@ -536,6 +536,26 @@ public class WordReferenceVars extends AbstractReference implements WordReferenc
         if (position > 0) this.positions.add(position);
     }
 
+    /**
+     * set the properties which are combined by {@link #join(Reference)} to the values of a reference
+     * which was joined in a {@link WordReferenceBlock}; the distance is stored as a value and not as positions
+     * @param values the criteria of the block
+     * @param o the offset of the criteria of the reference
+     * @param termFrequency the joined term frequency
+     */
+    void setJoined(final int[] values, final int o, final double termFrequency) {
+        this.hitcount = values[o + WordReferenceBlock.HITCOUNT];
+        this.wordsintext = values[o + WordReferenceBlock.WORDSINTEXT];
+        this.wordsintitle = values[o + WordReferenceBlock.WORDSINTITLE];
+        this.phrasesintext = values[o + WordReferenceBlock.PHRASESINTEXT];
+        this.posintext = values[o + WordReferenceBlock.POSINTEXT];
+        this.posinphrase = values[o + WordReferenceBlock.POSINPHRASE];
+        this.posofphrase = values[o + WordReferenceBlock.POSOFPHRASE];
+        this.distance = values[o + WordReferenceBlock.DISTANCE];
+        this.positions = null;
+        this.termFrequency = termFrequency;
+    }
+
     /**
      * transform a reference container into a stream of parsed entries
      * @param container
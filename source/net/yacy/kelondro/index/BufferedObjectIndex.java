@@ -78,8 +78,15 @@ public class BufferedObjectIndex implements Index, Iterable<Row.Entry> {
 
     private final void flushBuffer() throws IOException, SpaceExceededException {
         if (!this.buffer.isEmpty()) {
-            for (final Row.Entry e: this.buffer) {
-                this.backend.put(e);
+            if (this.backend instanceof OnDemandOpenFileIndex) {
+                // open the file only once for the whole buffer
+                final List<Row.Entry> rows = new ArrayList<Row.Entry>(this.buffer.size());
+                for (final Row.Entry e: this.buffer) rows.add(e);
+                ((OnDemandOpenFileIndex) this.backend).putAll(rows);
+            } else {
+                for (final Row.Entry e: this.buffer) {
+                    this.backend.put(e);
+                }
             }
             this.buffer.clear();
         }
@@ -165,10 +172,15 @@ public class BufferedObjectIndex implements Index, Iterable<Row.Entry> {
     @Override
     public Map<byte[], Row.Entry> get(final Collection<byte[]> keys, final boolean forcecopy) throws IOException, InterruptedException {
         final Map<byte[], Row.Entry> map = new TreeMap<byte[], Row.Entry>(row().objectOrder);
-        Row.Entry entry;
-        for (final byte[] key: keys) {
-            entry = get(key, forcecopy);
-            if (entry != null) map.put(key, entry);
+        final List<byte[]> missing = new ArrayList<byte[]>(keys.size());
+        synchronized (this.backend) {
+            Row.Entry entry;
+            for (final byte[] key: keys) {
+                entry = this.buffer.get(key, forcecopy);
+                if (entry == null) missing.add(key); else map.put(key, entry);
+            }
+            // the keys which are not in the buffer are looked up in the backend at once
+            if (!missing.isEmpty()) map.putAll(this.backend.get(missing, forcecopy));
         }
         return map;
     }
@@ -0,0 +1,324 @@
+// ColumnarExport.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import java.io.ByteArrayOutputStream;
+
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.util.MemoryControl;
+
+/**
+ * A compact export format for sorted row collections. The rows are stored column by column,
+ * and every column is encoded with the smallest of these methods:
+ * <ul>
+ * <li>raw: the column values are concatenated</li>
+ * <li>prefix: each value is stored as the length of the common prefix with the previous value
+ * and the remaining bytes; good for the sorted primary key</li>
+ * <li>run length: runs of equal values are stored once with their length; good for language, doctype and flags</li>
+ * <li>varint: the value is read as a big-endian number and stored as variable length integer; good for small counts</li>
+ * <li>delta: the difference to the previous value is stored as zig-zag variable length integer; good for dates</li>
+ * </ul>
+ * Each column is preceded by its encoded length, so a reader can skip columns it does not need.
+ * The first byte of the format is never the first byte of a {@link RowCollection#exportCollection()} result,
+ * which always starts with a positive 32-bit row count; therefore both formats can be stored side by side.
+ * Trailing bytes after the last column are ignored, so an export can be padded.
+ */
+public final class ColumnarExport {
+
+    public static final byte MAGIC = (byte) 0xC5;
+    public static final int HEADER_SIZE = 6; // magic, 4 bytes row count, number of columns
+
+    private static final byte MODE_RAW    = 0;
+    private static final byte MODE_PREFIX = 1;
+    private static final byte MODE_RLE    = 2;
+    private static final byte MODE_VARINT = 3;
+    private static final byte MODE_DELTA  = 4;
+
+    private ColumnarExport() {}
+
+    /**
+     * @param b the start of an exported collection
+     * @return true if b is in columnar format
+     */
+    public static boolean isColumnar(final byte[] b) {
+        return b != null && b.length >= HEADER_SIZE && b[0] == MAGIC;
+    }
+
+    /**
+     * read the number of rows from the header of a columnar export
+     * @param b at least the first HEADER_SIZE bytes of a columnar export
+     * @return the number of rows
+     */
+    public static int count(final byte[] b) {
+        return ((b[1] & 0xff) << 24) | ((b[2] & 0xff) << 16) | ((b[3] & 0xff) << 8) | (b[4] & 0xff);
+    }
+
+    /**
+     * encode the rows in columnar format
+     * @param rowdef the row definition
+     * @param chunkcache the rows, one after another
+     * @param count the number of rows in chunkcache
+     * @return the encoded rows
+     */
+    public static byte[] encode(final Row rowdef, final byte[] chunkcache, final int count) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + count * rowdef.objectsize / 2 + 16);
+        out.write(MAGIC);
+        out.write(count >>> 24);
+        out.write(count >>> 16);
+        out.write(count >>> 8);
+        out.write(count);
+        out.write(rowdef.columns());
+        for (int col = 0; col < rowdef.columns(); col++) {
+            final int offset = rowdef.colstart[col];
+            final int width = rowdef.width(col);
+            byte mode = MODE_RAW;
+            long size = (long) count * width;
+            long s;
+            if (width <= 255) {
+                s = prefixSize(rowdef.objectsize, chunkcache, count, offset, width);
+                if (s < size) {mode = MODE_PREFIX; size = s;}
+            }
+            s = rleSize(rowdef.objectsize, chunkcache, count, offset, width);
+            if (s < size) {mode = MODE_RLE; size = s;}
+            if (width <= 7) {
+                s = varintSize(rowdef.objectsize, chunkcache, count, offset, width, false);
+                if (s < size) {mode = MODE_VARINT; size = s;}
+                s = varintSize(rowdef.objectsize, chunkcache, count, offset, width, true);
+                if (s < size) {mode = MODE_DELTA; size = s;}
+            }
+            out.write(mode);
+            writeVarint(out, size);
+            final int start = out.size();
+            write(out, mode, rowdef.objectsize, chunkcache, count, offset, width);
+            assert out.size() - start == size : "mode = " + mode + ", size = " + size + ", written = " + (out.size() - start);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * decode a columnar export into a row set
+     * @param b the columnar export
+     * @param rowdef the row definition which must be the same as the definition used for the export
+     * @return the decoded rows as sorted RowSet
+     * @throws SpaceExceededException if there is not enough memory to decode the rows
+     */
+    public static RowSet decode(final byte[] b, final Row rowdef) throws SpaceExceededException {
+        assert isColumnar(b);
+        final int count = count(b);
+        if (count <= 0) return new RowSet(rowdef, 0);
+        if ((b[5] & 0xff) != rowdef.columns()) throw new IllegalArgumentException("columnar export has " + (b[5] & 0xff) + " columns, row definition has " + rowdef.columns());
+        final long alloc = ((long) count) * ((long) rowdef.objectsize);
+        if (alloc > Integer.MAX_VALUE) throw new SpaceExceededException(alloc, "ColumnarExport.decode: alloc > Integer.MAX_VALUE");
+        MemoryControl.request(alloc, true);
+        final byte[] chunkcache;
+        try {
+            chunkcache = new byte[(int) alloc];
+        } catch (final OutOfMemoryError e) {
+            throw new SpaceExceededException(alloc, "ColumnarExport.decode: OutOfMemoryError");
+        }
+        final int[] p = new int[]{HEADER_SIZE};
+        for (int col = 0; col < rowdef.columns(); col++) {
+            final byte mode = b[p[0]++];
+            final int size = (int) readVarint(b, p);
+            final int end = p[0] + size;
+            read(b, p, mode, rowdef.objectsize, chunkcache, count, rowdef.colstart[col], rowdef.width(col));
+            assert p[0] == end : "column " + col + ", mode = " + mode;
+            p[0] = end;
+        }
+        return new RowSet(rowdef, count, chunkcache, count);
+    }
+
+    private static long prefixSize(final int objectsize, final byte[] chunkcache, final int count, final int offset, final int width) {
+        long size = 0;
+        int prev = -1;
+        for (int i = 0; i < count; i++) {
+            final int pos = i * objectsize + offset;
+            final int prefix = prev < 0 ? 0 : commonPrefix(chunkcache, prev, pos, width);
+            size += 1 + width - prefix;
+            prev = pos;
+        }
+        return size;
+    }
+
+    private static long rleSize(final int objectsize, final byte[] chunkcache, final int count, final int offset, final int width) {
+        long size = 0;
+        int i = 0;
+        while (i < count) {
+            final int pos = i * objectsize + offset;
+            int run = 1;
+            while (i + run < count && commonPrefix(chunkcache, pos, (i + run) * objectsize + offset, width) == width) run++;
+            size += varintLength(run) + width;
+            i += run;
+        }
+        return size;
+    }
+
+    private static long varintSize(final int objectsize, final byte[] chunkcache, final int count, final int offset, final int width, final boolean delta) {
+        long size = 0;
+        long prev = 0;
+        for (int i = 0; i < count; i++) {
+            final long v = number(chunkcache, i * objectsize + offset, width);
+            size += varintLength(delta ? zigzag(v - prev) : v);
+            prev = v;
+        }
+        return size;
+    }
+
+    private static void write(final ByteArrayOutputStream out, final byte mode, final int objectsize, final byte[] chunkcache, final int count, final int offset, final int width) {
+        switch (mode) {
+        case MODE_RAW:
+            for (int i = 0; i < count; i++) out.write(chunkcache, i * objectsize + offset, width);
+            break;
+        case MODE_PREFIX: {
+            int prev = -1;
+            for (int i = 0; i < count; i++) {
+                final int pos = i * objectsize + offset;
+                final int prefix = prev < 0 ? 0 : commonPrefix(chunkcache, prev, pos, width);
+                out.write(prefix);
+                out.write(chunkcache, pos + prefix, width - prefix);
+                prev = pos;
+            }
+            break;
+        }
+        case MODE_RLE: {
+            int i = 0;
+            while (i < count) {
+                final int pos = i * objectsize + offset;
+                int run = 1;
+                while (i + run < count && commonPrefix(chunkcache, pos, (i + run) * objectsize + offset, width) == width) run++;
+                writeVarint(out, run);
+                out.write(chunkcache, pos, width);
+                i += run;
+            }
+            break;
+        }
+        case MODE_VARINT:
+        case MODE_DELTA: {
+            long prev = 0;
+            for (int i = 0; i < count; i++) {
+                final long v = number(chunkcache, i * objectsize + offset, width);
+                writeVarint(out, mode == MODE_DELTA ? zigzag(v - prev) : v);
+                prev = v;
+            }
+            break;
+        }
+        default:
+            throw new IllegalArgumentException("unknown mode " + mode);
+        }
+    }
+
+    private static void read(final byte[] b, final int[] p, final byte mode, final int objectsize, final byte[] chunkcache, final int count, final int offset, final int width) {
+        switch (mode) {
+        case MODE_RAW:
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(b, p[0], chunkcache, i * objectsize + offset, width);
+                p[0] += width;
+            }
+            break;
+        case MODE_PREFIX:
+            for (int i = 0; i < count; i++) {
+                final int pos = i * objectsize + offset;
+                final int prefix = b[p[0]++] & 0xff;
+                if (prefix > 0) System.arraycopy(chunkcache, pos - objectsize, chunkcache, pos, prefix);
+                System.arraycopy(b, p[0], chunkcache, pos + prefix, width - prefix);
+                p[0] += width - prefix;
+            }
+            break;
+        case MODE_RLE: {
+            int i = 0;
+            while (i < count) {
+                final int run = (int) readVarint(b, p);
+                for (int r = 0; r < run && i < count; r++) System.arraycopy(b, p[0], chunkcache, (i++) * objectsize + offset, width);
+                p[0] += width;
+            }
+            break;
+        }
+        case MODE_VARINT:
+        case MODE_DELTA: {
+            long prev = 0;
+            for (int i = 0; i < count; i++) {
+                long v = readVarint(b, p);
+                if (mode == MODE_DELTA) v = prev + unzigzag(v);
+                number(v, chunkcache, i * objectsize + offset, width);
+                prev = v;
+            }
+            break;
+        }
+        default:
+            throw new IllegalArgumentException("unknown mode " + mode);
+        }
+    }
+
+    private static int commonPrefix(final byte[] b, final int p0, final int p1, final int width) {
+        int i = 0;
+        while (i < width && b[p0 + i] == b[p1 + i]) i++;
+        return i;
+    }
+
+    private static long number(final byte[] b, final int pos, final int width) {
+        long v = 0;
+        for (int i = 0; i < width; i++) v = (v << 8) | (b[pos + i] & 0xff);
+        return v;
+    }
+
+    private static void number(long v, final byte[] b, final int pos, final int width) {
+        for (int i = width - 1; i >= 0; i--) {
+            b[pos + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+
+    private static long zigzag(final long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(final long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int varintLength(long v) {
+        int l = 1;
+        while ((v >>>= 7) != 0) l++;
+        return l;
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarint(final byte[] b, final int[] p) {
+        long v = 0;
+        int shift = 0;
+        byte c;
+        do {
+            c = b[p[0]++];
+            v |= ((long) (c & 0x7F)) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return v;
+    }
+}
@@ -58,7 +58,9 @@ public class OnDemandOpenFileIndex implements Index, Iterable<Row.Entry> {
 
     private Index getIndex() {
         try {
-            return new Table(file, rowdef, 1000, 0, false, exceed134217727, false);
+            final Table table = new Table(file, rowdef, 1000, 0, false, exceed134217727, false);
+            table.noSnapshot();
+            return table;
         } catch (kelondroException e) {
             ConcurrentLog.logException(e);
             return null;
@@ -175,11 +177,18 @@ public class OnDemandOpenFileIndex implements Index, Iterable<Row.Entry> {
     @Override
     public synchronized Map<byte[], Row.Entry> get(final Collection<byte[]> keys, final boolean forcecopy) throws IOException, InterruptedException {
         final Map<byte[], Row.Entry> map = new TreeMap<byte[], Row.Entry>(row().objectOrder);
-        if (this.sizecache == 0) return map;
-        Row.Entry entry;
-        for (final byte[] key: keys) {
-            entry = get(key, forcecopy);
-            if (entry != null) map.put(key, entry);
+        if (this.sizecache == 0 || keys.isEmpty()) return map;
+        // the file is opened once for all keys
+        Index index = getIndex();
+        if (index == null) return map;
+        try {
+            Row.Entry entry;
+            for (final byte[] key: keys) {
+                entry = index.get(key, forcecopy);
+                if (entry != null) map.put(key, entry);
+            }
+        } finally {
+            index.close();
         }
         return map;
     }
@@ -227,6 +236,29 @@ public class OnDemandOpenFileIndex implements Index, Iterable<Row.Entry> {
         }
     }
 
+    /**
+     * Adds a collection of rows to the index; the file is opened only once for all rows.
+     * @param rows index rows
+     * @return the number of rows which had not been contained in the index before
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public synchronized int putAll(final Collection<Entry> rows) throws IOException, SpaceExceededException {
+        if (rows.isEmpty()) return 0;
+        Index index = getIndex();
+        if (index == null) return 0;
+        int c = 0;
+        try {
+            for (final Entry row: rows) {
+                if (index.put(row)) c++;
+            }
+        } finally {
+            if (this.sizecache >= 0) this.sizecache += c;
+            index.close();
+        }
+        return c;
+    }
+
     @Override
     public synchronized Entry remove(final byte[] key) throws IOException {
         Index index = getIndex();
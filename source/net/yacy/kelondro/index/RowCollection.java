@@ -230,6 +230,17 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
         return entry.bytes();
     }
 
+    /**
+     * export the collection in the compact columnar format, see {@link ColumnarExport}.
+     * The result can be imported with {@link RowSet#importRowSet(byte[], Row)}.
+     * @return the sorted collection, encoded column by column
+     */
+    public synchronized byte[] exportColumnar() {
+        sort();
+        assert this.sortBound == this.chunkcount;
+        return ColumnarExport.encode(this.rowdef, this.chunkcache, this.chunkcount);
+    }
+
     public void saveCollection(final File file) throws IOException {
         FileUtils.copy(exportCollection(), file);
     }
@@ -371,6 +382,22 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
         return entry;
     }
 
+    /**
+     * copy the bytes of a range of rows into a buffer without creating row entries
+     * @param index the index of the first row
+     * @param count the number of rows to copy
+     * @param target the buffer
+     * @param targetOffset the position of the first row in the buffer
+     * @return the number of copied rows, which is less than count if the collection has less rows
+     */
+    public synchronized final int copyRows(final int index, final int count, final byte[] target, final int targetOffset) {
+        if (this.chunkcache == null || index >= this.chunkcount) return 0;
+        final int n = Math.min(count, this.chunkcount - index);
+        assert targetOffset + n * this.rowdef.objectsize <= target.length;
+        System.arraycopy(this.chunkcache, index * this.rowdef.objectsize, target, targetOffset, n * this.rowdef.objectsize);
+        return n;
+    }
+
     public synchronized final void set(final int index, final Row.Entry a) throws SpaceExceededException {
         assert (index >= 0) : "set: access with index " + index + " is below zero";
         ensureSize(index + 1);
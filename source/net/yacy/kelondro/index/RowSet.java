@@ -78,7 +78,11 @@ public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>,
         assert rowdef.objectOrder != null;
     }
 
+    /**
+     * import an exported collection; the collection may be exported with exportCollection() or exportColumnar()
+     */
     public final static RowSet importRowSet(final byte[] b, final Row rowdef) throws SpaceExceededException {
+        if (ColumnarExport.isColumnar(b)) return ColumnarExport.decode(b, rowdef);
     	assert b.length >= exportOverheadSize : "b.length = " + b.length;
     	if (b.length < exportOverheadSize) return new RowSet(rowdef, 0);
         final int size = (int) NaturalOrder.decodeLong(b, 0, 4);
@@ -108,6 +112,23 @@ public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>,
         return new RowSet(rowdef, size, chunkcache, orderbound);
     }
 
+    /**
+     * compute the number of rows from the head of an exported collection
+     * @param head at least the first {@link #importRowCountHeadSize} bytes of the export; may be shorter if the export is shorter
+     * @return the number of rows
+     */
+    public final static int importRowCount(final byte[] head) {
+        if (ColumnarExport.isColumnar(head)) return ColumnarExport.count(head);
+        if (head == null || head.length < 4) return 0;
+        final int c = (int) NaturalOrder.decodeLong(head, 0, 4);
+        return c < 0 ? 0 : c;
+    }
+
+    /**
+     * the number of bytes that importRowCount(byte[]) needs
+     */
+    public final static int importRowCountHeadSize = Math.max(4, ColumnarExport.HEADER_SIZE);
+
     public final static int importRowCount(final long blength, final Row rowdef) {
         assert blength >= exportOverheadSize : "blength = " + blength;
         if (blength < exportOverheadSize) return 0;
@@ -353,6 +374,54 @@ public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>,
         return l;
     }
 
+    /**
+     * compare the primary key of a row in this set with the primary key of a row in another set
+     * without copying any of the keys
+     * @param index the row number in this set
+     * @param other a set with the same row definition
+     * @param otherIndex the row number in the other set
+     * @return a negative number, zero or a positive number if the row in this set is smaller, equal or greater
+     */
+    public final int compareKeys(final int index, final RowSet other, final int otherIndex) {
+        assert otherIndex < other.chunkcount;
+        return -compare(other.chunkcache, otherIndex * other.rowdef.objectsize, index);
+    }
+
+    /**
+     * find the first row in the sorted area, beginning at row number from, with a primary key that is
+     * not smaller than the key of a row in another set. The search goes forward in steps of doubled
+     * width until the key is passed (galloping) and then does a binary search within the last step.
+     * A sequence of ascending searches through this set therefore costs O(log d) comparisons for
+     * each skipped distance d, and no row is decoded on the way.
+     * @param other a set with the same row definition
+     * @param otherIndex the row number of the key in the other set
+     * @param from the row number in this set where the search starts
+     * @return the row number of the first row that is not smaller than the key, or sorted() if there is no such row
+     */
+    public final int gallop(final RowSet other, final int otherIndex, final int from) {
+        assert (this.rowdef.objectOrder != null);
+        final int astart = otherIndex * other.rowdef.objectsize;
+        if (from >= this.sortBound || compare(other.chunkcache, astart, from) <= 0) return from;
+        // the row at lo is smaller than the key; find a row hi which is not smaller
+        int lo = from;
+        int step = 1;
+        int hi = lo + step;
+        while (hi < this.sortBound && compare(other.chunkcache, astart, hi) > 0) {
+            lo = hi;
+            step = step << 1;
+            hi = lo + step;
+        }
+        if (hi > this.sortBound) hi = this.sortBound;
+        // binary search in ]lo, hi]
+        int l = lo + 1;
+        int p;
+        while (l < hi) {
+            p = (l + hi) >>> 1;
+            if (compare(other.chunkcache, astart, p) > 0) l = p + 1; else hi = p;
+        }
+        return l;
+    }
+
     public final synchronized Iterator<byte[]> keys() {
         sort();
         return super.keys(true);
@@ -0,0 +1,145 @@
+// MappedFileReader.java
+// ---------------------------
+// Copyright 2026 by the YaCy contributors
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only view on a file which is mapped into memory as a sequence of
+ * {@link MappedByteBuffer} segments. All read methods are positional and do not
+ * share a file pointer, therefore they can be called concurrently without any
+ * synchronization.
+ * The mapped length is fixed at construction time: the file must not grow
+ * while it is mapped, and it must not be truncated before {@link #close()} is called.
+ * Writes to the file done with other file handles (i.e. overwriting of deleted
+ * records) are visible to this reader.
+ */
+public final class MappedFileReader {
+
+    /** the size of one mapped segment; a power of two below Integer.MAX_VALUE */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = (int) (SEGMENT_SIZE - 1);
+
+    private final File file;
+    private final long length;
+    private volatile MappedByteBuffer[] segments;
+
+    public MappedFileReader(final File file) throws IOException {
+        this.file = file;
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            this.length = channel.size();
+            final int count = (int) ((this.length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+            final MappedByteBuffer[] s = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                final long start = ((long) i) << SEGMENT_SHIFT;
+                s[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, this.length - start));
+            }
+            this.segments = s;
+        } finally {
+            // the mapping stays valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    public File file() {
+        return this.file;
+    }
+
+    /**
+     * @return the length of the file at the time when it was mapped
+     */
+    public long length() {
+        return this.length;
+    }
+
+    /**
+     * read a big-endian integer at the given position
+     * @param pos the position in the file
+     * @return the integer value
+     * @throws IOException if the position is outside of the mapped area or the reader is closed
+     */
+    public int readInt(final long pos) throws IOException {
+        final MappedByteBuffer[] s = segments();
+        check(pos, 4);
+        final int offset = (int) (pos & SEGMENT_MASK);
+        final MappedByteBuffer segment = s[(int) (pos >>> SEGMENT_SHIFT)];
+        if (offset + 4 <= segment.limit()) return segment.getInt(offset);
+        // the integer crosses a segment border
+        final byte[] b = new byte[4];
+        readFully(pos, b, 0, 4);
+        return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+    }
+
+    /**
+     * read len bytes from the given position into b
+     * @param pos the position in the file
+     * @param b the target array
+     * @param off the offset in the target array
+     * @param len the number of bytes to read
+     * @throws IOException if the requested area is outside of the mapped area or the reader is closed
+     */
+    public void readFully(long pos, final byte[] b, int off, int len) throws IOException {
+        final MappedByteBuffer[] s = segments();
+        check(pos, len);
+        while (len > 0) {
+            final int offset = (int) (pos & SEGMENT_MASK);
+            // a duplicate has its own position, the shared buffer is never moved
+            final ByteBuffer segment = s[(int) (pos >>> SEGMENT_SHIFT)].duplicate();
+            final int chunk = Math.min(len, segment.limit() - offset);
+            segment.position(offset);
+            segment.get(b, off, chunk);
+            pos += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * release the mapping. The memory is returned to the operating system once the
+     * buffers are garbage collected; until then the file stays mapped. On Windows a mapped
+     * file can not be truncated or deleted, so such operations may fail after close() as long
+     * as the buffers are not collected.
+     */
+    public void close() {
+        this.segments = null;
+    }
+
+    private MappedByteBuffer[] segments() throws IOException {
+        final MappedByteBuffer[] s = this.segments;
+        if (s == null) throw new IOException("mapped file " + this.file.getName() + " is closed");
+        return s;
+    }
+
+    private void check(final long pos, final int len) throws IOException {
+        if (pos < 0 || len < 0 || pos + len > this.length) throw new EOFException("EOF in " + this.file.getName() + ", length = " + this.length + ", requested = " + len + ", seek = " + pos);
+    }
+}
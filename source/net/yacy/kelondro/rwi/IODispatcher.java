@@ -27,20 +27,27 @@ package net.yacy.kelondro.rwi;
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
 
 
 /**
  * this is a concurrent merger that can merge single files that are queued for merging.
  * when several ReferenceContainerArray classes host their ReferenceContainer file arrays,
  * they may share a single ReferenceContainerMerger object which does the sharing for all
- * of them. This is the best way to do the merging, because it does heavy IO access and
- * such access should not be performed concurrently, but queued. This class is the
- * manaagement class for queueing of merge jobs.
+ * of them. Dump jobs are done one after another in the dispatcher thread, merge jobs are
+ * handed over to a small pool of merge threads so that merges of different arrays (i.e. the
+ * term index and the citation index) can run at the same time. The write rate of all merges
+ * together can be limited to keep the disc available for other IO.
  *
  * to use this class, first instantiate a object and then start the concurrent execution
  * of merging with a call to the start() - method. To shut down all mergings, call terminate()
@@ -50,20 +57,41 @@ public class IODispatcher extends Thread {
 
     private static final ConcurrentLog log = new ConcurrentLog("IODispatcher");
 
-    private   Semaphore                    controlQueue; // controls that only one io job is running
+    private   Semaphore                    controlQueue; // counts the jobs in the queues, one permit for each job
     private   final Semaphore              termination; // released if thread is safe to terminate
     private   ArrayBlockingQueue<MergeJob> mergeQueue;
     private   ArrayBlockingQueue<DumpJob<? extends Reference>> dumpQueue;
     private   boolean                      terminate;
     private final int                      writeBufferSize;
+    private final int                      mergeThreads;
+    private final Semaphore                mergeSlots; // one permit for each idle merge thread
+    private final AtomicInteger            deferredMerges; // merge jobs which lost their control permit because all merge threads were busy
+    private final ExecutorService          mergeExecutor;
+    private final long                     maxMergeBytesPerSecond; // per merge thread, 0 = no limit
 
     public IODispatcher(final int dumpQueueLength, final int mergeQueueLength, final int writeBufferSize) {
+        this(dumpQueueLength, mergeQueueLength, writeBufferSize, 1, 0);
+    }
+
+    /**
+     * @param dumpQueueLength
+     * @param mergeQueueLength
+     * @param writeBufferSize
+     * @param mergeThreads the number of merges that may run concurrently
+     * @param maxMergeBytesPerSecond the maximum write rate of all merges together, 0 for no limit
+     */
+    public IODispatcher(final int dumpQueueLength, final int mergeQueueLength, final int writeBufferSize, final int mergeThreads, final long maxMergeBytesPerSecond) {
     	super("IODispatcher");
         this.termination = new Semaphore(0);
         this.controlQueue = new Semaphore(0);
         this.dumpQueue = new ArrayBlockingQueue<DumpJob<? extends Reference>>(dumpQueueLength);
         this.mergeQueue = new ArrayBlockingQueue<MergeJob>(mergeQueueLength);
         this.writeBufferSize = writeBufferSize;
+        this.mergeThreads = Math.max(1, mergeThreads);
+        this.mergeSlots = new Semaphore(this.mergeThreads);
+        this.deferredMerges = new AtomicInteger(0);
+        this.mergeExecutor = Executors.newFixedThreadPool(this.mergeThreads, new NamePrefixThreadFactory("IODispatcher.merge"));
+        this.maxMergeBytesPerSecond = maxMergeBytesPerSecond <= 0 ? 0 : Math.max(1, maxMergeBytesPerSecond / this.mergeThreads);
         this.terminate = false;
     }
 
@@ -75,11 +103,19 @@ public class IODispatcher extends Thread {
             try {
                 this.termination.acquire();
             } catch (final InterruptedException e) {
-                ConcurrentLog.logException(e);
+                Thread.currentThread().interrupt();
+                this.mergeExecutor.shutdown();
+                return;
             }
         }
+        // wait for running merges
+        this.mergeExecutor.shutdown();
+        try {
+            this.mergeExecutor.awaitTermination(1, TimeUnit.HOURS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-
     @SuppressWarnings("unchecked")
 	protected synchronized void dump(final ReferenceContainerCache<? extends Reference> cache, final File file, final ReferenceContainerArray<? extends Reference> array) {
         if (this.dumpQueue == null || this.controlQueue == null || !isAlive()) {
@@ -107,27 +143,42 @@ public class IODispatcher extends Thread {
         }
     }
 
+    /**
+     * @return the number of queued dump and merge jobs plus the number of running merges
+     */
     protected synchronized int queueLength() {
-        return (this.controlQueue == null || !isAlive()) ? 0 : this.controlQueue.availablePermits();
+        if (this.controlQueue == null || !isAlive()) return 0;
+        final ArrayBlockingQueue<DumpJob<? extends Reference>> dq = this.dumpQueue;
+        final ArrayBlockingQueue<MergeJob> mq = this.mergeQueue;
+        return (dq == null ? 0 : dq.size()) + (mq == null ? 0 : mq.size()) + this.mergeThreads - this.mergeSlots.availablePermits();
+    }
+
+    protected void merge(final File f1, final File f2, final ReferenceFactory<? extends Reference> factory, final ArrayStack array, final File newFile) {
+        merge(f2 == null ? new File[]{f1} : new File[]{f1, f2}, factory, array, newFile);
     }
 
-    protected synchronized void merge(final File f1, final File f2, final ReferenceFactory<? extends Reference> factory, final ArrayStack array, final File newFile) {
+    /**
+     * queue a merge of the given files into one new file. If only one file is given,
+     * then this file is rewritten.
+     */
+    protected synchronized void merge(final File[] files, final ReferenceFactory<? extends Reference> factory, final ArrayStack array, final File newFile) {
+        final String names = ArrayStack.names(files);
         if (this.mergeQueue == null || this.controlQueue == null || !isAlive()) {
-            if (f2 == null) {
-                log.warn("emergency rewrite of file " + f1.getName() + " to " + newFile.getName());
+            if (files.length == 1) {
+                log.warn("emergency rewrite of file " + names + " to " + newFile.getName());
             } else {
-                log.warn("emergency merge of files " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                log.warn("emergency merge of files " + names + " to " + newFile.getName());
             }
-            array.mergeMount(f1, f2, factory, newFile, (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize));
+            array.mergeMount(files, factory, newFile, (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), 0);
         } else {
-            final MergeJob job = new MergeJob(f1, f2, factory, array, newFile);
+            final MergeJob job = new MergeJob(files, factory, array, newFile);
             if (isAlive()) {
                 try {
                     this.mergeQueue.add(job);
-                    if (f2 == null) {
-                        log.info("appended rewrite job of file " + f1.getName() + " to " + newFile.getName());
+                    if (files.length == 1) {
+                        log.info("appended rewrite job of file " + names + " to " + newFile.getName());
                     } else {
-                        log.info("appended merge job of files " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                        log.info("appended merge job of files " + names + " to " + newFile.getName());
                     }
                 } catch (final IllegalStateException e) { // because mergeQueue size is 1, IllegalStateException could happen frequently (serial execution ensured in run() )
                 	log.warn("Could not add merge job to queue: " + e.getMessage());
@@ -136,10 +187,10 @@ public class IODispatcher extends Thread {
                 }
             } else {
                 job.merge();
-                if (f2 == null) {
-                    log.warn("dispatcher not running, merged files " + f1.getName() + " to " + newFile.getName());
+                if (files.length == 1) {
+                    log.warn("dispatcher not running, rewrote file " + names + " to " + newFile.getName());
                 } else {
-                    log.warn("dispatcher not running, rewrote file " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                    log.warn("dispatcher not running, merged files " + names + " to " + newFile.getName());
                 }
             }
         }
@@ -162,6 +213,8 @@ public class IODispatcher extends Thread {
                         dumpJob.dump();
                     } catch (final InterruptedException e) {
                         log.severe("main run job was interrupted (1)", e);
+                        Thread.currentThread().interrupt();
+                        break loop;
                     } catch (final Throwable e) {
                         log.severe("main run job had errors (1), dump to " + f + " failed.", e);
                     } finally {
@@ -171,23 +224,43 @@ public class IODispatcher extends Thread {
                     continue loop;
                 }
 
-                // otherwise do a merge operation
+                // otherwise hand over a merge operation to a free merge thread
                 if (!this.mergeQueue.isEmpty() && !MemoryControl.shortStatus()) {
-                	File f = null, f1 = null, f2 = null;
+                    // if all merge threads are busy, the next finished merge gives back the control permit of this job
+                    if (!this.mergeSlots.tryAcquire()) {
+                        this.deferredMerges.incrementAndGet();
+                        continue loop;
+                    }
+                    mergeJob = this.mergeQueue.poll();
+                    if (mergeJob == null) {
+                        this.mergeSlots.release();
+                        continue loop;
+                    }
+                    final MergeJob job = mergeJob;
+                    final Semaphore control = this.controlQueue;
+                    final AtomicInteger deferred = this.deferredMerges;
                     try {
-                        mergeJob = this.mergeQueue.take();
-                        f = mergeJob.newFile;
-                        f1 = mergeJob.f1;
-                        f2 = mergeJob.f2;
-                        mergeJob.merge();
-                    } catch (final InterruptedException e) {
-                        log.severe("main run job was interrupted (2)", e);
-                    } catch (final Throwable e) {
-                        if (f2 == null) {
-                            log.severe("main run job had errors (2), dump to " + f + " failed. Input file is " + f1, e);
-                        } else {
-                            log.severe("main run job had errors (2), dump to " + f + " failed. Input files are " + f1 + " and " + f2, e);
-                        }
+                        this.mergeExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    job.merge();
+                                } catch (final Throwable e) {
+                                    if (job.files.length == 1) {
+                                        log.severe("merge job had errors (2), rewrite to " + job.newFile + " failed. Input file is " + ArrayStack.names(job.files), e);
+                                    } else {
+                                        log.severe("merge job had errors (2), merge to " + job.newFile + " failed. Input files are " + ArrayStack.names(job.files), e);
+                                    }
+                                } finally {
+                                    IODispatcher.this.mergeSlots.release();
+                                    // give back the permit of a job which waited for a free slot
+                                    if (deferred.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) control.release();
+                                }
+                            }
+                        });
+                    } catch (final RejectedExecutionException e) {
+                        this.mergeSlots.release();
+                        job.merge();
                     } finally {
                         // make sure (on error) loop never hangs on controlQueue.acquire() (after/on error)
                         if (this.terminate) this.controlQueue.release();
@@ -237,33 +310,30 @@ public class IODispatcher extends Thread {
 
     private class MergeJob {
 
-        private final File f1, f2, newFile;
+        private final File[] files;
+        private final File newFile;
         private final ArrayStack array;
         private final ReferenceFactory<? extends Reference> factory;
 
         private MergeJob(
-                final File f1,
-                final File f2,
+                final File[] files,
                 final ReferenceFactory<? extends Reference> factory,
                 final ArrayStack array,
                 final File newFile) {
-            this.f1 = f1;
-            this.f2 = f2;
+            this.files = files;
             this.factory = factory;
             this.newFile = newFile;
             this.array = array;
         }
 
         private File merge() {
-        	if (!this.f1.exists()) {
-        	    log.warn("merge of file (1) " + this.f1.getName() + " failed: file does not exists");
-        		return null;
-        	}
-        	if (this.f2 != null && !this.f2.exists()) {
-        	    log.warn("merge of file (2) " + this.f2.getName() + " failed: file does not exists");
-        		return null;
-        	}
-            return this.array.mergeMount(this.f1, this.f2, this.factory, this.newFile, (int) Math.min(MemoryControl.available() / 3, IODispatcher.this.writeBufferSize));
+            for (int i = 0; i < this.files.length; i++) {
+                if (!this.files[i].exists()) {
+                    log.warn("merge of file (" + (i + 1) + ") " + this.files[i].getName() + " failed: file does not exists");
+                    return null;
+                }
+            }
+            return this.array.mergeMount(this.files, this.factory, this.newFile, (int) Math.min(MemoryControl.available() / 3, IODispatcher.this.writeBufferSize), IODispatcher.this.maxMergeBytesPerSecond);
         }
     }
 
@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -47,6 +48,7 @@ import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.kelondro.util.MergeIterator;
+import net.yacy.kelondro.workflow.WorkflowProcessor;
 import net.yacy.search.EventTracker;
 import net.yacy.search.Switchboard;
 
@@ -59,7 +61,8 @@ import net.yacy.search.Switchboard;
  * if there are too many of them. An index merge can be done with a stream read and stream write operation.
  * in normal operation, there are only a number of read-only BLOB files and a single RAM cache that is
  * kept in the RAM as long as a given limit of entries is reached. Then the cache is flushed and becomes
- * another BLOB file in the index array.
+ * another BLOB file in the index array. The RAM cache is striped by term hash, so that concurrent writers
+ * only compete for the lock of a single stripe.
  */
 
 public final class IndexCell<ReferenceType extends Reference> extends AbstractBufferedIndex<ReferenceType> implements BufferedIndex<ReferenceType>, Iterable<ReferenceContainer<ReferenceType>> {
@@ -69,7 +72,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
     // class variables
     private final ReferenceContainerArray<ReferenceType> array;
-    private       ReferenceContainerCache<ReferenceType> ram;
+    private final StripedReferenceContainerCache<ReferenceType> ram;
     private final ComparableARC<byte[], Integer>         countCache;
     private       int                                    maxRamEntries;
     private       IODispatcher                           merger; // pointer to shared merger
@@ -97,7 +100,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
         this.merger = merger;
         this.array = new ReferenceContainerArray<ReferenceType>(cellPath, prefix, factory, termOrder, termSize);
-        this.ram = new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize);
+        this.ram = new StripedReferenceContainerCache<ReferenceType>(factory, termOrder, termSize, WorkflowProcessor.availableCPU);
         this.countCache = new ComparableARC<byte[], Integer>(1000, termOrder);
         this.maxRamEntries = maxRamEntries;
         this.lastCleanup = System.currentTimeMillis();
@@ -145,15 +148,9 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
                         // dump the ram
                         final File dumpFile = IndexCell.this.array.newContainerBLOBFile();
                         // a critical point: when the ram is handed to the dump job,
-                        // don't write into it any more. Use a fresh one instead
-                        ReferenceContainerCache<ReferenceType> ramdump;
-                        final ByteOrder termOrder = IndexCell.this.ram.termKeyOrdering();
-                        final int termSize = IndexCell.this.ram.termKeyLength();
-                        synchronized (this) {
-                            ramdump = IndexCell.this.ram;
-                            // get a fresh ram cache
-                            IndexCell.this.ram = new ReferenceContainerCache<ReferenceType>(IndexCell.this.factory, termOrder, termSize);
-                        }
+                        // don't write into it any more. The stripes are exchanged against fresh ones
+                        // one after another, so writers on other stripes are not blocked
+                        final ReferenceContainerCache<ReferenceType> ramdump = IndexCell.this.ram.takeAll();
                         // WARNING : if this cell is queried before this dump termination, terms are no longer in the cache and would therefore not be found
                         // dump the buffer
                         IndexCell.this.merger.dump(ramdump, dumpFile, IndexCell.this.array);
@@ -385,6 +382,48 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         return result;
     }
 
+    /**
+     * create a cursor over the references of a term in url hash order. In contrast to get(),
+     * the containers from the BLOB files and the RAM are not merged; only the container from
+     * the RAM is copied because it may be changed concurrently.
+     * @param termHash
+     * @return a cursor which is exhausted at once if there are no references for the term
+     * @throws IOException
+     */
+    public TermCursor<ReferenceType> cursor(final byte[] termHash) throws IOException {
+        final List<ReferenceContainer<ReferenceType>> parts = this.array.getAll(termHash);
+        final ReferenceContainer<ReferenceType> c0 = this.ram.get(termHash, null);
+        if (c0 != null) try {
+            parts.add(c0.topLevelClone());
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.logException(e);
+        }
+        HandleSet removed = null;
+        synchronized (this.removeDelayedURLs) {
+            final HandleSet s = this.removeDelayedURLs.get(termHash);
+            if (s != null && !s.isEmpty()) {
+                removed = new RowHandleSet(Word.commonHashLength, Word.commonHashOrder, s.size());
+                for (final byte[] urlhash: s) try {
+                    removed.put(urlhash);
+                } catch (final SpaceExceededException e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
+        }
+        return new TermCursor<ReferenceType>(this.factory, termHash, parts, removed);
+    }
+
+    /**
+     * a conjunctive search which streams the joined references instead of returning the joined container
+     * @see StreamingTermSearch
+     */
+    public StreamingTermSearch<ReferenceType> streamingQuery(
+            final HandleSet queryHashes,
+            final HandleSet excludeHashes,
+            final int maxDistance) throws IOException {
+        return new StreamingTermSearch<ReferenceType>(this, queryHashes, excludeHashes, this.factory, maxDistance);
+    }
+
     /**
      * deleting a container affects the containers in RAM and all the BLOB files
      * the deleted containers are merged and returned as result of the method
@@ -490,7 +529,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
             ConcurrentLog.warn("IndexCell", "not possible to remove urlHashes from a RWI because of too low memory. Remove was not applied. Please increase RAM assignment");
         }
         //assert this.array.mem() <= am : "am = " + am + ", array.mem() = " + this.array.mem();
-        return removed + (reduced / this.array.rowdef().objectsize);
+        return removed + reduced;
     }
 
     @Override
@@ -598,7 +637,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     public synchronized void close() {
         this.countCache.clear();
         try {removeDelayed();} catch (final IOException e) {}
-        if (!this.ram.isEmpty()) this.ram.dump(this.array.newContainerBLOBFile(), (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), true);
+        if (!this.ram.isEmpty()) this.ram.takeAll().dump(this.array.newContainerBLOBFile(), (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), true);
         // close all
         this.flushShallRun = false;
         if (this.flushThread != null) try { this.flushThread.join(); } catch (final InterruptedException e) {}
@@ -402,6 +402,11 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         if ((i1 == null) || (i2 == null)) return null;
         if (i1.isEmpty() || i2.isEmpty()) return null;
 
+        // containers with the same ordering are joined on their sorted rows
+        if (i1.rowdef.getOrdering().signature().equals(i2.rowdef.getOrdering().signature())) {
+            return joinConstructiveByLeapfrog(factory, i1, i2, maxDistance);
+        }
+
         // decide which method to use
         final int high = ((i1.size() > i2.size()) ? i1.size() : i2.size());
         final int low  = ((i1.size() > i2.size()) ? i2.size() : i1.size());
@@ -416,6 +421,44 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         return joinConstructiveByEnumeration(factory, i1, i2, maxDistance);
     }
 
+    /**
+     * join two sorted containers by leapfrogging: the container which is behind jumps forward
+     * to the key of the other container with a galloping search. Rows are compared in place and
+     * only matching rows are decoded to references. This needs O(low * log(high / low)) comparisons,
+     * so it is at least as good as an enumeration of both containers for containers of similar size
+     * and as good as a test of each entry of the small container for containers of very different size.
+     */
+    private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinConstructiveByLeapfrog(
+            final ReferenceFactory<ReferenceType> factory,
+            final ReferenceContainer<ReferenceType> i1,
+            final ReferenceContainer<ReferenceType> i2,
+            final int maxDistance) throws SpaceExceededException {
+        assert i1.rowdef.equals(i2.rowdef) : "i1 = " + i1.rowdef.toString() + "; i2 = " + i2.rowdef.toString();
+        final ReferenceContainer<ReferenceType> conj = new ReferenceContainer<ReferenceType>(factory, null, 0); // start with empty search result
+        i1.sort();
+        i2.sort();
+        final int n1 = i1.sorted();
+        final int n2 = i2.sorted();
+        int p1 = 0, p2 = 0, c;
+        ReferenceType ie1;
+        while (p1 < n1 && p2 < n2) {
+            c = i1.compareKeys(p1, i2, p2);
+            if (c < 0) {
+                p1 = i1.gallop(i2, p2, p1 + 1);
+            } else if (c > 0) {
+                p2 = i2.gallop(i1, p1, p2 + 1);
+            } else {
+                // we have found the same urls in different searches!
+                ie1 = factory.produceFast(factory.produceSlow(i1.get(p1, false)), true);
+                ie1.join(factory.produceSlow(i2.get(p2, false)));
+                if (ie1.distance() <= maxDistance) conj.add(ie1);
+                p1++;
+                p2++;
+            }
+        }
+        return conj;
+    }
+
     private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinConstructiveByTest(
             final ReferenceFactory<ReferenceType> factory,
             final ReferenceContainer<ReferenceType> small,
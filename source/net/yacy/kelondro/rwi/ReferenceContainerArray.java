@@ -26,8 +26,11 @@ package net.yacy.kelondro.rwi;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.order.CloneableIterator;
@@ -39,12 +42,25 @@ import net.yacy.kelondro.blob.BLOB;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.index.Row;
 import net.yacy.kelondro.index.RowSet;
+import net.yacy.kelondro.util.OS;
 
 
 public final class ReferenceContainerArray<ReferenceType extends Reference> {
 
     private final static long METHOD_MAXRUNTIME = 5000L;
 
+    /**
+     * sealed BLOB files are memory-mapped for lock-free concurrent reads. Windows is excluded because
+     * mapped files cannot be deleted there until the mapping is garbage collected, which would block
+     * the removal of merged files; 32 bit JVMs are excluded because of their small address space.
+     */
+    private final static boolean MAPPED_READS = !OS.isWindows && System.getProperty("os.arch", "").contains("64");
+
+    /**
+     * the maximum number of small files that are merged together in one pass
+     */
+    public final static int MERGE_FANIN = 8;
+
     private final ReferenceFactory<ReferenceType> factory;
     private final ArrayStack array;
 
@@ -72,7 +88,8 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
             termSize,
             0,
             true,
-            true);
+            true,
+            MAPPED_READS);
     }
 
     public synchronized void close() {
@@ -324,20 +341,41 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
     	return c;
     }
 
+    /**
+     * get the references of a term from every BLOB file as separate containers, without merging them.
+     * A part which cannot be decoded because of missing memory is left out.
+     * @param termHash
+     * @return the containers in the order of the BLOB files
+     * @throws IOException
+     */
+    public List<ReferenceContainer<ReferenceType>> getAll(final byte[] termHash) throws IOException {
+        final List<ReferenceContainer<ReferenceType>> parts = new ArrayList<ReferenceContainer<ReferenceType>>();
+        for (final byte[] a: this.array.getAll(termHash)) {
+            try {
+                parts.add(new ReferenceContainer<ReferenceType>(this.factory, termHash, RowSet.importRowSet(a, this.factory.getRow())));
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.warn("ReferenceContainerArray", "getAll: not enough memory to decode a container of " + a.length + " bytes");
+            }
+        }
+        return parts;
+    }
+
     public int count(final byte[] termHash) throws IOException {
         final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
-        final Iterator<Long> entries = this.array.lengthAll(termHash).iterator();
+        // the number of references is read from the head of the exported collections
+        // because the length of a columnar export does not tell the number of entries
+        final Iterator<byte[]> entries = this.array.headAll(termHash, RowSet.importRowCountHeadSize).iterator();
         if (entries == null || !entries.hasNext()) return 0;
-        final Long a = entries.next();
+        final byte[] a = entries.next();
         int k = 1;
-        int c = RowSet.importRowCount(a, this.factory.getRow());
+        int c = RowSet.importRowCount(a);
         assert c >= 0;
         if (System.currentTimeMillis() > timeout) {
             ConcurrentLog.warn("ReferenceContainerArray", "timout in count() (1): " + k + " tables searched. timeout = " + METHOD_MAXRUNTIME);
             return c;
         }
         while (entries.hasNext()) {
-            c += RowSet.importRowCount(entries.next(), this.factory.getRow());
+            c += RowSet.importRowCount(entries.next());
             assert c >= 0;
             k++;
             if (System.currentTimeMillis() > timeout) {
@@ -360,28 +398,78 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
     	this.array.delete(termHash);
     }
 
+    /**
+     * reduce the containers of a term in all BLOB files
+     * @return the number of removed references
+     */
     public int reduce(final byte[] termHash, final ContainerReducer<ReferenceType> reducer) throws IOException, SpaceExceededException {
-        return this.array.reduce(termHash, new BLOBReducer(termHash, reducer));
+        final BLOBReducer blobReducer = new BLOBReducer(termHash, reducer);
+        this.array.reduce(termHash, blobReducer);
+        if (blobReducer.overflow) {
+            // a reduced container did not fit into its record: the term is deleted and written again into a new BLOB file
+            final ReferenceContainer<ReferenceType> c = blobReducer.merged();
+            this.array.delete(termHash);
+            if (c != null && !c.isEmpty()) {
+                final ReferenceContainerCache<ReferenceType> cache = new ReferenceContainerCache<ReferenceType>(this.factory, this.array.ordering(), termHash.length);
+                cache.add(c);
+                final File file = newContainerBLOBFile();
+                cache.dump(file, 64 * 1024, true);
+                mountBLOBFile(file);
+            }
+        }
+        return blobReducer.removed;
     }
 
     public class BLOBReducer implements BLOB.Reducer {
 
         ContainerReducer<ReferenceType> rewriter;
         byte[] wordHash;
+        int removed;
+        /** the reduced containers of all records, used to write the term again if a record could not be reduced in place */
+        final List<ReferenceContainer<ReferenceType>> parts;
+        boolean overflow;
 
         public BLOBReducer(final byte[] wordHash, final ContainerReducer<ReferenceType> rewriter) {
             this.rewriter = rewriter;
             this.wordHash = wordHash;
+            this.removed = 0;
+            this.parts = new ArrayList<ReferenceContainer<ReferenceType>>();
+            this.overflow = false;
         }
 
         @Override
         public byte[] rewrite(final byte[] b) throws SpaceExceededException {
             if (b == null) return null;
-            final ReferenceContainer<ReferenceType> c = this.rewriter.reduce(new ReferenceContainer<ReferenceType>(ReferenceContainerArray.this.factory, this.wordHash, RowSet.importRowSet(b, ReferenceContainerArray.this.factory.getRow())));
+            final ReferenceContainer<ReferenceType> c0 = new ReferenceContainer<ReferenceType>(ReferenceContainerArray.this.factory, this.wordHash, RowSet.importRowSet(b, ReferenceContainerArray.this.factory.getRow()));
+            final int size0 = c0.size();
+            final ReferenceContainer<ReferenceType> c = this.rewriter.reduce(c0);
             if (c == null) return null;
-            final byte bb[] = c.exportCollection();
-            assert bb.length <= b.length;
-            return bb;
+            this.parts.add(c);
+            final int removedHere = size0 - c.size();
+            if (removedHere <= 0) return b;
+            this.removed += removedHere;
+            byte[] bb = c.exportColumnar();
+            if (bb.length <= b.length) {
+                // the heap needs at least 4 bytes to mark a gap; otherwise pad the record which is ignored by the import
+                if (bb.length > b.length - 4) bb = Arrays.copyOf(bb, b.length);
+                return bb;
+            }
+            // can only happen if the encoding of a column changed for the worse; try the row format, which cannot be padded
+            bb = c.exportCollection();
+            if (bb.length == b.length || bb.length <= b.length - 4) return bb;
+            // the record is kept here and replaced after all records are reduced
+            this.overflow = true;
+            return b;
+        }
+
+        /**
+         * @return the reduced containers of all records merged into one container, or null if there was no record
+         * @throws SpaceExceededException
+         */
+        ReferenceContainer<ReferenceType> merged() throws SpaceExceededException {
+            ReferenceContainer<ReferenceType> c = null;
+            for (final ReferenceContainer<ReferenceType> part: this.parts) c = c == null ? part : c.merge(part);
+            return c;
         }
     }
 
@@ -399,27 +487,36 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
         return this.array.entries();
     }
 
+    /**
+     * merge up to MERGE_FANIN files of similar size in one pass
+     */
     public boolean shrinkBestSmallFiles(final IODispatcher merger, final long targetFileSize) {
-        final File[] ff = this.array.unmountBestMatch(2.0f, targetFileSize);
+        final File[] ff = this.array.unmountBestMatch(MERGE_FANIN, 2.0f, targetFileSize);
         if (ff == null) return false;
-        ConcurrentLog.info("RICELL-shrink1", "unmountBestMatch(2.0, " + targetFileSize + ")");
-        merger.merge(ff[0], ff[1], this.factory, this.array, newContainerBLOBFile());
+        ConcurrentLog.info("RICELL-shrink1", "unmountBestMatch(" + MERGE_FANIN + ", 2.0, " + targetFileSize + "): " + ff.length + " files");
+        merger.merge(ff, this.factory, this.array, newContainerBLOBFile());
         return true;
     }
 
+    /**
+     * merge up to MERGE_FANIN of the smallest files in one pass
+     */
     public boolean shrinkAnySmallFiles(final IODispatcher merger, final long targetFileSize) {
-        final File[] ff = this.array.unmountSmallest(targetFileSize);
+        final File[] ff = this.array.unmountSmallest(MERGE_FANIN, targetFileSize);
         if (ff == null) return false;
-        ConcurrentLog.info("RICELL-shrink2", "unmountSmallest(" + targetFileSize + ")");
-        merger.merge(ff[0], ff[1], this.factory, this.array, newContainerBLOBFile());
+        ConcurrentLog.info("RICELL-shrink2", "unmountSmallest(" + MERGE_FANIN + ", " + targetFileSize + "): " + ff.length + " files");
+        merger.merge(ff, this.factory, this.array, newContainerBLOBFile());
         return true;
     }
 
+    /**
+     * merge up to MERGE_FANIN files of similar size in one pass
+     */
     public boolean shrinkUpToMaxSizeFiles(final IODispatcher merger, final long maxFileSize) {
-        final File[] ff = this.array.unmountBestMatch(2.0f, maxFileSize);
+        final File[] ff = this.array.unmountBestMatch(MERGE_FANIN, 2.0f, maxFileSize);
         if (ff == null) return false;
-        ConcurrentLog.info("RICELL-shrink3", "unmountBestMatch(2.0, " + maxFileSize + ")");
-        merger.merge(ff[0], ff[1], this.factory, this.array, newContainerBLOBFile());
+        ConcurrentLog.info("RICELL-shrink3", "unmountBestMatch(" + MERGE_FANIN + ", 2.0, " + maxFileSize + "): " + ff.length + " files");
+        merger.merge(ff, this.factory, this.array, newContainerBLOBFile());
         return true;
     }
 
@@ -113,6 +113,17 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         return this.cache.keySet().iterator();
     }
 
+    /**
+     * move the containers of another cache into this cache. The containers are not cloned,
+     * therefore the other cache must not be used any more for write operations.
+     * The term sets of both caches must be disjoint, otherwise containers are overwritten.
+     * @param other a cache with the same term order
+     */
+    protected void putAll(final ReferenceContainerCache<ReferenceType> other) {
+        if (this.cache == null || other.cache == null) return;
+        this.cache.putAll(other.cache);
+    }
+
     /**
      * dump the cache to a file. This method can be used in a destructive way
      * which means that memory can be freed during the dump. This may be important
@@ -157,7 +168,7 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
             if (container != null && term.length == this.termSize) {
                 //System.out.println("Dump: " + wordHash);
                 try {
-                    dump.add(term, container.exportCollection());
+                    dump.add(term, container.exportColumnar());
                 } catch (final IOException e) {
                     ConcurrentLog.logException(e);
                 } catch (final SpaceExceededException e) {
@@ -300,7 +311,8 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
                 this.latestTermHash = c.getTermHash();
                 if (this.excludePrivate && Word.isPrivate(this.latestTermHash)) continue;
                 try {
-                    return c.topLevelClone();
+                    final ReferenceContainer<ReferenceType> clone = topLevelClone(this.latestTermHash);
+                    if (clone != null) return clone;
                 } catch (final SpaceExceededException e) {
                     ConcurrentLog.logException(e);
                     return null;
@@ -317,7 +329,8 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
                 this.latestTermHash = c.getTermHash();
                 if (this.excludePrivate && Word.isPrivate(this.latestTermHash)) continue;
                 try {
-                    return c.topLevelClone();
+                    final ReferenceContainer<ReferenceType> clone = topLevelClone(this.latestTermHash);
+                    if (clone != null) return clone;
                 } catch (final SpaceExceededException e) {
                     ConcurrentLog.logException(e);
                     return null;
@@ -342,6 +355,27 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         }
     }
 
+    /**
+     * clone the container of a term atomically with the updates of that term
+     * @param termHash
+     * @return a top-level clone of the container or null if the term is not in the cache any more
+     * @throws SpaceExceededException
+     */
+    private ReferenceContainer<ReferenceType> topLevelClone(final byte[] termHash) throws SpaceExceededException {
+        final List<ReferenceContainer<ReferenceType>> clone = new ArrayList<ReferenceContainer<ReferenceType>>(1);
+        final SpaceExceededException[] error = new SpaceExceededException[1];
+        this.cache.computeIfPresent(new ByteArray(termHash), (k, c) -> {
+            try {
+                clone.add(c.topLevelClone());
+            } catch (final SpaceExceededException e) {
+                error[0] = e;
+            }
+            return c;
+        });
+        if (error[0] != null) throw error[0];
+        return clone.isEmpty() ? null : clone.get(0);
+    }
+
     @Override
     public CloneableIterator<Rating<byte[]>> referenceCountIterator(final byte[] startHash, final boolean rot, boolean excludePrivate) {
         return new ReferenceCountIterator(startHash, rot, excludePrivate);
@@ -511,19 +545,13 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         assert this.cache != null;
         if (this.cache == null) return false;
         final ByteArray tha = new ByteArray(termHash);
-        synchronized (this.cache) {
-	        final ReferenceContainer<ReferenceType> c = this.cache.get(tha);
-	        if (c != null && c.delete(urlHashBytes)) {
-	            // removal successful
-	            if (c.isEmpty()) {
-	                delete(termHash);
-	            } else {
-	                this.cache.put(tha, c);
-	            }
-	            return true;
-	        }
-        }
-        return false;
+        final boolean[] removed = new boolean[1];
+        // the update is atomic for this term only, updates of other terms are not blocked
+        this.cache.computeIfPresent(tha, (k, c) -> {
+            removed[0] = c.delete(urlHashBytes);
+            return c.isEmpty() ? null : c;
+        });
+        return removed[0];
     }
 
     @Override
@@ -532,20 +560,12 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         if (this.cache == null) return  0;
         if (urlHashes.isEmpty()) return 0;
         final ByteArray tha = new ByteArray(termHash);
-        int count;
-        synchronized (this.cache) {
-            final ReferenceContainer<ReferenceType> c = this.cache.get(tha);
-            if ((c != null) && ((count = c.removeEntries(urlHashes)) > 0)) {
-                // removal successful
-                if (c.isEmpty()) {
-                    delete(termHash);
-                } else {
-                    this.cache.put(tha, c);
-                }
-                return count;
-            }
-        }
-        return 0;
+        final int[] count = new int[1];
+        this.cache.computeIfPresent(tha, (k, c) -> {
+            count[0] = c.removeEntries(urlHashes);
+            return c.isEmpty() ? null : c;
+        });
+        return count[0];
     }
 
     @Override
@@ -558,21 +578,18 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
 
         // put new words into cache
         final ByteArray tha = new ByteArray(container.getTermHash());
-        int added = 0;
-        synchronized (this.cache) {
-            ReferenceContainer<ReferenceType> entries = this.cache.get(tha); // null pointer exception? wordhash != null! must be cache==null
-            if (entries == null) {
-                entries = container.topLevelClone();
-                added = entries.size();
-            } else {
-                added = entries.putAllRecent(container);
-            }
-            if (added > 0) {
-                this.cache.put(tha, entries);
+        final SpaceExceededException[] error = new SpaceExceededException[1];
+        // the update is atomic for this term only, updates of other terms are not blocked
+        this.cache.compute(tha, (k, entries) -> {
+            try {
+                if (entries == null) return container.topLevelClone();
+                entries.putAllRecent(container);
+            } catch (final SpaceExceededException e) {
+                error[0] = e;
             }
-            entries = null;
-            return;
-        }
+            return entries;
+        });
+        if (error[0] != null) throw error[0];
     }
 
     @Override
@@ -580,32 +597,20 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         assert this.cache != null;
         if (this.cache == null) return;
         final ByteArray tha = new ByteArray(termHash);
-
-        // first access the cache without synchronization
-        ReferenceContainer<ReferenceType> container = this.cache.remove(tha);
-        if (container == null) container = new ReferenceContainer<ReferenceType>(this.factory, termHash, 1);
-        container.put(newEntry);
-
-        // synchronization: check if the entry is still empty and set new value
-        final ReferenceContainer<ReferenceType> container0 = this.cache.put(tha, container);
-        if (container0 != null) synchronized (this.cache) {
-            // no luck here, we get a lock exclusively to sort this out
-            final ReferenceContainer<ReferenceType> containerNew = this.cache.put(tha, container0);
-            if (containerNew == null) return;
-            if (container0 == containerNew) {
-                // The containers are the same, so nothing needs to be done
-                return;
+        final SpaceExceededException[] error = new SpaceExceededException[1];
+
+        // the update of a container must be atomic, otherwise concurrent writers to the same term lose references.
+        // compute() locks only the hash bin of the term, so writers of other terms are not blocked
+        this.cache.compute(tha, (k, container) -> {
+            try {
+                if (container == null) container = new ReferenceContainer<ReferenceType>(this.factory, termHash, 1);
+                container.put(newEntry);
+            } catch (final SpaceExceededException e) {
+                error[0] = e;
             }
-            // Now merge the smaller container into the lager.
-            // The other way around can become very slow
-            if (container0.size() >= containerNew.size()) {
-                container0.putAllRecent(containerNew);
-       	        this.cache.put(tha, container0);
-            } else {
-                containerNew.putAllRecent(container0);
-                this.cache.put(tha, containerNew);
-            }
-        }
+            return container == null || container.isEmpty() ? null : container;
+        });
+        if (error[0] != null) throw error[0];
     }
 
     @Override
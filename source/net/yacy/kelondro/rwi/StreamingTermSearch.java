@@ -0,0 +1,220 @@
+// StreamingTermSearch.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.LookAheadIterator;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * A conjunctive term search which is evaluated while the result is read.
+ * In contrast to {@link TermSearch}, the references of the terms are not merged into one container
+ * for each term and the join result is not collected in a container: the terms are enumerated with
+ * {@link TermCursor} objects in url hash order, the cursor which is behind jumps forward to the cursor
+ * which is ahead, and a joined reference is produced only for urls which are contained in all
+ * include terms and in none of the exclude terms. The consumer of the iterator can therefore rank
+ * the result into a bounded queue and needs no memory for the complete join result.
+ * With {@link #next(JoinTarget)} the joined references are read directly from the rows of the cursors,
+ * without an object for each reference.
+ *
+ * @param <ReferenceType>
+ */
+public final class StreamingTermSearch<ReferenceType extends Reference> extends LookAheadIterator<ReferenceType> {
+
+    /**
+     * a target which joins the references at the position of the include cursors itself
+     * @param <ReferenceType>
+     */
+    public interface JoinTarget<ReferenceType extends Reference> {
+
+        /**
+         * @return true if the target cannot take another reference
+         */
+        public boolean isFull();
+
+        /**
+         * add the join of the references at the position of the cursors, which all point to the same url;
+         * the references are joined into the reference of the first cursor as in {@link Reference#join(Reference)}
+         * @param cursors the include cursors; they must not be moved
+         * @param maxDistance the maximum distance of the words in the joined reference
+         * @return false if the reference was not added because the distance of the words is larger than maxDistance
+         */
+        public boolean addJoined(List<TermCursor<ReferenceType>> cursors, int maxDistance);
+    }
+
+    private final ReferenceFactory<ReferenceType> factory;
+    private final List<TermCursor<ReferenceType>> include; // ordered by size, the smallest first
+    private final List<TermCursor<ReferenceType>> exclude;
+    private final int maxDistance;
+    private int count;
+
+    public StreamingTermSearch(
+            final IndexCell<ReferenceType> base,
+            final HandleSet queryHashes,
+            final HandleSet excludeHashes,
+            final ReferenceFactory<ReferenceType> factory,
+            final int maxDistance) throws IOException {
+        this.factory = factory;
+        this.maxDistance = maxDistance;
+        this.count = 0;
+        this.include = new ArrayList<TermCursor<ReferenceType>>(queryHashes.size());
+        this.exclude = new ArrayList<TermCursor<ReferenceType>>(excludeHashes == null ? 0 : excludeHashes.size());
+        for (final byte[] termHash: queryHashes) {
+            final TermCursor<ReferenceType> cursor = base.cursor(termHash);
+            if (cursor.isExhausted()) {
+                // this is a conjunction; there is no result if any word is not known
+                this.include.clear();
+                return;
+            }
+            this.include.add(cursor);
+        }
+        Collections.sort(this.include, new Comparator<TermCursor<ReferenceType>>() {
+            @Override
+            public int compare(final TermCursor<ReferenceType> c0, final TermCursor<ReferenceType> c1) {
+                return Long.compare(c0.size(), c1.size());
+            }
+        });
+        if (this.include.isEmpty() || excludeHashes == null) return;
+        for (final byte[] termHash: excludeHashes) {
+            final TermCursor<ReferenceType> cursor = base.cursor(termHash);
+            if (!cursor.isExhausted()) this.exclude.add(cursor);
+        }
+    }
+
+    /**
+     * @return the number of joined references which had been produced so far
+     */
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     * @return the number of include terms; zero if the search has no result
+     */
+    public int terms() {
+        return this.include.size();
+    }
+
+    /**
+     * compute the containers of the include terms in the same way as {@link TermSearch#inclusion()};
+     * the parts of each term are merged for this, so this should only be called if the containers are needed,
+     * i.e. for the generation of index abstracts
+     * @return a map from the term hash to the container of the term; empty if the search has no result
+     * @throws SpaceExceededException
+     */
+    public TreeMap<byte[], ReferenceContainer<ReferenceType>> inclusion() throws SpaceExceededException {
+        final TreeMap<byte[], ReferenceContainer<ReferenceType>> inclusion = new TreeMap<byte[], ReferenceContainer<ReferenceType>>(Base64Order.enhancedCoder);
+        for (final TermCursor<ReferenceType> cursor: this.include) {
+            inclusion.put(cursor.getTermHash(), cursor.container());
+        }
+        return inclusion;
+    }
+
+    @Override
+    protected ReferenceType next0() {
+        while (align()) {
+            final ReferenceType r = excluded(this.include.get(0)) ? null : join();
+            advance();
+            if (r != null) {
+                this.count++;
+                return r;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * join the next references into a target until the target is full or the search is exhausted.
+     * This must not be mixed with the iteration of the search.
+     * @param target
+     * @return the number of references which had been added to the target; if the target is not full afterwards, the search is exhausted
+     */
+    public int next(final JoinTarget<ReferenceType> target) {
+        int added = 0;
+        while (!target.isFull() && align()) {
+            final boolean joined = !excluded(this.include.get(0)) && target.addJoined(this.include, this.maxDistance);
+            advance();
+            if (joined) added++;
+        }
+        this.count += added;
+        return added;
+    }
+
+    /**
+     * move the include cursors to the next url which is contained in all include terms
+     * @return false if there is no such url
+     */
+    private boolean align() {
+        if (this.include.isEmpty()) return false;
+        final TermCursor<ReferenceType> first = this.include.get(0);
+        while (true) {
+            // find the cursor which is most ahead
+            TermCursor<ReferenceType> lead = first;
+            for (final TermCursor<ReferenceType> cursor: this.include) {
+                if (cursor.isExhausted()) return false;
+                if (cursor.compareTo(lead) > 0) lead = cursor;
+            }
+
+            // let all other cursors jump to the lead
+            boolean match = true;
+            for (final TermCursor<ReferenceType> cursor: this.include) {
+                if (cursor == lead || cursor.compareTo(lead) >= 0) continue;
+                cursor.seek(lead);
+                if (cursor.isExhausted()) return false;
+                if (cursor.compareTo(lead) != 0) match = false;
+            }
+            // all cursors point to the same url
+            if (match) return true;
+        }
+    }
+
+    private void advance() {
+        for (final TermCursor<ReferenceType> cursor: this.include) cursor.next();
+    }
+
+    private boolean excluded(final TermCursor<ReferenceType> position) {
+        for (final TermCursor<ReferenceType> cursor: this.exclude) {
+            if (cursor.isExhausted()) continue;
+            if (cursor.compareTo(position) < 0) cursor.seek(position);
+            if (!cursor.isExhausted() && cursor.compareTo(position) == 0) return true;
+        }
+        return false;
+    }
+
+    private ReferenceType join() {
+        final ReferenceType r = this.factory.produceFast(this.include.get(0).reference(), true);
+        for (int i = 1; i < this.include.size(); i++) {
+            r.join(this.include.get(i).reference());
+            if (r.distance() > this.maxDistance) return null;
+        }
+        return r;
+    }
+}
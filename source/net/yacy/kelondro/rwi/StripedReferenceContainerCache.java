@@ -0,0 +1,360 @@
+// StripedReferenceContainerCache.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.order.Order;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.ByteArray;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.util.MergeIterator;
+
+/**
+ * A RAM cache for references which is partitioned into stripes by a prefix of the term hash.
+ * Every stripe is a {@link ReferenceContainerCache} with its own lock: write operations on
+ * different stripes never block each other, and a stripe can be taken out of the cache to be
+ * dumped while the other stripes still accept new references.
+ * Read and write operations on a stripe share the read lock of the stripe; only the
+ * exchange of a stripe against an empty one takes the write lock.
+ *
+ * @param <ReferenceType>
+ */
+public final class StripedReferenceContainerCache<ReferenceType extends Reference> implements Iterable<ReferenceContainer<ReferenceType>> {
+
+    private final ReferenceFactory<ReferenceType> factory;
+    private final ByteOrder termOrder;
+    private final int termSize;
+    private final int mask;
+    private final ReferenceContainerCache<ReferenceType>[] stripes;
+    private final ReentrantReadWriteLock[] locks;
+
+    /**
+     * @param factory the factory for payload reference objects
+     * @param termOrder the order on search terms for the cache
+     * @param termSize the fixed size of search terms
+     * @param concurrency the expected number of concurrent writers; the number of stripes is
+     *        the next power of two of twice this number
+     */
+    public StripedReferenceContainerCache(final ReferenceFactory<ReferenceType> factory, final ByteOrder termOrder, final int termSize, final int concurrency) {
+        this.factory = factory;
+        this.termOrder = termOrder;
+        this.termSize = termSize;
+        int n = 1;
+        while (n < 2 * concurrency && n < 256) n = n << 1;
+        this.mask = n - 1;
+        this.stripes = newStripeArray(n);
+        this.locks = new ReentrantReadWriteLock[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize);
+            this.locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <ReferenceType extends Reference> ReferenceContainerCache<ReferenceType>[] newStripeArray(final int n) {
+        return new ReferenceContainerCache[n];
+    }
+
+    public int stripes() {
+        return this.stripes.length;
+    }
+
+    /**
+     * compute the stripe of a term; the first two bytes of the hash are used
+     * because the beginning of a term hash is already evenly distributed
+     */
+    private int stripe(final byte[] termHash) {
+        final int h = ((termHash[0] & 0xff) << 8) | (termHash.length > 1 ? termHash[1] & 0xff : 0);
+        return (h ^ (h >>> 5)) & this.mask;
+    }
+
+    private ReferenceContainerCache<ReferenceType> lock(final int s) {
+        this.locks[s].readLock().lock();
+        return this.stripes[s];
+    }
+
+    private void unlock(final int s) {
+        this.locks[s].readLock().unlock();
+    }
+
+    public void add(final ReferenceContainer<ReferenceType> container) throws SpaceExceededException {
+        final int s = stripe(container.getTermHash());
+        try {
+            lock(s).add(container);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    public void add(final byte[] termHash, final ReferenceType entry) throws SpaceExceededException {
+        final int s = stripe(termHash);
+        try {
+            lock(s).add(termHash, entry);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    public boolean has(final byte[] termHash) {
+        final int s = stripe(termHash);
+        try {
+            return lock(s).has(termHash);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection) {
+        final int s = stripe(termHash);
+        try {
+            return lock(s).get(termHash, urlselection);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    public int count(final byte[] termHash) {
+        final int s = stripe(termHash);
+        try {
+            return lock(s).count(termHash);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    public ReferenceContainer<ReferenceType> remove(final byte[] termHash) {
+        final int s = stripe(termHash);
+        try {
+            return lock(s).remove(termHash);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    public void delete(final byte[] termHash) {
+        final int s = stripe(termHash);
+        try {
+            lock(s).delete(termHash);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    public boolean remove(final byte[] termHash, final byte[] urlHashBytes) {
+        final int s = stripe(termHash);
+        try {
+            return lock(s).remove(termHash, urlHashBytes);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    public int remove(final byte[] termHash, final HandleSet urlHashes) {
+        final int s = stripe(termHash);
+        try {
+            return lock(s).remove(termHash, urlHashes);
+        } finally {
+            unlock(s);
+        }
+    }
+
+    /**
+     * exchange a stripe against an empty one. Running write operations on the stripe are
+     * finished before the stripe is returned, so the result can be dumped safely.
+     * @param s the number of the stripe
+     * @return the content of the stripe
+     */
+    public ReferenceContainerCache<ReferenceType> take(final int s) {
+        this.locks[s].writeLock().lock();
+        try {
+            final ReferenceContainerCache<ReferenceType> stripe = this.stripes[s];
+            this.stripes[s] = new ReferenceContainerCache<ReferenceType>(this.factory, this.termOrder, this.termSize);
+            return stripe;
+        } finally {
+            this.locks[s].writeLock().unlock();
+        }
+    }
+
+    /**
+     * take all stripes out of the cache, one after another, and join them into one cache.
+     * Writers are blocked only while their own stripe is exchanged.
+     * @return a cache with all references that had been in this cache
+     */
+    public ReferenceContainerCache<ReferenceType> takeAll() {
+        final ReferenceContainerCache<ReferenceType> all = new ReferenceContainerCache<ReferenceType>(this.factory, this.termOrder, this.termSize);
+        for (int s = 0; s < this.stripes.length; s++) all.putAll(take(s));
+        return all;
+    }
+
+    /**
+     * iterate the terms of all stripes, one stripe after another, in no specific order
+     */
+    public Iterator<ByteArray> keys() {
+        return new Iterator<ByteArray>() {
+            private int s = 0;
+            private Iterator<ByteArray> i = null;
+
+            @Override
+            public boolean hasNext() {
+                while ((this.i == null || !this.i.hasNext()) && this.s < StripedReferenceContainerCache.this.stripes.length) {
+                    try {
+                        this.i = lock(this.s).keys();
+                    } finally {
+                        unlock(this.s++);
+                    }
+                }
+                return this.i != null && this.i.hasNext();
+            }
+
+            @Override
+            public ByteArray next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return this.i.next();
+            }
+        };
+    }
+
+    /**
+     * return an iterator object that creates top-level-clones of the indexContainers
+     * in the cache, so that manipulations of the iterated objects do not change
+     * objects in the cache. The sorted iterators of the stripes are merged; every stripe
+     * clones its containers atomically with the updates of the same term.
+     */
+    public CloneableIterator<ReferenceContainer<ReferenceType>> referenceContainerIterator(final byte[] startWordHash, final boolean rot, final boolean excludePrivate) {
+        return new ContainerIterator(startWordHash, rot, excludePrivate);
+    }
+
+    private final class ContainerIterator implements CloneableIterator<ReferenceContainer<ReferenceType>> {
+
+        private final boolean rot, excludePrivate;
+        private CloneableIterator<ReferenceContainer<ReferenceType>> i;
+
+        private ContainerIterator(final byte[] startWordHash, final boolean rot, final boolean excludePrivate) {
+            this.rot = rot;
+            this.excludePrivate = excludePrivate;
+            this.i = merged(startWordHash);
+        }
+
+        private CloneableIterator<ReferenceContainer<ReferenceType>> merged(final byte[] start) {
+            final StripedReferenceContainerCache<ReferenceType> cache = StripedReferenceContainerCache.this;
+            final List<CloneableIterator<ReferenceContainer<ReferenceType>>> parts = new ArrayList<CloneableIterator<ReferenceContainer<ReferenceType>>>(cache.stripes.length);
+            for (int s = 0; s < cache.stripes.length; s++) {
+                try {
+                    parts.add(lock(s).referenceContainerIterator(start, false, this.excludePrivate));
+                } finally {
+                    unlock(s);
+                }
+            }
+            final Order<ReferenceContainer<ReferenceType>> containerOrder = new ReferenceContainerOrder<ReferenceType>(cache.factory, cache.termOrder.clone());
+            // the stripes have disjoint terms, therefore the merge method is never called
+            return MergeIterator.cascade(parts, containerOrder, ReferenceContainer.containerMergeMethod, true);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.i.hasNext()) return true;
+            if (!this.rot) return false;
+            // rotation iteration: start again at the beginning
+            this.i.close();
+            this.i = merged(null);
+            return this.i.hasNext();
+        }
+
+        @Override
+        public ReferenceContainer<ReferenceType> next() {
+            if (!hasNext()) return null;
+            return this.i.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CloneableIterator<ReferenceContainer<ReferenceType>> clone(final Object modifier) {
+            return new ContainerIterator((byte[]) modifier, this.rot, this.excludePrivate);
+        }
+
+        @Override
+        public void close() {
+            this.i.close();
+        }
+    }
+
+    @Override
+    public Iterator<ReferenceContainer<ReferenceType>> iterator() {
+        return referenceContainerIterator(null, false, false);
+    }
+
+    public int size() {
+        int size = 0;
+        for (final ReferenceContainerCache<ReferenceType> stripe: this.stripes) size += stripe.size();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (final ReferenceContainerCache<ReferenceType> stripe: this.stripes) if (!stripe.isEmpty()) return false;
+        return true;
+    }
+
+    public long usedMemory() {
+        long b = 0L;
+        for (final ReferenceContainerCache<ReferenceType> stripe: this.stripes) b += stripe.usedMemory();
+        return b;
+    }
+
+    public int maxReferences() {
+        int max = 0;
+        for (final ReferenceContainerCache<ReferenceType> stripe: this.stripes) max = Math.max(max, stripe.maxReferences());
+        return max;
+    }
+
+    public void clear() {
+        for (final ReferenceContainerCache<ReferenceType> stripe: this.stripes) stripe.clear();
+    }
+
+    public void close() {
+        for (final ReferenceContainerCache<ReferenceType> stripe: this.stripes) stripe.close();
+    }
+
+    public int termKeyLength() {
+        return this.termSize;
+    }
+
+    public ByteOrder termKeyOrdering() {
+        return this.termOrder;
+    }
+
+    public Row rowdef() {
+        return this.factory.getRow();
+    }
+}
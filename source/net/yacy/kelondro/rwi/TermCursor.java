@@ -0,0 +1,174 @@
+// TermCursor.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * A cursor over the references of one term in url hash order. The references of a term are
+ * stored in several parts, one for each BLOB file and one for the RAM cache; the parts are not
+ * merged into one container but enumerated side by side. If an url is contained in several parts,
+ * the reference from the first part is used, which is the same rule that a merge of the parts applies.
+ * The cursor can jump forward to the position of another cursor with a galloping search in every
+ * part, so that a conjunction of terms can be computed without a copy of the references.
+ *
+ * @param <ReferenceType>
+ */
+public final class TermCursor<ReferenceType extends Reference> {
+
+    private final ReferenceFactory<ReferenceType> factory;
+    private final byte[] termHash;
+    private final ReferenceContainer<ReferenceType>[] parts;
+    private final int[] pos;
+    private final HandleSet removed;
+    private final long size;
+    private int current; // the part with the smallest key at its position, -1 if the cursor is exhausted
+
+    /**
+     * @param factory the factory for payload reference objects
+     * @param termHash the term of the references
+     * @param parts sorted containers of the term; parts which come first have priority
+     * @param removed urls which shall be skipped, may be null
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TermCursor(final ReferenceFactory<ReferenceType> factory, final byte[] termHash, final List<ReferenceContainer<ReferenceType>> parts, final HandleSet removed) {
+        this.factory = factory;
+        this.termHash = termHash;
+        this.parts = parts.toArray(new ReferenceContainer[parts.size()]);
+        this.pos = new int[this.parts.length];
+        this.removed = removed == null || removed.isEmpty() ? null : removed;
+        long s = 0;
+        for (final ReferenceContainer<ReferenceType> part: this.parts) {
+            part.sort();
+            s += part.size();
+        }
+        this.size = s;
+        select();
+    }
+
+    public byte[] getTermHash() {
+        return this.termHash;
+    }
+
+    /**
+     * @return the number of references in all parts; urls which are in several parts are counted several times
+     */
+    public long size() {
+        return this.size;
+    }
+
+    public boolean isExhausted() {
+        return this.current < 0;
+    }
+
+    /**
+     * compare the url hash at the position of this cursor with the url hash at the position of another cursor
+     * @return a negative number, zero or a positive number if this cursor is behind, equal or ahead of the other one
+     */
+    public int compareTo(final TermCursor<ReferenceType> other) {
+        assert !isExhausted() && !other.isExhausted();
+        return this.parts[this.current].compareKeys(this.pos[this.current], other.parts[other.current], other.pos[other.current]);
+    }
+
+    /**
+     * @return the reference at the position of the cursor
+     */
+    public ReferenceType reference() {
+        assert !isExhausted();
+        return this.factory.produceSlow(this.parts[this.current].get(this.pos[this.current], false));
+    }
+
+    /**
+     * copy the row of the reference at the position of the cursor without creating a reference object
+     * @param target the array for the row
+     * @param targetOffset the position of the row in the target
+     */
+    public void copyRow(final byte[] target, final int targetOffset) {
+        assert !isExhausted();
+        this.parts[this.current].copyRows(this.pos[this.current], 1, target, targetOffset);
+    }
+
+    /**
+     * merge the parts into one container; this is independent from the position of the cursor
+     * @return a container with the references of all parts, without the removed urls
+     * @throws SpaceExceededException
+     */
+    public ReferenceContainer<ReferenceType> container() throws SpaceExceededException {
+        final TermCursor<ReferenceType> cursor = new TermCursor<ReferenceType>(this.factory, this.termHash, Arrays.asList(this.parts), this.removed);
+        final ReferenceContainer<ReferenceType> container = new ReferenceContainer<ReferenceType>(this.factory, this.termHash, (int) Math.min(Integer.MAX_VALUE, this.size));
+        while (!cursor.isExhausted()) {
+            container.addUnique(cursor.parts[cursor.current].get(cursor.pos[cursor.current], false));
+            cursor.next();
+        }
+        return container;
+    }
+
+    /**
+     * move the cursor to the next url hash
+     */
+    public void next() {
+        assert !isExhausted();
+        skip();
+        select();
+    }
+
+    private void skip() {
+        final ReferenceContainer<ReferenceType> c = this.parts[this.current];
+        final int p = this.pos[this.current];
+        for (int i = 0; i < this.parts.length; i++) {
+            if (i != this.current && this.pos[i] < this.parts[i].size() && this.parts[i].compareKeys(this.pos[i], c, p) == 0) this.pos[i]++;
+        }
+        this.pos[this.current]++;
+    }
+
+    /**
+     * move the cursor forward to the first url hash which is not smaller than the url hash of another cursor
+     * @param other a cursor which is ahead of this cursor
+     */
+    public void seek(final TermCursor<ReferenceType> other) {
+        assert !isExhausted() && !other.isExhausted();
+        final ReferenceContainer<ReferenceType> c = other.parts[other.current];
+        final int p = other.pos[other.current];
+        for (int i = 0; i < this.parts.length; i++) {
+            this.pos[i] = this.parts[i].gallop(c, p, this.pos[i]);
+        }
+        select();
+    }
+
+    private void select() {
+        while (true) {
+            this.current = -1;
+            for (int i = 0; i < this.parts.length; i++) {
+                if (this.pos[i] >= this.parts[i].size()) continue;
+                if (this.current < 0 || this.parts[i].compareKeys(this.pos[i], this.parts[this.current], this.pos[this.current]) < 0) this.current = i;
+            }
+            if (this.current < 0 || this.removed == null) return;
+            if (!this.removed.has(this.parts[this.current].get(this.pos[this.current], false).getPrimaryKeyBytes())) return;
+            skip();
+        }
+    }
+}
@@ -24,7 +24,12 @@
 
 package net.yacy.kelondro.table;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -36,6 +41,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.order.CloneableIterator;
@@ -75,6 +83,7 @@ public class Table implements Index, Iterable<Row.Entry> {
     /** Map all active table instances by file name */
     private final static TreeMap<String, Table> tableTracker = new TreeMap<String, Table>();
     private final static long maxarraylength = 134217727L; // (2^27-1) that may be the maximum size of array length in some JVMs
+    private final static int snapshotMagic = 0x59544958; // "YTIX"
 
     private final long minmemremaining; // if less than this memory is remaininig, the memory copy of a table is abandoned
     private final int buffersize;
@@ -83,6 +92,9 @@ public class Table implements Index, Iterable<Row.Entry> {
     private       HandleMap index;
     private       BufferedRecords file;
     private       RowSet table;
+    private       boolean snapshot; // write a snapshot of the index on close
+    private       boolean snapshotLoaded; // the index was loaded from a snapshot which is still on disk
+    private       long fileLength, fileLastModified; // the table file when it was opened, to detect changes on close
 
     public Table(
     		final File tablefile,
@@ -160,7 +172,13 @@ public class Table implements Index, Iterable<Row.Entry> {
             if (log.isFine()) log.fine("initializing RAM index for TABLE " + tablefile.getName() + ", please wait.");
             int i = 0;
             byte[] key;
-            if (this.table == null) {
+            final File snapshotFile = snapshotFile(tablefile);
+            this.snapshot = true;
+            this.snapshotLoaded = false;
+            if (this.table == null && readSnapshot(snapshotFile, tablefile, fileSize)) {
+                this.snapshotLoaded = true;
+                if (log.isFine()) log.fine("loaded RAM index for TABLE " + tablefile.getName() + " from snapshot, " + this.index.size() + " entries");
+            } else if (this.table == null) {
                 final ChunkIterator ki = new ChunkIterator(tablefile, rowdef.objectsize, rowdef.primaryKeyLength);
                 try {
                 	while (ki.hasNext()) {
@@ -238,10 +256,14 @@ public class Table implements Index, Iterable<Row.Entry> {
                     this.table = null;
                 }
             }
+            // a snapshot which was not used is stale; a loaded snapshot is replaced on close if the table is written
+            if (!this.snapshotLoaded && snapshotFile.exists()) FileUtils.deletedelete(snapshotFile);
             optimize();
 
             // open the file
             this.file = new BufferedRecords(new Records(tablefile, rowdef.objectsize), this.buffersize);
+            this.fileLength = tablefile.length();
+            this.fileLastModified = tablefile.lastModified();
             assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size() + ", file = " + filename();
 
             // clean up the file by cleaning badly formed entries
@@ -583,6 +605,11 @@ public class Table implements Index, Iterable<Row.Entry> {
         if (this.file != null) {
         	tablefile = this.file.filename().toString();
         	this.file.close();
+        	if (this.index != null && this.index.size() > 0 && this.snapshot && this.table == null) {
+        	    // the snapshot is only used for tables without tail cache; a loaded snapshot is still valid if the table was not written
+        	    final File f = new File(tablefile);
+        	    if (!this.snapshotLoaded || f.length() != this.fileLength || f.lastModified() != this.fileLastModified) writeSnapshot(f);
+        	}
         }
         this.file = null;
         if (this.table != null) this.table.close();
@@ -592,6 +619,104 @@ public class Table implements Index, Iterable<Row.Entry> {
 		if (tablefile != null) tableTracker.remove(tablefile);
     }
 
+    /**
+     * do not write a snapshot of the index on close. This is used for tables which are opened and closed
+     * for each access, like the tables of an OnDemandOpenFileIndex, where a scan of the small table is cheaper.
+     */
+    public void noSnapshot() {
+        this.snapshot = false;
+    }
+
+    private static File snapshotFile(final File tablefile) {
+        return new File(tablefile.getParentFile(), tablefile.getName() + ".snapshot");
+    }
+
+    /**
+     * write a snapshot of the primary key index. The snapshot stores the size and the modification date
+     * of the table file and a checksum, so that the next start can load the index without a scan of the table file.
+     * This must be called after the table file is closed.
+     * @param tablefile
+     */
+    private void writeSnapshot(final File tablefile) {
+        final File snapshotFile = snapshotFile(tablefile);
+        final File tmp = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".prt");
+        final int keylength = this.rowdef.primaryKeyLength;
+        DataOutputStream os = null;
+        try {
+            final CheckedOutputStream cos = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1024 * 1024), new CRC32());
+            os = new DataOutputStream(cos);
+            os.writeInt(snapshotMagic);
+            os.writeLong(tablefile.length());
+            os.writeLong(tablefile.lastModified());
+            os.writeInt(this.rowdef.objectsize);
+            os.writeInt(keylength);
+            os.writeInt(this.index.size());
+            int c = 0;
+            for (final Map.Entry<byte[], Long> entry: this.index) {
+                os.write(entry.getKey(), 0, keylength);
+                os.writeInt((int) entry.getValue().longValue());
+                c++;
+            }
+            if (c != this.index.size()) throw new IOException("index changed during snapshot");
+            os.writeLong(cos.getChecksum().getValue());
+            os.close();
+            os = null;
+            if (snapshotFile.exists()) FileUtils.deletedelete(snapshotFile);
+            if (!tmp.renameTo(snapshotFile)) throw new IOException("cannot rename " + tmp);
+        } catch (final IOException e) {
+            log.warn("could not write index snapshot of " + tablefile.getName() + ": " + e.getMessage());
+            if (os != null) try { os.close(); } catch (final IOException ee) {}
+            FileUtils.deletedelete(tmp);
+        }
+    }
+
+    /**
+     * load the primary key index from a snapshot that was written when the table was closed. The snapshot is
+     * used only if it was written for the current size and modification date of the table file and if its
+     * checksum is correct, otherwise the index must be built with a scan of the table file.
+     * @param snapshotFile
+     * @param tablefile
+     * @param records the number of records in the table file
+     * @return true if the index was loaded; if false is returned the index is empty
+     */
+    private boolean readSnapshot(final File snapshotFile, final File tablefile, final int records) {
+        if (!snapshotFile.exists()) return false;
+        final int keylength = this.rowdef.primaryKeyLength;
+        DataInputStream is = null;
+        try {
+            final CheckedInputStream cis = new CheckedInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), 1024 * 1024), new CRC32());
+            is = new DataInputStream(cis);
+            if (is.readInt() != snapshotMagic ||
+                is.readLong() != tablefile.length() ||
+                is.readLong() != tablefile.lastModified() ||
+                is.readInt() != this.rowdef.objectsize ||
+                is.readInt() != keylength ||
+                is.readInt() != records) {
+                log.info("index snapshot of " + tablefile.getName() + " is stale, scanning table");
+                return false;
+            }
+            final byte[] key = new byte[keylength];
+            int handle;
+            for (int i = 0; i < records; i++) {
+                is.readFully(key);
+                handle = is.readInt();
+                if (handle < 0 || handle >= records || !this.rowdef.objectOrder.wellformed(key)) throw new IOException("bad entry at " + i);
+                this.index.putUnique(key, handle);
+            }
+            final long checksum = cis.getChecksum().getValue();
+            if (is.readLong() != checksum) throw new IOException("checksum mismatch");
+            return true;
+        } catch (final IOException e) {
+            log.warn("index snapshot of " + tablefile.getName() + " is corrupt, scanning table: " + e.getMessage());
+        } catch (final SpaceExceededException e) {
+            log.warn("not enough memory to load index snapshot of " + tablefile.getName() + ", scanning table");
+        } finally {
+            if (is != null) try { is.close(); } catch (final IOException e) {}
+        }
+        this.index.clear();
+        return false;
+    }
+
     @Override
     protected void finalize() {
         if (this.file != null) close();
@@ -45,6 +45,7 @@ import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -894,6 +895,13 @@ public final class FileUtils {
      * @throws IOException
      */
     private static void forceMove(final File from, final File to) throws IOException {
+        // replace the target in one step, so that there is always a complete file
+        try {
+            java.nio.file.Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        } catch (final IOException | UnsupportedOperationException e) {
+            // the file system does not support an atomic replace
+        }
         if ( !(to.delete() && from.renameTo(to)) ) {
             // do it manually
             Files.copy(from, to);
@@ -28,10 +28,13 @@ package net.yacy.peers;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.order.Base64Order;
@@ -104,6 +107,12 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
 
     /** transmission object */
     private final Transmission transmission;
+
+    /** the number of chunks for each target which are enqueued or in transmission, key is the target hash */
+    private final Map<String, AtomicInteger> inFlight;
+
+    /** the maximum number of chunks for the same target which may be in transmission concurrently */
+    private final int maxInFlightPerPeer;
     
     /** The Switchboard instance holding the server environment */
     private final Switchboard env;
@@ -119,8 +128,11 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
         this.seeds = env.peers;
         this.log = new ConcurrentLog("INDEX-TRANSFER-DISPATCHER");
 		this.transmission = new Transmission(env, this.log, gzipBody, timeout);
+        this.inFlight = new ConcurrentHashMap<String, AtomicInteger>();
+        this.maxInFlightPerPeer = Math.max(1, env.getConfigInt(SwitchboardConstants.INDEX_DIST_INFLIGHT_PER_PEER_MAX, 2));
 
-        final int concurrentSender = Math.min(8, WorkflowProcessor.availableCPU);
+        // transmissions are waiting for the network, not for the cpu
+        final int concurrentSender = Math.max(1, env.getConfigInt(SwitchboardConstants.INDEX_DIST_TRANSMISSIONS_MAX, 8));
         this.indexingTransmissionProcessor = new WorkflowProcessor<Transmission.Chunk>(
                 "transferDocumentIndex",
                 "This is the RWI transmission process",
@@ -136,6 +148,15 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
     	return (this.indexingTransmissionProcessor == null) ? 0 : this.indexingTransmissionProcessor.getQueueSize();
     }
 
+    /**
+     * @return the number of chunks which are enqueued for transmission or in transmission
+     */
+    public int inFlightSize() {
+        int c = 0;
+        for (final AtomicInteger i: this.inFlight.values()) c += i.get();
+        return c;
+    }
+
     /**
      * PROCESS(1)
      * Select a number of index containers from the RWI index.
@@ -276,6 +297,7 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
         for (int vertical = 0; vertical < containers.length; vertical++) {
             ReferenceContainer<WordReference> verticalContainer = containers[vertical];
             if (verticalContainer.isEmpty()) continue;
+            final Transmission.Acknowledgement acknowledgement = this.transmission.newAcknowledgement(wordhash, vertical, this.seeds.redundancy());
             
             // extend the transmissionBuffer with entries for each redundant position
             for (Seed target: targets[vertical]) {
@@ -284,7 +306,7 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
                     log.info("extending chunk for peer " + entry.dhtTarget().hash + " containing " + entry.containersSize() + " references with " + verticalContainer.size() + " more entries");
                 }
                 try {
-                    entry.add(verticalContainer);
+                    entry.add(verticalContainer, acknowledgement);
                 } catch (SpaceExceededException e) {
                     ConcurrentLog.logException(e);
                 }
@@ -332,30 +354,52 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
 
     /**
      * PROCESS(5)
-     * take the largest container from the write buffer and put it into the 'next' array,
-     * where it waits to be processed.
-     * This method returns true if a container was dequeued, false if not
+     * take the largest containers from the write buffer and put them into the 'next' array,
+     * where they wait to be processed. Chunks for different targets are dequeued in one call,
+     * so they are transmitted concurrently; a target which has already the maximum number of
+     * chunks in transmission is skipped and its chunk keeps accumulating containers.
+     * This method returns true if at least one container was dequeued, false if not
      */
     public boolean dequeueContainer() {
     	if (this.transmissionBuffer == null) return false;
-        if (this.indexingTransmissionProcessor.getQueueSize() > this.indexingTransmissionProcessor.getMaxConcurrency()) return false;
-        String maxtarget = null;
-        int maxsize = -1;
-        for (final Map.Entry<String, Transmission.Chunk> chunk: this.transmissionBuffer.entrySet()) {
-            if (chunk.getValue().containersSize() > maxsize) {
-                maxsize = chunk.getValue().containersSize();
-                maxtarget = chunk.getKey();
+        int free = this.indexingTransmissionProcessor.getMaxConcurrency() - inFlightSize();
+        if (free <= 0) return false;
+        final List<Map.Entry<String, Transmission.Chunk>> candidates = new ArrayList<Map.Entry<String, Transmission.Chunk>>(this.transmissionBuffer.entrySet());
+        Collections.sort(candidates, new Comparator<Map.Entry<String, Transmission.Chunk>>() {
+            @Override
+            public int compare(final Map.Entry<String, Transmission.Chunk> o1, final Map.Entry<String, Transmission.Chunk> o2) {
+                return o2.getValue().containersSize() - o1.getValue().containersSize();
+            }
+        });
+        boolean dequeued = false;
+        for (final Map.Entry<String, Transmission.Chunk> candidate: candidates) {
+            if (free <= 0) break;
+            final String target = candidate.getKey();
+            AtomicInteger count = this.inFlight.get(target);
+            if (count == null) {
+                count = new AtomicInteger(0);
+                final AtomicInteger c = this.inFlight.putIfAbsent(target, count);
+                if (c != null) count = c;
             }
+            if (count.get() >= this.maxInFlightPerPeer) continue;
+            final Transmission.Chunk chunk = this.transmissionBuffer.remove(target);
+            if (chunk == null) continue;
+            count.incrementAndGet();
+            this.indexingTransmissionProcessor.enQueue(chunk);
+            free--;
+            dequeued = true;
         }
-        if (maxsize < 0) return false;
-        final Transmission.Chunk chunk = this.transmissionBuffer.remove(maxtarget);
-        this.indexingTransmissionProcessor.enQueue(chunk);
-        return true;
+        return dequeued;
     }
-    
+
     @Override
     public Chunk process(final Transmission.Chunk chunk) throws Exception {
-    	return transferDocumentIndex(chunk);
+        try {
+            return transferDocumentIndex(chunk);
+        } finally {
+            final AtomicInteger count = this.inFlight.get(chunk.dhtTarget().hash);
+            if (count != null) count.decrementAndGet();
+        }
     }
 
     /**
@@ -371,10 +415,13 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
         
         // do the transmission
         final boolean success = chunk.transmit();
-        if (success) return chunk;
+        if (success) {
+            chunk.acknowledge();
+            return chunk;
+        }
 
-        this.log.info("STORE: Chunk " + chunk.dhtTarget().getName() + " does not respond or accept the dht index, putting back index to backend");
-        chunk.restore();
+        this.log.info("STORE: Chunk " + chunk.dhtTarget().getName() + " does not respond or accept the dht index, putting back unacknowledged index to backend");
+        chunk.fail();
         return null;
     }
 
@@ -65,6 +65,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.solr.client.solrj.SolrQuery;
@@ -93,6 +94,7 @@ import net.yacy.cora.federate.solr.connector.SolrConnector;
 import net.yacy.cora.federate.solr.instance.RemoteInstance;
 import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.order.Digest;
+import net.yacy.cora.protocol.ByteArrayBody;
 import net.yacy.cora.protocol.ClientIdentification;
 import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.protocol.http.HTTPClient;
@@ -108,6 +110,7 @@ import net.yacy.crawler.data.ResultURLs.EventOrigin;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceChunk;
 import net.yacy.kelondro.data.word.WordReferenceFactory;
 import net.yacy.kelondro.rwi.Reference;
 import net.yacy.kelondro.rwi.ReferenceContainer;
@@ -1821,19 +1824,44 @@ public final class Protocol {
                 gzipBody = false;
             }
 
+            // peers which advertise the binary chunk format get the references as gzipped binary file part
+            final boolean binary = targetSeed.getRWIChunkVersion() == WordReferenceChunk.VERSION;
             int indexcount = 0;
-            final StringBuilder entrypost = new StringBuilder(indexes.size() * 73);
-            Iterator<WordReference> eenum;
-            Reference entry;
-            for ( final ReferenceContainer<WordReference> ic : indexes ) {
-                eenum = ic.entries();
-                while ( eenum.hasNext() ) {
-                    entry = eenum.next();
-                    entrypost
-                            .append(ASCII.String(ic.getTermHash()))
-                            .append(entry.toPropertyForm())
-                            .append(serverCore.CRLF_STRING);
-                    indexcount++;
+            final StringBuilder entrypost;
+            final byte[] entrychunk;
+            if (binary) {
+                entrypost = null;
+                final ByteArrayOutputStream bos = new ByteArrayOutputStream(indexes.size() * 32);
+                try {
+                    final GZIPOutputStream zos = new GZIPOutputStream(bos, 8192);
+                    final WordReferenceChunk.Writer writer = new WordReferenceChunk.Writer(zos);
+                    for ( final ReferenceContainer<WordReference> ic : indexes ) {
+                        writer.write(ic.getTermHash(), ic.size(), ic.entries());
+                        indexcount += ic.size();
+                    }
+                    writer.finish();
+                    zos.close();
+                } catch (final IOException e) {
+                    Network.log.warn("yacyClient.transferRWI cannot encode index chunk: " + e.getMessage());
+                    return null;
+                }
+                entrychunk = bos.toByteArray();
+                gzipBody = false; // the chunk is already compressed
+            } else {
+                entrychunk = null;
+                entrypost = new StringBuilder(indexes.size() * 73);
+                Iterator<WordReference> eenum;
+                Reference entry;
+                for ( final ReferenceContainer<WordReference> ic : indexes ) {
+                    eenum = ic.entries();
+                    while ( eenum.hasNext() ) {
+                        entry = eenum.next();
+                        entrypost
+                                .append(ASCII.String(ic.getTermHash()))
+                                .append(entry.toPropertyForm())
+                                .append(serverCore.CRLF_STRING);
+                        indexcount++;
+                    }
                 }
             }
 
@@ -1848,7 +1876,12 @@ public final class Protocol {
                 final Map<String, ContentBody> parts = basicRequestParts(Switchboard.getSwitchboard(), targetSeed.hash, salt);
                 parts.put("wordc", UTF8.StringBody(Integer.toString(indexes.size())));
                 parts.put("entryc", UTF8.StringBody(Integer.toString(indexcount)));
-                parts.put("indexes", UTF8.StringBody(entrypost.toString()));
+                if (binary) {
+                    // the servlet keeps binary file parts only if the file name ends with .gz
+                    parts.put("indexes", new ByteArrayBody(entrychunk, "indexes.gz"));
+                } else {
+                    parts.put("indexes", UTF8.StringBody(entrypost.toString()));
+                }
                 final HTTPClient httpClient = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, timeout);
                 byte[] content = null;
                 try {
@@ -1873,7 +1906,7 @@ public final class Protocol {
 
                 final Map<String, String> result = FileUtils.table(v);
                 // return the transfered index data in bytes (for debugging only)
-                result.put("indexPayloadSize", Integer.toString(entrypost.length()));
+                result.put("indexPayloadSize", Integer.toString(binary ? entrychunk.length : entrypost.length()));
                 result.put(Seed.IP, ip); // add used ip to result for error handling (in case no "result" key was received)
                 return result;
             } catch (final Exception e ) {
@@ -205,6 +205,7 @@ public class Seed implements Cloneable, Comparable<Seed>, Comparator<Seed>
     public static final String NEWS = "news"; // news attachment
     public static final String DCT = "dct"; // disconnect time
     public static final String SOLRAVAILABLE ="SorlAvail"; // field to remember if remotePeer solr interface is avail.
+    public static final String RWICHUNK = "RWIChunk"; // version of the binary word reference chunk format which the transferRWI servlet of the peer reads
     
     /** zero-value */
     private static final String ZERO = "0";
@@ -1084,6 +1085,25 @@ public class Seed implements Cloneable, Comparable<Seed>, Comparator<Seed>
         return !my;
     }
 
+    /**
+     * set the version of the binary word reference chunk format which the transferRWI servlet of this peer reads
+     * @param version the version of the format or 0 if the peer only reads the text format
+     */
+    public final void setRWIChunkVersion(final int version) {
+        this.dna.put(Seed.RWICHUNK, Integer.toString(version));
+    }
+
+    /**
+     * @return the version of the binary word reference chunk format which the peer reads, 0 if it only reads the text format
+     */
+    public final int getRWIChunkVersion() {
+        try {
+            return Integer.parseInt(get(Seed.RWICHUNK, Seed.ZERO));
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /**
      * set unused flags to zero
      * currently last used flag is FLAG_SSL_AVAILABLE=4 (2015-10-24)
@@ -78,6 +78,95 @@ public class Transmission {
         return new Chunk(dhtTarget);
     }
 
+    public Acknowledgement newAcknowledgement(final byte[] termHash, final int vertical, final int redundancy) {
+        return new Acknowledgement(termHash, vertical, redundancy);
+    }
+
+    /**
+     * An acknowledgement collects the transmission results of one vertical partition of a selected
+     * container which is sent to several redundant targets. The references had been removed from the
+     * index when they were selected; they are discarded only if enough targets have received them
+     * to meet the redundancy. Failed parts are kept until the last pending transmission has finished;
+     * then they are put back to the index if too few targets acknowledged, so they are sent again
+     * with a later transmission.
+     */
+    public class Acknowledgement {
+        private final byte[] termHash;
+        private final int vertical;
+        private final int redundancy;
+        private int expected;
+        private int pending;
+        private int acknowledged;
+        private ReferenceContainer<WordReference> failed;
+
+        private Acknowledgement(final byte[] termHash, final int vertical, final int redundancy) {
+            this.termHash = termHash;
+            this.vertical = vertical;
+            this.redundancy = redundancy;
+            this.expected = 0;
+            this.pending = 0;
+            this.acknowledged = 0;
+            this.failed = null;
+        }
+
+        private synchronized void expect() {
+            this.expected++;
+            this.pending++;
+        }
+
+        private void success() {
+            finish(true, null);
+        }
+
+        private void fail(final ReferenceContainer<WordReference> part) {
+            finish(false, part);
+        }
+
+        /**
+         * count a finished transmission and restore the failed parts when the last transmission has finished
+         * without reaching the redundancy
+         * @param success true if the target received the partition
+         * @param part the references of a failed transmission, may be null
+         */
+        private void finish(final boolean success, final ReferenceContainer<WordReference> part) {
+            ReferenceContainer<WordReference> restore = null;
+            synchronized (this) {
+                this.pending--;
+                if (success) {
+                    this.acknowledged++;
+                } else if (part != null && !part.isEmpty()) {
+                    if (this.failed == null) this.failed = part; else try {
+                        this.failed.putAllRecent(part);
+                    } catch (final SpaceExceededException e) {
+                        ConcurrentLog.logException(e);
+                    }
+                }
+                if (this.pending <= 0) {
+                    if (!isAcknowledged()) restore = this.failed;
+                    this.failed = null;
+                }
+            }
+            if (restore == null) return;
+            try {
+                Transmission.this.segment.storeRWI(restore);
+            } catch (final Exception e) {
+                ConcurrentLog.logException(e);
+            }
+        }
+
+        /**
+         * @return true if enough targets received the partition to meet the redundancy;
+         * if less targets than the redundancy were selected, all of them must have received it
+         */
+        public synchronized boolean isAcknowledged() {
+            return this.acknowledged >= Math.min(this.redundancy, this.expected);
+        }
+
+        public synchronized int pending() {
+            return this.pending;
+        }
+    }
+
     public class Chunk extends WorkflowJob implements Iterable<ReferenceContainer<WordReference>> {
         /**
          * a dispatcher entry contains
@@ -92,6 +181,7 @@ public class Transmission {
         private final ReferenceContainerCache<WordReference> containers;
         private final HandleSet                      references;
         private final HandleSet                      badReferences;
+        private final List<Acknowledgement>          acknowledgements;
 
         /**
          * generate a new dispatcher target. such a target is defined with a primary target and
@@ -105,6 +195,7 @@ public class Transmission {
             this.containers = new ReferenceContainerCache<WordReference>(Segment.wordReferenceFactory, Segment.wordOrder, Word.commonHashLength);
             this.references = new RowHandleSet(WordReferenceRow.urlEntryRow.primaryKeyLength, WordReferenceRow.urlEntryRow.objectOrder, 0);
             this.badReferences = new RowHandleSet(WordReferenceRow.urlEntryRow.primaryKeyLength, WordReferenceRow.urlEntryRow.objectOrder, 0);
+            this.acknowledgements = new ArrayList<Acknowledgement>();
         }
 
         /*
@@ -147,6 +238,16 @@ public class Transmission {
          * @throws SpaceExceededException
          */
         public void add(final ReferenceContainer<WordReference> container) throws SpaceExceededException {
+            add(container, null);
+        }
+
+        /**
+         * add a container to the Entry cache and register the chunk as a pending transmission of the acknowledgement
+         * @param container
+         * @param acknowledgement the acknowledgement of the vertical partition of the container, may be null
+         * @throws SpaceExceededException
+         */
+        public void add(final ReferenceContainer<WordReference> container, final Acknowledgement acknowledgement) throws SpaceExceededException {
             int remaining = maxRWIsCount;
             for (final ReferenceContainer<WordReference> ic : this) remaining -= ic.size();
             if (remaining <= 0) {
@@ -192,6 +293,10 @@ public class Transmission {
             for (final byte[] b : notFoundx) c.removeReference(b);
             // finally add the remaining container to the cache
             this.containers.add(c);
+            if (acknowledgement != null && !c.isEmpty()) {
+                acknowledgement.expect();
+                this.acknowledgements.add(acknowledgement);
+            }
         }
 
         /**
@@ -271,6 +376,49 @@ public class Transmission {
             }
         }
 
+        /**
+         * mark all partitions in this chunk as received by the target
+         */
+        public void acknowledge() {
+            for (final Acknowledgement a: this.acknowledgements) a.success();
+            this.acknowledgements.clear();
+        }
+
+        /**
+         * handle a failed transmission: the references are put back to the index as soon as no other
+         * transmission of them is pending, unless enough other targets have acknowledged them
+         */
+        public void fail() {
+            final Set<String> registered = new HashSet<String>();
+            for (final Acknowledgement a: this.acknowledgements) {
+                registered.add(ASCII.String(a.termHash));
+                ReferenceContainer<WordReference> part = null;
+                final ReferenceContainer<WordReference> ic = this.containers.get(a.termHash, null);
+                if (ic != null) try {
+                    part = new ReferenceContainer<WordReference>(Segment.wordReferenceFactory, a.termHash, ic.size());
+                    final Iterator<WordReference> i = ic.entries();
+                    while (i.hasNext()) {
+                        final WordReference r = i.next();
+                        if (Transmission.this.seeds.scheme.verticalDHTPosition(r.urlhash()) == a.vertical) part.add(r);
+                    }
+                } catch (final SpaceExceededException e) {
+                    ConcurrentLog.logException(e);
+                    part = ic;
+                }
+                a.fail(part);
+            }
+            this.acknowledgements.clear();
+            // containers which were added without acknowledgement are restored directly
+            for (final ReferenceContainer<WordReference> ic : this) {
+                if (registered.contains(ASCII.String(ic.getTermHash()))) continue;
+                try {
+                    Transmission.this.segment.storeRWI(ic);
+                } catch (final Exception e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,531 @@
+// HostGraph.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.peers.graphics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import net.yacy.cora.document.encoding.ASCII;
+
+/**
+ * The link structure between hosts. Each host gets an integer id, the links are stored in primitive
+ * adjacency arrays for both directions: for each host the linked hosts with the number of links,
+ * and for each host the hosts which link to it. Updates are incremental; lookups in both directions
+ * only touch the lists of the requested host.
+ * Hosts are either sources, which have a date and are counted, pruned and iterated, or targets,
+ * which are only known as link targets: they have a host hash, a host name if it is known, no date
+ * and no links of their own. A target is removed when the last link to it is removed.
+ * The class is not thread-safe, the owner must synchronize the access.
+ */
+final class HostGraph {
+
+    private static final int MAGIC = 0x59575347; // "YWSG"
+    private static final int VERSION = 2;
+    private static final int[] NONE = new int[0];
+
+    private String[] hosthash;   // the host hash for each id, null if the id is free
+    private String[] hostname;   // null if the host is a target with unknown name
+    private int[] date;          // date of the last change as yyyymmdd, 0 for targets
+    private int[][] out;         // the ids of the linked hosts
+    private int[][] outCount;    // the number of links to the host at the same position in out
+    private int[] outSize;
+    private int[][] in;          // the ids of the hosts which link to the host
+    private int[] inSize;
+    private final BitSet latest; // hosts changed since the last call of clearLatest()
+    private final BitSet sources;
+    private int sourceCount;
+    private final Map<String, Integer> ids;
+    private final Map<String, int[]> names; // ids for each lower-case host name
+    private int[] free;
+    private int freeSize;
+    private int next;
+
+    HostGraph() {
+        this.latest = new BitSet();
+        this.sources = new BitSet();
+        this.ids = new HashMap<String, Integer>();
+        this.names = new HashMap<String, int[]>();
+        clear();
+    }
+
+    void clear() {
+        final int capacity = 64;
+        this.hosthash = new String[capacity];
+        this.hostname = new String[capacity];
+        this.date = new int[capacity];
+        this.out = new int[capacity][];
+        this.outCount = new int[capacity][];
+        this.outSize = new int[capacity];
+        this.in = new int[capacity][];
+        this.inSize = new int[capacity];
+        this.latest.clear();
+        this.sources.clear();
+        this.sourceCount = 0;
+        this.ids.clear();
+        this.names.clear();
+        this.free = new int[16];
+        this.freeSize = 0;
+        this.next = 0;
+    }
+
+    /**
+     * @return the number of source hosts; targets are not counted
+     */
+    int size() {
+        return this.sourceCount;
+    }
+
+    /**
+     * @return the id of the host or -1 if the host is not known, neither as source nor as target
+     */
+    int id(final String hosthash) {
+        final Integer id = this.ids.get(hosthash);
+        return id == null ? -1 : id.intValue();
+    }
+
+    /**
+     * get the id of a source host; a new host is added without links, a target becomes a source
+     * @param hosthash
+     * @param hostname
+     * @param date the date of the host if it is added or becomes a source, as yyyymmdd
+     * @return the id of the host
+     */
+    int put(final String hosthash, final String hostname, final int date) {
+        final int id = putTarget(hosthash, hostname);
+        if (!this.sources.get(id)) {
+            this.sources.set(id);
+            this.sourceCount++;
+            this.date[id] = date;
+        }
+        return id;
+    }
+
+    /**
+     * get the id of a host which is the target of a link; a new host is added as target without date
+     * @param hosthash
+     * @param hostname the host name or null if it is not known; the name of a known host without name is set
+     * @return the id of the host
+     */
+    int putTarget(final String hosthash, final String hostname) {
+        final Integer known = this.ids.get(hosthash);
+        if (known != null) {
+            final int id = known.intValue();
+            if (this.hostname[id] == null && hostname != null) {
+                this.hostname[id] = hostname;
+                addName(id);
+            }
+            return id;
+        }
+        final int id = this.freeSize > 0 ? this.free[--this.freeSize] : this.next++;
+        if (id >= this.hosthash.length) grow(Math.max(id + 1, this.hosthash.length * 2));
+        this.hosthash[id] = hosthash;
+        this.hostname[id] = hostname;
+        this.date[id] = 0;
+        this.out[id] = NONE;
+        this.outCount[id] = NONE;
+        this.outSize[id] = 0;
+        this.in[id] = NONE;
+        this.inSize[id] = 0;
+        this.ids.put(hosthash, id);
+        if (hostname != null) addName(id);
+        return id;
+    }
+
+    private void addName(final int id) {
+        final String name = this.hostname[id].toLowerCase(Locale.ROOT);
+        final int[] n = this.names.get(name);
+        if (n == null) {
+            this.names.put(name, new int[]{id});
+        } else {
+            final int[] m = Arrays.copyOf(n, n.length + 1);
+            m[n.length] = id;
+            this.names.put(name, m);
+        }
+    }
+
+    private void removeName(final int id) {
+        if (this.hostname[id] == null) return;
+        final String name = this.hostname[id].toLowerCase(Locale.ROOT);
+        final int[] n = this.names.get(name);
+        if (n == null) return;
+        if (n.length <= 1) {
+            this.names.remove(name);
+        } else {
+            final int[] m = new int[n.length - 1];
+            int c = 0;
+            for (final int i: n) if (i != id) m[c++] = i;
+            this.names.put(name, m);
+        }
+    }
+
+    /**
+     * @return true if the host is a source, false if it is only known as link target
+     */
+    boolean isSource(final int id) {
+        return this.sources.get(id);
+    }
+
+    private void grow(final int capacity) {
+        this.hosthash = Arrays.copyOf(this.hosthash, capacity);
+        this.hostname = Arrays.copyOf(this.hostname, capacity);
+        this.date = Arrays.copyOf(this.date, capacity);
+        this.out = Arrays.copyOf(this.out, capacity);
+        this.outCount = Arrays.copyOf(this.outCount, capacity);
+        this.outSize = Arrays.copyOf(this.outSize, capacity);
+        this.in = Arrays.copyOf(this.in, capacity);
+        this.inSize = Arrays.copyOf(this.inSize, capacity);
+    }
+
+    String hosthash(final int id) {
+        return this.hosthash[id];
+    }
+
+    String hostname(final int id) {
+        return this.hostname[id];
+    }
+
+    /**
+     * @return the ids of all hosts with the given host name, ignoring case, including targets
+     */
+    int[] hostIds(final String hostname) {
+        final int[] n = this.names.get(hostname.toLowerCase(Locale.ROOT));
+        return n == null ? NONE : n;
+    }
+
+    int date(final int id) {
+        return this.date[id];
+    }
+
+    /**
+     * set the date of a source host and mark it as changed
+     */
+    void touch(final int id, final int date) {
+        this.date[id] = date;
+        this.latest.set(id);
+    }
+
+    void clearLatest() {
+        this.latest.clear();
+    }
+
+    /**
+     * @return the number of hosts which are linked from the host
+     */
+    int outDegree(final int id) {
+        return this.outSize[id];
+    }
+
+    /**
+     * @return the number of links from the source host to the target host
+     */
+    int count(final int source, final int target) {
+        final int p = position(source, target);
+        return p < 0 ? 0 : this.outCount[source][p];
+    }
+
+    private int position(final int source, final int target) {
+        final int[] o = this.out[source];
+        for (int p = this.outSize[source] - 1; p >= 0; p--) if (o[p] == target) return p;
+        return -1;
+    }
+
+    /**
+     * add links from the source host to the target host
+     * @param source
+     * @param target
+     * @param count the number of links which are added
+     */
+    void link(final int source, final int target, final int count) {
+        final int p = position(source, target);
+        if (p >= 0) {
+            this.outCount[source][p] += count;
+            return;
+        }
+        int s = this.outSize[source];
+        if (s == this.out[source].length) {
+            final int capacity = Math.max(4, s * 2);
+            this.out[source] = Arrays.copyOf(this.out[source], capacity);
+            this.outCount[source] = Arrays.copyOf(this.outCount[source], capacity);
+        }
+        this.out[source][s] = target;
+        this.outCount[source][s] = count;
+        this.outSize[source] = s + 1;
+        s = this.inSize[target];
+        if (s == this.in[target].length) this.in[target] = Arrays.copyOf(this.in[target], Math.max(4, s * 2));
+        this.in[target][s] = source;
+        this.inSize[target] = s + 1;
+    }
+
+    /**
+     * remove the link from the source host to the target host at the given position of the out list;
+     * a target which is not a source is removed with its last link
+     */
+    private void unlink(final int source, final int p) {
+        final int target = this.out[source][p];
+        final int last = --this.outSize[source];
+        this.out[source][p] = this.out[source][last];
+        this.outCount[source][p] = this.outCount[source][last];
+        final int[] i = this.in[target];
+        for (int q = this.inSize[target] - 1; q >= 0; q--) {
+            if (i[q] == source) {
+                i[q] = i[--this.inSize[target]];
+                break;
+            }
+        }
+        if (this.inSize[target] == 0 && !this.sources.get(target)) release(target);
+    }
+
+    /**
+     * remove links of the host with the smallest numbers of links until only the given number of linked hosts is left
+     */
+    void shrink(final int source, final int size) {
+        while (this.outSize[source] > size) {
+            final int[] c = this.outCount[source];
+            int minp = 0;
+            for (int p = 1; p < this.outSize[source] && c[minp] > 1; p++) {
+                if (c[p] < c[minp]) minp = p;
+            }
+            unlink(source, minp);
+        }
+    }
+
+    /**
+     * remove a source host with its outgoing links; the links to the host are kept
+     * and the host stays a target as long as it is linked
+     */
+    void remove(final int id) {
+        while (this.outSize[id] > 0) unlink(id, this.outSize[id] - 1);
+        if (this.sources.get(id)) {
+            this.sources.clear(id);
+            this.sourceCount--;
+        }
+        this.date[id] = 0;
+        this.latest.clear(id);
+        if (this.inSize[id] == 0) release(id);
+    }
+
+    /**
+     * free the id of a host without links
+     */
+    private void release(final int id) {
+        this.ids.remove(this.hosthash[id]);
+        removeName(id);
+        this.hosthash[id] = null;
+        this.hostname[id] = null;
+        this.out[id] = NONE;
+        this.outCount[id] = NONE;
+        this.in[id] = NONE;
+        if (this.freeSize == this.free.length) this.free = Arrays.copyOf(this.free, this.freeSize * 2);
+        this.free[this.freeSize++] = id;
+    }
+
+    /**
+     * remove the source hosts with the oldest dates until only the given number of sources is left
+     */
+    void prune(final int size) {
+        if (this.sourceCount <= size) return;
+        final Integer[] order = ids(false);
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                final int d = Integer.compare(HostGraph.this.date[a.intValue()], HostGraph.this.date[b.intValue()]);
+                return d != 0 ? d : HostGraph.this.hosthash[a.intValue()].compareTo(HostGraph.this.hosthash[b.intValue()]);
+            }
+        });
+        int delcount = this.sourceCount - size;
+        for (int i = 0; i < order.length && delcount > 0; i++, delcount--) remove(order[i].intValue());
+    }
+
+    /**
+     * @return the linked hosts of a host as a map from the host hash to the number of links
+     */
+    Map<String, Integer> outgoing(final int id) {
+        final int s = this.outSize[id];
+        final Map<String, Integer> map = new HashMap<String, Integer>(s * 4 / 3 + 1);
+        for (int p = 0; p < s; p++) map.put(this.hosthash[this.out[id][p]], this.outCount[id][p]);
+        return map;
+    }
+
+    /**
+     * @return the hosts linking to a host as a map from the host hash to the number of links
+     */
+    Map<String, Integer> incoming(final int id) {
+        final int s = this.inSize[id];
+        final Map<String, Integer> map = new HashMap<String, Integer>(s * 4 / 3 + 1);
+        for (int q = 0; q < s; q++) {
+            final int source = this.in[id][q];
+            map.put(this.hosthash[source], count(source, id));
+        }
+        return map;
+    }
+
+    /**
+     * @param latestOnly if true, only the hosts changed since the last call of clearLatest() are returned
+     * @return the ids of the source hosts, ordered by host hash
+     */
+    Integer[] ids(final boolean latestOnly) {
+        final Integer[] order = new Integer[latestOnly ? this.latest.cardinality() : this.sourceCount];
+        int c = 0;
+        for (int id = 0; id < this.next; id++) {
+            if (!this.sources.get(id) || (latestOnly && !this.latest.get(id))) continue;
+            order[c++] = id;
+        }
+        Arrays.sort(order, 0, c, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return HostGraph.this.hosthash[a.intValue()].compareTo(HostGraph.this.hosthash[b.intValue()]);
+            }
+        });
+        return c == order.length ? order : Arrays.copyOf(order, c);
+    }
+
+    /**
+     * @return the ids of all hosts which are linked from another host, sources and targets, ordered by host hash
+     */
+    Integer[] linkedIds() {
+        int c = 0;
+        for (int id = 0; id < this.next; id++) if (this.hosthash[id] != null && this.inSize[id] > 0) c++;
+        final Integer[] order = new Integer[c];
+        c = 0;
+        for (int id = 0; id < this.next; id++) if (this.hosthash[id] != null && this.inSize[id] > 0) order[c++] = id;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return HostGraph.this.hosthash[a.intValue()].compareTo(HostGraph.this.hosthash[b.intValue()]);
+            }
+        });
+        return order;
+    }
+
+    /**
+     * write the graph to a file: the hosts in the order of their ids, then the links of each host
+     * @param file
+     * @throws IOException
+     */
+    void save(final File file) throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".prt");
+        final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1024 * 1024));
+        try {
+            // the ids are written without gaps
+            final int[] position = new int[this.next];
+            int c = 0;
+            for (int id = 0; id < this.next; id++) position[id] = this.hosthash[id] == null ? -1 : c++;
+            os.writeInt(MAGIC);
+            os.writeInt(VERSION);
+            os.writeInt(c);
+            for (int id = 0; id < this.next; id++) {
+                if (this.hosthash[id] == null) continue;
+                os.write(ASCII.getBytes(this.hosthash[id]), 0, 6);
+                os.writeUTF(this.hostname[id] == null ? "" : this.hostname[id]);
+                os.writeBoolean(this.sources.get(id));
+                os.writeInt(this.date[id]);
+            }
+            for (int id = 0; id < this.next; id++) {
+                if (this.hosthash[id] == null) continue;
+                final int s = this.outSize[id];
+                os.writeInt(s);
+                for (int p = 0; p < s; p++) {
+                    os.writeInt(position[this.out[id][p]]);
+                    os.writeInt(this.outCount[id][p]);
+                }
+            }
+            os.writeInt(MAGIC);
+        } finally {
+            os.close();
+        }
+        if (file.exists() && !file.delete()) throw new IOException("cannot delete " + file);
+        if (!tmp.renameTo(file)) throw new IOException("cannot rename " + tmp + " to " + file);
+    }
+
+    /**
+     * check if a file was written with save()
+     */
+    static boolean isGraphFile(final File file) {
+        if (file.length() < 16) return false;
+        try {
+            final DataInputStream is = new DataInputStream(new FileInputStream(file));
+            try {
+                return is.readInt() == MAGIC;
+            } finally {
+                is.close();
+            }
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * replace the content of the graph with the content of a file written with save()
+     * @param file
+     * @throws IOException if the file is not complete or has a wrong format; the graph is empty then
+     */
+    void load(final File file) throws IOException {
+        clear();
+        final DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1024 * 1024));
+        try {
+            if (is.readInt() != MAGIC) throw new IOException("wrong file format");
+            final int version = is.readInt();
+            if (version != 1 && version != VERSION) throw new IOException("unknown version");
+            final int size = is.readInt();
+            if (size < 0) throw new IOException("wrong host count " + size);
+            grow(Math.max(64, size));
+            final byte[] h = new byte[6];
+            for (int i = 0; i < size; i++) {
+                is.readFully(h);
+                final String hostname = is.readUTF();
+                // version 1 has no targets
+                final boolean source = version == 1 || is.readBoolean();
+                final int date = is.readInt();
+                final int id = source ? put(ASCII.String(h), hostname, date) : putTarget(ASCII.String(h), hostname.isEmpty() ? null : hostname);
+                if (id != i) throw new IOException("double host hash " + ASCII.String(h));
+            }
+            for (int source = 0; source < size; source++) {
+                final int s = is.readInt();
+                for (int p = 0; p < s; p++) {
+                    final int target = is.readInt();
+                    final int count = is.readInt();
+                    if (target < 0 || target >= size) throw new IOException("wrong link target " + target);
+                    link(source, target, count);
+                }
+            }
+            if (is.readInt() != MAGIC) throw new IOException("file is not complete");
+        } catch (final IOException e) {
+            clear();
+            throw e;
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -28,6 +28,7 @@
 package net.yacy.peers.graphics;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.util.Collection;
@@ -36,16 +37,12 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import net.yacy.cora.date.GenericFormatter;
 import net.yacy.cora.date.MicroDate;
 import net.yacy.cora.document.encoding.ASCII;
-import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.document.id.AnchorURL;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.order.Base64Order;
@@ -67,6 +64,8 @@ import net.yacy.search.Switchboard;
 
 /**
  * Holds lists of links per host names to allow reconstructing a web graph structure of links.
+ * The links are stored in a {@link HostGraph} with adjacency lists for both directions, so that
+ * outgoing and incoming references of a host are found without scanning the whole structure.
  */
 public class WebStructureGraph {
 
@@ -85,18 +84,10 @@ public class WebStructureGraph {
     private final File structureFile;
     
     /** 
-     * <p>Older structure entries (notably loaded from the backup file).</p>
-     * <p>Maps from two parts concatenated string keys to byte array encoded references lists : 
-     * "'b64hash(6)','hostname" to 'date-yyyymmdd(8)'{'target-b64hash(6)''target-count-hex(4)'}*</p> 
+     * <p>The structure entries: hosts with their date of latest change and the number of links between the hosts.</p>
+     * <p>Hosts changed since the last call of {@link #joinOldNew()} are the latest entries.</p>
      * */
-    private final TreeMap<String, byte[]> structure_old;
-    
-    /** 
-     * <p>Recently computed structure entries</p>
-     * <p>Maps from two parts concatenated string keys to byte array encoded references lists : 
-     * "'b64hash(6)','hostname" to 'date-yyyymmdd(8)'{'target-b64hash(6)''target-count-hex(4)'}*</p> 
-     *  */
-    private final TreeMap<String, byte[]> structure_new;
+    private final HostGraph graph;
     
     /** Queue used to receive new entries to store */
     private final BlockingQueue<LearnObject> publicRefDNSResolvingQueue;
@@ -131,50 +122,88 @@ public class WebStructureGraph {
 	 *            backup file
 	 */
     public WebStructureGraph(final File structureFile) {
-        this.structure_old = new TreeMap<String, byte[]>();
-        this.structure_new = new TreeMap<String, byte[]>();
+        this.graph = new HostGraph();
         this.structureFile = structureFile;
         this.publicRefDNSResolvingQueue = new LinkedBlockingQueue<LearnObject>();
 
         // load web structure from file if exists
-        Map<String, byte[]> loadedStructureB;
-        try {
-        	if(this.structureFile != null && this.structureFile.exists()) {
-        		loadedStructureB = FileUtils.loadMapB(this.structureFile);
-                log.info("loaded dump of " + loadedStructureB.size() + " entries from " + this.structureFile.toString());
-        	} else {
-        		loadedStructureB = new TreeMap<String, byte[]>();
-        	}
-        } catch (final OutOfMemoryError e ) {
-            loadedStructureB = new TreeMap<String, byte[]>();
-        }
-        this.structure_old.putAll(loadedStructureB);
-        
-        // delete out-dated entries in case the structure is too big
-        if ( this.structure_old.size() > maxhosts ) {
-            // fill a set with last-modified - dates of the structure
-            final TreeSet<String> delset = new TreeSet<String>();
-            String key;
-            byte[] value;
-            for ( final Map.Entry<String, byte[]> entry : this.structure_old.entrySet() ) {
-                key = entry.getKey();
-                value = entry.getValue();
-                if ( value != null && value.length >= 8 ) {
-                    delset.add(UTF8.String(value).substring(0, 8) + key);
+        if (this.structureFile != null) {
+            final File legacyFile = legacyFile(this.structureFile);
+            try {
+                if (this.structureFile.exists() && HostGraph.isGraphFile(this.structureFile)) {
+                    this.graph.load(this.structureFile);
+                    log.info("loaded " + this.graph.size() + " hosts from " + this.structureFile.toString());
+                } else if (legacyFile.exists()) {
+                    loadLegacy(legacyFile);
+                    log.info("loaded dump of " + this.graph.size() + " entries from " + legacyFile.toString());
                 }
-            }
-            int delcount = this.structure_old.size() - (maxhosts * 9 / 10);
-            final Iterator<String> j = delset.iterator();
-            while ( (delcount > 0) && (j.hasNext()) ) {
-                this.structure_old.remove(j.next().substring(8));
-                delcount--;
+            } catch (final IOException e) {
+                log.warn("cannot load web structure from " + this.structureFile.toString() + ": " + e.getMessage());
+                this.graph.clear();
+            } catch (final OutOfMemoryError e) {
+                this.graph.clear();
             }
         }
+        this.graph.clearLatest();
+
+        // delete out-dated entries in case the structure is too big
+        if (this.graph.size() > maxhosts) this.graph.prune(maxhosts * 9 / 10);
 
         this.publicRefDNSResolvingWorker = new PublicRefDNSResolvingProcess();
         this.publicRefDNSResolvingWorker.start();
     }
 
+    /**
+     * @param structureFile the web structure file
+     * @return the file with the web structure dump of older versions: the structure file itself if it is not a graph file,
+     * otherwise the file with the same name and the extension ".map"
+     */
+    private static File legacyFile(final File structureFile) {
+        if (structureFile.exists() && !HostGraph.isGraphFile(structureFile)) return structureFile;
+        final String name = structureFile.getName();
+        final int p = name.lastIndexOf('.');
+        return new File(structureFile.getParentFile(), (p < 0 ? name : name.substring(0, p)) + ".map");
+    }
+
+    /**
+     * load the web structure from a dump of older versions, a map from "'b64hash(6)','hostname" to
+     * 'date-yyyymmdd(8)'{'target-b64hash(6)''target-count-hex(4)'}*. Hosts without entry which are referenced
+     * are added as targets from their hash; their name is set when a link to them is learned again.
+     */
+    private void loadLegacy(final File legacyFile) {
+        final Map<String, byte[]> loadedStructureB = FileUtils.loadMapB(legacyFile);
+        for (final Map.Entry<String, byte[]> entry: loadedStructureB.entrySet()) {
+            final String key = entry.getKey();
+            final byte[] value = entry.getValue();
+            if (key.length() < 8 || value == null || value.length < 8) continue;
+            this.graph.put(key.substring(0, 6), key.substring(7), parseDate(ASCII.String(value, 0, 8)));
+        }
+        for (final Map.Entry<String, byte[]> entry: loadedStructureB.entrySet()) {
+            final int source = this.graph.id(entry.getKey().substring(0, Math.min(6, entry.getKey().length())));
+            if (source < 0 || (entry.getValue().length - 8) % 10 != 0) continue;
+            for (final Map.Entry<String, Integer> ref: refstr2map(ASCII.String(entry.getValue())).entrySet()) {
+                if (ref.getKey().length() != 6) continue;
+                final int target = this.graph.putTarget(ref.getKey(), null);
+                if (this.graph.count(source, target) == 0) this.graph.link(source, target, ref.getValue().intValue());
+            }
+        }
+    }
+
+    private static int parseDate(final String date) {
+        try {
+            return Integer.parseInt(date);
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the current date as yyyymmdd
+     */
+    private static int today() {
+        return parseDate(GenericFormatter.SHORT_DAY_FORMATTER.format());
+    }
+
     /**
      * Task consuming the queue of new entries to compute and add to the structure
      */
@@ -199,8 +228,9 @@ public class WebStructureGraph {
      * Clear the complete web structure.
      */
     public void clear() {
-        this.structure_old.clear();
-        this.structure_new.clear();
+        synchronized (this.graph) {
+            this.graph.clear();
+        }
     }
     
     public void generateCitationReference(final DigestURL url, final Document document) {
@@ -285,69 +315,15 @@ public class WebStructureGraph {
         return map;
     }
 
-    /**
-     * @return an empty references map serialized to a string
-     */
-    private static String none2refstr() {
-        return GenericFormatter.SHORT_DAY_FORMATTER.format();
-    }
-    
-    /**
-     * @param map references mapping from host hashes to counts
-     * @return the map serialized as a string
-     */
-    private static String map2refstr(final Map<String, Integer> map) {
-        final StringBuilder s = new StringBuilder(GenericFormatter.PATTERN_SHORT_DAY.length() + map.size() * 10);
-        s.append(GenericFormatter.SHORT_DAY_FORMATTER.format());
-        String h;
-        for ( final Map.Entry<String, Integer> entry : map.entrySet() ) {
-            s.append(entry.getKey());
-            h = Integer.toHexString(entry.getValue().intValue());
-            final int hl = h.length();
-            if ( hl == 0 ) {
-                s.append("0000");
-            } else if ( hl == 1 ) {
-                s.append("000").append(h);
-            } else if ( hl == 2 ) {
-                s.append("00").append(h);
-            } else if ( hl == 3 ) {
-                s.append('0').append(h);
-            } else if ( hl == 4 ) {
-                s.append(h);
-            } else {
-                s.append("FFFF");
-            }
-        }
-        return s.toString();
-    }
-
     /**
      * @param hosthash host hash
-     * @return true when this host hash is present in this web structure (either in latest or elder known entries)
+     * @return true when this host hash is present in this web structure (either in latest or elder known entries, or as link target)
      */
     public boolean exists(final String hosthash) {
-        // returns a map with a hosthash(String):refcount(Integer) relation
         assert hosthash.length() == 6;
-        SortedMap<String, byte[]> tailMap;
-        synchronized ( this.structure_old ) {
-            tailMap = this.structure_old.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    return true;
-                }
-            }
-        }
-        synchronized ( this.structure_new ) {
-            tailMap = this.structure_new.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    return true;
-                }
-            }
+        synchronized (this.graph) {
+            return this.graph.id(hosthash) >= 0;
         }
-        return false;
     }
     
     /**
@@ -358,41 +334,11 @@ public class WebStructureGraph {
     public StructureEntry outgoingReferences(final String hosthash) {
         // returns a map with a hosthash(String):refcount(Integer) relation
         assert hosthash.length() == 6;
-        SortedMap<String, byte[]> tailMap;
-        Map<String, Integer> h = new HashMap<String, Integer>();
-        String hostname = "";
-        String date = "";
-        String ref;
-        synchronized ( this.structure_old ) {
-            tailMap = this.structure_old.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    hostname = key.substring(7);
-                    ref = ASCII.String(tailMap.get(key));
-                    date = ref.substring(0, 8);
-                    h = refstr2map(ref);
-                }
-            }
-        }
-        synchronized ( this.structure_new ) {
-            tailMap = this.structure_new.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    ref = ASCII.String(tailMap.get(key));
-                    if ( hostname.isEmpty() ) {
-                        hostname = key.substring(7);
-                    }
-                    if ( date.isEmpty() ) {
-                        date = ref.substring(0, 8);
-                    }
-                    h.putAll(refstr2map(ref));
-                }
-            }
+        synchronized (this.graph) {
+            final int id = this.graph.id(hosthash);
+            if (id < 0 || this.graph.outDegree(id) == 0) return null;
+            return new StructureEntry(hosthash, this.graph.hostname(id), Integer.toString(this.graph.date(id)), this.graph.outgoing(id));
         }
-        if (h.isEmpty()) return null;
-        return new StructureEntry(hosthash, hostname, date, h);
     }
     
     /**
@@ -429,29 +375,17 @@ public class WebStructureGraph {
     /**
      * Compute incoming references to the target host hash
      * @param hosthash reference target host hash
-     * @return incoming structure with references mapped from source host hashes to counts or null when the target is not known
+     * @return incoming structure with references mapped from source host hashes to counts or null when the target or its name is not known
      */
     public StructureEntry incomingReferences(final String hosthash) {
-        final String hostname = hostHash2hostName(hosthash);
-        if ( hostname == null ) {
-            return null;
-        }
-        // collect the references
-        WebStructureGraph.StructureEntry sentry;
-        final HashMap<String, Integer> hosthashes = new HashMap<String, Integer>();
-        Iterator<WebStructureGraph.StructureEntry> i = new StructureIterator(false);
-        while ( i.hasNext() ) {
-            sentry = i.next();
-            if ( sentry.references.containsKey(hosthash) ) {
-                hosthashes.put(sentry.hosthash, sentry.references.get(hosthash));
-            }
-        }
-        i = new StructureIterator(true);
-        while ( i.hasNext() ) {
-            sentry = i.next();
-            if ( sentry.references.containsKey(hosthash) ) {
-                hosthashes.put(sentry.hosthash, sentry.references.get(hosthash));
-            }
+        final Map<String, Integer> hosthashes;
+        final String hostname;
+        synchronized (this.graph) {
+            final int id = this.graph.id(hosthash);
+            if (id < 0) return null;
+            hostname = this.graph.hostname(id);
+            if (hostname == null) return null;
+            hosthashes = this.graph.incoming(id);
         }
         // construct a new structureEntry Object
         return new StructureEntry(
@@ -580,10 +514,41 @@ public class WebStructureGraph {
         final ReferenceContainerCache<HostReference> idx =
             new ReferenceContainerCache<HostReference>(hostReferenceFactory, Base64Order.enhancedCoder, 6);
 
-        // we iterate over all structure entries.
-        // one structure entry has information that a specific host links to a list of other hosts
-        incomingReferencesEnrich(idx, new StructureIterator(false), 3000);
-        incomingReferencesEnrich(idx, new StructureIterator(true), 3000);
+        // we iterate over all linked hosts and their incoming links
+        final long timeout = System.currentTimeMillis() + 6000;
+        synchronized (this.graph) {
+            final Integer[] ids = this.graph.linkedIds();
+            hostLoop: for (final Integer id: ids) {
+                final byte[] term = ASCII.getBytes(this.graph.hosthash(id.intValue()));
+                ReferenceContainer<HostReference> r = null;
+                refloop: for (final Map.Entry<String, Integer> refhosthashandcounter: this.graph.incoming(id.intValue()).entrySet()) {
+                    final int source = this.graph.id(refhosthashandcounter.getKey());
+                    final HostReference hr;
+                    try {
+                        hr = new HostReference(
+                                ASCII.getBytes(refhosthashandcounter.getKey()),
+                                GenericFormatter.SHORT_DAY_FORMATTER.parse(Integer.toString(this.graph.date(source)), 0).getTime().getTime(),
+                                refhosthashandcounter.getValue().intValue());
+                    } catch (final ParseException e ) {
+                        continue refloop;
+                    }
+                    try {
+                        if (r == null) {
+                            r = new ReferenceContainer<HostReference>(hostReferenceFactory, term);
+                            r.add(hr);
+                            idx.add(r);
+                        } else {
+                            r.put(hr);
+                        }
+                    } catch (final SpaceExceededException e ) {
+                        continue refloop;
+                    }
+                }
+                if (System.currentTimeMillis() > timeout) {
+                    break hostLoop;
+                }
+            }
+        }
 
         // fill the cache again and set fill time
         hostReferenceIndexCache = idx;
@@ -592,51 +557,6 @@ public class WebStructureGraph {
         return hostReferenceIndexCache;
     }
 
-    private void incomingReferencesEnrich(
-        final ReferenceContainerCache<HostReference> idx,
-        final Iterator<WebStructureGraph.StructureEntry> structureIterator,
-        final long time) {
-        // we iterate over all structure entries.
-        // one structure entry has information that a specific host links to a list of other hosts
-        final long timeout = time == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + time;
-        byte[] term;
-        HostReference hr;
-        WebStructureGraph.StructureEntry sentry;
-        structureLoop: while ( structureIterator.hasNext() ) {
-            sentry = structureIterator.next();
-            // then we loop over all the hosts that are linked from sentry.hosthash
-            refloop: for ( final Map.Entry<String, Integer> refhosthashandcounter : sentry.references
-                .entrySet() ) {
-                term = UTF8.getBytes(refhosthashandcounter.getKey());
-                try {
-                    hr =
-                        new HostReference(
-                            ASCII.getBytes(sentry.hosthash),
-                            GenericFormatter.SHORT_DAY_FORMATTER.parse(sentry.date, 0).getTime().getTime(),
-                            refhosthashandcounter.getValue().intValue());
-                } catch (final ParseException e ) {
-                    continue refloop;
-                }
-                // each term refers to an index entry. look if we already have such an entry
-                ReferenceContainer<HostReference> r = idx.get(term, null);
-                try {
-                    if ( r == null ) {
-                        r = new ReferenceContainer<HostReference>(hostReferenceFactory, term);
-                        r.add(hr);
-                        idx.add(r);
-                    } else {
-                        r.put(hr);
-                    }
-                } catch (final SpaceExceededException e ) {
-                    continue refloop;
-                }
-            }
-            if ( System.currentTimeMillis() > timeout ) {
-                break structureLoop;
-            }
-        }
-    }
-
     /**
      * 
      * @param hosthash
@@ -645,60 +565,23 @@ public class WebStructureGraph {
     public int referencesCount(final String hosthash) {
         assert hosthash.length() == 6 : "hosthash = " + hosthash;
         if (hosthash == null || hosthash.length() != 6) return 0;
-        SortedMap<String, byte[]> tailMap;
-        int c = 0;
-        try {
-        synchronized ( this.structure_old ) {
-            tailMap = this.structure_old.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    c = refstr2count(UTF8.String(tailMap.get(key)));
-                }
-            }
-        }
-        synchronized ( this.structure_new ) {
-            tailMap = this.structure_new.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    c += refstr2count(UTF8.String(tailMap.get(key)));
-                }
-            }
-        }
-        } catch (final Throwable t) {
-            this.clear();
+        synchronized (this.graph) {
+            final int id = this.graph.id(hosthash);
+            return id < 0 ? 0 : this.graph.outDegree(id);
         }
-        return c;
     }
 
     /**
      * @param hosthash host name hash
-     * @return the host name corresponding to the given hash or null when the hash is not known
+     * @return the host name corresponding to the given hash or null when the hash or the name of a link target is not known
      */
     public String hostHash2hostName(final String hosthash) {
         // returns the host as string, null if unknown
         assert hosthash.length() == 6;
-        SortedMap<String, byte[]> tailMap;
-        synchronized ( this.structure_old ) {
-            tailMap = this.structure_old.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    return key.substring(7);
-                }
-            }
-        }
-        synchronized ( this.structure_new ) {
-            tailMap = this.structure_new.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    return key.substring(7);
-                }
-            }
+        synchronized (this.graph) {
+            final int id = this.graph.id(hosthash);
+            return id < 0 ? null : this.graph.hostname(id);
         }
-        return null;
     }
     
 	/**
@@ -714,24 +597,9 @@ public class WebStructureGraph {
 	 */
 	public Set<String> hostName2HostHashes(final String hostName) {
 		Set<String> hashes = new HashSet<>();
-		synchronized (this.structure_old) {
-			String keyHostName, hash;
-			for (String key : structure_old.keySet()) {
-				hash = key.substring(0, 6);
-				keyHostName = key.substring(7);
-				if (keyHostName.equalsIgnoreCase(hostName)) {
-					hashes.add(hash);
-				}
-			}
-		}
-		synchronized (this.structure_new) {
-			String keyHostName, hash;
-			for (String key : structure_new.keySet()) {
-				hash = key.substring(0, 6);
-				keyHostName = key.substring(7);
-				if (keyHostName.equalsIgnoreCase(hostName)) {
-					hashes.add(hash);
-				}
+		synchronized (this.graph) {
+			for (final int id : this.graph.hostIds(hostName)) {
+				hashes.add(this.graph.hosthash(id));
 			}
 		}
 		return hashes;
@@ -741,85 +609,30 @@ public class WebStructureGraph {
     protected void learnrefs(final LearnObject lro) {
         final DigestURL url = lro.url;
         final String sourceHosthash = url.hosthash();
+        final int today = today();
 
-        // parse the new reference string and join it with the stored references
-        final StructureEntry structure = outgoingReferences(sourceHosthash);
-        final Map<String, Integer> refs = (structure == null) ? new HashMap<String, Integer>() : structure.references;
-        int c;
-        for (final DigestURL u : lro.globalRefURLs) {
-        	String domain = u.hosthash();
-        	if (Switchboard.getSwitchboard() != null && Switchboard.getSwitchboard().shallTerminate()) break;
-            if (!exists(domain)) {
-                // this must be recorded as an host with no references
-                synchronized ( this.structure_new ) {
-                    this.structure_new.put(domain + "," + u.getHost(), UTF8.getBytes(none2refstr()));
-                }
+        // add the new references to the stored references
+        synchronized (this.graph) {
+            final int source = this.graph.put(sourceHosthash, url.getHost(), today);
+            for (final DigestURL u : lro.globalRefURLs) {
+                if (Switchboard.getSwitchboard() != null && Switchboard.getSwitchboard().shallTerminate()) break;
+                // an unknown target is recorded as a target host without date, it is not counted as a known host
+                final int target = this.graph.putTarget(u.hosthash(), u.getHost());
+                this.graph.link(source, target, 1);
             }
-            c = 0;
-            Integer existingCount = refs.get(domain);
-            if ( existingCount != null) {
-                c = existingCount.intValue();
-            }
-            refs.put(domain, Integer.valueOf(++c));
-        }
 
-        // check if the maxref is exceeded
-        if ( refs.size() > maxref ) {
-            int shrink = refs.size() - (maxref * 9 / 10);
-            delloop: while ( shrink > 0 ) {
-                // shrink the references: the entry with the smallest number of references is removed
-                int minrefcount = Integer.MAX_VALUE;
-                String minrefkey = null;
-                findloop: for ( final Map.Entry<String, Integer> entry : refs.entrySet() ) {
-                    if ( entry.getValue().intValue() < minrefcount ) {
-                        minrefcount = entry.getValue().intValue();
-                        minrefkey = entry.getKey();
-                    }
-                    if ( minrefcount == 1 ) {
-                        break findloop;
-                    }
-                }
-                // remove the smallest
-                if ( minrefkey == null ) {
-                    break delloop;
-                }
-                refs.remove(minrefkey);
-                shrink--;
-            }
-        }
-
-        // store the map back to the structure
-        synchronized ( this.structure_new ) {
-            this.structure_new.put(sourceHosthash + "," + url.getHost(), UTF8.getBytes(map2refstr(refs)));
-        }
-    }
-
-    private static void joinStructure(final TreeMap<String, byte[]> into, final TreeMap<String, byte[]> from) {
-        for ( final Map.Entry<String, byte[]> e : from.entrySet() ) {
-            if ( into.containsKey(e.getKey()) ) {
-                final Map<String, Integer> s0 = refstr2map(UTF8.String(into.get(e.getKey())));
-                final Map<String, Integer> s1 = refstr2map(UTF8.String(e.getValue()));
-                for ( final Map.Entry<String, Integer> r : s1.entrySet() ) {
-                    if ( s0.containsKey(r.getKey()) ) {
-                        s0.put(r.getKey(), s0.get(r.getKey()).intValue() + r.getValue().intValue());
-                    } else {
-                        s0.put(r.getKey(), r.getValue().intValue());
-                    }
-                }
-                into.put(e.getKey(), UTF8.getBytes(map2refstr(s0)));
-            } else {
-                into.put(e.getKey(), e.getValue());
-            }
+            // check if the maxref is exceeded: the entries with the smallest number of references are removed
+            if (this.graph.outDegree(source) > maxref) this.graph.shrink(source, maxref * 9 / 10);
+            this.graph.touch(source, today);
         }
     }
 
     /**
-     * Feed the elder entries structure map with latest computed entries map and then clear this last one.
+     * Mark all entries as elder entries: after this call, no entry is latest until it is changed again.
      */
     public void joinOldNew() {
-        synchronized ( this.structure_new ) {
-            joinStructure(this.structure_old, this.structure_new);
-            this.structure_new.clear();
+        synchronized (this.graph) {
+            this.graph.clearLatest();
         }
     }
 
@@ -828,38 +641,16 @@ public class WebStructureGraph {
      */
     public String hostWithMaxReferences() {
         // find host with most references
-        Map<String, Integer> hostNamesToRefsNb = new TreeMap<>();
-        int refsize, maxref = 0;
+        final Map<String, Integer> hostNamesToRefsNb = new HashMap<>();
+        int maxref = -1;
         String hostName, maxHostName = null;
         Integer refsNb;
-        synchronized ( this.structure_old ) {
-            for ( final Map.Entry<String, byte[]> entry : this.structure_old.entrySet() ) {
-                refsize = entry.getValue().length;
-                hostName = entry.getKey().substring(7);
-                refsNb = hostNamesToRefsNb.get(hostName);
-                if(refsNb == null) {
-                	refsNb = refsize;
-                } else {
-                	refsNb += refsize;
-                }
-                if ( refsNb > maxref ) {
-                    maxref = refsNb;
-                    maxHostName = hostName;
-                }
-                hostNamesToRefsNb.put(hostName, refsNb);
-            }
-        }
-        synchronized ( this.structure_new ) {
-            for ( final Map.Entry<String, byte[]> entry : this.structure_new.entrySet() ) {
-                refsize = entry.getValue().length;
-                hostName = entry.getKey().substring(7);
+        synchronized (this.graph) {
+            for (final Integer id : this.graph.ids(false)) {
+                hostName = this.graph.hostname(id.intValue());
                 refsNb = hostNamesToRefsNb.get(hostName);
-                if(refsNb == null) {
-                	refsNb = refsize;
-                } else {
-                	refsNb += refsize;
-                }
-                if ( refsNb > maxref ) {
+                refsNb = (refsNb == null ? 0 : refsNb.intValue()) + this.graph.outDegree(id.intValue());
+                if (refsNb > maxref) {
                     maxref = refsNb;
                     maxHostName = hostName;
                 }
@@ -871,14 +662,9 @@ public class WebStructureGraph {
     
     public ReversibleScoreMap<String> hostReferenceScore() {
         ReversibleScoreMap<String> result = new ClusteredScoreMap<String>(ASCII.identityASCIIComparator);
-        synchronized ( this.structure_old ) {
-            for ( final Map.Entry<String, byte[]> entry : this.structure_old.entrySet() ) {
-                result.set(entry.getKey().substring(7), (entry.getValue().length - 8) / 10);
-            }
-        }
-        synchronized ( this.structure_new ) {
-            for ( final Map.Entry<String, byte[]> entry : this.structure_new.entrySet() ) {
-                result.set(entry.getKey().substring(7), (entry.getValue().length - 8) / 10);
+        synchronized (this.graph) {
+            for (final Integer id : this.graph.ids(false)) {
+                result.set(this.graph.hostname(id.intValue()), this.graph.outDegree(id.intValue()));
             }
         }
         return result;
@@ -886,8 +672,8 @@ public class WebStructureGraph {
     
     /**
      * @param latest <ul>
-     * <li>true : iterate only the latest computed entries</li>
-     * <li>false : iterate only the elder computed entries, excluding the latest</li>
+     * <li>true : iterate only the entries changed since the last call of {@link #joinOldNew()}</li>
+     * <li>false : iterate all entries</li>
      * </ul>
      * @return an iterator over the web structure
      */
@@ -900,50 +686,44 @@ public class WebStructureGraph {
      */
     private class StructureIterator extends LookAheadIterator<StructureEntry> implements Iterator<StructureEntry> {
 
-    	/** Internal iterator instance */
-        private final Iterator<Map.Entry<String, byte[]>> i;
+    	/** The ids of the iterated hosts, ordered by host hash */
+        private final Integer[] ids;
+
+        /** The host hashes of the iterated hosts, to detect hosts removed in the meantime */
+        private final String[] hosthashes;
+
+        private int p;
 
         /**
          * @param latest <ul>
-         * <li>true : iterate only the latest computed entries</li>
-         * <li>false : iterate only the elder computed entries, excluding the latest</li>
+         * <li>true : iterate only the entries changed since the last call of {@link #joinOldNew()}</li>
+         * <li>false : iterate all entries</li>
          * </ul>
          */
         private StructureIterator(final boolean latest) {
-            this.i = ((latest) ? WebStructureGraph.this.structure_new : WebStructureGraph.this.structure_old).entrySet().iterator();
+            synchronized (WebStructureGraph.this.graph) {
+                this.ids = WebStructureGraph.this.graph.ids(latest);
+                this.hosthashes = new String[this.ids.length];
+                for (int i = 0; i < this.ids.length; i++) this.hosthashes[i] = WebStructureGraph.this.graph.hosthash(this.ids[i].intValue());
+            }
+            this.p = 0;
         }
 
         /**
-         * Iterate to the next structure entry, decoding on the fly the references information from the byte array
+         * Iterate to the next structure entry, reading the references of the host from the graph
          */
         @Override
         public StructureEntry next0() {
-            Map.Entry<String, byte[]> entry = null;
-            String dom = null;
-            byte[] ref = null;
-            String refs;
-            while ( this.i.hasNext() ) {
-                entry = this.i.next();
-                ref = entry.getValue();
-                if ( (ref.length - 8) % 10 != 0 ) {
-                    continue;
-                }
-                dom = entry.getKey();
-                if ( dom.length() >= 8 ) {
-                    break;
+            final HostGraph graph = WebStructureGraph.this.graph;
+            synchronized (graph) {
+                while (this.p < this.ids.length) {
+                    final int id = this.ids[this.p];
+                    final String hosthash = this.hosthashes[this.p++];
+                    if (graph.id(hosthash) != id || !graph.isSource(id)) continue;
+                    return new StructureEntry(hosthash, graph.hostname(id), Integer.toString(graph.date(id)), graph.outgoing(id));
                 }
-                dom = null;
             }
-            if ( entry == null || dom == null ) {
-                return null;
-            }
-            assert (ref.length - 8) % 10 == 0 : "refs = " + ref + ", length = " + ref.length;
-            refs = UTF8.String(ref);
-            return new StructureEntry(
-                dom.substring(0, 6),
-                dom.substring(7),
-                refs.substring(0, 8),
-                refstr2map(refs));
+            return null;
         }
     }
 
@@ -1009,35 +789,28 @@ public class WebStructureGraph {
         }
 
         // save to web structure file
-        if(this.structureFile != null) {
-        	log.info("Saving Web Structure File: new = "
-        			+ this.structure_new.size()
-        			+ " entries, old = "
-        			+ this.structure_old.size()
-        			+ " entries");
-        	final long time = System.currentTimeMillis();
-        	joinOldNew();
-        	log.info("dumping " + structure_old.size() + " entries to " + structureFile.toString());
-        	if ( !this.structure_old.isEmpty() ) {
-        		synchronized ( this.structure_old ) {
-        			if ( !this.structure_old.isEmpty() ) {
-        				FileUtils
-                        	.saveMapB(
-                        			this.structureFile,
-                        			this.structure_old,
-                        			"Web Structure Syntax: <b64hash(6)>','<host> to <date-yyyymmdd(8)>{<target-b64hash(6)><target-count-hex(4)>}*");
-        				final long t = Math.max(1, System.currentTimeMillis() - time);
-        				log.info("Saved Web Structure File: "
-        						+ this.structure_old.size()
-        						+ " entries in "
-        						+ t
-        						+ " milliseconds, "
-        						+ (this.structure_old.size() * 1000 / t)
-        						+ " entries/second");
-        			}
-        			this.structure_old.clear();
-        		}
-        	}
+        if (this.structureFile != null) {
+            synchronized (this.graph) {
+                log.info("Saving Web Structure File: " + this.graph.size() + " entries");
+                final long time = System.currentTimeMillis();
+                try {
+                    this.graph.save(this.structureFile);
+                    final long t = Math.max(1, System.currentTimeMillis() - time);
+                    log.info("Saved Web Structure File: "
+                            + this.graph.size()
+                            + " entries in "
+                            + t
+                            + " milliseconds, "
+                            + (this.graph.size() * 1000 / t)
+                            + " entries/second");
+                    // the dump of older versions is not needed any more
+                    final File legacyFile = legacyFile(this.structureFile);
+                    if (legacyFile.exists() && !legacyFile.equals(this.structureFile)) FileUtils.deletedelete(legacyFile);
+                } catch (final IOException e) {
+                    log.warn("cannot save Web Structure File " + this.structureFile.toString() + ": " + e.getMessage());
+                }
+                this.graph.clear();
+            }
         }
     }
 }
@@ -181,6 +181,7 @@ import net.yacy.document.content.SurrogateReader;
 import net.yacy.document.importer.OAIListFriendsLoader;
 import net.yacy.document.importer.WarcImporter;
 import net.yacy.document.parser.audioTagParser;
+import net.yacy.document.parser.htmlParser;
 import net.yacy.document.parser.pdfParser;
 import net.yacy.document.parser.html.Evaluation;
 import net.yacy.gui.Audio;
@@ -192,6 +193,7 @@ import net.yacy.kelondro.blob.Tables;
 import net.yacy.kelondro.blob.Tables.SortDirection;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReferenceChunk;
 import net.yacy.kelondro.logging.GuiHandler;
 import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.util.FileUtils;
@@ -676,7 +678,7 @@ public final class Switchboard extends serverSwitch {
         this.remoteSearchLastAccess = System.currentTimeMillis() - 10000;
         this.adminAuthenticationLastAccess = 0; // timestamp last admin authentication (as not autenticated here, stamp with 0)
         this.optimizeLastRun = System.currentTimeMillis();
-        this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.map"));
+        this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.graph"));
 
         // configuring list path
         if ( !(this.listsPath.exists()) ) {
@@ -773,6 +775,8 @@ public final class Switchboard extends serverSwitch {
 						SwitchboardConstants.HTCACHE_SYNC_LOCK_TIMEOUT_DEFAULT),
 				getConfigInt(SwitchboardConstants.HTCACHE_COMPRESSION_LEVEL,
 						SwitchboardConstants.HTCACHE_COMPRESSION_LEVEL_DEFAULT));
+		Cache.setDictionaryCompression(getConfigBool(SwitchboardConstants.HTCACHE_COMPRESSION_DICTIONARY,
+				SwitchboardConstants.HTCACHE_COMPRESSION_DICTIONARY_DEFAULT));
         final File transactiondir = new File(this.htCachePath, "snapshots");
 		Transactions.init(transactiondir, getConfigLong(SwitchboardConstants.SNAPSHOTS_WKHTMLTOPDF_TIMEOUT,
 				SwitchboardConstants.SNAPSHOTS_WKHTMLTOPDF_TIMEOUT_DEFAULT));
@@ -903,6 +907,8 @@ public final class Switchboard extends serverSwitch {
         TextParser.setDenyExtension(getConfig(SwitchboardConstants.PARSER_EXTENSIONS_DENY, ""));
         pdfParser.individualPages = getConfigBool(SwitchboardConstants.PARSER_PDF_INDIVIDUALPAGES, false);
         pdfParser.individualPagePropertyname = getConfig(SwitchboardConstants.PARSER_PDF_INDIVIDUALPAGES_KEY, "page");
+        htmlParser.maxParseTime = getConfigLong(SwitchboardConstants.PARSER_HTML_MAXPARSETIME,
+                SwitchboardConstants.PARSER_HTML_MAXPARSETIME_DEFAULT);
 
         // start a loader
         this.log.config("Starting Crawl Loader");
@@ -1033,7 +1039,7 @@ public final class Switchboard extends serverSwitch {
         this.indexingStorageProcessor =
             new WorkflowProcessor<IndexingQueueEntry>(
                 "storeDocumentIndex",
-                "This is the sequencing step of the indexing queue. Files are written as streams, too much councurrency would destroy IO performance. In this process the words are written to the RWI cache, which flushes if it is full.",
+                "This is the storage step of the indexing queue. In this process the words are written to the striped RWI cache, which flushes if it is full. Writers only compete for single stripes of the cache, therefore this runs concurrently.",
                 new String[] {
                     "RWI/Cache/Collections"
                 },
@@ -1045,9 +1051,9 @@ public final class Switchboard extends serverSwitch {
 						return null;
 					}
 				},
-                2,
+                WorkflowProcessor.availableCPU + 1,
                 null,
-                1);
+                WorkflowProcessor.availableCPU);
         this.indexingAnalysisProcessor =
             new WorkflowProcessor<IndexingQueueEntry>(
                 "webStructureAnalysis",
@@ -1568,7 +1574,7 @@ public final class Switchboard extends serverSwitch {
 			this.dhtDispatcher = (this.peers.sizeConnected() == 0) ? null : new Dispatcher(this, true, 10000);
 
             // create new web structure
-            this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.map"));
+            this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.graph"));
 
             // load domainList
             try {
@@ -1893,7 +1899,7 @@ public final class Switchboard extends serverSwitch {
      * @return if it exists, the name of the database is returned, if it not exists, null is returned
      */
     public HarvestProcess urlExists(final String hash) throws IOException {
-        LoadTimeURL md = this.index.fulltext().getDefaultConnector().getLoadTimeURL(hash);
+        LoadTimeURL md = this.index.fulltext().getLoadTimeURL(hash);
         if (md != null && md.date >= 0) return HarvestProcess.LOADED;
         HarvestProcess hp = this.crawlQueues.exists(ASCII.getBytes(hash));
         if (hp != null) return hp;
@@ -2053,6 +2059,7 @@ public final class Switchboard extends serverSwitch {
             ConcurrentLog.logException(e);
         }
         RemoteInstance.closeConnectionManager();
+        flushConfig();
         this.log.config("SWITCHBOARD SHUTDOWN TERMINATED");
         /* Print also to the standard output : when this method is triggered by the shutdown hook thread, the LogManager is likely to have
          * been concurrently reset by its own shutdown hook thread */
@@ -3362,6 +3369,10 @@ public final class Switchboard extends serverSwitch {
                     null,
                     profile == null ? "crawler" : profile.handle());
             }
+            // keep the sentences of a cached document, so that snippets can be computed without parsing it again
+            if (in.documents.length == 1 && in.condenser[0] != null) {
+                Cache.storeSentenceIndex(in.queueEntry.url().hash(), in.documents[0].getTextString());
+            }
         }
         in.queueEntry.updateStatus(Response.QUEUE_STATE_FINISHED);
     }
@@ -4143,8 +4154,9 @@ public final class Switchboard extends serverSwitch {
         }
         boolean hasDoneSomething = false;
         final long kbytesUp = ConnectionInfo.getActiveUpbytes() / 1024;
-        // accumulate RWIs to transmission buffer
-        if ( this.dhtDispatcher.bufferSize() > this.peers.scheme.verticalPartitions() ) {
+        // accumulate RWIs to transmission buffer; selection runs ahead of the transmissions
+        // until there is one buffered chunk for each target of a selection
+        if ( this.dhtDispatcher.bufferSize() > this.peers.scheme.verticalPartitions() * this.peers.redundancy() ) {
             this.log.info("dhtTransferJob: no selection, too many entries in transmission buffer: "
                 + this.dhtDispatcher.bufferSize());
         } else if ( MemoryControl.available() < 1024 * 1024 * 25 ) {
@@ -4420,6 +4432,7 @@ public final class Switchboard extends serverSwitch {
         mySeed.put(Seed.UTC, GenericFormatter.UTCDiffString());
         mySeed.setFlagAcceptRemoteCrawl(getConfigBool(SwitchboardConstants.CRAWLJOB_REMOTE, false));
         mySeed.setFlagAcceptRemoteIndex(getConfigBool(SwitchboardConstants.INDEX_RECEIVE_ALLOW, true));
+        mySeed.setRWIChunkVersion(WordReferenceChunk.VERSION);
         mySeed.setFlagSSLAvailable(this.getHttpServer() != null && this.getHttpServer().withSSL() && getConfigBool("server.https", false));
         if (mySeed.getFlagSSLAvailable()) mySeed.put(Seed.PORTSSL, Integer.toString(getPublicPort(SwitchboardConstants.SERVER_SSLPORT, 8443)));
 
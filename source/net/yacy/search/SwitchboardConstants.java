@@ -183,6 +183,16 @@ public final class SwitchboardConstants {
      */
     public static final String INDEX_DIST_CHUNK_SIZE_MAX        = "indexDistribution.maxChunkSize";
     public static final String INDEX_DIST_CHUNK_FAILS_MAX       = "indexDistribution.maxChunkFails";
+    /**
+     * <p><code>public static final String <strong>INDEX_DIST_TRANSMISSIONS_MAX</strong> = "indexDistribution.maxConcurrentTransmissions"</code></p>
+     * <p>Name of the setting how many RWI chunks are transmitted to other peers concurrently</p>
+     */
+    public static final String INDEX_DIST_TRANSMISSIONS_MAX     = "indexDistribution.maxConcurrentTransmissions";
+    /**
+     * <p><code>public static final String <strong>INDEX_DIST_INFLIGHT_PER_PEER_MAX</strong> = "indexDistribution.maxTransmissionsPerPeer"</code></p>
+     * <p>Name of the setting how many RWI chunks for the same target peer may be in transmission concurrently</p>
+     */
+    public static final String INDEX_DIST_INFLIGHT_PER_PEER_MAX = "indexDistribution.maxTransmissionsPerPeer";
     /**
      * <p><code>public static final String <strong>INDEX_DIST_TIMEOUT</strong> = "indexDistribution.timeout"</code></p>
      * <p>Name of the setting how long the timeout for an Index Distribution shall be in milliseconds</p>
@@ -220,6 +230,9 @@ public final class SwitchboardConstants {
     public static final String PARSER_EXTENSIONS_DENY           = "parser.extensions.deny";
     public static final String PARSER_PDF_INDIVIDUALPAGES       = "parser.pdf.individualpages";
     public static final String PARSER_PDF_INDIVIDUALPAGES_KEY   = "parser.pdf.individualpages.key";
+    public static final String PARSER_HTML_MAXPARSETIME         = "parser.html.maxParseTime";
+    /** Default maximum time in milliseconds to parse one html document */
+    public static final long PARSER_HTML_MAXPARSETIME_DEFAULT   = 30000;
     /**
      * <p><code>public static final String <strong>PROXY_ONLINE_CAUTION_DELAY</strong> = "onlineCautionDelay"</code></p>
      * <p>Name of the setting how long indexing should pause after the last time the proxy was used in milliseconds</p>
@@ -429,6 +442,12 @@ public final class SwitchboardConstants {
     /** Default timeout value (in milliseconds) for acquiring a synchronization lock on getContent/store Cache operations */
     public static final long HTCACHE_SYNC_LOCK_TIMEOUT_DEFAULT = 2000;
     
+    /** Key of the setting enabling the compression of cached text content with dictionaries trained for each content type */
+    public static final String HTCACHE_COMPRESSION_DICTIONARY   = "proxyCache.compressionDictionary";
+    
+    /** Default setting for the dictionary compression of cached content */
+    public static final boolean HTCACHE_COMPRESSION_DICTIONARY_DEFAULT = false;
+    
     public static final String RELEASE_PATH             = "releases";
     public static final String RELEASE_PATH_DEFAULT     = "DATA/RELEASE";
 
@@ -617,6 +636,10 @@ public final class SwitchboardConstants {
     public static final String UPNP_REMOTEHOST		= "upnp.remoteHost";
 
     public static final String SEARCH_ITEMS   = "search.items";
+
+    /** when set to true : the local rwi index is searched with a streaming join which ranks the joined
+     * references at once instead of collecting all references of the search terms and the join result in RAM */
+    public static final String SEARCH_RWI_STREAMING = "search.rwi.streaming";
     public static final String SEARCH_TARGET_DEFAULT  = "search.target";
     public static final String SEARCH_TARGET_SPECIAL          = "search.target.special"; // exceptions to the search target
     public static final String SEARCH_TARGET_SPECIAL_PATTERN  = "search.target.special.pattern"; // ie 'own' addresses in topframe, 'other' in iframe
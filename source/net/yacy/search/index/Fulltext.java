@@ -39,6 +39,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
@@ -91,6 +92,9 @@ public final class Fulltext {
 
     private static final String SOLR_PATH = "solr_6_6"; // the number should be identical to the number in the property luceneMatchVersion in solrconfig.xml
     private static final String SOLR_OLD_PATH[] = new String[]{"solr_36", "solr_40", "solr_44", "solr_45", "solr_46", "solr_47", "solr_4_9", "solr_4_10", "solr_5_2", "solr_5_5"};
+    private static final String URL_HASH_FILTER_FILE = "urlhash.filter";
+    private static final long URL_HASH_FILTER_MIN_CAPACITY = 1000000;
+    private static final double URL_HASH_FILTER_FPP = 0.01;
     
     // class objects
     private final File                    segmentPath;
@@ -105,6 +109,11 @@ public final class Fulltext {
     private final WebgraphConfiguration   webgraphConfiguration;
     private       boolean                 writeWebgraph;
 
+    /** filter of the url hashes in the embedded index; it is written on close and rebuilt from the index if it is missing */
+    private volatile URLHashFilter        urlHashFilter;
+    private final AtomicBoolean           urlHashFilterRebuildRunning;
+    private volatile boolean              urlHashFilterRebuildRequested;
+
     protected Fulltext(final File segmentPath, final File archivePath,
             final CollectionConfiguration collectionConfiguration, final WebgraphConfiguration webgraphConfiguration) {
         this.segmentPath = segmentPath;
@@ -115,6 +124,9 @@ public final class Fulltext {
         this.collectionConfiguration = collectionConfiguration;
         this.webgraphConfiguration = webgraphConfiguration;
         this.writeWebgraph = false;
+        this.urlHashFilter = new URLHashFilter(URL_HASH_FILTER_MIN_CAPACITY, URL_HASH_FILTER_FPP);
+        this.urlHashFilterRebuildRunning = new AtomicBoolean(false);
+        this.urlHashFilterRebuildRequested = false;
     }
     
     public void setUseWebgraph(boolean check) {
@@ -157,6 +169,93 @@ public final class Fulltext {
         assert SOLR_PATH.endsWith(lvn) : "luceneVersion = " + lvn + ", solrPath = " + SOLR_PATH + ", check defaults/solr/solrconfig.xml";
         ConcurrentLog.info("Fulltext", "connected solr in " + solrLocation.toString() + ", lucene version " + lvn);
         this.solrInstances.connectEmbedded(localCollectionInstance);
+        openURLHashFilter();
+    }
+
+    /**
+     * read the url hash filter which was written at the last shutdown or start to rebuild it from the index.
+     * The file is deleted after reading, so that a filter which misses documents of a crashed run is never used.
+     */
+    private void openURLHashFilter() {
+        if (this.urlHashFilter.isReady()) return; // a reconnect of the same index
+        final File f = new File(this.segmentPath, URL_HASH_FILTER_FILE);
+        if (f.exists()) {
+            try {
+                this.urlHashFilter = URLHashFilter.load(f);
+                ConcurrentLog.info("Fulltext", "loaded url hash filter with " + this.urlHashFilter.count() + " entries");
+            } catch (final IOException e) {
+                ConcurrentLog.warn("Fulltext", "cannot load url hash filter: " + e.getMessage());
+            }
+            f.delete();
+        }
+        if (!this.urlHashFilter.isReady()) rebuildURLHashFilter();
+    }
+
+    /**
+     * fill a new url hash filter with all url hashes of the embedded index in a concurrent thread.
+     * Until the filter is filled, the index is asked for every url.
+     * This is done at start if no filter was written and when the filter is overloaded.
+     */
+    private void rebuildURLHashFilter() {
+        this.urlHashFilterRebuildRequested = true;
+        if (!this.urlHashFilterRebuildRunning.compareAndSet(false, true)) return; // the running rebuild will start again
+        new Thread("Fulltext.rebuildURLHashFilter") {
+            @Override
+            public void run() {
+                try {
+                    while (Fulltext.this.urlHashFilterRebuildRequested) {
+                        Fulltext.this.urlHashFilterRebuildRequested = false;
+                        fillURLHashFilter();
+                    }
+                } catch (final Throwable e) {
+                    ConcurrentLog.logException(e);
+                } finally {
+                    Fulltext.this.urlHashFilterRebuildRunning.set(false);
+                }
+            }
+        }.start();
+    }
+
+    private void fillURLHashFilter() throws InterruptedException {
+        final EmbeddedSolrConnector connector = this.solrInstances.getDefaultEmbeddedConnector();
+        if (connector == null) return;
+        final long size = connector.getSize();
+        final URLHashFilter filter = new URLHashFilter(Math.max(URL_HASH_FILTER_MIN_CAPACITY, 2 * size), URL_HASH_FILTER_FPP);
+        // the new filter receives all documents which are added from now on, the commit makes all
+        // documents which had been added to the old filter visible for the id query
+        this.urlHashFilter = filter;
+        connector.commit(true);
+        final long start = System.currentTimeMillis();
+        final BlockingQueue<String> ids = connector.concurrentIDsByQuery(AbstractSolrConnector.CATCHALL_QUERY, null, 0, Integer.MAX_VALUE, Long.MAX_VALUE, 1000, 1);
+        String id;
+        while ((id = ids.take()) != AbstractSolrConnector.POISON_ID) {
+            if (id.length() >= 12) filter.add(id);
+        }
+        filter.setReady();
+        ConcurrentLog.info("Fulltext", "filled url hash filter with " + filter.count() + " entries in " + (System.currentTimeMillis() - start) + " milliseconds");
+    }
+
+    /**
+     * ask if a document may be contained in the index without an index request
+     * @param urlHash
+     * @return false if the document is certainly not contained in the index; true if the index must be asked
+     */
+    public boolean mayContain(final String urlHash) {
+        // documents in a remote index are not registered in the filter
+        if (this.solrInstances.isConnectedRemote()) return true;
+        return this.urlHashFilter.mayContain(urlHash);
+    }
+
+    /**
+     * register the url hash of a document in the url hash filter.
+     * This must be called for documents which are written to the index without {@link #putDocument(SolrInputDocument)}.
+     * @param urlHash
+     */
+    public void addToURLHashFilter(final String urlHash) {
+        if (urlHash == null) return;
+        final URLHashFilter filter = this.urlHashFilter;
+        filter.add(urlHash);
+        if (filter.isReady() && filter.isOverloaded()) rebuildURLHashFilter(); // rebuild with a larger capacity
     }
 
     public void disconnectLocalSolr() {
@@ -264,6 +363,7 @@ public final class Fulltext {
                 this.commit(false);
             }
             this.solrInstances.clearCaches();
+            this.urlHashFilter.clear();
         } finally {
         	this.solrInstancesLock.unlock();
         }
@@ -309,6 +409,11 @@ public final class Fulltext {
     }
 
     public void close() {
+        if (this.urlHashFilter.isReady() && this.solrInstances.isConnectedEmbedded()) try {
+            this.urlHashFilter.save(new File(this.segmentPath, URL_HASH_FILTER_FILE));
+        } catch (final IOException e) {
+            ConcurrentLog.warn("Fulltext", "cannot write url hash filter: " + e.getMessage());
+        }
         try {
             this.solrInstances.close();
         } catch (Throwable e) {
@@ -378,9 +483,25 @@ public final class Fulltext {
         } catch (final SolrException e) {
             throw new IOException(e.getMessage(), e);
         }
+        addToURLHashFilter(id);
         if (MemoryControl.shortStatus()) clearCaches();
     }
 
+    /**
+     * store the document of a failed load; it is not logged as an indexed document
+     * but it is found by the double-check of the crawler like an indexed document
+     */
+    public void putErrorDocument(final SolrInputDocument doc) throws IOException {
+        SolrConnector connector = this.getDefaultConnector();
+        if (connector == null) return;
+        try {
+            connector.add(doc);
+        } catch (final SolrException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        addToURLHashFilter((String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName()));
+    }
+
     public void putEdges(final Collection<SolrInputDocument> edges) throws IOException {
         if (!this.useWebgraph()) return;
         if (edges == null || edges.size() == 0) return;
@@ -569,7 +690,7 @@ public final class Fulltext {
     public DigestURL getURL(final String urlHash) throws IOException {
         if (urlHash == null || this.getDefaultConnector() == null) return null;
         
-        SolrConnector.LoadTimeURL md = this.getDefaultConnector().getLoadTimeURL(urlHash);
+        SolrConnector.LoadTimeURL md = this.getLoadTimeURL(urlHash);
         if (md == null) return null;
         return new DigestURL(md.url, ASCII.getBytes(urlHash));
     }
@@ -581,10 +702,20 @@ public final class Fulltext {
      */
     public long getLoadTime(final String urlHash) throws IOException {
         if (urlHash == null) return -1l;
-        SolrConnector.LoadTimeURL md = this.getDefaultConnector().getLoadTimeURL(urlHash);
+        SolrConnector.LoadTimeURL md = this.getLoadTimeURL(urlHash);
         if (md == null) return -1l;
         return md.date;
     }
+
+    /**
+     * get the load time and the url of a document; urls which are certainly not in the index are answered without an index request
+     * @param urlHash
+     * @return the load time and url or null if the document does not exist
+     */
+    public SolrConnector.LoadTimeURL getLoadTimeURL(final String urlHash) throws IOException {
+        if (urlHash == null || !mayContain(urlHash)) return null;
+        return this.getDefaultConnector().getLoadTimeURL(urlHash);
+    }
     
     public List<File> dumpFiles() {
         EmbeddedInstance esc = this.solrInstances.getEmbedded();
@@ -661,6 +792,7 @@ public final class Fulltext {
                 ConcurrentLog.logException(e);
             } finally {
                 this.solrInstances = new InstanceMirror();
+                this.urlHashFilter = new URLHashFilter(URL_HASH_FILTER_MIN_CAPACITY, URL_HASH_FILTER_FPP); // the restored index has other documents
                 try {
                     this.connectLocalSolr();
                 } catch (final IOException e) {
@@ -109,6 +109,8 @@ public class Segment {
     public static final int  lowcachedivisor =  900;
     public static final long targetFileSize  = 64 * 1024 * 1024; // 256 MB
     public static final int  writeBufferSize = 4 * 1024 * 1024;
+    public static final int  mergeThreads    = 2;               // the term index and the citation index can be merged at the same time
+    public static final long mergeBandwidth  = 64 * 1024 * 1024; // maximum bytes per second written by all merges
     public static final String termIndexName = "text.index";
     public static final String citationIndexName = "citation.index";
     public static final String firstseenIndexName = "firstseen.index";
@@ -153,7 +155,7 @@ public class Segment {
         if (this.termIndex != null) return;
         
         if (this.merger == null) { // init shared iodispatcher if none running
-            this.merger = new IODispatcher(2, 2, writeBufferSize);
+            this.merger = new IODispatcher(2, 2, writeBufferSize, mergeThreads, mergeBandwidth);
             this.merger.start();
         }
         this.termIndex = new IndexCell<WordReference>(
@@ -183,7 +185,7 @@ public class Segment {
         if (this.urlCitationIndex != null) return;
 
         if (this.merger == null) { // init shared iodispatcher if none running
-            this.merger = new IODispatcher(2,2,writeBufferSize);
+            this.merger = new IODispatcher(2, 2, writeBufferSize, mergeThreads, mergeBandwidth);
             this.merger.start();
         }
         this.urlCitationIndex = new IndexCell<CitationReference>(
@@ -0,0 +1,222 @@
+// URLHashFilter.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.search.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.kelondro.data.word.Word;
+
+/**
+ * A bloom filter of url hashes. The filter answers if an url hash is certainly not contained in a set of
+ * url hashes; it is used to avoid index requests for urls which were never indexed. Url hashes can only be
+ * added: an url hash of a document which was deleted is still in the filter and the index must be asked.
+ * A filter which is not ready, because it is still filled with the url hashes of an index, answers that
+ * every url hash may be contained.
+ */
+public final class URLHashFilter {
+
+    private static final int MAGIC = 0x55484631; // "UHF1"
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final long capacity;
+    private final AtomicLong count;
+    private volatile boolean ready;
+
+    /**
+     * create an empty filter which is not ready
+     * @param capacity the number of url hashes for which the false positive probability is not exceeded
+     * @param fpp the false positive probability
+     */
+    public URLHashFilter(final long capacity, final double fpp) {
+        this.capacity = Math.max(1, capacity);
+        final long m = (long) Math.ceil(-this.capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        final long w = Math.max(1, (m + 63) / 64);
+        if (w > Integer.MAX_VALUE) throw new IllegalArgumentException("filter too large: capacity = " + capacity);
+        this.words = new AtomicLongArray((int) w);
+        this.bits = w * 64;
+        this.hashes = Math.max(1, (int) Math.round((double) this.bits / this.capacity * Math.log(2)));
+        this.count = new AtomicLong(0);
+        this.ready = false;
+    }
+
+    private URLHashFilter(final long[] words, final int hashes, final long capacity, final long count) {
+        this.words = new AtomicLongArray(words);
+        this.bits = (long) words.length * 64;
+        this.hashes = hashes;
+        this.capacity = capacity;
+        this.count = new AtomicLong(count);
+        this.ready = true;
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    /**
+     * mark the filter as ready; must be called when all url hashes of the index had been added
+     */
+    public void setReady() {
+        this.ready = true;
+    }
+
+    /**
+     * @return the number of add operations; url hashes which were added several times are counted several times
+     */
+    public long count() {
+        return this.count.get();
+    }
+
+    public long capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return true if more url hashes had been added than the filter was made for
+     */
+    public boolean isOverloaded() {
+        return this.count.get() > this.capacity;
+    }
+
+    public void add(final String urlhash) {
+        add(ASCII.getBytes(urlhash));
+    }
+
+    public void add(final byte[] urlhash) {
+        assert urlhash.length >= Word.commonHashLength;
+        final long h1 = hash1(urlhash);
+        final long h2 = hash2(urlhash, h1);
+        for (int i = 0; i < this.hashes; i++) {
+            final long bit = Long.remainderUnsigned(h1 + i * h2, this.bits);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << (bit & 63);
+            long old;
+            do {
+                old = this.words.get(word);
+                if ((old & mask) != 0) break;
+            } while (!this.words.compareAndSet(word, old, old | mask));
+        }
+        this.count.incrementAndGet();
+    }
+
+    /**
+     * @return true if the url hash may be contained; false if it is certainly not contained
+     */
+    public boolean mayContain(final String urlhash) {
+        return mayContain(ASCII.getBytes(urlhash));
+    }
+
+    /**
+     * @return true if the url hash may be contained; false if it is certainly not contained
+     */
+    public boolean mayContain(final byte[] urlhash) {
+        if (!this.ready) return true;
+        final long h1 = hash1(urlhash);
+        final long h2 = hash2(urlhash, h1);
+        for (int i = 0; i < this.hashes; i++) {
+            final long bit = Long.remainderUnsigned(h1 + i * h2, this.bits);
+            if ((this.words.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * remove all url hashes; the filter is ready afterwards because it is the filter of an empty index
+     */
+    public void clear() {
+        for (int i = 0; i < this.words.length(); i++) this.words.set(i, 0L);
+        this.count.set(0);
+        this.ready = true;
+    }
+
+    // the url hash characters are base64 characters which are well distributed, but the second half
+    // of the hash is the host hash which is shared by all urls of a host; the bytes are therefore mixed
+
+    private static long hash1(final byte[] h) {
+        long l = 0;
+        for (int i = 0; i < 8; i++) l = (l << 8) | (h[i] & 0xff);
+        long r = 0;
+        for (int i = 8; i < Word.commonHashLength; i++) r = (r << 8) | (h[i] & 0xff);
+        return mix(l ^ mix(r + 0x9E3779B97F4A7C15L));
+    }
+
+    private static long hash2(final byte[] h, final long h1) {
+        return mix(h1 ^ 0xC2B2AE3D27D4EB4FL) | 1L;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * write the filter to a file
+     */
+    public void save(final File file) throws IOException {
+        final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        try {
+            os.writeInt(MAGIC);
+            os.writeInt(this.hashes);
+            os.writeLong(this.capacity);
+            os.writeLong(this.count.get());
+            os.writeInt(this.words.length());
+            for (int i = 0; i < this.words.length(); i++) os.writeLong(this.words.get(i));
+        } finally {
+            os.close();
+        }
+    }
+
+    /**
+     * read a filter from a file
+     * @return a ready filter
+     * @throws IOException if the file cannot be read or is not a filter file
+     */
+    public static URLHashFilter load(final File file) throws IOException {
+        final DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            if (is.readInt() != MAGIC) throw new IOException("not an url hash filter: " + file);
+            final int hashes = is.readInt();
+            final long capacity = is.readLong();
+            final long count = is.readLong();
+            final int length = is.readInt();
+            if (hashes <= 0 || length <= 0 || file.length() != 28L + 8L * length) throw new IOException("broken url hash filter: " + file);
+            final long[] words = new long[length];
+            for (int i = 0; i < length; i++) words[i] = is.readLong();
+            return new URLHashFilter(words, hashes, capacity, count);
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -43,6 +43,9 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -83,14 +86,18 @@ import net.yacy.document.Tokenizer;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceBlock;
 import net.yacy.kelondro.data.word.WordReferenceFactory;
 import net.yacy.kelondro.data.word.WordReferenceVars;
+import net.yacy.kelondro.index.Row;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.StreamingTermSearch;
 import net.yacy.kelondro.rwi.TermSearch;
 import net.yacy.kelondro.util.Bitfield;
 import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.kelondro.util.SetTools;
+import net.yacy.kelondro.workflow.WorkflowProcessor;
 import net.yacy.peers.RemoteSearch;
 import net.yacy.peers.SeedDB;
 import net.yacy.peers.graphics.ProfilingGraph;
@@ -118,6 +125,12 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     private static final int max_results_rwi = 3000;
     private static final int max_results_node = 150;
 
+    /** the number of references which are evaluated together in one partition of the local rwi evaluation */
+    private static final int rwi_partition_size = 2048;
+
+    /** the pool for the partitioned evaluation of local rwi references, shared by all search events */
+    private static final ForkJoinPool rwiPartitionPool = new ForkJoinPool(WorkflowProcessor.availableCPU);
+
     /*
     private static long noRobinsonLocalRWISearch = 0;
     static {
@@ -453,7 +466,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         this.rwiProcess = null;
         if (query.getSegment().connectedRWI() && !Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.DEBUG_SEARCH_LOCAL_DHT_OFF, false)) {
             // we start the local search only if this peer is doing a remote search or when it is doing a local search and the peer is old
-            rwiProcess = new RWIProcess(this.localsolrsearch);
+            rwiProcess = new RWIProcess(this.localsolrsearch, generateAbstracts && !this.remote);
             rwiProcess.start();
         }
 
@@ -588,10 +601,12 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     private class RWIProcess extends Thread {
     
         final Thread waitForThread;
+        final boolean generateAbstracts;
         
-        public RWIProcess(final Thread waitForThread) {
+        public RWIProcess(final Thread waitForThread, final boolean generateAbstracts) {
             super("SearchEvent.RWIProcess(" + (waitForThread != null ? waitForThread.getName() : "") + ")");
             this.waitForThread = waitForThread;
+            this.generateAbstracts = generateAbstracts;
         }
         
         /**
@@ -609,6 +624,45 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             // so following sortings together with the global results will be fast
             try {
                 final long timer = System.currentTimeMillis();
+                if (Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.SEARCH_RWI_STREAMING, true)) {
+                    StreamingTermSearch<WordReference> search = SearchEvent.this.query.getSegment().termIndex().streamingQuery(
+                            SearchEvent.this.query.getQueryGoal().getIncludeHashes(),
+                            SearchEvent.this.query.getQueryGoal().getExcludeHashes(),
+                            SearchEvent.this.query.maxDistance);
+                    // the containers of the terms are only merged if index abstracts are computed from them
+                    SearchEvent.this.localSearchInclusion = this.generateAbstracts ? search.inclusion() : null;
+                    if (search.hasNext()) {
+                        // in case that another thread has priority for their results, wait until this is finished
+                        if (this.waitForThread != null && this.waitForThread.isAlive()) {
+                            this.waitForThread.join();
+                        }
+                        int successcount = addRWIs(search, "local index: " + SearchEvent.this.query.getSegment().getLocation(), SearchEvent.this.maxtime);
+                        if (successcount == 0 &&
+                            SearchEvent.this.query.getQueryGoal().getIncludeHashes().has(Segment.catchallHash) &&
+                            SearchEvent.this.query.modifier.sitehost != null && SearchEvent.this.query.modifier.sitehost.length() > 0
+                            ) {
+                            // try again with sitehost
+                            final String newGoal = Domains.getSmartSLD(SearchEvent.this.query.modifier.sitehost);
+                            search = SearchEvent.this.query.getSegment().termIndex().streamingQuery(
+                                    QueryParams.hashes2Set(ASCII.String(Word.word2hash(newGoal))),
+                                    SearchEvent.this.query.getQueryGoal().getExcludeHashes(),
+                                    SearchEvent.this.query.maxDistance);
+                            if (this.generateAbstracts) SearchEvent.this.localSearchInclusion = search.inclusion();
+                            successcount = addRWIs(search, "local index: " + SearchEvent.this.query.getSegment().getLocation(), SearchEvent.this.maxtime);
+                        }
+                        EventTracker.update(
+                                EventTracker.EClass.SEARCH,
+                                new ProfilingGraph.EventSearch(
+                                        SearchEvent.this.query.id(true),
+                                    SearchEventType.JOIN,
+                                    SearchEvent.this.query.getQueryGoal().getQueryString(false),
+                                    successcount,
+                                    System.currentTimeMillis() - timer),
+                                    false);
+                        SearchEvent.this.addFinalize();
+                    }
+                    return;
+                }
                 TermSearch<WordReference> search =
                     SearchEvent.this.query
                         .getSegment()
@@ -628,7 +682,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                     }
                     
                     // add the index to the result
-                    int successcount = addRWIs(index, true, "local index: " + SearchEvent.this.query.getSegment().getLocation(), index.size(), SearchEvent.this.maxtime);
+                    int successcount = addLocalRWIs(index, "local index: " + SearchEvent.this.query.getSegment().getLocation(), SearchEvent.this.maxtime);
                     if (successcount == 0 &&
                         SearchEvent.this.query.getQueryGoal().getIncludeHashes().has(Segment.catchallHash) &&
                         SearchEvent.this.query.modifier.sitehost != null && SearchEvent.this.query.modifier.sitehost.length() > 0
@@ -648,7 +702,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                         SearchEvent.this.localSearchInclusion = search.inclusion();
                         index = search.joined();
                         if (!index.isEmpty()) {
-                            successcount = addRWIs(index, true, "local index: " + SearchEvent.this.query.getSegment().getLocation(), index.size(), SearchEvent.this.maxtime);
+                            successcount = addLocalRWIs(index, "local index: " + SearchEvent.this.query.getSegment().getLocation(), SearchEvent.this.maxtime);
                         }
                     }
                     EventTracker.update(
@@ -713,10 +767,8 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         try {
             WordReferenceVars iEntry;
             long remaining;
-            String acceptableAlternativeSitehash = null;
-            if (this.query.modifier.sitehost != null && this.query.modifier.sitehost.length() > 0) try {
-                acceptableAlternativeSitehash = DigestURL.hosthash(this.query.modifier.sitehost.startsWith("www.") ? this.query.modifier.sitehost.substring(4) : "www." + this.query.modifier.sitehost, 80);
-            } catch (MalformedURLException e1) {}
+            final String acceptableAlternativeSitehash = acceptableAlternativeSitehash();
+            final int[] criteria = new int[WordReferenceBlock.CRITERIA];
             pollloop: while ( true ) {
                 remaining = timeout - System.currentTimeMillis();
                 if (remaining <= 0) {
@@ -733,90 +785,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                 }
                 assert (iEntry.urlhash().length == index.row().primaryKeyLength);
 
-                // doublecheck for urls
-                if (this.urlhashes.has(iEntry.urlhash())) {
-                    if (log.isFine()) log.fine("dropped RWI: doublecheck");
-                    continue pollloop;
-                }
-                
-                // increase flag counts
-                Bitfield flags = iEntry.flags();
-                for (int j = 0; j < 32; j++) {
-                    if (flags.get(j)) this.flagcount[j]++;
-                }
-
-                // check constraints
-                if (!this.testFlags(flags)) {
-                    if (log.isFine()) log.fine("dropped RWI: flag test failed");
-                    continue pollloop;
-                }
-
-                // check document domain
-                if (this.query.contentdom.getCode() > 0) {
-                	boolean domainMatch = true;
-                	if(this.query.isStrictContentDom()) {
-                		if((this.query.contentdom == ContentDomain.AUDIO && iEntry.getType() != Response.DT_AUDIO) || 
-                                (this.query.contentdom == ContentDomain.VIDEO && iEntry.getType() != Response.DT_MOVIE) ||
-                                (this.query.contentdom == ContentDomain.IMAGE && iEntry.getType() != Response.DT_IMAGE) ||
-                                (this.query.contentdom == ContentDomain.APP && !(flags.get(Tokenizer.flag_cat_hasapp)))) {
-                                	domainMatch = false;    	
-                                }
-                	} else if((this.query.contentdom == ContentDomain.AUDIO && !(flags.get(Tokenizer.flag_cat_hasaudio))) || 
-                                (this.query.contentdom == ContentDomain.VIDEO && !(flags.get(Tokenizer.flag_cat_hasvideo))) ||
-                                (this.query.contentdom == ContentDomain.IMAGE && !(flags.get(Tokenizer.flag_cat_hasimage))) ||
-                                (this.query.contentdom == ContentDomain.APP && !(flags.get(Tokenizer.flag_cat_hasapp)))) {
-                			domainMatch = false;
-                	}
-                	if(!domainMatch) {
-                		if (log.isFine()) {
-                			log.fine("dropped RWI: contentdom fail");
-                		}
-                		continue pollloop;
-                	}
-                }
-                
-                // check language
-				if (this.query.modifier.language != null && !this.query.modifier.language.isEmpty()
-						&& !this.query.modifier.language.equals(iEntry.getLanguageString())) {
-                	if (log.isFine()) {
-                		log.fine("dropped RWI: language constraint = " + this.query.modifier.language);
-                	}
-                	continue pollloop;
-                }
-                
-                // count domZones
-                //this.domZones[DigestURI.domDomain(iEntry.metadataHash())]++;
-
-                // check site constraints
-                final String hosthash = iEntry.hosthash();
-                if ( this.query.modifier.sitehash == null ) {
-                    if (this.query.siteexcludes != null && this.query.siteexcludes.contains(hosthash)) {
-                        if (log.isFine()) log.fine("dropped RWI: siteexcludes");
-                        continue pollloop;
-                    }
-                } else {
-                    // filter out all domains that do not match with the site constraint
-                    if (!hosthash.equals(this.query.modifier.sitehash) && (acceptableAlternativeSitehash == null || !hosthash.equals(acceptableAlternativeSitehash))) {
-                        if (log.isFine()) log.fine("dropped RWI: modifier.sitehash");
-                        continue pollloop;
-                    }
-                }
-
-                // finally extend the double-check and insert result to stack
-                this.urlhashes.putUnique(iEntry.urlhash());
-                rankingtryloop: while (true) {
-                    try {
-                        this.rwiStack.put(new ReverseElement<WordReferenceVars>(iEntry, this.order.cardinal(iEntry))); // inserts the element and removes the worst (which is smallest)
-                        break rankingtryloop;
-                    } catch (final ArithmeticException e ) {
-                        // this may happen if the concurrent normalizer changes values during cardinal computation
-                        if (log.isFine()) log.fine("dropped RWI: arithmetic exception");
-                        continue rankingtryloop;
-                    }
-                }
-                // increase counter for statistics
-                if (local) this.local_rwi_available.incrementAndGet(); else this.remote_rwi_available.incrementAndGet();
-                
+                if (!addRWI(iEntry, local, acceptableAlternativeSitehash, criteria)) continue pollloop;
                 successcounter++;
             }
             if (System.currentTimeMillis() >= timeout) ConcurrentLog.warn("SearchEvent", "rwi normalization ended with timeout = " + maxtime);
@@ -834,6 +803,425 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             System.currentTimeMillis() - timer), false);
         return successcounter;
     }
+
+    /**
+     * add the references of a local index container. The container is split into partitions of url hash ranges
+     * which are evaluated concurrently, see {@link RWIPartition}.
+     * @param index a joined container from the local index
+     * @param resourceName the name of the source for the event tracker
+     * @param maxtime the maximum time for the evaluation
+     * @return the number of accepted references
+     */
+    public int addLocalRWIs(
+        final ReferenceContainer<WordReference> index,
+        final String resourceName,
+        final long maxtime) {
+        this.addRunning = true;
+        assert (index != null);
+        if (index.isEmpty()) return 0;
+        this.local_rwi_stored.addAndGet(index.size());
+        final long timer = System.currentTimeMillis();
+        final long timeout = maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : timer + maxtime;
+        int successcounter = 0;
+        try {
+            successcounter = rwiPartitionPool.invoke(new RWIPartition(index, 0, index.size(), acceptableAlternativeSitehash(), timeout));
+        } catch (final RuntimeException e) {
+            ConcurrentLog.logException(e);
+        }
+        EventTracker.update(EventTracker.EClass.SEARCH, new ProfilingGraph.EventSearch(
+            this.query.id(true),
+            SearchEventType.PRESORT,
+            resourceName,
+            index.size(),
+            System.currentTimeMillis() - timer), false);
+        return successcounter;
+    }
+
+    /**
+     * add the references of a streaming term search. The joined references arrive in url hash order and are joined
+     * directly into the blocks of partitions which are evaluated concurrently while the join goes on, see {@link RWIPartition}.
+     * Only a bounded number of partitions is pending at any time, so that the join result is never held in memory as a whole.
+     * @param search a term search on the local index
+     * @param resourceName the name of the source for the event tracker
+     * @param maxtime the maximum time to read the search result
+     * @return the number of accepted references
+     */
+    public int addRWIs(
+        final StreamingTermSearch<WordReference> search,
+        final String resourceName,
+        final long maxtime) {
+        this.addRunning = true;
+        final long timer = System.currentTimeMillis();
+        final long timeout = maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : timer + maxtime;
+        final String acceptableAlternativeSitehash = acceptableAlternativeSitehash();
+        final int maxPending = 2 * rwiPartitionPool.getParallelism();
+        final List<ForkJoinTask<Integer>> pending = new ArrayList<ForkJoinTask<Integer>>(maxPending + 1);
+        int successcounter = 0;
+        try {
+            while (true) {
+                final WordReferenceBlock block = new WordReferenceBlock(rwi_partition_size);
+                search.next(block);
+                if (!block.isEmpty()) pending.add(rwiPartitionPool.submit(new RWIPartition(block, acceptableAlternativeSitehash, timeout)));
+                if (!block.isFull()) break; // the search is exhausted
+                if (pending.size() > maxPending) successcounter += pending.remove(0).join();
+                if (System.currentTimeMillis() > timeout) {
+                    ConcurrentLog.warn("SearchEvent", "streaming rwi search ended with timeout = " + maxtime + ", joined references = " + search.count());
+                    break;
+                }
+            }
+            for (final ForkJoinTask<Integer> task: pending) successcounter += task.join();
+        } catch (final RuntimeException e) {
+            ConcurrentLog.logException(e);
+        }
+        this.local_rwi_stored.addAndGet(search.count());
+        EventTracker.update(EventTracker.EClass.SEARCH, new ProfilingGraph.EventSearch(
+            this.query.id(true),
+            SearchEventType.PRESORT,
+            resourceName,
+            search.count(),
+            System.currentTimeMillis() - timer), false);
+        return successcounter;
+    }
+
+    /**
+     * A partition of the local rwi evaluation: a range of references in url hash order which is decoded,
+     * normalized, checked and ranked without sharing anything with the other partitions. The normalization
+     * of the partition is merged into the ranking order before its references are ranked, so each reference
+     * is ranked with the normalization that is known at that time, as in the sequential evaluation.
+     * The partition keeps its best references in its own bounded heap which is merged into the rwi stack
+     * when the partition is finished.
+     */
+    private final class RWIPartition extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 6480137285604918513L;
+
+        private final ReferenceContainer<WordReference> container;
+        private final int from, to;
+        private final WordReferenceBlock block;
+        private final String acceptableAlternativeSitehash;
+        private final long timeout;
+
+        /**
+         * a partition of a container which is split further as long as it is larger than the partition size
+         */
+        private RWIPartition(final ReferenceContainer<WordReference> container, final int from, final int to, final String acceptableAlternativeSitehash, final long timeout) {
+            this.container = container;
+            this.from = from;
+            this.to = to;
+            this.block = null;
+            this.acceptableAlternativeSitehash = acceptableAlternativeSitehash;
+            this.timeout = timeout;
+        }
+
+        /**
+         * a partition of references which were joined into a block by a stream
+         */
+        private RWIPartition(final WordReferenceBlock block, final String acceptableAlternativeSitehash, final long timeout) {
+            this.container = null;
+            this.from = 0;
+            this.to = block.size();
+            this.block = block;
+            this.acceptableAlternativeSitehash = acceptableAlternativeSitehash;
+            this.timeout = timeout;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (this.container != null && this.to - this.from > rwi_partition_size) {
+                final int middle = (this.from + this.to) >>> 1;
+                final RWIPartition lower = new RWIPartition(this.container, this.from, middle, this.acceptableAlternativeSitehash, this.timeout);
+                lower.fork();
+                final int upper = new RWIPartition(this.container, middle, this.to, this.acceptableAlternativeSitehash, this.timeout).compute();
+                return upper + lower.join();
+            }
+            if (System.currentTimeMillis() > this.timeout) return 0;
+
+            // read and normalize the partition
+            final WordReferenceBlock block;
+            if (this.container != null) {
+                block = new WordReferenceBlock(this.to - this.from);
+                block.addRows(this.container, this.from, this.to);
+            } else {
+                block = this.block;
+            }
+            if (block.isEmpty()) return 0;
+            SearchEvent.this.order.normalizeWith(block);
+
+            // check and rank the partition; only references which can enter the rwi stack are turned into objects
+            final int[] partitionFlagcount = new int[32];
+            final BlockView view = new BlockView(block);
+            final long threshold = rwiStackThreshold();
+            final WeakPriorityBlockingQueue<WordReferenceVars> heap = new WeakPriorityBlockingQueue<WordReferenceVars>(max_results_rwi, false);
+            for (int i = 0; i < block.size(); i++) {
+                if (!acceptRWI(view.at(i), this.acceptableAlternativeSitehash, partitionFlagcount)) continue;
+                final long score = cardinal(block, i);
+                if (score < threshold) continue;
+                heap.put(new ReverseElement<WordReferenceVars>(block.vars(i, true), score));
+            }
+            synchronized (SearchEvent.this.flagcount) {
+                for (int j = 0; j < 32; j++) SearchEvent.this.flagcount[j] += partitionFlagcount[j];
+            }
+
+            // merge the heap into the rwi stack
+            int accepted = 0;
+            Element<WordReferenceVars> element;
+            while ((element = heap.poll()) != null) {
+                try {
+                    if (SearchEvent.this.urlhashes.has(element.getElement().urlhash())) continue;
+                    SearchEvent.this.urlhashes.putUnique(element.getElement().urlhash());
+                } catch (final SpaceExceededException e) {
+                    break;
+                }
+                SearchEvent.this.rwiStack.put(element);
+                SearchEvent.this.local_rwi_available.incrementAndGet();
+                accepted++;
+            }
+            return accepted;
+        }
+    }
+
+    /**
+     * @return the host hash of the alternative of the site host with or without "www.", or null if there is no site constraint
+     */
+    private String acceptableAlternativeSitehash() {
+        if (this.query.modifier.sitehost == null || this.query.modifier.sitehost.length() == 0) return null;
+        try {
+            return DigestURL.hosthash(this.query.modifier.sitehost.startsWith("www.") ? this.query.modifier.sitehost.substring(4) : "www." + this.query.modifier.sitehost, 80);
+        } catch (final MalformedURLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * check the constraints of the query for a normalized reference and put it into the ranked stack
+     * @param criteria a buffer for the ranking criteria which is reused for all references of a container
+     * @return true if the reference was accepted
+     */
+    private boolean addRWI(final WordReferenceVars iEntry, final boolean local, final String acceptableAlternativeSitehash, final int[] criteria) throws SpaceExceededException {
+        if (!acceptRWI(new VarsView(iEntry), acceptableAlternativeSitehash, this.flagcount)) return false;
+
+        // finally extend the double-check and insert result to stack
+        this.urlhashes.putUnique(iEntry.urlhash());
+        this.rwiStack.put(new ReverseElement<WordReferenceVars>(iEntry, cardinal(iEntry, criteria))); // inserts the element and removes the worst (which is smallest)
+        // increase counter for statistics
+        if (local) this.local_rwi_available.incrementAndGet(); else this.remote_rwi_available.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return the ranking of a normalized reference
+     */
+    private long cardinal(final WordReferenceVars iEntry, final int[] criteria) {
+        while (true) {
+            try {
+                return this.order.cardinal(iEntry, criteria);
+            } catch (final ArithmeticException e ) {
+                // this may happen if the concurrent normalizer changes values during cardinal computation
+                if (log.isFine()) log.fine("dropped RWI: arithmetic exception");
+            }
+        }
+    }
+
+    /**
+     * @return the ranking of a reference in a normalized block
+     */
+    private long cardinal(final WordReferenceBlock block, final int i) {
+        while (true) {
+            try {
+                return this.order.cardinal(block, i);
+            } catch (final ArithmeticException e ) {
+                // this may happen if the concurrent normalizer changes values during cardinal computation
+                if (log.isFine()) log.fine("dropped RWI: arithmetic exception");
+            }
+        }
+    }
+
+    /**
+     * @return the ranking which a reference must have at least to enter the rwi stack; Long.MIN_VALUE if the stack is not full
+     */
+    private long rwiStackThreshold() {
+        if (this.rwiStack.sizeQueue() < max_results_rwi) return Long.MIN_VALUE;
+        final Element<WordReferenceVars> last = this.rwiStack.getLastInQueue();
+        return last == null ? Long.MIN_VALUE : last.getWeight();
+    }
+
+    /**
+     * the properties of a reference which are checked with the constraints of the query in {@link SearchEvent#acceptRWI(RWIView, String, int[])}.
+     * There is a view for a reference object and a view for a reference in a block, which needs no objects for the reference.
+     */
+    private interface RWIView {
+        /** @return the url hash; the view of a block returns the same buffer for all references */
+        byte[] urlhash();
+        /** @return the flags bitfield of the reference as int, bit n is flag n */
+        int flags();
+        char getType();
+        boolean hasLanguage(String language);
+        String hosthash();
+        boolean hosthashEquals(String hosthash);
+    }
+
+    private static final class VarsView implements RWIView {
+        private final WordReferenceVars entry;
+
+        private VarsView(final WordReferenceVars entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public byte[] urlhash() {
+            return this.entry.urlhash();
+        }
+
+        @Override
+        public int flags() {
+            final Bitfield flags = this.entry.flags();
+            int f = 0;
+            for (int j = 0; j < 32; j++) {
+                if (flags.get(j)) f |= 1 << j;
+            }
+            return f;
+        }
+
+        @Override
+        public char getType() {
+            return this.entry.getType();
+        }
+
+        @Override
+        public boolean hasLanguage(final String language) {
+            return language.equals(this.entry.getLanguageString());
+        }
+
+        @Override
+        public String hosthash() {
+            return this.entry.hosthash();
+        }
+
+        @Override
+        public boolean hosthashEquals(final String hosthash) {
+            return this.entry.hosthash().equals(hosthash);
+        }
+    }
+
+    /**
+     * a view of the references in a block; the view is moved to a reference with {@link #at(int)}
+     */
+    private static final class BlockView implements RWIView {
+        private final WordReferenceBlock block;
+        private final byte[] urlhash;
+        private int i;
+
+        private BlockView(final WordReferenceBlock block) {
+            this.block = block;
+            this.urlhash = new byte[Word.commonHashLength];
+            this.i = 0;
+        }
+
+        private BlockView at(final int i) {
+            this.i = i;
+            return this;
+        }
+
+        @Override
+        public byte[] urlhash() {
+            this.block.urlhash(this.i, this.urlhash);
+            return this.urlhash;
+        }
+
+        @Override
+        public int flags() {
+            return this.block.flags(this.i);
+        }
+
+        @Override
+        public char getType() {
+            return this.block.getType(this.i);
+        }
+
+        @Override
+        public boolean hasLanguage(final String language) {
+            return language.length() == 2 && this.block.language(this.i) == ((language.charAt(0) & 0xff) << 8 | (language.charAt(1) & 0xff));
+        }
+
+        @Override
+        public String hosthash() {
+            return this.block.hosthash(this.i);
+        }
+
+        @Override
+        public boolean hosthashEquals(final String hosthash) {
+            return this.block.hosthashEquals(this.i, hosthash);
+        }
+    }
+
+    /**
+     * check the constraints of the query for a reference
+     * @param flagcount the flag counts which are increased with the flags of the reference
+     * @return true if the reference matches the constraints and is not already known
+     */
+    private boolean acceptRWI(final RWIView entry, final String acceptableAlternativeSitehash, final int[] flagcount) {
+        // doublecheck for urls
+        if (this.urlhashes.has(entry.urlhash())) {
+            if (log.isFine()) log.fine("dropped RWI: doublecheck");
+            return false;
+        }
+
+        // increase flag counts
+        final int flags = entry.flags();
+        for (int j = 0; j < 32; j++) {
+            if (((flags >>> j) & 1) != 0) flagcount[j]++;
+        }
+
+        // check constraints
+        if (!this.testFlags(flags)) {
+            if (log.isFine()) log.fine("dropped RWI: flag test failed");
+            return false;
+        }
+
+        // check document domain
+        if (this.query.contentdom.getCode() > 0) {
+            boolean domainMatch = true;
+            if (this.query.isStrictContentDom()) {
+                final char type = entry.getType();
+                if ((this.query.contentdom == ContentDomain.AUDIO && type != Response.DT_AUDIO) ||
+                    (this.query.contentdom == ContentDomain.VIDEO && type != Response.DT_MOVIE) ||
+                    (this.query.contentdom == ContentDomain.IMAGE && type != Response.DT_IMAGE) ||
+                    (this.query.contentdom == ContentDomain.APP && ((flags >>> Tokenizer.flag_cat_hasapp) & 1) == 0)) {
+                    domainMatch = false;
+                }
+            } else if ((this.query.contentdom == ContentDomain.AUDIO && ((flags >>> Tokenizer.flag_cat_hasaudio) & 1) == 0) ||
+                       (this.query.contentdom == ContentDomain.VIDEO && ((flags >>> Tokenizer.flag_cat_hasvideo) & 1) == 0) ||
+                       (this.query.contentdom == ContentDomain.IMAGE && ((flags >>> Tokenizer.flag_cat_hasimage) & 1) == 0) ||
+                       (this.query.contentdom == ContentDomain.APP && ((flags >>> Tokenizer.flag_cat_hasapp) & 1) == 0)) {
+                domainMatch = false;
+            }
+            if (!domainMatch) {
+                if (log.isFine()) log.fine("dropped RWI: contentdom fail");
+                return false;
+            }
+        }
+
+        // check language
+        if (this.query.modifier.language != null && !this.query.modifier.language.isEmpty() && !entry.hasLanguage(this.query.modifier.language)) {
+            if (log.isFine()) log.fine("dropped RWI: language constraint = " + this.query.modifier.language);
+            return false;
+        }
+
+        // check site constraints
+        if (this.query.modifier.sitehash == null) {
+            if (this.query.siteexcludes != null && this.query.siteexcludes.contains(entry.hosthash())) {
+                if (log.isFine()) log.fine("dropped RWI: siteexcludes");
+                return false;
+            }
+        } else {
+            // filter out all domains that do not match with the site constraint
+            if (!entry.hosthashEquals(this.query.modifier.sitehash) && (acceptableAlternativeSitehash == null || !entry.hosthashEquals(acceptableAlternativeSitehash))) {
+                if (log.isFine()) log.fine("dropped RWI: modifier.sitehash");
+                return false;
+            }
+        }
+        return true;
+    }
     
     public long getEventTime() {
         return this.eventTime;
@@ -2456,6 +2844,23 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         return c;
     }
     
+    /**
+     * test the flags of a reference given as int, bit n is flag n
+     */
+    protected boolean testFlags(final int flags) {
+        if (this.query.constraint == null) return true;
+        if (this.query.allofconstraint) {
+            for ( int i = 0; i < 32; i++ ) {
+                if ((this.query.constraint.get(i)) && ((flags >>> i) & 1) == 0) return false;
+            }
+            return true;
+        }
+        for (int i = 0; i < 32; i++) {
+            if ((this.query.constraint.get(i)) && ((flags >>> i) & 1) != 0) return true;
+        }
+        return false;
+    }
+
     protected boolean testFlags(final Bitfield flags) {
         if (this.query.constraint == null) return true;
         // test if ientry matches with filter
@@ -0,0 +1,209 @@
+/**
+ *  CitationRankMatrix
+ *  Copyright 2026 by the YaCy contributors
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.ranking;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import net.yacy.kelondro.workflow.WorkflowProcessor;
+
+/**
+ * The link structure of the documents of one host as a sparse matrix in compressed row storage:
+ * the documents are numbered 0..size-1 and the internal references to document i are the
+ * document numbers in sources[offsets[i]..offsets[i+1]]. The citation rank is computed with
+ * a power iteration over primitive arrays; large hosts are split into ranges of documents
+ * which are computed in parallel.
+ */
+public final class CitationRankMatrix {
+
+    private static final int rangeSize = 4096; // number of documents that are computed in one task
+    private static final ForkJoinPool pool = new ForkJoinPool(WorkflowProcessor.availableCPU);
+
+    private final int size;
+    private final int[] offsets;
+    private final int[] links;
+    private int[] sources;
+    private int nodes;
+    private double[] cr, ncr;
+
+    /**
+     * create an empty matrix; the references of all documents must be added with addReferences in the order of the document numbers
+     * @param size the number of documents
+     */
+    public CitationRankMatrix(final int size) {
+        this.size = size;
+        this.offsets = new int[size + 1];
+        this.links = new int[size];
+        this.sources = new int[Math.max(16, size * 4)];
+        this.nodes = 0;
+        this.cr = new double[size];
+        this.ncr = new double[size];
+        Arrays.fill(this.cr, 1.0d / size);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * set the number of internal links from a document, the divisor of its rank when it is passed to the linked documents
+     * @param node the document number
+     * @param count the number of links to documents of the same host
+     */
+    public void setLinks(final int node, final int count) {
+        this.links[node] = count;
+    }
+
+    /**
+     * add the internal references to the next document
+     * @param target the document number, must be the number of documents added so far
+     * @param references the document numbers of the documents linking to the target
+     * @param count the number of references in the array
+     */
+    public void addReferences(final int target, final int[] references, final int count) {
+        if (target != this.nodes) throw new IllegalArgumentException("references must be added in document order, expected " + this.nodes + ", got " + target);
+        final int start = this.offsets[target];
+        if (start + count > this.sources.length) {
+            this.sources = Arrays.copyOf(this.sources, Math.max(start + count, this.sources.length * 2));
+        }
+        System.arraycopy(references, 0, this.sources, start, count);
+        this.offsets[target + 1] = start + count;
+        this.nodes++;
+    }
+
+    /**
+     * @return the number of references in the matrix
+     */
+    public int references() {
+        return this.offsets[this.nodes];
+    }
+
+    /**
+     * the current rank of a document
+     */
+    public double cr(final int node) {
+        return this.cr[node];
+    }
+
+    /**
+     * compute the next generation of the citation rank of all documents.
+     * The references of documents are summed up in the order in which they were added, so the
+     * result is the same as that of a sequential computation.
+     * @param damping the damping factor
+     * @param convergeEqFactor ranks are considered as equal if they are equal after multiplication with this factor
+     * @return true if no rank has changed
+     */
+    public boolean convergenceStep(final double damping, final int convergeEqFactor) {
+        if (this.nodes != this.size) throw new IllegalStateException("references of " + (this.size - this.nodes) + " documents are missing");
+        final double df = (1.0d - damping) / this.size;
+        final boolean convergence = this.size <= rangeSize ?
+                new Step(0, this.size, df, damping, convergeEqFactor).compute() :
+                pool.invoke(new Step(0, this.size, df, damping, convergeEqFactor));
+        final double[] t = this.cr;
+        this.cr = this.ncr;
+        this.ncr = t;
+        return convergence;
+    }
+
+    private final class Step extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+        private final int from, to;
+        private final double df, damping;
+        private final int convergeEqFactor;
+
+        private Step(final int from, final int to, final double df, final double damping, final int convergeEqFactor) {
+            this.from = from;
+            this.to = to;
+            this.df = df;
+            this.damping = damping;
+            this.convergeEqFactor = convergeEqFactor;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (this.to - this.from > rangeSize) {
+                final int middle = (this.from + this.to) >>> 1;
+                final Step left = new Step(this.from, middle, this.df, this.damping, this.convergeEqFactor);
+                left.fork();
+                final boolean right = new Step(middle, this.to, this.df, this.damping, this.convergeEqFactor).compute();
+                return left.join() && right;
+            }
+            final int[] offsets = CitationRankMatrix.this.offsets;
+            final int[] sources = CitationRankMatrix.this.sources;
+            final int[] links = CitationRankMatrix.this.links;
+            final double[] cr = CitationRankMatrix.this.cr;
+            final double[] ncr = CitationRankMatrix.this.ncr;
+            boolean convergence = true;
+            for (int i = this.from; i < this.to; i++) {
+                double s = 0.0d;
+                for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+                    final int j = sources[p];
+                    s += cr[j] / links[j];
+                }
+                s = this.df + this.damping * s;
+                if (convergence && ((int) (s * this.convergeEqFactor)) != ((int) (cr[i] * this.convergeEqFactor))) convergence = false;
+                ncr[i] = s;
+            }
+            return convergence;
+        }
+    }
+
+    /**
+     * compute a normalized rank for all documents: the half of the documents with the lowest rank get the
+     * lowest normalized rank, the half of the remaining documents the next one and so on. Documents with
+     * equal ranks get the same normalized rank. The normalized ranks are shifted so that the maximum is 10.
+     * @return the normalized rank for each document
+     */
+    public int[] normalize() {
+        final double[] cr = this.cr;
+        final Integer[] order = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return Double.compare(cr[a.intValue()], cr[b.intValue()]);
+            }
+        });
+        final int[] crn = new int[this.size];
+        int nextcount = (this.size + 1) / 2;
+        int nextcrn = 0;
+        int p = 0;
+        while (p < this.size) {
+            int count = nextcount;
+            while (p < this.size && count > 0) {
+                // take all documents with the same rank
+                final double v = cr[order[p].intValue()];
+                int q = p;
+                while (q < this.size && Double.compare(cr[order[q].intValue()], v) == 0) crn[order[q++].intValue()] = nextcrn;
+                count -= q - p;
+                p = q;
+            }
+            nextcrn++;
+            nextcount = Math.max(1, (nextcount + count + 1) / 2);
+        }
+        // finally, increase the crn number in such a way that the maximum is always 10
+        final int inc = 11 - nextcrn; // nextcrn is +1
+        for (int i = 0; i < this.size; i++) crn[i] += inc;
+        return crn;
+    }
+}
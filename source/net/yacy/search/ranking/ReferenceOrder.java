@@ -27,12 +27,14 @@
 package net.yacy.search.ranking;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
@@ -42,6 +44,7 @@ import net.yacy.document.LargeNumberCache;
 import net.yacy.document.Tokenizer;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceBlock;
 import net.yacy.kelondro.data.word.WordReferenceRow;
 import net.yacy.kelondro.data.word.WordReferenceVars;
 import net.yacy.kelondro.rwi.ReferenceContainer;
@@ -52,19 +55,29 @@ public class ReferenceOrder {
 
     private static int cores = Runtime.getRuntime().availableProcessors();
 
-    private       int maxdomcount;
-    private       WordReferenceVars min, max;
+    private static final int CRITERIA = WordReferenceBlock.CRITERIA;
+
+    private final AtomicInteger maxdomcount; // updated concurrently by the partitions of a container
+    private final int[] min, max; // normalization of the ranking criteria, positions as in WordReferenceBlock
+    private       double minTF, maxTF;
+    private       boolean normalized;
     private final ConcurrentScoreMap<String> doms; // collected for "authority" heuristic
     private final RankingProfile ranking;
     private final String language;
+    private final int languageKey;
 
     public ReferenceOrder(final RankingProfile profile, final String language) {
-        this.min = null;
-        this.max = null;
+        this.min = new int[CRITERIA];
+        this.max = new int[CRITERIA];
+        this.minTF = 0.0;
+        this.maxTF = 0.0;
+        this.normalized = false;
         this.ranking = profile;
         this.doms = new ConcurrentScoreMap<String>();
-        this.maxdomcount = 0;
+        this.maxdomcount = new AtomicInteger(0);
         this.language = language;
+        final byte[] l = language == null ? null : ASCII.getBytes(language);
+        this.languageKey = l == null || l.length != 2 ? -1 : WordReferenceBlock.languageKey(l);
     }
 
     public BlockingQueue<WordReferenceVars> normalizeWith(final ReferenceContainer<WordReference> container, long maxtime, final boolean local) {
@@ -163,6 +176,7 @@ public class ReferenceOrder {
         public void run() {
             try {
                 WordReferenceVars iEntry;
+                final int[] values = new int[CRITERIA];
                 final Map<String, Integer> doms0 = new HashMap<String, Integer>();
                 String dom;
                 Integer count;
@@ -170,8 +184,7 @@ public class ReferenceOrder {
                 long timeout = this.maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + this.maxtime;
                 while ((iEntry = this.decodedEntries.take()) != WordReferenceVars.poison) {
                     // find min/max
-                    if (ReferenceOrder.this.min == null) ReferenceOrder.this.min = iEntry.clone(); else ReferenceOrder.this.min.min(iEntry);
-                    if (ReferenceOrder.this.max == null) ReferenceOrder.this.max = iEntry.clone(); else ReferenceOrder.this.max.max(iEntry);
+                    extend(iEntry, values);
                     this.out.put(iEntry); // must be after the min/max check to prevent that min/max is null in cardinal()
                     // update domcount
                     dom = iEntry.hosthash();
@@ -195,7 +208,7 @@ public class ReferenceOrder {
                     entry = di.next();
                     ReferenceOrder.this.doms.inc(entry.getKey(), (entry.getValue()).intValue());
                 }
-                if (!ReferenceOrder.this.doms.isEmpty()) ReferenceOrder.this.maxdomcount = ReferenceOrder.this.doms.getMaxScore();
+                if (!ReferenceOrder.this.doms.isEmpty()) ReferenceOrder.this.maxdomcount.accumulateAndGet(ReferenceOrder.this.doms.getMaxScore(), Math::max);
             } catch (final InterruptedException e) {
                 ConcurrentLog.logException(e);
             } catch (final Exception e) {
@@ -210,9 +223,157 @@ public class ReferenceOrder {
         }
     }
 
+    /**
+     * read the ranking criteria of a reference
+     * @param t the reference
+     * @param v the criteria, positions as in {@link WordReferenceBlock}
+     */
+    private static void values(final WordReference t, final int[] v) {
+        v[WordReferenceBlock.HITCOUNT] = t.hitcount();
+        v[WordReferenceBlock.LLOCAL] = t.llocal();
+        v[WordReferenceBlock.LOTHER] = t.lother();
+        v[WordReferenceBlock.VIRTUALAGE] = t.virtualAge();
+        v[WordReferenceBlock.WORDSINTEXT] = t.wordsintext();
+        v[WordReferenceBlock.PHRASESINTEXT] = t.phrasesintext();
+        v[WordReferenceBlock.POSINTEXT] = t.posintext();
+        v[WordReferenceBlock.POSINPHRASE] = t.posinphrase();
+        v[WordReferenceBlock.POSOFPHRASE] = t.posofphrase();
+        v[WordReferenceBlock.URLLENGTH] = t.urllength();
+        v[WordReferenceBlock.URLCOMPS] = t.urlcomps();
+        v[WordReferenceBlock.WORDSINTITLE] = t.wordsintitle();
+        v[WordReferenceBlock.DISTANCE] = t.distance();
+    }
+
+    /**
+     * extend the normalization with the criteria of a single reference
+     * @param t the reference
+     * @param v a buffer for the criteria
+     */
+    private void extend(final WordReference t, final int[] v) {
+        values(t, v);
+        extend(v, 0, v, 0, t.termFrequency(), t.termFrequency());
+    }
+
+    /**
+     * extend the normalization with a minimum and maximum of criteria
+     */
+    private synchronized void extend(final int[] pmin, final int pminOffset, final int[] pmax, final int pmaxOffset, final double pminTF, final double pmaxTF) {
+        if (!this.normalized) {
+            System.arraycopy(pmin, pminOffset, this.min, 0, CRITERIA);
+            System.arraycopy(pmax, pmaxOffset, this.max, 0, CRITERIA);
+            this.minTF = pminTF;
+            this.maxTF = pmaxTF;
+            this.normalized = true;
+            return;
+        }
+        for (int c = 0; c < CRITERIA; c++) {
+            if (pmin[pminOffset + c] < this.min[c]) this.min[c] = pmin[pminOffset + c];
+            if (pmax[pmaxOffset + c] > this.max[c]) this.max[c] = pmax[pmaxOffset + c];
+        }
+        if (pminTF < this.minTF) this.minTF = pminTF;
+        if (pmaxTF > this.maxTF) this.maxTF = pmaxTF;
+    }
+
+    /**
+     * normalize ranking with a single entry of a stream of references: the minimum and maximum
+     * of the ranking criteria and the domain count are updated at once. Entries which are ranked
+     * before the end of the stream are ranked with the normalization that is known at that time,
+     * which is the same as for entries that are ranked while a container is normalized concurrently.
+     * @param entry
+     */
+    public void normalizeWith(final WordReferenceVars entry) {
+        extend(entry, new int[CRITERIA]);
+        final String dom = entry.hosthash();
+        this.doms.inc(dom);
+        final int count = this.doms.get(dom);
+        this.maxdomcount.accumulateAndGet(count, Math::max);
+    }
+
+    /**
+     * normalize ranking with a partition of references: the minimum and maximum of the ranking criteria
+     * and the domain counts of the partition are computed first and then merged at once, so concurrent
+     * partitions synchronize only once and not for each reference.
+     * @param entries
+     */
+    public void normalizeWith(final Collection<WordReferenceVars> entries) {
+        if (entries.isEmpty()) return;
+        final int[] v = new int[CRITERIA];
+        final int[] pmin = new int[CRITERIA];
+        final int[] pmax = new int[CRITERIA];
+        double pminTF = Double.MAX_VALUE, pmaxTF = -Double.MAX_VALUE;
+        Arrays.fill(pmin, Integer.MAX_VALUE);
+        Arrays.fill(pmax, Integer.MIN_VALUE);
+        final Map<String, Integer> doms0 = new HashMap<String, Integer>();
+        Integer count;
+        for (final WordReferenceVars entry: entries) {
+            values(entry, v);
+            for (int c = 0; c < CRITERIA; c++) {
+                if (v[c] < pmin[c]) pmin[c] = v[c];
+                if (v[c] > pmax[c]) pmax[c] = v[c];
+            }
+            final double tf = entry.termFrequency();
+            if (tf < pminTF) pminTF = tf;
+            if (tf > pmaxTF) pmaxTF = tf;
+            count = doms0.get(entry.hosthash());
+            doms0.put(entry.hosthash(), count == null ? LargeNumberCache.valueOf(1) : LargeNumberCache.valueOf(count.intValue() + 1));
+        }
+        extend(pmin, 0, pmax, 0, pminTF, pmaxTF);
+        for (final Map.Entry<String, Integer> entry: doms0.entrySet()) {
+            this.doms.inc(entry.getKey(), entry.getValue().intValue());
+            final int c = this.doms.get(entry.getKey());
+            this.maxdomcount.accumulateAndGet(c, Math::max);
+        }
+    }
+
+    /**
+     * normalize ranking with a block of references without creating objects for the references.
+     * The domain count of each reference in the block is set to the count that is known after the
+     * block was merged; it is used for the authority in {@link #cardinal(WordReferenceBlock, int)}.
+     * @param block
+     */
+    public void normalizeWith(final WordReferenceBlock block) {
+        final int size = block.size();
+        if (size == 0) return;
+        assert size < (1 << 21);
+        final int[] values = block.values();
+        final int[] pmin = new int[CRITERIA];
+        final int[] pmax = new int[CRITERIA];
+        double pminTF = Double.MAX_VALUE, pmaxTF = -Double.MAX_VALUE;
+        Arrays.fill(pmin, Integer.MAX_VALUE);
+        Arrays.fill(pmax, Integer.MIN_VALUE);
+        final long[] hosts = new long[size];
+        for (int i = 0; i < size; i++) {
+            final int o = i * CRITERIA;
+            for (int c = 0; c < CRITERIA; c++) {
+                if (values[o + c] < pmin[c]) pmin[c] = values[o + c];
+                if (values[o + c] > pmax[c]) pmax[c] = values[o + c];
+            }
+            final double tf = block.termFrequency(i);
+            if (tf < pminTF) pminTF = tf;
+            if (tf > pmaxTF) pmaxTF = tf;
+            hosts[i] = (block.hostkey(i) << 21) | i;
+        }
+        extend(pmin, 0, pmax, 0, pminTF, pmaxTF);
+
+        // count the domains: the sorted host keys group the references of a host
+        Arrays.sort(hosts);
+        int start = 0;
+        while (start < size) {
+            final long host = hosts[start] >>> 21;
+            int end = start + 1;
+            while (end < size && (hosts[end] >>> 21) == host) end++;
+            final String dom = block.hosthash((int) (hosts[start] & 0x1fffff));
+            this.doms.inc(dom, end - start);
+            final int count = this.doms.get(dom);
+            this.maxdomcount.accumulateAndGet(count, Math::max);
+            for (int j = start; j < end; j++) block.setDomcount((int) (hosts[j] & 0x1fffff), count);
+            start = end;
+        }
+    }
+
     public int authority(final String hostHash) {
         assert hostHash.length() == 6;
-        return (this.doms.get(hostHash) << 8) / (1 + this.maxdomcount);
+        return (this.doms.get(hostHash) << 8) / (1 + this.maxdomcount.get());
     }
 
     /**
@@ -221,49 +382,111 @@ public class ReferenceOrder {
      * @return a ranking: the higher the number, the better is the ranking
      */
     public long cardinal(final WordReference t) {
+        return cardinal(t, new int[CRITERIA]);
+    }
+
+    /**
+     * return the ranking of a given word entry; the buffer can be reused for the ranking of many entries
+     * @param t
+     * @param v a buffer for the criteria, with a length of at least {@link WordReferenceBlock#CRITERIA}
+     * @return a ranking: the higher the number, the better is the ranking
+     */
+    public long cardinal(final WordReference t, final int[] v) {
         // the normalizedEntry must be a normalized indexEntry
-        assert this.min != null;
-        assert this.max != null;
+        assert this.normalized;
         assert t != null;
         assert this.ranking != null;
+        values(t, v);
         final Bitfield flags = t.flags();
-        final long tf = ((this.max.termFrequency() == this.min.termFrequency()) ? 0 : (((int)(((t.termFrequency()-this.min.termFrequency())*256.0)/(this.max.termFrequency() - this.min.termFrequency())))) << this.ranking.coeff_termfrequency);
-        //System.out.println("tf(" + t.urlHash + ") = " + Math.floor(1000 * t.termFrequency()) + ", min = " + Math.floor(1000 * min.termFrequency()) + ", max = " + Math.floor(1000 * max.termFrequency()) + ", tf-normed = " + tf);
-        final long r =
-             ((256 - DigestURL.domLengthNormalized(t.urlhash())) << this.ranking.coeff_domlength)
-           + ((this.max.urlcomps()      == this.min.urlcomps()   )   ? 0 : (256 - (((t.urlcomps()     - this.min.urlcomps()    ) << 8) / (this.max.urlcomps()    - this.min.urlcomps())    )) << this.ranking.coeff_urlcomps)
-           + ((this.max.urllength()     == this.min.urllength()  )   ? 0 : (256 - (((t.urllength()    - this.min.urllength()   ) << 8) / (this.max.urllength()   - this.min.urllength())   )) << this.ranking.coeff_urllength)
-           + ((this.max.posintext()     == this.min.posintext())     ? 0 : (256 - (((t.posintext()    - this.min.posintext()   ) << 8) / (this.max.posintext()   - this.min.posintext())   )) << this.ranking.coeff_posintext)
-           + ((this.max.posofphrase()   == this.min.posofphrase())   ? 0 : (256 - (((t.posofphrase()  - this.min.posofphrase() ) << 8) / (this.max.posofphrase() - this.min.posofphrase()) )) << this.ranking.coeff_posofphrase)
-           + ((this.max.posinphrase()   == this.min.posinphrase())   ? 0 : (256 - (((t.posinphrase()  - this.min.posinphrase() ) << 8) / (this.max.posinphrase() - this.min.posinphrase()) )) << this.ranking.coeff_posinphrase)
-           + ((this.max.distance()      == this.min.distance()   )   ? 0 : (256 - (((t.distance()     - this.min.distance()    ) << 8) / (this.max.distance()    - this.min.distance())    )) << this.ranking.coeff_worddistance)
-           + ((this.max.virtualAge()    == this.min.virtualAge())    ? 0 :        (((t.virtualAge()   - this.min.virtualAge()  ) << 8) / (this.max.virtualAge()  - this.min.virtualAge())   ) << this.ranking.coeff_date)
-           + ((this.max.wordsintitle()  == this.min.wordsintitle())  ? 0 : (((t.wordsintitle() - this.min.wordsintitle()  ) << 8) / (this.max.wordsintitle() - this.min.wordsintitle())  ) << this.ranking.coeff_wordsintitle)
-           + ((this.max.wordsintext()   == this.min.wordsintext())   ? 0 : (((t.wordsintext()  - this.min.wordsintext()   ) << 8) / (this.max.wordsintext()  - this.min.wordsintext())   ) << this.ranking.coeff_wordsintext)
-           + ((this.max.phrasesintext() == this.min.phrasesintext()) ? 0 : (((t.phrasesintext()- this.min.phrasesintext() ) << 8) / (this.max.phrasesintext()- this.min.phrasesintext()) ) << this.ranking.coeff_phrasesintext)
-           + ((this.max.llocal()        == this.min.llocal())        ? 0 : (((t.llocal()       - this.min.llocal()        ) << 8) / (this.max.llocal()       - this.min.llocal())        ) << this.ranking.coeff_llocal)
-           + ((this.max.lother()        == this.min.lother())        ? 0 : (((t.lother()       - this.min.lother()        ) << 8) / (this.max.lother()       - this.min.lother())        ) << this.ranking.coeff_lother)
-           + ((this.max.hitcount()      == this.min.hitcount())      ? 0 : (((t.hitcount()     - this.min.hitcount()      ) << 8) / (this.max.hitcount()     - this.min.hitcount())      ) << this.ranking.coeff_hitcount)
-           + tf
-           + ((this.ranking.coeff_authority > 12) ? (authority(t.hosthash()) << this.ranking.coeff_authority) : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_identifier))  ? 255 << this.ranking.coeff_appurl             : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_title))       ? 255 << this.ranking.coeff_app_dc_title       : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_creator))     ? 255 << this.ranking.coeff_app_dc_creator     : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_subject))     ? 255 << this.ranking.coeff_app_dc_subject     : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_description)) ? 255 << this.ranking.coeff_app_dc_description : 0)
-           + ((flags.get(WordReferenceRow.flag_app_emphasized))     ? 255 << this.ranking.coeff_appemph            : 0)
-           + ((flags.get(Tokenizer.flag_cat_indexof))      ? 255 << this.ranking.coeff_catindexof         : 0)
-           + ((flags.get(Tokenizer.flag_cat_hasimage))     ? 255 << this.ranking.coeff_cathasimage        : 0)
-           + ((flags.get(Tokenizer.flag_cat_hasaudio))     ? 255 << this.ranking.coeff_cathasaudio        : 0)
-           + ((flags.get(Tokenizer.flag_cat_hasvideo))     ? 255 << this.ranking.coeff_cathasvideo        : 0)
-           + ((flags.get(Tokenizer.flag_cat_hasapp))       ? 255 << this.ranking.coeff_cathasapp          : 0)
-           + ((Arrays.equals(t.getLanguage(), ASCII.getBytes(this.language))) ? 255 << this.ranking.coeff_language    : 0);
+        final byte[] f = flags.bytes();
+        int fv = 0;
+        for (int j = Math.min(4, f.length) - 1; j >= 0; j--) fv = (fv << 8) | (f[j] & 0xff);
+        return cardinal(v, 0, t.termFrequency(), fv,
+                DigestURL.domLengthNormalized(t.urlhash()),
+                (this.ranking.coeff_authority > 12) ? authority(t.hosthash()) : 0,
+                Arrays.equals(t.getLanguage(), ASCII.getBytes(this.language)));
+    }
 
-        //if (searchWords != null) r += (yacyURL.probablyWordURL(t.urlHash(), searchWords) != null) ? 256 << ranking.coeff_appurl : 0;
+    /**
+     * return the ranking of a reference in a block which was normalized with {@link #normalizeWith(WordReferenceBlock)}
+     * @param block
+     * @param i the position of the reference in the block
+     * @return a ranking: the higher the number, the better is the ranking
+     */
+    public long cardinal(final WordReferenceBlock block, final int i) {
+        assert this.normalized;
+        return cardinal(block.values(), i * CRITERIA, block.termFrequency(i), block.flags(i),
+                block.domLengthNormalized(i),
+                (this.ranking.coeff_authority > 12) ? (block.domcount(i) << 8) / (1 + this.maxdomcount.get()) : 0,
+                this.languageKey >= 0 && block.language(i) == this.languageKey);
+    }
+
+    private static boolean flag(final int flags, final int flag) {
+        return ((flags >>> flag) & 1) != 0;
+    }
+
+    /**
+     * the ranking of a reference from its criteria
+     * @param t the criteria, positions as in {@link WordReferenceBlock}
+     * @param o the offset of the criteria in t
+     * @param tf the term frequency
+     * @param flags the flags bitfield as int
+     * @param domLengthNormalized the normalized domain length estimation of the url hash
+     * @param authority the authority of the host
+     * @param languageMatch true if the language of the reference is the language of the order
+     * @return a ranking: the higher the number, the better is the ranking
+     */
+    private long cardinal(final int[] t, final int o, final double tf, final int flags, final int domLengthNormalized, final int authority, final boolean languageMatch) {
+        final int[] min = this.min;
+        final int[] max = this.max;
+        final long tfn = ((this.maxTF == this.minTF) ? 0 : (((int)(((tf - this.minTF)*256.0)/(this.maxTF - this.minTF)))) << this.ranking.coeff_termfrequency);
+        final long r =
+             ((256 - domLengthNormalized) << this.ranking.coeff_domlength)
+           + smaller(t, o, min, max, WordReferenceBlock.URLCOMPS, this.ranking.coeff_urlcomps)
+           + smaller(t, o, min, max, WordReferenceBlock.URLLENGTH, this.ranking.coeff_urllength)
+           + smaller(t, o, min, max, WordReferenceBlock.POSINTEXT, this.ranking.coeff_posintext)
+           + smaller(t, o, min, max, WordReferenceBlock.POSOFPHRASE, this.ranking.coeff_posofphrase)
+           + smaller(t, o, min, max, WordReferenceBlock.POSINPHRASE, this.ranking.coeff_posinphrase)
+           + smaller(t, o, min, max, WordReferenceBlock.DISTANCE, this.ranking.coeff_worddistance)
+           + larger(t, o, min, max, WordReferenceBlock.VIRTUALAGE, this.ranking.coeff_date)
+           + larger(t, o, min, max, WordReferenceBlock.WORDSINTITLE, this.ranking.coeff_wordsintitle)
+           + larger(t, o, min, max, WordReferenceBlock.WORDSINTEXT, this.ranking.coeff_wordsintext)
+           + larger(t, o, min, max, WordReferenceBlock.PHRASESINTEXT, this.ranking.coeff_phrasesintext)
+           + larger(t, o, min, max, WordReferenceBlock.LLOCAL, this.ranking.coeff_llocal)
+           + larger(t, o, min, max, WordReferenceBlock.LOTHER, this.ranking.coeff_lother)
+           + larger(t, o, min, max, WordReferenceBlock.HITCOUNT, this.ranking.coeff_hitcount)
+           + tfn
+           + ((this.ranking.coeff_authority > 12) ? (authority << this.ranking.coeff_authority) : 0)
+           + ((flag(flags, WordReferenceRow.flag_app_dc_identifier))  ? 255 << this.ranking.coeff_appurl             : 0)
+           + ((flag(flags, WordReferenceRow.flag_app_dc_title))       ? 255 << this.ranking.coeff_app_dc_title       : 0)
+           + ((flag(flags, WordReferenceRow.flag_app_dc_creator))     ? 255 << this.ranking.coeff_app_dc_creator     : 0)
+           + ((flag(flags, WordReferenceRow.flag_app_dc_subject))     ? 255 << this.ranking.coeff_app_dc_subject     : 0)
+           + ((flag(flags, WordReferenceRow.flag_app_dc_description)) ? 255 << this.ranking.coeff_app_dc_description : 0)
+           + ((flag(flags, WordReferenceRow.flag_app_emphasized))     ? 255 << this.ranking.coeff_appemph            : 0)
+           + ((flag(flags, Tokenizer.flag_cat_indexof))      ? 255 << this.ranking.coeff_catindexof         : 0)
+           + ((flag(flags, Tokenizer.flag_cat_hasimage))     ? 255 << this.ranking.coeff_cathasimage        : 0)
+           + ((flag(flags, Tokenizer.flag_cat_hasaudio))     ? 255 << this.ranking.coeff_cathasaudio        : 0)
+           + ((flag(flags, Tokenizer.flag_cat_hasvideo))     ? 255 << this.ranking.coeff_cathasvideo        : 0)
+           + ((flag(flags, Tokenizer.flag_cat_hasapp))       ? 255 << this.ranking.coeff_cathasapp          : 0)
+           + ((languageMatch) ? 255 << this.ranking.coeff_language    : 0);
 
         return r; // the higher the number the better the ranking.
     }
-    
+
+    /**
+     * normalized criterion where smaller values are better
+     */
+    private static long smaller(final int[] t, final int o, final int[] min, final int[] max, final int c, final int coeff) {
+        return (max[c] == min[c]) ? 0 : (256 - (((t[o + c] - min[c]) << 8) / (max[c] - min[c]))) << coeff;
+    }
+
+    /**
+     * normalized criterion where larger values are better
+     */
+    private static long larger(final int[] t, final int o, final int[] min, final int[] max, final int c, final int coeff) {
+        return (max[c] == min[c]) ? 0 : (((t[o + c] - min[c]) << 8) / (max[c] - min[c])) << coeff;
+    }
+
     public long cardinal(final URIMetadataNode t) {
         // the normalizedEntry must be a normalized indexEntry
         assert t != null;
@@ -32,6 +32,7 @@ import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -43,7 +44,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -106,6 +106,7 @@ import net.yacy.search.index.Segment;
 import net.yacy.search.index.Segment.ReferenceReport;
 import net.yacy.search.index.Segment.ReferenceReportCache;
 import net.yacy.search.query.QueryParams;
+import net.yacy.search.ranking.CitationRankMatrix;
 
 
 public class CollectionConfiguration extends SchemaConfiguration implements Serializable {
@@ -1956,7 +1957,8 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
      */
     private static final class CRHost {
         private final Segment segment;
-        private final Map<String, double[]> crt;
+        private final String[] ids;
+        private final CitationRankMatrix matrix;
         private final int cr_host_count;
         private final RowHandleMap internal_links_counter;
         private double damping;
@@ -1968,13 +1970,16 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
             this.rrCache = rrCache;
             this.converge_eq_factor = (int) Math.pow(10.0d, converge_digits);
             SolrConnector connector = segment.fulltext().getDefaultConnector();
-            this.crt = new ConcurrentHashMap<String, double[]>();
+            final Map<String, Integer> index = new HashMap<String, Integer>();
+            final List<String> idlist = new ArrayList<String>();
             try {
                 // select all documents for each host
                 BlockingQueue<String> ids = connector.concurrentIDsByQuery("{!cache=false raw f=" + CollectionSchema.host_s.getSolrFieldName() + "}" + host, CollectionSchema.url_chars_i.getSolrFieldName() + " asc", 0, 100000000, 86400000, 200, 1);
                 String id;
                 while ((id = ids.take()) != AbstractSolrConnector.POISON_ID) {
-                    this.crt.put(id, new double[]{0.0d,0.0d}); //{old value, new value}
+                    if (index.containsKey(id)) continue;
+                    index.put(id, idlist.size());
+                    idlist.add(id);
                     if (MemoryControl.shortStatus()) {
                         ConcurrentLog.warn("CollectionConfiguration", "terminated CRHost collection during postprocessing because of short memory");
                         break;
@@ -1982,41 +1987,52 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 }
             } catch (final InterruptedException e2) {
             }
-            this.cr_host_count = this.crt.size();
-            double initval = 1.0d / cr_host_count;
-            for (Map.Entry<String, double[]> entry: this.crt.entrySet()) entry.getValue()[0] = initval;
+            this.ids = idlist.toArray(new String[idlist.size()]);
+            this.cr_host_count = this.ids.length;
             this.internal_links_counter = new RowHandleMap(12, Base64Order.enhancedCoder, 8, 100, "internal_links_counter");
+            this.matrix = new CitationRankMatrix(this.cr_host_count);
+            loadReferences(index);
+        }
+        /**
+         * load the internal references of all documents of the host into the matrix. This is done once, the
+         * convergence steps then only use the matrix.
+         * @param index the document number for each id
+         */
+        private void loadReferences(final Map<String, Integer> index) {
+            int[] references = new int[16];
+            for (int i = 0; i < this.cr_host_count; i++) {
+                int count = 0;
+                try {
+                    ReferenceReport rr = this.rrCache.getReferenceReport(this.ids[i], false);
+                    HandleSet iids = rr.getInternallIDs();
+                    for (byte[] iid: iids) {
+                        int ilc = getInternalLinks(iid);
+                        if (ilc > 0) { // if (ilc == 0) then the reference report is wrong!
+                            Integer j = index.get(ASCII.String(iid));
+                            if (j == null) {
+                                // the referrer is not a document of this host; the remaining references are not counted
+                                ConcurrentLog.warn("COLLECTION", "d[] is empty, iid="  + ASCII.String(iid));
+                                break;
+                            }
+                            this.matrix.setLinks(j.intValue(), ilc);
+                            if (count == references.length) references = Arrays.copyOf(references, count * 2);
+                            references[count++] = j.intValue();
+                        }
+                    }
+                } catch (final IOException e) {
+                    ConcurrentLog.logException(e);
+                }
+                this.matrix.addReferences(i, references, count);
+            }
         }
         /**
          * produce a map from IDs to CRV records, normalization entries containing the values that are stored to solr.
          * @return
          */
         public Map<String, CRV> normalize() {
-            final TreeMap<Double, List<byte[]>> reorder = new TreeMap<Double, List<byte[]>>();
-            for (Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                Double d = entry.getValue()[0];
-                List<byte[]> ds = reorder.get(d);
-                if (ds == null) {ds = new ArrayList<byte[]>(); reorder.put(d, ds);}
-                ds.add(ASCII.getBytes(entry.getKey()));
-            }
-            int nextcount = (this.cr_host_count + 1) / 2;
-            int nextcrn = 0;
+            final int[] crn = this.matrix.normalize();
             Map<String, CRV> r = new HashMap<String, CRV>();
-            while (reorder.size() > 0) {
-                int count = nextcount;
-                while (reorder.size() > 0 && count > 0) {
-                    Map.Entry<Double, List<byte[]>> next = reorder.pollFirstEntry();
-                    List<byte[]> ids = next.getValue();
-                    count -= ids.size();
-                    double cr = next.getKey();
-                    for (byte[] id: ids) r.put(ASCII.String(id), new CRV(this.cr_host_count, cr, nextcrn));
-                }
-                nextcrn++;
-                nextcount = Math.max(1, (nextcount + count + 1) / 2);
-            }
-            // finally, increase the crn number in such a way that the maximum is always 10
-            int inc = 11 - nextcrn; // nextcrn is +1
-            for (Map.Entry<String, CRV> entry: r.entrySet()) entry.getValue().crn += inc;
+            for (int i = 0; i < this.cr_host_count; i++) r.put(this.ids[i], new CRV(this.cr_host_count, this.matrix.cr(i), crn[i]));
             return r;
         }
         /**
@@ -2070,53 +2086,11 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
             return 0;
         }
         /**
-         * Use the crt cache to compute the next generation of crt values.
+         * Use the reference matrix to compute the next generation of cr values.
          * @return
          */
         public boolean convergenceStep() {
-            boolean convergence = true;
-            double df = (1.0d - damping) / this.cr_host_count;
-            try {
-                for (Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                    String id = entry.getKey();
-                    ReferenceReport rr = this.rrCache.getReferenceReport(id, false);
-                    // sum up the cr of the internal links
-                    HandleSet iids = rr.getInternallIDs();
-                    double ncr = 0.0d;
-                    for (byte[] iid: iids) {
-                        int ilc = getInternalLinks(iid);
-                        if (ilc > 0) { // if (ilc == 0) then the reference report is wrong!
-                            double[] d = this.crt.get(ASCII.String(iid));
-                            // d[] could be empty at some situations
-                            if (d != null && d.length > 0) {
-                                ncr += d[0] / ilc;
-                            } else {
-                                // Output a warning that d[] is empty
-                                ConcurrentLog.warn("COLLECTION", "d[] is empty, iid="  + ASCII.String(iid));
-                                break;
-                            }
-                        }
-                    }
-                    ncr = df + damping * ncr;
-                    if (convergence && !eqd(ncr, entry.getValue()[0])) convergence = false;
-                    entry.getValue()[1] = ncr;
-                }
-                // after the loop, replace the old value with the new value in crt
-                for (Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                    entry.getValue()[0] = entry.getValue()[1];
-                }
-            } catch (final IOException e) {
-            }
-            return convergence;
-        }
-        /**
-         * helper method to check if two doubles are equal using a specific number of digits
-         * @param a
-         * @param b
-         * @return
-         */
-        private boolean eqd(final double a, final double b) {
-            return ((int) (a * this.converge_eq_factor)) == ((int) (b * this.converge_eq_factor));
+            return this.matrix.convergenceStep(this.damping, this.converge_eq_factor);
         }
     }
     
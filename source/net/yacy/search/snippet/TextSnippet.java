@@ -47,6 +47,7 @@ import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
+import net.yacy.document.SentenceIndex;
 import net.yacy.document.SentenceReader;
 import net.yacy.document.SnippetExtractor;
 import net.yacy.document.WordTokenizer;
@@ -204,6 +205,7 @@ public class TextSnippet implements Comparable<TextSnippet>, Comparator<TextSnip
         String textline = null;
         Set<String> remainingTerms = new HashSet<>(queryTerms);
         SentenceReader sentences = null;
+        SentenceIndex sentenceIndex = null;
         List<StringBuilder> firstSentencesList = null;
         
         // try to get the snippet from metadata
@@ -227,6 +229,12 @@ public class TextSnippet implements Comparable<TextSnippet>, Comparator<TextSnip
             if (solrText != null && solrText.length() > 0) { // TODO: instead of join with desc, we could check if snippet already complete and skip further computation
                 // compute sentences from solr query
                	sentences = new SentenceReader(firstSentencesList, solrText, pre);
+            } else if (net.yacy.crawler.data.Cache.has(url.hash()) && !pre && (sentenceIndex = net.yacy.crawler.data.Cache.getSentenceIndex(url.hash())) != null) {
+                // get the sentences containing the query words from the sentence index which was stored when the document was indexed
+                final List<StringBuilder> indexSentences = new ArrayList<>();
+                if (firstSentencesList != null) indexSentences.addAll(firstSentencesList);
+                indexSentences.addAll(sentenceIndex.sentences(remainingTerms));
+                sentences = new SentenceReader(indexSentences, "", false);
             } else if (net.yacy.crawler.data.Cache.has(url.hash())) {
                 // get the sentences from the cache
                 final Request request = loader == null ? null : loader.request(url, true, reindexing);
@@ -316,48 +324,53 @@ public class TextSnippet implements Comparable<TextSnippet>, Comparator<TextSnip
         }
         sentences = null; // we don't need this here any more
 
-        // try to load the resource from the cache
-        Response response = null;
-        try {
-            response = loader == null ? null : loader.load(loader.request(url, true, reindexing), (url.isFile() || url.isSMB()) ? CacheStrategy.NOCACHE : (cacheStrategy == null ? CacheStrategy.CACHEONLY : cacheStrategy), BlacklistType.SEARCH, ClientIdentification.yacyIntranetCrawlerAgent);
-        } catch (final IOException e) {
-            response = null;
-        }
+        if (sentenceIndex != null) {
+            // the sentences are known from the sentence index, there is no need to load and parse the document again
+            sentences = new SentenceReader(sentenceIndex.sentences(remainingTerms), "", false);
+        } else {
+            // try to load the resource from the cache
+            Response response = null;
+            try {
+                response = loader == null ? null : loader.load(loader.request(url, true, reindexing), (url.isFile() || url.isSMB()) ? CacheStrategy.NOCACHE : (cacheStrategy == null ? CacheStrategy.CACHEONLY : cacheStrategy), BlacklistType.SEARCH, ClientIdentification.yacyIntranetCrawlerAgent);
+            } catch (final IOException e) {
+                response = null;
+            }
+
+            if (response == null) {
+                // in case that we did not get any result we can still return a success when we are not allowed to go online
+                if (cacheStrategy == null || cacheStrategy.mustBeOffline()) {
+                    init(url, null, false, ResultClass.ERROR_SOURCE_LOADING, "omitted network load (not allowed), no cache entry", beginTime);
+                    return;
+                }
 
-        if (response == null) {
-            // in case that we did not get any result we can still return a success when we are not allowed to go online
-            if (cacheStrategy == null || cacheStrategy.mustBeOffline()) {
-                init(url, null, false, ResultClass.ERROR_SOURCE_LOADING, "omitted network load (not allowed), no cache entry", beginTime);
+                // if it is still not available, report an error
+                init(url, null, false, ResultClass.ERROR_RESOURCE_LOADING, "error loading resource from net, no cache entry", beginTime);
                 return;
             }
 
-            // if it is still not available, report an error
-            init(url, null, false, ResultClass.ERROR_RESOURCE_LOADING, "error loading resource from net, no cache entry", beginTime);
-            return;
-        }
+            if (!response.fromCache()) {
+                // place entry on indexing queue
+                Switchboard.getSwitchboard().toIndexer(response);
+                source = ResultClass.SOURCE_WEB;
+            }
 
-        if (!response.fromCache()) {
-            // place entry on indexing queue
-            Switchboard.getSwitchboard().toIndexer(response);
-            source = ResultClass.SOURCE_WEB;
-        }
+            // parse the document to get all sentenced; available for snippet computation
+            Document document = null;
+            try {
+                document = Document.mergeDocuments(response.url(), response.getMimeType(), response.parse());
+            } catch (final Parser.Failure e) {
+                init(url, null, false, ResultClass.ERROR_PARSER_FAILED, e.getMessage(), beginTime); // cannot be parsed
+                return;
+            }
+            if (document == null) {
+                init(url, null, false, ResultClass.ERROR_PARSER_FAILED, "parser error/failed", beginTime); // cannot be parsed
+                return;
+            }
 
-        // parse the document to get all sentenced; available for snippet computation
-        Document document = null;
-        try {
-            document = Document.mergeDocuments(response.url(), response.getMimeType(), response.parse());
-        } catch (final Parser.Failure e) {
-            init(url, null, false, ResultClass.ERROR_PARSER_FAILED, e.getMessage(), beginTime); // cannot be parsed
-            return;
+            // compute sentences from parsed document
+            sentences = new SentenceReader(document.getTextString(), pre);
+            document.close();
         }
-        if (document == null) {
-            init(url, null, false, ResultClass.ERROR_PARSER_FAILED, "parser error/failed", beginTime); // cannot be parsed
-            return;
-        }
-
-        // compute sentences from parsed document
-        sentences = new SentenceReader(document.getTextString(), pre);
-        document.close();
 
         if (!sentences.hasNext()) {
             init(url, null, false, ResultClass.ERROR_PARSER_NO_LINES, "parser returned no sentences", beginTime);
@@ -0,0 +1,483 @@
+// CompiledTemplate.java
+// (C) 2026 by the YaCy contributors
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.server.http;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.util.ByteBuffer;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.server.serverCore;
+import net.yacy.server.serverObjects;
+
+/**
+ * A template which was parsed once into a tree of nodes: literals, keys #[key]#, alternatives #(key)#..::..#(/key)#,
+ * multi templates #{key}#..#{/key}# and includes #%file%#. The tree is immutable and can be written with different
+ * patterns by concurrent threads; the result is the same as the result of
+ * {@link TemplateEngine#writeTemplate(String, java.io.InputStream, java.io.OutputStream, serverObjects)}.
+ * Templates or parts of templates which are not well-formed (i.e. a missing close tag) are written
+ * with the {@link TemplateEngine} to get the same result for broken templates, too.
+ *
+ * Compiled templates of files are cached and parsed again when the file is modified.
+ */
+public final class CompiledTemplate {
+
+    /** files which are larger than this are not cached, they are streamed through the TemplateEngine */
+    public static final long MAX_CACHED_SIZE = 4 * 1024 * 1024;
+
+    private static final Map<File, CompiledTemplate> templates = new ConcurrentHashMap<File, CompiledTemplate>();
+    private static final Map<File, CompiledTemplate> includes = new ConcurrentHashMap<File, CompiledTemplate>();
+
+    private final static byte[] mClose = "}#".getBytes();
+    private final static byte[] aClose = ")#".getBytes();
+    private final static byte[] pClose = "]#".getBytes();
+    private final static byte[] iClose = "%#".getBytes();
+    private final static byte[] dpdpa = "::".getBytes();
+    private final static byte[] PP = "%%".getBytes();
+    private final static byte[] UNRESOLVED_PATTERN = "-UNRESOLVED_PATTERN-".getBytes();
+
+    private final String name;
+    private final byte[] source;
+    private final long lastModified;
+    private final long length;
+    private final Node root; // null if the template is not well-formed
+
+    private CompiledTemplate(final String name, final byte[] source, final long lastModified, final long length) {
+        this.name = name;
+        this.source = source;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.root = hasZero(source) ? null : compile(name, source, 0, source.length);
+    }
+
+    /**
+     * parse a template
+     * @param name the name of the template, used for log messages
+     * @param source the template
+     * @return the compiled template
+     */
+    public static CompiledTemplate compile(final String name, final byte[] source) {
+        return new CompiledTemplate(name, source, 0, source.length);
+    }
+
+    /**
+     * get the compiled template of a file from the cache; the file is parsed if it is not cached or if it was modified
+     * @param file the template file
+     * @return the compiled template
+     * @throws IOException if the file cannot be read
+     */
+    public static CompiledTemplate get(final File file) throws IOException {
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        CompiledTemplate t = templates.get(file);
+        if (t != null && t.lastModified == lastModified && t.length == length) return t;
+        t = new CompiledTemplate(file.getName(), FileUtils.read(file), lastModified, length);
+        templates.put(file, t);
+        return t;
+    }
+
+    /**
+     * get the compiled template of an include file; include files are read line by line and the lines are
+     * terminated with CRLF like in the TemplateEngine
+     */
+    private static CompiledTemplate getInclude(final File file) throws IOException {
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        CompiledTemplate t = includes.get(file);
+        if (t != null && t.lastModified == lastModified && t.length == length) return t;
+        final ByteBuffer include = new ByteBuffer();
+        final BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                include.append(UTF8.getBytes(line)).append(ASCII.getBytes(serverCore.CRLF_STRING));
+            }
+        } finally {
+            br.close();
+        }
+        t = new CompiledTemplate(file.getName(), include.getBytes(), lastModified, length);
+        include.close();
+        includes.put(file, t);
+        return t;
+    }
+
+    /**
+     * remove all compiled templates from the cache
+     */
+    public static void clearCache() {
+        templates.clear();
+        includes.clear();
+    }
+
+    /**
+     * @return true if the template is well-formed and is written from the compiled nodes
+     */
+    public boolean isCompiled() {
+        return this.root != null;
+    }
+
+    /**
+     * write the template with replaced patterns to an output stream
+     * @param out the output stream
+     * @param pattern the pattern values; if null the template is written unchanged
+     * @throws IOException
+     */
+    public void writeTo(final OutputStream out, final serverObjects pattern) throws IOException {
+        if (pattern == null) {
+            out.write(this.source);
+        } else if (this.root == null) {
+            TemplateEngine.writeTemplate(this.name, new ByteArrayInputStream(this.source), out, pattern);
+        } else {
+            this.root.write(out, pattern, "", pattern.get("clientlanguage"));
+        }
+    }
+
+    /**
+     * parse a part of a template the same way as the TemplateEngine does
+     * @return the nodes of the part or null if the part is not well-formed
+     */
+    private static Sequence compile(final String name, final byte[] src, final int start, final int end) {
+        final List<Node> nodes = new ArrayList<Node>();
+        int pos = start;
+        while (pos < end) {
+            final int h = indexOf(src, (byte) '#', pos, end);
+            if (h < 0) {
+                nodes.add(new Literal(src, pos, end));
+                break;
+            }
+            if (h > pos) nodes.add(new Literal(src, pos, h));
+            final int p = h + 1;
+            if (p >= end) {
+                nodes.add(new Literal(src, h, end));
+                break;
+            }
+            final byte c = src[p];
+            if (c == '{') {
+                // #{key}#..#{/key}#
+                final int k = indexOf(src, mClose, p + 1, end);
+                if (k < 0) return null;
+                final String key = UTF8.String(src, p + 1, k - p - 1);
+                int q = k + mClose.length;
+                if (q < end && src[q] == '\n') q++;
+                final byte[] close = UTF8.getBytes("#{/" + key + "}#");
+                final int c2 = indexOf(src, close, q, end);
+                if (c2 < 0) return null;
+                nodes.add(new Multi(key, compileNested(name, src, q, c2)));
+                pos = c2 + close.length;
+                if (pos < end && src[pos] == '\n') pos++;
+            } else if (c == '(') {
+                // #(key)#..::..#(/key)#
+                final int k = indexOf(src, aClose, p + 1, end);
+                if (k < 0) return null;
+                final String key = UTF8.String(src, p + 1, k - p - 1);
+                final byte[] closeKey = UTF8.getBytes("/" + key);
+                final byte[] close = UTF8.getBytes("#(/" + key + ")#");
+                final int bodyStart = k + aClose.length;
+                final List<Node> segments = new ArrayList<Node>();
+                final List<Integer> separators = new ArrayList<Integer>();
+                int segStart = bodyStart;
+                int others = 0;
+                int i = bodyStart;
+                int closeStart = -1;
+                // scan for separators and the close tag; nested alternatives are counted, their separators are skipped
+                while (closeStart < 0) {
+                    if (i >= end) return null;
+                    final byte b = src[i++];
+                    if (b == '#') {
+                        if (i >= end) return null;
+                        if (src[i] != '(') continue;
+                        final int k2 = indexOf(src, aClose, i + 1, end);
+                        if (k2 < 0) return null;
+                        if (equals(src, i + 1, k2, closeKey)) {
+                            closeStart = i - 1;
+                        } else if (others > 0 && src[i + 1] == '/') {
+                            others--;
+                        } else {
+                            others++;
+                        }
+                        i = k2 + aClose.length;
+                    } else if (b == ':' && others == 0) {
+                        if (i >= end) return null;
+                        if (src[i++] != ':') continue;
+                        segments.add(compileNested(name, src, segStart, i - 2));
+                        separators.add(i);
+                        segStart = i;
+                    }
+                }
+                segments.add(compileNested(name, src, segStart, closeStart));
+                // the TemplateEngine skips to the next close tag after the selected alternative; this must be the same close tag
+                for (final Integer s: separators) {
+                    if (indexOf(src, close, s.intValue(), end) != closeStart) return null;
+                }
+                nodes.add(new Alternative(name, key, segments.toArray(new Node[segments.size()]), src, bodyStart, closeStart));
+                pos = i;
+            } else if (c == '[') {
+                // #[key]#
+                final int k = indexOf(src, pClose, p + 1, end);
+                if (k < 0) return null;
+                nodes.add(new Key(UTF8.String(src, p + 1, k - p - 1)));
+                pos = k + pClose.length;
+            } else if (c == '%') {
+                // #%file%#
+                final int k = indexOf(src, iClose, p + 1, end);
+                if (k < 0 || k == p + 1) return null;
+                final byte[] filename = new byte[k - p - 1];
+                System.arraycopy(src, p + 1, filename, 0, filename.length);
+                nodes.add(new Include(filename));
+                pos = k + iClose.length;
+            } else {
+                // a single hash without meaning; the following character is written without interpretation
+                nodes.add(new Literal(src, h, p + 1));
+                pos = p + 1;
+            }
+        }
+        return new Sequence(nodes.toArray(new Node[nodes.size()]));
+    }
+
+    /**
+     * parse the body of a multi template or an alternative; a body which is not well-formed is written
+     * with the TemplateEngine, because the TemplateEngine might still write some of its alternatives
+     */
+    private static Node compileNested(final String name, final byte[] src, final int start, final int end) {
+        final Sequence body = compile(name, src, start, end);
+        if (body != null) return body;
+        return new Uncompiled(name, src, start, end);
+    }
+
+    private static byte[] replacePattern(final String key, final serverObjects pattern) {
+        if (!pattern.containsKey(key)) return UNRESOLVED_PATTERN;
+        return UTF8.getBytes(pattern.get(key));
+    }
+
+    private static int indexOf(final byte[] src, final byte b, final int from, final int end) {
+        for (int i = from; i < end; i++) if (src[i] == b) return i;
+        return -1;
+    }
+
+    private static int indexOf(final byte[] src, final byte[] pattern, final int from, final int end) {
+        final int last = end - pattern.length;
+        search: for (int i = from; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) if (src[i + j] != pattern[j]) continue search;
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean equals(final byte[] src, final int start, final int end, final byte[] b) {
+        if (end - start != b.length) return false;
+        for (int i = 0; i < b.length; i++) if (src[start + i] != b[i]) return false;
+        return true;
+    }
+
+    private static boolean hasZero(final byte[] src) {
+        for (final byte b: src) if (b == 0) return true; // the TemplateEngine stops at a zero byte
+        return false;
+    }
+
+    private static interface Node {
+        /**
+         * @return false if the remaining nodes of the enclosing sequence must not be written
+         */
+        public boolean write(OutputStream out, serverObjects pattern, String prefix, String clientlanguage) throws IOException;
+    }
+
+    private static final class Sequence implements Node {
+        private final Node[] nodes;
+        private Sequence(final Node[] nodes) {
+            this.nodes = nodes;
+        }
+        @Override
+        public boolean write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            for (final Node node: this.nodes) {
+                if (!node.write(out, pattern, prefix, clientlanguage)) break;
+            }
+            return true;
+        }
+    }
+
+    private static final class Literal implements Node {
+        private final byte[] src;
+        private final int offset, length;
+        private Literal(final byte[] src, final int start, final int end) {
+            this.src = src;
+            this.offset = start;
+            this.length = end - start;
+        }
+        @Override
+        public boolean write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            out.write(this.src, this.offset, this.length);
+            return true;
+        }
+    }
+
+    private static final class Key implements Node {
+        private final String key;
+        private Key(final String key) {
+            this.key = key;
+        }
+        @Override
+        public boolean write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            out.write(replacePattern(prefix + this.key, pattern));
+            return true;
+        }
+    }
+
+    private static final class Multi implements Node {
+        private final String key;
+        private final Node body;
+        private Multi(final String key, final Node body) {
+            this.key = key;
+            this.body = body;
+        }
+        @Override
+        public boolean write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            final String patternKey = prefix + this.key;
+            final String value = pattern.get(patternKey);
+            int num = 0;
+            if (value != null && !value.isEmpty()) {
+                try {
+                    num = Integer.parseInt(value); // Key contains the iteration number as string
+                } catch (final NumberFormatException e) {
+                    ConcurrentLog.logException(e);
+                    num = 0;
+                }
+            }
+            for (int i = 0; i < num; i++) {
+                this.body.write(out, pattern, patternKey + "_" + i + "_", clientlanguage);
+            }
+            return true;
+        }
+    }
+
+    private static final class Alternative implements Node {
+        private final String name;
+        private final String key;
+        private final Node[] segments;
+        private final byte[] src;
+        private final int bodyStart, closeStart;
+        private Alternative(final String name, final String key, final Node[] segments, final byte[] src, final int bodyStart, final int closeStart) {
+            this.name = name;
+            this.key = key;
+            this.segments = segments;
+            this.src = src;
+            this.bodyStart = bodyStart;
+            this.closeStart = closeStart;
+        }
+        @Override
+        public boolean write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            final String patternKey = prefix + this.key;
+            final String patternId = pattern.get(patternKey);
+            // lazy parsing of pattern value; numeric values, "true", "false" and no value allowed
+            int whichPattern = 0;
+            if (patternId != null) {
+                if ("true".equals(patternId)) {
+                    whichPattern = 1;
+                } else if (!"false".equals(patternId)) try {
+                    whichPattern = Integer.parseInt(patternId); //index
+                } catch (final NumberFormatException e) {
+                    return writeByName(out, pattern, patternKey, patternId, clientlanguage);
+                }
+            }
+            // a missing alternative is replaced by the last alternative
+            final Node segment = whichPattern >= 0 && whichPattern < this.segments.length ? this.segments[whichPattern] : this.segments[this.segments.length - 1];
+            segment.write(out, pattern, patternKey + "_", clientlanguage);
+            return true;
+        }
+        private boolean writeByName(final OutputStream out, final serverObjects pattern, final String patternKey, final String patternName, final String clientlanguage) throws IOException {
+            // alternatives by name have the form #(key)#%%name1::..%%name2::..#(/key)#; they are rare and parsed on demand
+            final byte[] name = UTF8.getBytes(patternName);
+            final byte[] p = new byte[PP.length + name.length];
+            System.arraycopy(PP, 0, p, 0, PP.length);
+            System.arraycopy(name, 0, p, PP.length, name.length);
+            final int n = indexOf(this.src, p, this.bodyStart, this.closeStart);
+            if (n < 0) {
+                ConcurrentLog.severe("TEMPLATE", "Bad Key-Value pair in #()# construct: key=\"" + patternKey + "\", value=\"" + patternName + "\" in " + this.name);
+                return false;
+            }
+            final int start = n + p.length;
+            int end = indexOf(this.src, dpdpa, start, this.closeStart);
+            if (end < 0) end = this.closeStart;
+            compileNested(this.name, this.src, start, end).write(out, pattern, patternKey + "_", clientlanguage);
+            return true;
+        }
+    }
+
+    private static final class Uncompiled implements Node {
+        private final String name;
+        private final byte[] src;
+        private final int offset, length;
+        private Uncompiled(final String name, final byte[] src, final int start, final int end) {
+            this.name = name;
+            this.src = src;
+            this.offset = start;
+            this.length = end - start;
+        }
+        @Override
+        public boolean write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            TemplateEngine.writeTemplate(this.name, new ByteArrayInputStream(this.src, this.offset, this.length), out, pattern, UTF8.getBytes(prefix));
+            return true;
+        }
+    }
+
+    private static final class Include implements Node {
+        private final byte[] filename;
+        private final boolean isPattern;
+        private Include(final byte[] filename) {
+            this.isPattern = filename[0] == '[' && filename[filename.length - 1] == ']'; //simple pattern for filename
+            if (this.isPattern) {
+                this.filename = new byte[filename.length - 2];
+                System.arraycopy(filename, 1, this.filename, 0, this.filename.length);
+            } else {
+                this.filename = filename;
+            }
+        }
+        @Override
+        public boolean write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            final byte[] filename = this.isPattern ? replacePattern(prefix + UTF8.String(this.filename), pattern) : this.filename;
+            if (filename.length == 0 || java.util.Arrays.equals(filename, UNRESOLVED_PATTERN)) return true;
+            final CompiledTemplate include;
+            try {
+                include = getInclude(HTTPDFileHandler.getLocalizedFile(UTF8.String(filename), clientlanguage)); //YaCy (with Locales)
+            } catch (final IOException e) {
+                //file not found?
+                ConcurrentLog.severe("FILEHANDLER","Include Error with file " + UTF8.String(filename) + ": " + e.getMessage());
+                return true;
+            }
+            include.writeTo(out, pattern); //clear pattern prefix for include
+            return true;
+        }
+    }
+}
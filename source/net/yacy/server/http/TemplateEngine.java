@@ -46,9 +46,11 @@
 
 package net.yacy.server.http;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -202,10 +204,28 @@ public final class TemplateEngine {
         }
     }
 
+    /**
+     * Reads a template file, and writes the data with replaced templates on a output stream.
+     * The file is parsed only once into a {@link CompiledTemplate} which is cached until the file is modified;
+     * very large files are streamed through the template engine without caching.
+     */
+    public final static void writeTemplate(final File file, final OutputStream out, final serverObjects pattern) throws IOException {
+        if (file.length() > CompiledTemplate.MAX_CACHED_SIZE) {
+            final InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                writeTemplate(file.getName(), in, out, pattern);
+            } finally {
+                in.close();
+            }
+        } else {
+            CompiledTemplate.get(file).writeTo(out, pattern);
+        }
+    }
+
     /**
      * Reads a input stream, and writes the data with replaced templates on a output stream
      */
-    private final static byte[] writeTemplate(final String servletname, final InputStream in, final OutputStream out, final serverObjects pattern, final byte[] prefix) throws IOException {
+    final static byte[] writeTemplate(final String servletname, final InputStream in, final OutputStream out, final serverObjects pattern, final byte[] prefix) throws IOException {
         final PushbackInputStream pis = new PushbackInputStream(in, 100);
         final ByteArrayOutputStream keyStream = new ByteArrayOutputStream(4048);
         byte[] key;
@@ -43,6 +43,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import net.yacy.cora.order.Digest;
 import net.yacy.cora.protocol.ClientIdentification;
@@ -74,6 +75,14 @@ public class serverSwitch {
 	protected int serverJobs;
 	private ConcurrentMap<String, String> configProps;
 	private final ConcurrentMap<String, String> configRemoved;
+	/** true if the config was changed since it was written the last time */
+	private final AtomicBoolean configDirty;
+	/** serializes the writes of the config file */
+	private final Object configSaveLock;
+	/** the config save thread waits on this object for changes */
+	private final Object configSaveSignal;
+	/** time to wait after a change, so that further changes are written together with it */
+	private static final long CONFIG_SAVE_DELAY = 2000;
 	private final NavigableMap<String, BusyThread> workerThreads;
 	private YaCyHttpServer httpserver; // implemented HttpServer
 	private ConcurrentMap<String, Integer> upnpPortMap = new ConcurrentHashMap<>();
@@ -89,6 +98,9 @@ public class serverSwitch {
 		// file name of the config file
 		this.dataPath = dataPath;
 		this.appPath = appPath;
+		this.configDirty = new AtomicBoolean(false);
+		this.configSaveLock = new Object();
+		this.configSaveSignal = new Object();
 		this.configComment = "This is an automatically generated file, updated by serverAbstractSwitch and initialized by "
 				+ initPath;
 		final File initFile = new File(appPath, initPath);
@@ -133,6 +145,9 @@ public class serverSwitch {
 		// save result; this may initially create a config file after
 		// initialization
 		saveConfig();
+		final Thread configSaveThread = new ConfigSaveThread();
+		configSaveThread.setDaemon(true);
+		configSaveThread.start();
 
 		// init thread control
 		this.workerThreads = new TreeMap<String, BusyThread>();
@@ -300,7 +315,7 @@ public class serverSwitch {
 		// set the value
 		final String oldValue = this.configProps.put(key, value);
 		if (oldValue == null || !value.equals(oldValue)) {
-			saveConfig();
+			configChanged();
 		}
 	}
 
@@ -318,7 +333,7 @@ public class serverSwitch {
     }
 	
 	public void removeConfig(final String key) {
-		this.configProps.remove(key);
+		if (this.configProps.remove(key) != null) configChanged();
 	}
 
 	/**
@@ -499,9 +514,57 @@ public class serverSwitch {
 	 * write the changes to permanent storage (File)
 	 */
 	private void saveConfig() {
-		ConcurrentMap<String, String> configPropsCopy = new ConcurrentHashMap<String, String>();
-		configPropsCopy.putAll(this.configProps); // avoid concurrency problems
-		FileUtils.saveMap(this.configFile, configPropsCopy, this.configComment);
+		synchronized (this.configSaveLock) {
+			ConcurrentMap<String, String> configPropsCopy = new ConcurrentHashMap<String, String>();
+			configPropsCopy.putAll(this.configProps); // avoid concurrency problems
+			FileUtils.saveMap(this.configFile, configPropsCopy, this.configComment); // writes a temporary file and renames it
+		}
+	}
+
+	/**
+	 * mark the config as changed; it is written by the config save thread after a short delay,
+	 * so that many changes in a short time cause only one write
+	 */
+	private void configChanged() {
+		if (this.configDirty.compareAndSet(false, true)) {
+			synchronized (this.configSaveSignal) {
+				this.configSaveSignal.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * write the config now if it was changed since the last write; must be called at shutdown
+	 */
+	public void flushConfig() {
+		synchronized (this.configSaveLock) {
+			if (this.configDirty.getAndSet(false)) saveConfig();
+		}
+	}
+
+	private class ConfigSaveThread extends Thread {
+		public ConfigSaveThread() {
+			super("serverSwitch.ConfigSaveThread");
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					synchronized (serverSwitch.this.configSaveSignal) {
+						while (!serverSwitch.this.configDirty.get()) serverSwitch.this.configSaveSignal.wait();
+					}
+					Thread.sleep(CONFIG_SAVE_DELAY);
+					try {
+						flushConfig();
+					} catch (final Throwable e) {
+						ConcurrentLog.logException(e);
+					}
+				}
+			} catch (final InterruptedException e) {
+				// terminated
+			}
+		}
 	}
 
 	/**
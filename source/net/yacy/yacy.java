@@ -806,6 +806,7 @@ public final class yacy {
                         }
                         System.out.println();
                     }
+                    ss.flushConfig(); // the config is otherwise written in the background
             } else {
 	            if (args.length == 1) {
 	            	applicationRoot= new File(args[0]);
@@ -19,6 +19,7 @@
  */
 package net.yacy.cora.protocol;
 
+import java.net.InetAddress;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.Test;
@@ -86,4 +87,24 @@ public class DomainsTest {
             assertEquals(teststr, expectedHost, host);
         }
     }
+
+    /**
+     * Test of isResolved method, of class Domains.
+     */
+    @Test
+    public void testIsResolved() throws Exception {
+        assertTrue(Domains.isResolved("192.0.2.1"));
+        assertTrue(Domains.isResolved("2001:db8::1"));
+        assertFalse(Domains.isResolved("resolved.example.org"));
+
+        // an address which is put into the name cache is resolved without a lookup
+        final InetAddress ip = InetAddress.getByAddress("resolved.example.org", new byte[]{(byte) 192, 0, 2, 2});
+        Domains.setHostName(ip, "resolved.example.org");
+        assertTrue(Domains.isResolved("Resolved.Example.org"));
+        assertEquals(ip, Domains.dnsResolve("resolved.example.org"));
+
+        // a prefetch of a resolved host does not queue it
+        Domains.prefetch("resolved.example.org");
+        assertEquals(0, Domains.prefetchQueueSize());
+    }
 }
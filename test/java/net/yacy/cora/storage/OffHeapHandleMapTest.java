@@ -0,0 +1,143 @@
+package net.yacy.cora.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.util.SpaceExceededException;
+
+import org.junit.Test;
+
+public class OffHeapHandleMapTest {
+
+    private static byte[] randomHash(final Random r) {
+        final byte[] b = new byte[12];
+        for (int i = 0; i < b.length; i++) b[i] = Base64Order.alpha_enhanced[r.nextInt(64)];
+        return b;
+    }
+
+    /**
+     * compare random put/remove operations (including table growth and backward-shift deletion)
+     * with a TreeMap as reference
+     */
+    @Test
+    public void testRandomOperations() throws SpaceExceededException {
+        final OffHeapHandleMap map = new OffHeapHandleMap(12, Base64Order.enhancedCoder, 4, 0, "test");
+        final TreeMap<String, Long> reference = new TreeMap<String, Long>();
+        final Random r = new Random(42);
+        final byte[][] keys = new byte[5000][];
+        for (int i = 0; i < keys.length; i++) keys[i] = randomHash(r);
+        for (int n = 0; n < 50000; n++) {
+            final byte[] key = keys[r.nextInt(keys.length)];
+            final String k = ASCII.String(key);
+            if (r.nextInt(3) == 0) {
+                final Long old = reference.remove(k);
+                assertEquals(old == null ? -1 : old.longValue(), map.remove(key));
+            } else {
+                final long v = r.nextInt(1000000);
+                final Long old = reference.put(k, v);
+                assertEquals(old == null ? -1 : old.longValue(), map.put(key, v));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (final byte[] key: keys) {
+            final Long v = reference.get(ASCII.String(key));
+            assertEquals(v == null ? -1 : v.longValue(), map.get(key));
+            assertEquals(v != null, map.has(key));
+        }
+        map.close();
+    }
+
+    @Test
+    public void testSortedAccessAndDump() throws Exception {
+        final OffHeapHandleMap map = new OffHeapHandleMap(12, Base64Order.enhancedCoder, 2, 100, "test");
+        final Random r = new Random(7);
+        final TreeMap<byte[], Long> reference = new TreeMap<byte[], Long>(Base64Order.enhancedCoder);
+        for (int i = 0; i < 1000; i++) {
+            final byte[] key = randomHash(r);
+            reference.put(key, (long) i);
+            map.put(key, i);
+        }
+        assertArrayEquals(reference.firstKey(), map.smallestKey());
+        assertArrayEquals(reference.lastKey(), map.largestKey());
+
+        final CloneableIterator<byte[]> i = map.keys(true, null);
+        for (final byte[] key: reference.keySet()) assertArrayEquals(key, i.next());
+        assertFalse(i.hasNext());
+
+        final File dump = File.createTempFile("OffHeapHandleMapTest", ".idx");
+        try {
+            assertEquals(1000, map.dump(dump));
+            final OffHeapHandleMap loaded = new OffHeapHandleMap(12, Base64Order.enhancedCoder, 2, dump);
+            assertEquals(1000, loaded.size());
+            for (final Map.Entry<byte[], Long> entry: reference.entrySet()) assertEquals(entry.getValue().longValue(), loaded.get(entry.getKey()));
+            loaded.close();
+        } finally {
+            dump.delete();
+        }
+        map.close();
+    }
+
+    @Test
+    public void testIteratorRemove() throws SpaceExceededException {
+        final OffHeapHandleMap map = new OffHeapHandleMap(12, Base64Order.enhancedCoder, 1, 10, "test");
+        final Random r = new Random(3);
+        for (int i = 0; i < 500; i++) map.put(randomHash(r), i % 2);
+        int odd = 0;
+        final Iterator<Map.Entry<byte[], Long>> i = map.iterator();
+        while (i.hasNext()) {
+            if (i.next().getValue().longValue() == 1) {
+                i.remove();
+                odd++;
+            }
+        }
+        assertEquals(500 - odd, map.size());
+        for (final Map.Entry<byte[], Long> entry: map) assertEquals(0, entry.getValue().longValue());
+        map.close();
+    }
+
+    @Test
+    public void testAddKeepsValuesUnsigned() throws SpaceExceededException {
+        final OffHeapHandleMap map = new OffHeapHandleMap(12, Base64Order.enhancedCoder, 2, 8 * 1024 * 1024, "test");
+        assertEquals(0, map.mem()); // nothing is allocated before the first entry
+        final byte[] a = ASCII.getBytes("AAAAAAAAAAAA");
+        assertEquals(-1, map.dec(a));
+        assertFalse(map.has(a));
+        assertEquals(1, map.inc(a));
+        assertEquals(0, map.dec(a));
+        assertEquals(0, map.dec(a));
+        assertEquals(0, map.get(a));
+        map.clear();
+        assertEquals(0, map.mem());
+        map.close();
+    }
+
+    @Test
+    public void testHandleSet() throws SpaceExceededException {
+        final OffHeapHandleSet set = new OffHeapHandleSet(12, Base64Order.enhancedCoder, 10);
+        final byte[] a = ASCII.getBytes("AAAAAAAAAAAA");
+        final byte[] b = ASCII.getBytes("BBBBBBBBBBBB");
+        assertTrue(set.put(a));
+        assertFalse(set.put(a));
+        assertTrue(set.put(b));
+        assertEquals(2, set.size());
+        final byte[] first = set.getOne(0);
+        assertArrayEquals(first, set.removeOne());
+        assertEquals(1, set.size());
+        assertFalse(set.has(first));
+        assertTrue(set.remove(set.getOne(0)));
+        assertNull(set.removeOne());
+        set.close();
+    }
+}
@@ -109,6 +109,48 @@ public class HostBalancerTest {
 
     }
     
+    /**
+     * Requests which are left in the journal by a crash are stored in their host queues when the balancer is opened again;
+     * requests which are already stored are not duplicated
+     */
+    @Test
+    public void testJournalReplay() throws IOException, SpaceExceededException, InterruptedException {
+        FileUtils.deletedelete(QUEUES_ROOT); // start clean test
+        final File journalFile = new File(QUEUES_ROOT.getAbsoluteFile().getParentFile(), QUEUES_ROOT.getName() + ".journal");
+        FileUtils.deletedelete(journalFile);
+
+        final WorkTables wt = new WorkTables(DATA_DIR);
+        final RobotsTxt rob = new RobotsTxt(wt, null, 10);
+        HostBalancer hb = new HostBalancer(QUEUES_ROOT, ON_DEMAND_LIMIT, EXCEED_134217727, false);
+        final Request stored = new Request(new DigestURL("http://example.org/stored.html"), null);
+        assertNull(hb.push(stored, null, rob));
+        hb.close();
+
+        // simulate a crash after three pushes, one of them is a request which had been committed already
+        final CrawlQueueJournal journal = new CrawlQueueJournal(journalFile);
+        journal.append(new Request(new DigestURL("http://example.org/a.html"), null));
+        journal.append(stored);
+        journal.rotate();
+        journal.append(new Request(new DigestURL("http://example.net/b.html"), null));
+        journal.close();
+
+        hb = new HostBalancer(QUEUES_ROOT, ON_DEMAND_LIMIT, EXCEED_134217727, false);
+        assertEquals(3, hb.size());
+        assertTrue(hb.has(new DigestURL("http://example.org/a.html").hash()));
+        assertTrue(hb.has(new DigestURL("http://example.net/b.html").hash()));
+        assertNotNull(hb.get(new DigestURL("http://example.net/b.html").hash()));
+        assertTrue(journal.replay().isEmpty());
+
+        // pushed requests are counted before they are committed and survive a close
+        assertNull(hb.push(new Request(new DigestURL("http://example.net/c.html"), null), null, rob));
+        assertEquals(4, hb.size());
+        hb.close();
+        hb = new HostBalancer(QUEUES_ROOT, ON_DEMAND_LIMIT, EXCEED_134217727, false);
+        assertEquals(4, hb.size());
+        hb.clear();
+        hb.close();
+    }
+
 	/**
 	 * A test task performing some operations to be profiled on the HostBalancer. To
 	 * run concurrently.
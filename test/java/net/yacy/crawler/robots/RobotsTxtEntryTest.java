@@ -0,0 +1,80 @@
+package net.yacy.crawler.robots;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import net.yacy.cora.document.id.MultiProtocolURL;
+
+import org.junit.Test;
+
+public class RobotsTxtEntryTest {
+
+    private static RobotsTxtEntry entry(final String... denyPaths) throws Exception {
+        return new RobotsTxtEntry(
+                new MultiProtocolURL("http://example.org/robots.txt"),
+                null,
+                Arrays.asList(denyPaths),
+                new Date(),
+                null,
+                null,
+                null,
+                1500,
+                null);
+    }
+
+    /**
+     * Test of isDisallowed method, of class RobotsTxtEntry.
+     */
+    @Test
+    public void testIsDisallowed() throws Exception {
+        final RobotsTxtEntry entry = entry("/private/", "/cgi-bin", "/private/public", "/a", "/ab/c", "/z");
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/private/index.html")));
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/private/public/x.html")));
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/cgi-bin/test.cgi")));
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/abc.html")));
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/zzz")));
+        assertFalse(entry.isDisallowed(new MultiProtocolURL("http://example.org/")));
+        assertFalse(entry.isDisallowed(new MultiProtocolURL("http://example.org/private")));
+        assertFalse(entry.isDisallowed(new MultiProtocolURL("http://example.org/b/index.html")));
+        assertFalse(entry.isDisallowed(new MultiProtocolURL("http://example.org/cgi")));
+
+        assertFalse(entry().isDisallowed(new MultiProtocolURL("http://example.org/private/index.html")));
+        assertTrue(entry("/").isDisallowed(new MultiProtocolURL("http://example.org/")));
+    }
+
+    /**
+     * Test that the reason of the access decision belongs to the path which was asked for
+     */
+    @Test
+    public void testGetInfo() throws Exception {
+        final RobotsTxtEntry entry = entry("/private/", "/a");
+        final MultiProtocolURL denied = new MultiProtocolURL("http://example.org/private/index.html");
+        final MultiProtocolURL allowed = new MultiProtocolURL("http://example.org/b");
+        assertTrue(entry.isDisallowed(denied));
+        assertFalse(entry.isDisallowed(allowed));
+        assertTrue(entry.getInfo(denied).startsWith("path '/private/index.html' starts with '/private/'"));
+        assertEquals("path '/b' does not start with any element from deny path list", entry.getInfo(allowed));
+        assertEquals("no entry in robots.txt", entry().getInfo(allowed));
+    }
+
+    /**
+     * Test that the parsed values are the same in an entry which is read from its stored record
+     */
+    @Test
+    public void testStoredEntry() throws Exception {
+        final RobotsTxtEntry entry = entry("/private/", "/a");
+        final RobotsTxtEntry stored = new RobotsTxtEntry(entry.getHostName(), entry.getMem());
+        assertEquals(1500, stored.getCrawlDelayMillis());
+        assertTrue(stored.isDisallowed(new MultiProtocolURL("http://example.org/private/index.html")));
+        assertFalse(stored.isDisallowed(new MultiProtocolURL("http://example.org/b")));
+
+        final RobotsTxtEntry copy = stored.copy();
+        copy.setLoadedDate(new Date(0));
+        assertEquals(0, copy.getLoadedDate().getTime());
+        assertTrue(stored.getLoadedDate().getTime() > 0);
+    }
+}
@@ -0,0 +1,63 @@
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SentenceIndexTest {
+
+    private static final String TEXT =
+            "YaCy is a free search engine. Anyone can use it to build a search portal for their intranet. " +
+            "The peers of the network exchange their index without a central server. " +
+            "Snippets are computed from the sentences which contain the query words. " +
+            "Umlauts like Müller and Größe are part of words too.";
+
+    /**
+     * The sentences of the index are the same as those of a SentenceReader, also after a round trip through the binary form.
+     */
+    @Test
+    public void testSentences() throws IOException {
+        final List<String> expected = new ArrayList<String>();
+        final SentenceReader sr = new SentenceReader(TEXT, false);
+        for (final StringBuilder sentence: sr) expected.add(sentence.toString());
+        sr.close();
+
+        final SentenceIndex index = SentenceIndex.fromBytes(new SentenceIndex(TEXT).toBytes());
+        assertEquals(expected.size(), index.size());
+        for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i), index.sentence(i));
+    }
+
+    /**
+     * Only the sentences containing query words are returned, and they give the same snippet as the complete text.
+     */
+    @Test
+    public void testSnippet() throws IOException {
+        final SentenceIndex index = SentenceIndex.fromBytes(new SentenceIndex(TEXT).toBytes());
+        final Set<String> queryTerms = new HashSet<String>();
+        queryTerms.add("peers");
+        queryTerms.add("index");
+
+        final List<StringBuilder> sentences = index.sentences(queryTerms);
+        assertEquals(index.size(), sentences.size());
+        assertEquals(0, sentences.get(0).length());
+        assertEquals(index.sentence(2), sentences.get(2).toString());
+        assertSame(sentences.get(0), sentences.get(1));
+
+        final SnippetExtractor full = new SnippetExtractor(new SentenceReader(TEXT, false), queryTerms, 200);
+        final SnippetExtractor indexed = new SnippetExtractor(sentences, queryTerms, 200);
+        assertEquals(full.getSnippet(), indexed.getSnippet());
+        assertTrue(indexed.getRemainingTerms().isEmpty());
+
+        final Set<String> umlauts = new HashSet<String>();
+        umlauts.add("größe");
+        assertEquals(index.sentence(4), index.sentences(umlauts).get(4).toString());
+    }
+}
@@ -466,4 +466,53 @@ public class htmlParserTest extends TestCase {
         System.out.println("ScraperScriptTagTest: [" + textSource + "] = [" + txt + "]");
         assertEquals(txt, textSource);
     }
+
+    /**
+     * Test the detection of the charset declared at the beginning of a html document.
+     */
+    @Test
+    public void testSniffCharset() {
+        assertEquals("windows-1252", htmlParser.sniffCharset("<!DOCTYPE html><html><head><meta charset=\"windows-1252\"></head>".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("ISO-8859-1", htmlParser.sniffCharset("<html><head><META HTTP-EQUIV=\"Content-Type\" CONTENT=\"text/html; charset=ISO-8859-1\"></head>".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(StandardCharsets.UTF_8.name(), htmlParser.sniffCharset(new byte[] {(byte) 0xef, (byte) 0xbb, (byte) 0xbf, '<', 'p', '>'}));
+        assertNull(htmlParser.sniffCharset("<html><head><meta name=\"description\" content=\"charset\"></head>".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(htmlParser.sniffCharset(new byte[0]));
+    }
+
+    /**
+     * Test the htmlParser.parse() method with a charset declared in a html5 meta tag.
+     * @throws Exception when an unexpected error occurred
+     */
+    @Test
+    public void testParseHtmlWithMetaCharset() throws Exception {
+        final AnchorURL url = new AnchorURL("http://localhost/test.html");
+        final String testHtml = "<!DOCTYPE html><html><head><meta charset=\"ISO-8859-1\"></head><body><p>Dort gibt es Bier aus Maßkrügen.</p></body></html>";
+        try (InputStream sourceStream = new ByteArrayInputStream(testHtml.getBytes(StandardCharsets.ISO_8859_1));) {
+            final Document[] docs = new htmlParser().parse(url, "text/html", null, new VocabularyScraper(), 0, sourceStream);
+            assertEquals(StandardCharsets.ISO_8859_1.name(), docs[0].getCharset());
+            assertTrue(docs[0].getTextString().contains("Maßkrügen"));
+        }
+    }
+
+    /**
+     * Test the htmlParser.parseWithLimits() method when the parsing time limit is exceeded.
+     * @throws Exception when an unexpected error occurred
+     */
+    @Test
+    public void testParseWithTimeLimit() throws Exception {
+        final AnchorURL url = new AnchorURL("http://localhost/test.html");
+        final StringBuilder testHtml = new StringBuilder("<!DOCTYPE html><html><body>");
+        for (int i = 0; i < 100000; i++) testHtml.append("<p class=\"text\">Dort gibt es Bier aus Maßkrügen.</p>");
+        testHtml.append("<p>The end.</p></body></html>");
+        final long maxParseTime = htmlParser.maxParseTime;
+        htmlParser.maxParseTime = 1;
+        try (InputStream sourceStream = new ByteArrayInputStream(testHtml.toString().getBytes(StandardCharsets.UTF_8));) {
+            final Document[] docs = new htmlParser().parseWithLimits(url, "text/html", StandardCharsets.UTF_8.name(), new VocabularyScraper(), 0, sourceStream, Integer.MAX_VALUE, Long.MAX_VALUE);
+            assertTrue(docs[0].isPartiallyParsed());
+            assertTrue(docs[0].getTextString().contains("Maßkrügen"));
+            assertFalse(docs[0].getTextString().contains("The end."));
+        } finally {
+            htmlParser.maxParseTime = maxParseTime;
+        }
+    }
 }
@@ -0,0 +1,133 @@
+// CompressorTest.java
+// (C) 2026 by the YaCy contributors
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+
+public class CompressorTest {
+
+    private File heapFile;
+
+    @Before
+    public void setUp() throws IOException {
+        this.heapFile = File.createTempFile("CompressorTest", ".heap");
+        this.heapFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.heapFile.delete();
+    }
+
+    private static byte[] key(final int i) {
+        return String.format("key%09d", i).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] page(final int i) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Page ").append(i).append("</title>");
+        sb.append("<link rel=\"stylesheet\" href=\"/css/style.css\"></head><body><div class=\"navigation\"><ul>");
+        for (int j = 0; j < 5; j++) sb.append("<li><a href=\"/section").append(j).append(".html\">Section ").append(j).append("</a></li>");
+        sb.append("</ul></div><div class=\"content\"><p>Content of page number ").append(i * 7919).append("</p></div>");
+        sb.append("<div class=\"footer\">Copyright example.org, all rights reserved</div></body></html>");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Entries are compressed concurrently when the buffer is full; all entries are readable
+     * while they are buffered, in flight and stored in the backend.
+     */
+    @Test
+    public void testConcurrentFlush() throws IOException, SpaceExceededException {
+        final Compressor compressor = new Compressor(new Heap(this.heapFile, 12, Base64Order.enhancedCoder, 1024 * 1024), 4096, 2000, Deflater.BEST_COMPRESSION);
+        try {
+            final int count = 500;
+            for (int i = 0; i < count; i++) {
+                compressor.insert(key(i), page(i));
+                if (i % 10 == 0) assertArrayEquals(page(i / 2), compressor.get(key(i / 2)));
+            }
+            compressor.delete(key(7));
+            assertEquals(count - 1, compressor.size());
+            compressor.flushAll();
+            assertEquals(count - 1, compressor.size());
+            for (int i = 0; i < count; i++) {
+                if (i == 7) {
+                    assertNull(compressor.get(key(i)));
+                } else {
+                    assertArrayEquals(page(i), compressor.get(key(i)));
+                }
+            }
+        } finally {
+            compressor.close(false);
+        }
+    }
+
+    /**
+     * Small documents compress better with a trained dictionary, and are only readable when the dictionary is known.
+     */
+    @Test
+    public void testDictionary() throws IOException, SpaceExceededException {
+        final List<byte[]> samples = new ArrayList<byte[]>();
+        for (int i = 0; i < 32; i++) samples.add(page(1000 + i));
+        final byte[] dictionary = Compressor.trainDictionary(samples, Compressor.MAX_DICTIONARY_SIZE);
+        assertTrue(dictionary.length > 100);
+        assertTrue(dictionary.length <= Compressor.MAX_DICTIONARY_SIZE);
+
+        final Heap heap = new Heap(this.heapFile, 12, Base64Order.enhancedCoder, 1024 * 1024);
+        final Compressor compressor = new Compressor(heap, 1024 * 1024, 2000, Deflater.BEST_COMPRESSION);
+        compressor.setDictionary("text/html", dictionary);
+        assertTrue(compressor.hasDictionary("text/html"));
+        compressor.insert(key(1), page(1), "text/html");
+        compressor.insert(key(2), page(2));
+        compressor.flushAll();
+        final byte[] withDictionary = heap.get(key(1));
+        final byte[] withoutDictionary = heap.get(key(2));
+        assertEquals('d', withDictionary[0]);
+        assertEquals('z', withoutDictionary[0]);
+        assertTrue(withDictionary.length * 2 < withoutDictionary.length);
+        assertArrayEquals(page(1), compressor.get(key(1)));
+        assertArrayEquals(page(2), compressor.get(key(2)));
+
+        // without the dictionary, the entry cannot be decompressed
+        final Compressor other = new Compressor(heap, 1024 * 1024, 2000, Deflater.BEST_COMPRESSION);
+        assertNull(other.get(key(1)));
+        assertArrayEquals(page(2), other.get(key(2)));
+        compressor.close(false);
+    }
+}
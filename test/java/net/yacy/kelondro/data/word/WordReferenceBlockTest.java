@@ -0,0 +1,101 @@
+package net.yacy.kelondro.data.word;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.analysis.Classification;
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.util.Bitfield;
+import net.yacy.search.index.Segment;
+import net.yacy.search.ranking.RankingProfile;
+import net.yacy.search.ranking.ReferenceOrder;
+
+public class WordReferenceBlockTest {
+
+    private static ReferenceContainer<WordReference> container(final int size) throws MalformedURLException, SpaceExceededException {
+        final ReferenceContainer<WordReference> container = new ReferenceContainer<WordReference>(Segment.wordReferenceFactory, Word.word2hash("test"), size);
+        for (int i = 0; i < size; i++) {
+            final DigestURL url = new DigestURL("http://host" + (i % 4) + ".example.org/" + i + "/page.html");
+            final Bitfield flags = new Bitfield(4);
+            flags.set(i % 32, true);
+            flags.set(WordReferenceRow.flag_app_dc_title, i % 3 == 0);
+            container.add(new WordReferenceRow(url.hash(), url.toNormalform(true).length(), 2 + i % 5, i % 7,
+                    1 + i % 6, 100 + 17 * i, 10 + i % 9, 1 + 3 * i, i % 4, i % 8,
+                    1000000000000L + i * 86400000L, 1000000000000L + i * 86400000L,
+                    ASCII.getBytes(i % 2 == 0 ? "en" : "de"), Response.DT_TEXT, i % 10, i % 12, i % 3, flags));
+        }
+        return container;
+    }
+
+    /**
+     * the block must decode the same values from the rows as the row accessors
+     */
+    @Test
+    public void testDecode() throws MalformedURLException, SpaceExceededException {
+        final ReferenceContainer<WordReference> container = container(50);
+        final WordReferenceBlock block = new WordReferenceBlock(container.size());
+        block.addRows(container, 0, container.size());
+        assertEquals(container.size(), block.size());
+        final byte[] urlhash = new byte[Word.commonHashLength];
+        for (int i = 0; i < block.size(); i++) {
+            final WordReference r = Segment.wordReferenceFactory.produceSlow(container.get(i, false));
+            block.urlhash(i, urlhash);
+            assertArrayEquals(r.urlhash(), urlhash);
+            assertEquals(r.hitcount(), block.value(i, WordReferenceBlock.HITCOUNT));
+            assertEquals(r.virtualAge(), block.value(i, WordReferenceBlock.VIRTUALAGE));
+            assertEquals(r.wordsintext(), block.value(i, WordReferenceBlock.WORDSINTEXT));
+            assertEquals(r.posintext(), block.value(i, WordReferenceBlock.POSINTEXT));
+            assertEquals(r.distance(), block.value(i, WordReferenceBlock.DISTANCE));
+            assertEquals(r.urllength(), block.value(i, WordReferenceBlock.URLLENGTH));
+            assertEquals(r.termFrequency(), block.termFrequency(i), 0.0);
+            assertEquals(r.getType(), block.getType(i));
+            assertEquals(r.hosthash(), block.hosthash(i));
+            for (int f = 0; f < 32; f++) assertEquals(r.flags().get(f), block.flag(i, f));
+            assertEquals(WordReferenceBlock.languageKey(r.getLanguage()), block.language(i));
+            assertEquals(r.urlhash().length, block.vars(i, true).urlhash().length);
+        }
+    }
+
+    /**
+     * ranking of a block must be the same as the ranking of the reference objects
+     */
+    @Test
+    public void testCardinal() throws MalformedURLException, SpaceExceededException {
+        final ReferenceContainer<WordReference> container = container(60);
+        final RankingProfile profile = new RankingProfile(Classification.ContentDomain.TEXT);
+        profile.coeff_authority = 13;
+
+        final List<WordReferenceVars> vars = new ArrayList<WordReferenceVars>();
+        for (int i = 0; i < container.size(); i++) vars.add(new WordReferenceVars(Segment.wordReferenceFactory.produceSlow(container.get(i, false)), true));
+        final ReferenceOrder objectOrder = new ReferenceOrder(profile, "en");
+        objectOrder.normalizeWith(vars);
+
+        final WordReferenceBlock block = new WordReferenceBlock(container.size());
+        block.addRows(container, 0, container.size());
+        final ReferenceOrder blockOrder = new ReferenceOrder(profile, "en");
+        blockOrder.normalizeWith(block);
+
+        for (int i = 0; i < block.size(); i++) {
+            assertEquals(objectOrder.cardinal(vars.get(i)), blockOrder.cardinal(block, i));
+        }
+
+        // references which are added as objects are ranked the same way
+        final WordReferenceBlock objectBlock = new WordReferenceBlock(vars.size());
+        for (final WordReferenceVars v: vars) objectBlock.add(v);
+        final ReferenceOrder objectBlockOrder = new ReferenceOrder(profile, "en");
+        objectBlockOrder.normalizeWith(objectBlock);
+        for (int i = 0; i < objectBlock.size(); i++) {
+            assertEquals(objectOrder.cardinal(vars.get(i)), objectBlockOrder.cardinal(objectBlock, i));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+// WordReferenceChunkTest.java
+// (C) 2026 by the YaCy contributors
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.data.word;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.util.Bitfield;
+
+/**
+ * Unit tests for the binary RWI transfer format
+ */
+public class WordReferenceChunkTest {
+
+    private static List<WordReference> references(final String host, final int count) throws MalformedURLException {
+        final List<WordReference> references = new ArrayList<WordReference>();
+        for (int i = 0; i < count; i++) {
+            final WordReferenceRow ientry = new WordReferenceRow(
+                    new DigestURL("http://" + host + "/page" + i + ".html").hash(), 20 + i, 3, 2,
+                    100 + i, 10, System.currentTimeMillis(), System.currentTimeMillis(),
+                    UTF8.getBytes("en"), Response.DT_TEXT, i % 5, i % 7);
+            final Word word = new Word(i + 1, 1, 100);
+            word.flags = new Bitfield(4);
+            ientry.setWord(word);
+            references.add(ientry);
+        }
+        // a reference container is ordered by url hash
+        Collections.sort(references, new Comparator<WordReference>() {
+            @Override
+            public int compare(final WordReference o1, final WordReference o2) {
+                return ASCII.String(o1.urlhash()).compareTo(ASCII.String(o2.urlhash()));
+            }
+        });
+        return references;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final byte[] term1 = Word.word2hash("alpha");
+        final byte[] term2 = Word.word2hash("beta");
+        final List<WordReference> refs1 = references("alpha.org", 50);
+        final List<WordReference> refs2 = references("beta.org", 3);
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final WordReferenceChunk.Writer writer = new WordReferenceChunk.Writer(bos);
+        writer.write(term1, refs1.size(), refs1.iterator());
+        writer.write(term2, 0, new ArrayList<WordReference>(0).iterator());
+        writer.write(term2, refs2.size(), refs2.iterator());
+        writer.finish();
+        final byte[] chunk = bos.toByteArray();
+
+        final WordReferenceChunk.Reader reader = new WordReferenceChunk.Reader(new ByteArrayInputStream(chunk));
+        for (final WordReference ref: refs1) {
+            final WordReferenceRow row = reader.next();
+            assertArrayEquals(term1, reader.termHash());
+            assertArrayEquals(ref.toKelondroEntry().bytes(), row.toKelondroEntry().bytes());
+        }
+        for (final WordReference ref: refs2) {
+            final WordReferenceRow row = reader.next();
+            assertArrayEquals(term2, reader.termHash());
+            assertEquals(ref.toPropertyForm(), row.toPropertyForm());
+        }
+        assertNull(reader.next());
+        assertNull(reader.next());
+
+        // the binary chunk is much smaller than the text form
+        int text = 0;
+        for (final WordReference ref: refs1) text += 12 + ref.toPropertyForm().length() + 2;
+        for (final WordReference ref: refs2) text += 12 + ref.toPropertyForm().length() + 2;
+        assertTrue(chunk.length * 2 < text);
+    }
+
+    @Test
+    public void testTruncatedChunk() throws IOException {
+        final List<WordReference> refs = references("gamma.org", 10);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final WordReferenceChunk.Writer writer = new WordReferenceChunk.Writer(bos);
+        writer.write(Word.word2hash("gamma"), refs.size(), refs.iterator());
+        writer.finish();
+        final byte[] chunk = bos.toByteArray();
+        final byte[] truncated = new byte[chunk.length - 20];
+        System.arraycopy(chunk, 0, truncated, 0, truncated.length);
+
+        final WordReferenceChunk.Reader reader = new WordReferenceChunk.Reader(new ByteArrayInputStream(truncated));
+        try {
+            while (reader.next() != null) {}
+            fail("truncated chunk must not be accepted");
+        } catch (final IOException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoChunk() throws IOException {
+        new WordReferenceChunk.Reader(new ByteArrayInputStream(UTF8.getBytes("abcdefgh{x=1}")));
+    }
+}
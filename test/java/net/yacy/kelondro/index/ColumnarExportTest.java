@@ -0,0 +1,88 @@
+/**
+ *  ColumnarExportTest.java
+ *  part of YaCy
+ *  Copyright 2026 by the YaCy contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.yacy.kelondro.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+
+/**
+ * Unit tests for the columnar export of row collections.
+ */
+public class ColumnarExportTest {
+
+    private static RowSet postings(final int count, final Random r) throws Exception {
+        final RowSet set = new RowSet(WordReferenceRow.urlEntryRow, count);
+        final long now = 1700000000000L;
+        for (int i = 0; i < count; i++) {
+            final byte[] urlhash = new byte[12];
+            for (int j = 0; j < urlhash.length; j++) urlhash[j] = Base64Order.alpha_enhanced[r.nextInt(64)];
+            final WordReferenceRow row = new WordReferenceRow(urlhash, 20 + r.nextInt(80), 2 + r.nextInt(5), r.nextInt(10),
+                    r.nextInt(3000), r.nextInt(200), now - r.nextInt(1000) * 86400000L, now,
+                    ASCII.getBytes(r.nextInt(4) == 0 ? "de" : "en"), 't', r.nextInt(20), r.nextInt(50));
+            set.put(row.toKelondroEntry());
+        }
+        return set;
+    }
+
+    /**
+     * an export must be imported to the same rows, also when some columns are identical or empty
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Random r = new Random(11);
+        for (final int count: new int[]{0, 1, 2, 17, 1000}) {
+            final RowSet set = postings(count, r);
+            final byte[] columnar = set.exportColumnar();
+            assertTrue(ColumnarExport.isColumnar(columnar));
+            assertEquals(set.size(), RowSet.importRowCount(Arrays.copyOf(columnar, RowSet.importRowCountHeadSize)));
+            final RowSet imported = RowSet.importRowSet(columnar, WordReferenceRow.urlEntryRow);
+            assertEquals(set.size(), imported.size());
+            for (int i = 0; i < set.size(); i++) {
+                assertArrayEquals(set.get(i, false).bytes(), imported.get(i, false).bytes());
+            }
+            // trailing padding is ignored
+            final RowSet padded = RowSet.importRowSet(Arrays.copyOf(columnar, columnar.length + 3), WordReferenceRow.urlEntryRow);
+            assertEquals(set.size(), padded.size());
+        }
+    }
+
+    /**
+     * the plain export remains readable, and the columnar export is smaller even for random values
+     */
+    @Test
+    public void testPlainCompatibilityAndSize() throws Exception {
+        final RowSet set = postings(5000, new Random(5));
+        final byte[] plain = set.exportCollection();
+        final byte[] columnar = set.exportColumnar();
+        assertEquals(set.size(), RowSet.importRowCount(Arrays.copyOf(plain, RowSet.importRowCountHeadSize)));
+        assertEquals(set.size(), RowSet.importRowSet(plain, WordReferenceRow.urlEntryRow).size());
+        assertTrue("plain = " + plain.length + ", columnar = " + columnar.length, columnar.length * 10 < plain.length * 7);
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ *  ReferenceContainerArrayTest
+ *  part of YaCy
+ *  Copyright 2026 by the YaCy contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.yacy.kelondro.rwi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.kelondro.data.citation.CitationReference;
+import net.yacy.kelondro.data.citation.CitationReferenceFactory;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Unit tests for the merging of BLOB files in ReferenceContainerArray
+ */
+public class ReferenceContainerArrayTest {
+
+    private File location;
+
+    @Before
+    public void setUp() {
+        this.location = new File(System.getProperty("java.io.tmpdir"), "ReferenceContainerArrayTest" + System.currentTimeMillis());
+        this.location.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deletedelete(this.location);
+    }
+
+    private static byte[] hash(final char c, final int i) {
+        final String s = c + "0000000000" + Base64Order.enhancedCoder.encodeByte((byte) i);
+        return ASCII.getBytes(s.substring(s.length() - Word.commonHashLength));
+    }
+
+    /**
+     * dump several files with overlapping terms and merge them in one pass
+     */
+    @Test
+    public void testShrinkAnySmallFiles() throws Exception {
+        final CitationReferenceFactory factory = new CitationReferenceFactory();
+        final ReferenceContainerArray<CitationReference> array = new ReferenceContainerArray<CitationReference>(this.location, "test", factory, Base64Order.enhancedCoder, Word.commonHashLength);
+        final int files = 5;
+        for (int f = 0; f < files; f++) {
+            final ReferenceContainerCache<CitationReference> cache = new ReferenceContainerCache<CitationReference>(factory, Base64Order.enhancedCoder, Word.commonHashLength);
+            // term t is contained in file f if t % (f + 1) == 0, each file adds its own url
+            for (int t = 0; t < 30; t++) {
+                if (t % (f + 1) == 0) cache.add(hash('T', t), new CitationReference(hash('U', f), 0));
+            }
+            final File file = array.newContainerBLOBFile();
+            cache.dump(file, 1024, true);
+            array.mountBLOBFile(file);
+            Thread.sleep(10); // new file names have a time stamp
+        }
+        assertEquals(files, array.entries());
+
+        // the dispatcher is not started, so the merge is done at once
+        final IODispatcher merger = new IODispatcher(1, 1, 1024);
+        assertTrue(array.shrinkAnySmallFiles(merger, Long.MAX_VALUE));
+        assertEquals(1, array.entries());
+
+        for (int t = 0; t < 30; t++) {
+            final ReferenceContainer<CitationReference> c = array.get(hash('T', t));
+            assertNotNull(c);
+            final Set<String> urls = new HashSet<String>();
+            final Iterator<CitationReference> i = c.entries();
+            while (i.hasNext()) urls.add(ASCII.String(i.next().urlhash()));
+            for (int f = 0; f < files; f++) {
+                assertEquals("term " + t + ", file " + f, t % (f + 1) == 0, urls.contains(ASCII.String(hash('U', f))));
+            }
+        }
+        array.close();
+    }
+
+    /**
+     * files of the same size are merged together, not only as a pair
+     */
+    @Test
+    public void testShrinkBestSmallFiles() throws Exception {
+        final CitationReferenceFactory factory = new CitationReferenceFactory();
+        final ReferenceContainerArray<CitationReference> array = new ReferenceContainerArray<CitationReference>(this.location, "test", factory, Base64Order.enhancedCoder, Word.commonHashLength);
+        final int files = 4;
+        for (int f = 0; f < files; f++) {
+            final ReferenceContainerCache<CitationReference> cache = new ReferenceContainerCache<CitationReference>(factory, Base64Order.enhancedCoder, Word.commonHashLength);
+            for (int t = 0; t < 20; t++) cache.add(hash('T', t), new CitationReference(hash('U', f), 0));
+            final File file = array.newContainerBLOBFile();
+            cache.dump(file, 1024, true);
+            array.mountBLOBFile(file);
+            Thread.sleep(10);
+        }
+
+        final IODispatcher merger = new IODispatcher(1, 1, 1024);
+        assertTrue(array.shrinkBestSmallFiles(merger, Long.MAX_VALUE));
+        assertEquals(1, array.entries());
+        for (int t = 0; t < 20; t++) assertEquals(files, array.get(hash('T', t)).size());
+        array.close();
+    }
+
+    /**
+     * a reduced container which is larger than its record is written again instead of being discarded
+     */
+    @Test
+    public void testReduceLargerThanRecord() throws Exception {
+        final CitationReferenceFactory factory = new CitationReferenceFactory();
+        final ReferenceContainerArray<CitationReference> array = new ReferenceContainerArray<CitationReference>(this.location, "test", factory, Base64Order.enhancedCoder, Word.commonHashLength);
+        final byte[] term = hash('T', 0);
+        final ReferenceContainerCache<CitationReference> cache = new ReferenceContainerCache<CitationReference>(factory, Base64Order.enhancedCoder, Word.commonHashLength);
+        for (int u = 0; u < 50; u++) cache.add(term, new CitationReference(hash('U', u), 0));
+        final ReferenceContainer<CitationReference> original = cache.get(term, null).topLevelClone();
+        final File file = array.newContainerBLOBFile();
+        cache.dump(file, 1024, true);
+        array.mountBLOBFile(file);
+
+        // the reducer removes one reference and replaces the others with references which cannot be compressed
+        final Random r = new Random(0);
+        final ReferenceContainer<CitationReference> reduced = new ReferenceContainer<CitationReference>(factory, term, 49);
+        for (int u = 0; u < 49; u++) {
+            final byte[] h = new byte[Word.commonHashLength];
+            for (int i = 0; i < h.length; i++) h[i] = Base64Order.alpha_enhanced[r.nextInt(64)];
+            reduced.add(new CitationReference(h, r.nextLong() & 0xffffffffffL));
+        }
+        final int recordLength = original.exportColumnar().length;
+        assertTrue(reduced.exportColumnar().length > recordLength);
+        assertTrue(reduced.exportCollection().length > recordLength);
+
+        final int removed = array.reduce(term, new ReferenceContainerArray.ContainerReducer<CitationReference>() {
+            @Override
+            public ReferenceContainer<CitationReference> reduce(final ReferenceContainer<CitationReference> container) {
+                return reduced;
+            }
+        });
+        assertEquals(1, removed);
+        final ReferenceContainer<CitationReference> c = array.get(term);
+        assertNotNull(c);
+        assertEquals(49, c.size());
+        final Iterator<CitationReference> i = reduced.entries();
+        while (i.hasNext()) assertTrue(c.has(i.next().urlhash()));
+        array.close();
+    }
+}
@@ -23,17 +23,24 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.junit.Test;
 
+import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
+import net.yacy.cora.order.Base64Order;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.data.word.WordReference;
 import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
 import net.yacy.kelondro.data.word.WordReferenceVars;
 import net.yacy.kelondro.util.Bitfield;
 
@@ -99,4 +106,42 @@ public class ReferenceContainerTest {
         assertEquals("distance()", wentry.distance(), wc.distance());
     }
 
+    private static ReferenceContainer<WordReference> container(final ReferenceFactory<WordReference> factory, final String word,
+            final String[] urls, final int step, final Set<String> hashes) throws Exception {
+        final ReferenceContainer<WordReference> rc = new ReferenceContainer<WordReference>(factory, Word.word2hash(word));
+        for (int i = 0; i < urls.length; i += step) {
+            rc.add(new WordReferenceRow(ASCII.getBytes(urls[i]), 30, 3, 0, 100, 10, 0L, 0L,
+                    ASCII.getBytes("en"), Response.DT_TEXT, 0, 0));
+            hashes.add(urls[i]);
+        }
+        return rc;
+    }
+
+    /**
+     * Test of joinConstructive: the join must contain exactly the urls that are in both containers,
+     * for containers of similar size and for containers of very different size.
+     */
+    @Test
+    public void testJoinConstructive() throws Exception {
+        final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+        final Random r = new Random(3);
+        final String[] urls = new String[6000];
+        for (int i = 0; i < urls.length; i++) {
+            final byte[] h = new byte[Word.commonHashLength];
+            for (int j = 0; j < h.length; j++) h[j] = Base64Order.alpha_enhanced[r.nextInt(64)];
+            urls[i] = ASCII.String(h);
+        }
+        for (final int[] steps: new int[][]{{2, 3}, {1, 97}, {211, 1}, {5, 5}}) {
+            final Set<String> h1 = new HashSet<String>();
+            final Set<String> h2 = new HashSet<String>();
+            final ReferenceContainer<WordReference> c1 = container(factory, "a", urls, steps[0], h1);
+            final ReferenceContainer<WordReference> c2 = container(factory, "b", urls, steps[1], h2);
+            h1.retainAll(h2);
+            final ReferenceContainer<WordReference> join = ReferenceContainer.joinConstructive(factory, c1, c2, Integer.MAX_VALUE);
+            assertEquals("steps " + steps[0] + "/" + steps[1], h1.size(), join.size());
+            final Iterator<WordReference> i = join.entries();
+            while (i.hasNext()) assertTrue(h1.contains(ASCII.String(i.next().urlhash())));
+        }
+    }
+
 }
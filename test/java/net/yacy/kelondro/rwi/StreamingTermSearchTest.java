@@ -0,0 +1,241 @@
+/**
+ *  StreamingTermSearchTest
+ *  part of YaCy
+ *  Copyright 2026 by the YaCy contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.yacy.kelondro.rwi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceBlock;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.data.word.WordReferenceVars;
+import net.yacy.kelondro.index.RowHandleSet;
+import net.yacy.kelondro.util.Bitfield;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Unit tests for the streaming evaluation of a conjunctive term search
+ */
+public class StreamingTermSearchTest {
+
+    private static final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+    private static final String[] words = new String[]{"alpha", "beta", "gamma", "delta"};
+    private File location;
+    private IODispatcher merger;
+
+    @Before
+    public void setUp() {
+        this.location = new File(System.getProperty("java.io.tmpdir"), "StreamingTermSearchTest" + System.currentTimeMillis());
+        this.location.mkdirs();
+        this.merger = new IODispatcher(1, 1, 1024);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deletedelete(this.location);
+    }
+
+    private IndexCell<WordReference> open() throws Exception {
+        return new IndexCell<WordReference>(this.location, "test", factory, Base64Order.enhancedCoder, Word.commonHashLength,
+                100000, 1024 * 1024, 1024 * 1024, 1024, this.merger);
+    }
+
+    private static HandleSet hashes(final String... w) throws Exception {
+        final HandleSet set = new RowHandleSet(Word.commonHashLength, Word.commonHashOrder, w.length);
+        for (final String s: w) set.put(Word.word2hash(s));
+        return set;
+    }
+
+    private static Set<String> urls(final Iterator<WordReference> i) {
+        final Set<String> urls = new TreeSet<String>();
+        while (i.hasNext()) urls.add(ASCII.String(i.next().urlhash()));
+        return urls;
+    }
+
+    /**
+     * the streaming search must find the same urls as the term search on a cell with
+     * several BLOB files and references in RAM, also with exclusions and delayed removals
+     */
+    @Test
+    public void testSameResultAsTermSearch() throws Exception {
+        final Random r = new Random(7);
+        final String[] urls = new String[3000];
+        for (int i = 0; i < urls.length; i++) {
+            final byte[] h = new byte[Word.commonHashLength];
+            for (int j = 0; j < h.length; j++) h[j] = Base64Order.alpha_enhanced[r.nextInt(64)];
+            urls[i] = ASCII.String(h);
+        }
+        IndexCell<WordReference> cell = null;
+        for (int round = 0; round < 3; round++) {
+            cell = open();
+            // word w is contained in an url with a probability which is different for each word;
+            // the rounds overlap so that some urls are in several BLOB files
+            for (int i = round * 800; i < Math.min(urls.length, round * 800 + 1200); i++) {
+                for (int w = 0; w < words.length; w++) {
+                    if (r.nextInt(w + 2) != 0) continue;
+                    cell.add(Word.word2hash(words[w]), new WordReferenceRow(ASCII.getBytes(urls[i]), 30, 3, 0, 100, 10, 0L, 0L,
+                            ASCII.getBytes("en"), Response.DT_TEXT, 0, 0));
+                }
+            }
+            if (round < 2) cell.close(); // the last round remains in RAM
+        }
+        cell.removeDelayed(Word.word2hash("alpha"), ASCII.getBytes(urls[2500]));
+
+        final String[][] queries = new String[][]{{"alpha"}, {"alpha", "beta"}, {"beta", "gamma", "delta"}, {"alpha", "unknown"}};
+        final String[][] excludes = new String[][]{{}, {"delta"}, {}, {}};
+        for (int q = 0; q < queries.length; q++) {
+            final HandleSet include = hashes(queries[q]);
+            final HandleSet exclude = hashes(excludes[q]);
+            final ReferenceContainer<WordReference> joined = cell.query(include, exclude, null, factory, Integer.MAX_VALUE).joined();
+            final StreamingTermSearch<WordReference> search = cell.streamingQuery(include, exclude, Integer.MAX_VALUE);
+            final Set<String> expected = joined == null ? new TreeSet<String>() : urls(joined.entries());
+            final Set<String> streamed = urls(search);
+            assertEquals("query " + q, expected, streamed);
+            assertEquals("query " + q, expected.size(), search.count());
+        }
+        assertFalse(urls(cell.streamingQuery(hashes("alpha"), hashes(), Integer.MAX_VALUE)).contains(urls[2500]));
+        cell.close();
+    }
+
+    /**
+     * references which are joined into blocks must have the same criteria as the joined reference objects
+     */
+    @Test
+    public void testSameJoinInBlocks() throws Exception {
+        final Random r = new Random(13);
+        final IndexCell<WordReference> cell = open();
+        for (int i = 0; i < 1000; i++) {
+            final byte[] h = new byte[Word.commonHashLength];
+            for (int j = 0; j < h.length; j++) h[j] = Base64Order.alpha_enhanced[r.nextInt(64)];
+            for (int w = 0; w < words.length; w++) {
+                if (r.nextInt(w + 2) != 0) continue;
+                // a position gives the reference a stored word distance
+                final Queue<Integer> positions = new LinkedList<Integer>();
+                if (r.nextBoolean()) positions.add(1 + r.nextInt(200));
+                final int posintext = r.nextInt(4) == 0 ? 0 : 1 + r.nextInt(200);
+                cell.add(Word.word2hash(words[w]), new WordReferenceVars(h, 30, 3, r.nextInt(10), 1 + r.nextInt(20), 100 + r.nextInt(100), 10 + r.nextInt(10),
+                        posintext, positions, r.nextInt(10), r.nextInt(10), 0L, "en", Response.DT_TEXT, 0, 0, new Bitfield(4), 0.0));
+            }
+        }
+
+        final String[][] queries = new String[][]{{"alpha"}, {"alpha", "beta"}, {"alpha", "beta", "gamma"}};
+        final int[] maxDistances = new int[]{Integer.MAX_VALUE, 40};
+        for (int q = 0; q < queries.length; q++) for (final int maxDistance: maxDistances) {
+            final List<WordReference> expected = new ArrayList<WordReference>();
+            final StreamingTermSearch<WordReference> objects = cell.streamingQuery(hashes(queries[q]), hashes("delta"), maxDistance);
+            while (objects.hasNext()) expected.add(objects.next());
+
+            final StreamingTermSearch<WordReference> blocks = cell.streamingQuery(hashes(queries[q]), hashes("delta"), maxDistance);
+            final byte[] urlhash = new byte[Word.commonHashLength];
+            int n = 0;
+            while (true) {
+                final WordReferenceBlock block = new WordReferenceBlock(17);
+                blocks.next(block);
+                for (int i = 0; i < block.size(); i++) {
+                    final WordReference e = expected.get(n++);
+                    block.urlhash(i, urlhash);
+                    assertArrayEquals(e.urlhash(), urlhash);
+                    assertEquals(e.hitcount(), block.value(i, WordReferenceBlock.HITCOUNT));
+                    assertEquals(e.wordsintext(), block.value(i, WordReferenceBlock.WORDSINTEXT));
+                    assertEquals(e.wordsintitle(), block.value(i, WordReferenceBlock.WORDSINTITLE));
+                    assertEquals(e.phrasesintext(), block.value(i, WordReferenceBlock.PHRASESINTEXT));
+                    assertEquals(e.posintext(), block.value(i, WordReferenceBlock.POSINTEXT));
+                    assertEquals(e.posinphrase(), block.value(i, WordReferenceBlock.POSINPHRASE));
+                    assertEquals(e.posofphrase(), block.value(i, WordReferenceBlock.POSOFPHRASE));
+                    assertEquals(e.distance(), block.value(i, WordReferenceBlock.DISTANCE));
+                    assertEquals(e.termFrequency(), block.termFrequency(i), 1e-9);
+                    final WordReferenceVars vars = block.vars(i, true);
+                    assertEquals(e.distance(), vars.distance());
+                    assertEquals(e.posintext(), vars.posintext());
+                    assertEquals(e.termFrequency(), vars.termFrequency(), 1e-9);
+                }
+                if (!block.isFull()) break;
+            }
+            assertEquals("query " + q, expected.size(), n);
+            assertEquals("query " + q, expected.size(), blocks.count());
+        }
+        cell.close();
+    }
+
+    private static Map<String, Set<String>> inclusion(final Map<byte[], ReferenceContainer<WordReference>> inclusion) {
+        final Map<String, Set<String>> m = new TreeMap<String, Set<String>>();
+        for (final Map.Entry<byte[], ReferenceContainer<WordReference>> entry: inclusion.entrySet()) {
+            m.put(ASCII.String(entry.getKey()), urls(entry.getValue().entries()));
+        }
+        return m;
+    }
+
+    /**
+     * the containers of the include terms are needed for the index abstracts of a search event;
+     * the streaming search must provide the same containers as the term search, also after the result was read
+     */
+    @Test
+    public void testSameInclusionAsTermSearch() throws Exception {
+        final Random r = new Random(11);
+        IndexCell<WordReference> cell = null;
+        for (int round = 0; round < 2; round++) {
+            cell = open();
+            for (int i = 0; i < 500; i++) {
+                final byte[] h = new byte[Word.commonHashLength];
+                for (int j = 0; j < h.length; j++) h[j] = Base64Order.alpha_enhanced[r.nextInt(64)];
+                for (int w = 0; w < words.length; w++) {
+                    if (r.nextInt(w + 2) != 0) continue;
+                    cell.add(Word.word2hash(words[w]), new WordReferenceRow(h, 30, 3, 0, 100, 10, 0L, 0L,
+                            ASCII.getBytes("en"), Response.DT_TEXT, 0, 0));
+                }
+            }
+            if (round < 1) cell.close();
+        }
+
+        final String[][] queries = new String[][]{{"alpha"}, {"alpha", "beta", "gamma"}, {"alpha", "unknown"}};
+        for (int q = 0; q < queries.length; q++) {
+            final HandleSet include = hashes(queries[q]);
+            final Map<String, Set<String>> expected = inclusion(cell.query(include, hashes(), null, factory, Integer.MAX_VALUE).inclusion());
+            final StreamingTermSearch<WordReference> search = cell.streamingQuery(include, hashes(), Integer.MAX_VALUE);
+            assertEquals("query " + q, expected, inclusion(search.inclusion()));
+            urls(search);
+            assertEquals("query " + q, expected, inclusion(search.inclusion()));
+        }
+        cell.close();
+    }
+}
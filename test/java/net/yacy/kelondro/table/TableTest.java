@@ -0,0 +1,153 @@
+package net.yacy.kelondro.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.util.FileUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableTest {
+
+    private static final Row rowdef = new Row("byte[] a-4, byte[] b-4", NaturalOrder.naturalOrder);
+
+    private File tablefile;
+    private File snapshotFile;
+
+    @Before
+    public void setUp() {
+        this.tablefile = new File(System.getProperty("java.io.tmpdir"), "TableTest.table");
+        this.snapshotFile = new File(this.tablefile.getParentFile(), this.tablefile.getName() + ".snapshot");
+        FileUtils.deletedelete(this.tablefile);
+        FileUtils.deletedelete(this.snapshotFile);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deletedelete(this.tablefile);
+        FileUtils.deletedelete(this.snapshotFile);
+    }
+
+    private Table open() throws Exception {
+        return new Table(this.tablefile, rowdef, 100, 0, false, false, true);
+    }
+
+    private static byte[] key(final int i) {
+        return ASCII.getBytes("k" + (char) ('a' + i / 26) + (char) ('a' + i % 26) + "x");
+    }
+
+    private void fill() throws Exception {
+        final Table t = open();
+        final Row.Entry row = rowdef.newEntry();
+        for (int i = 0; i < 200; i++) {
+            row.setCol(0, key(i));
+            row.setCol(1, key(i));
+            t.put(row);
+        }
+        for (int i = 0; i < 200; i += 3) t.remove(key(i));
+        t.close();
+    }
+
+    private void check(final Table t) throws Exception {
+        for (int i = 0; i < 200; i++) {
+            final Row.Entry e = t.get(key(i), false);
+            if (i % 3 == 0) {
+                assertNull(e);
+            } else {
+                assertNotNull(e);
+                assertEquals(ASCII.String(key(i)), ASCII.String(e.getColBytes(1, false)));
+            }
+        }
+    }
+
+    /**
+     * Test the index snapshot which is written on close and used on the next open
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        fill();
+        assertTrue(this.snapshotFile.exists());
+        assertTrue(this.snapshotFile.setLastModified(this.snapshotFile.lastModified() - 10000));
+        final long written = this.snapshotFile.lastModified();
+        Table t = open();
+        try {
+            assertEquals(133, t.size());
+            check(t);
+        } finally {
+            t.close();
+        }
+        // the table was not written, so the loaded snapshot is not written again
+        assertEquals(written, this.snapshotFile.lastModified());
+
+        t = open();
+        try {
+            t.remove(key(1));
+        } finally {
+            t.close();
+        }
+        assertTrue(written != this.snapshotFile.lastModified());
+        t = open();
+        try {
+            assertEquals(132, t.size());
+        } finally {
+            t.close();
+        }
+    }
+
+    /**
+     * Test that no snapshot is written for a table which is opened on demand
+     */
+    @Test
+    public void testNoSnapshot() throws Exception {
+        fill();
+        FileUtils.deletedelete(this.snapshotFile);
+        final Table t = open();
+        t.noSnapshot();
+        t.close();
+        assertFalse(this.snapshotFile.exists());
+    }
+
+    /**
+     * Test that a corrupt or stale snapshot is ignored and the index is built from the table file
+     */
+    @Test
+    public void testBrokenSnapshot() throws Exception {
+        fill();
+        final RandomAccessFile raf = new RandomAccessFile(this.snapshotFile, "rw");
+        try {
+            raf.seek(40);
+            final int b = raf.read();
+            raf.seek(40);
+            raf.write(b ^ 0xff);
+        } finally {
+            raf.close();
+        }
+        Table t = open();
+        try {
+            assertEquals(133, t.size());
+            check(t);
+        } finally {
+            t.close();
+        }
+
+        assertTrue(this.tablefile.setLastModified(this.tablefile.lastModified() - 10000));
+        t = open();
+        try {
+            assertEquals(133, t.size());
+            check(t);
+        } finally {
+            t.close();
+        }
+    }
+}
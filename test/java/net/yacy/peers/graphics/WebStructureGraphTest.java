@@ -21,16 +21,21 @@
 
 package net.yacy.peers.graphics;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.FileUtils;
 import net.yacy.peers.graphics.WebStructureGraph.LearnObject;
 import net.yacy.peers.graphics.WebStructureGraph.StructureEntry;
 
@@ -313,6 +318,131 @@ public class WebStructureGraphTest {
 		}
 	}
 	
+	/**
+	 * References saved on close are loaded again with a new instance
+	 */
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		final File file = File.createTempFile("webStructure", ".graph");
+		file.delete();
+		try {
+			final DigestURL source = new DigestURL("http://source.net/index.html");
+			final DigestURL target = new DigestURL("http://target.com/index.html");
+			WebStructureGraph graph = new WebStructureGraph(file);
+			try {
+				final Set<DigestURL> targets = new HashSet<>();
+				targets.add(target);
+				targets.add(new DigestURL("http://target.com/path/doc.html"));
+				graph.learnrefs(new LearnObject(source, targets));
+			} finally {
+				graph.close();
+			}
+			Assert.assertTrue(file.exists());
+
+			graph = new WebStructureGraph(file);
+			try {
+				StructureEntry outRefs = graph.outgoingReferences(source.hosthash());
+				Assert.assertNotNull(outRefs);
+				Assert.assertEquals("source.net", outRefs.hostname);
+				Assert.assertEquals(1, outRefs.references.size());
+				Assert.assertEquals(Integer.valueOf(2), outRefs.references.get(target.hosthash()));
+
+				StructureEntry inRefs = graph.incomingReferences(target.hosthash());
+				Assert.assertNotNull(inRefs);
+				Assert.assertEquals("target.com", inRefs.hostname);
+				Assert.assertEquals(Integer.valueOf(2), inRefs.references.get(source.hosthash()));
+
+				/* loaded entries are not latest entries */
+				Assert.assertFalse(graph.structureEntryIterator(true).hasNext());
+				Assert.assertTrue(graph.structureEntryIterator(false).hasNext());
+			} finally {
+				graph.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * A map dump written by older versions is loaded and replaced by the graph file on close
+	 */
+	@Test
+	public void testLoadLegacyMap() throws IOException {
+		final File file = File.createTempFile("webStructure", ".graph");
+		file.delete();
+		final File legacyFile = new File(file.getParentFile(), file.getName().replace(".graph", ".map"));
+		try {
+			final String sourceHash = new DigestURL("http://source.net").hosthash();
+			final String targetHash = new DigestURL("http://target.com").hosthash();
+			final Map<String, byte[]> map = new TreeMap<>();
+			map.put(sourceHash + ",source.net", ("20170101" + targetHash + "000a" + "AAAAAA0001").getBytes());
+			map.put(targetHash + ",target.com", "20170101".getBytes());
+			FileUtils.saveMapB(legacyFile, map, "test");
+
+			WebStructureGraph graph = new WebStructureGraph(file);
+			try {
+				StructureEntry outRefs = graph.outgoingReferences(sourceHash);
+				Assert.assertNotNull(outRefs);
+				Assert.assertEquals("20170101", outRefs.date);
+				/* the reference to the host without entry is kept */
+				Assert.assertEquals(2, outRefs.references.size());
+				Assert.assertEquals(Integer.valueOf(10), outRefs.references.get(targetHash));
+				Assert.assertEquals(Integer.valueOf(1), outRefs.references.get("AAAAAA"));
+				Assert.assertNull(graph.hostHash2hostName("AAAAAA"));
+			} finally {
+				graph.close();
+			}
+			Assert.assertTrue(file.exists());
+			Assert.assertFalse(legacyFile.exists());
+
+			graph = new WebStructureGraph(file);
+			try {
+				Assert.assertEquals(2, graph.referencesCount(sourceHash));
+				Assert.assertEquals("target.com", graph.hostHash2hostName(targetHash));
+				Assert.assertTrue(graph.exists("AAAAAA"));
+			} finally {
+				graph.close();
+			}
+		} finally {
+			file.delete();
+			legacyFile.delete();
+		}
+	}
+
+	/**
+	 * Link targets are known by hash and name but are not iterated as known hosts
+	 */
+	@Test
+	public void testTargetsAreNotKnownHosts() throws MalformedURLException {
+		WebStructureGraph graph = new WebStructureGraph(null);
+		try {
+			final DigestURL source = new DigestURL("http://source.net/index.html");
+			final DigestURL target = new DigestURL("http://target.com/index.html");
+			final Set<DigestURL> targets = new HashSet<>();
+			targets.add(target);
+			graph.learnrefs(new LearnObject(source, targets));
+
+			Assert.assertEquals("target.com", graph.hostHash2hostName(target.hosthash()));
+			Assert.assertNotNull(graph.incomingReferences(target.hosthash()));
+
+			/* only the source is iterated */
+			final Iterator<StructureEntry> i = graph.structureEntryIterator(false);
+			Assert.assertTrue(i.hasNext());
+			Assert.assertEquals(source.hosthash(), i.next().hosthash);
+			Assert.assertFalse(i.hasNext());
+
+			/* a target becomes a known host when it is a source itself */
+			final Set<DigestURL> back = new HashSet<>();
+			back.add(source);
+			graph.learnrefs(new LearnObject(target, back));
+			int count = 0;
+			for (final Iterator<StructureEntry> j = graph.structureEntryIterator(false); j.hasNext(); j.next()) count++;
+			Assert.assertEquals(2, count);
+		} finally {
+			graph.close();
+		}
+	}
+
 	/**
 	 * Simple performance measurements with a test structure filled to its limits.
 	 */
@@ -0,0 +1,82 @@
+package net.yacy.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.yacy.kelondro.index.IndexTest;
+
+public class URLHashFilterTest {
+
+    /**
+     * all added url hashes must be found, and only a small part of the other url hashes
+     */
+    @Test
+    public void testMayContain() {
+        final Random r = new Random(1);
+        final URLHashFilter filter = new URLHashFilter(100000, 0.01);
+        final byte[][] hashes = new byte[100000][];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = IndexTest.randomHash(r);
+            filter.add(hashes[i]);
+        }
+        // a filter which is not ready yet must not deny any url
+        assertTrue(filter.mayContain(IndexTest.randomHash(r)));
+        filter.setReady();
+        for (final byte[] h: hashes) assertTrue(filter.mayContain(h));
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mayContain(IndexTest.randomHash(r))) falsePositives++;
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 2000);
+        assertFalse(filter.isOverloaded());
+
+        filter.clear();
+        assertTrue(filter.isReady());
+        assertEquals(0, filter.count());
+        assertFalse(filter.mayContain(hashes[0]));
+    }
+
+    /**
+     * urls of the same host share the second half of the url hash
+     */
+    @Test
+    public void testSameHost() {
+        final URLHashFilter filter = new URLHashFilter(1000, 0.01);
+        filter.setReady();
+        filter.add("AAAAAAhosthh");
+        assertTrue(filter.mayContain("AAAAAAhosthh"));
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mayContain(String.format("%06dhosthh", i))) falsePositives++;
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 20);
+    }
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        final Random r = new Random(2);
+        final URLHashFilter filter = new URLHashFilter(10000, 0.01);
+        final byte[][] hashes = new byte[5000][];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = IndexTest.randomHash(r);
+            filter.add(hashes[i]);
+        }
+        final File f = File.createTempFile("URLHashFilterTest", ".filter");
+        try {
+            filter.save(f);
+            final URLHashFilter loaded = URLHashFilter.load(f);
+            assertTrue(loaded.isReady());
+            assertEquals(filter.count(), loaded.count());
+            assertEquals(filter.capacity(), loaded.capacity());
+            for (final byte[] h: hashes) assertTrue(loaded.mayContain(h));
+        } finally {
+            f.delete();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package net.yacy.search.ranking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class CitationRankMatrixTest {
+
+    /**
+     * Test that the parallel computation gives exactly the same ranks and normalized ranks
+     * as a sequential computation over maps.
+     */
+    @Test
+    public void testConvergenceAndNormalize() {
+        final int size = 10000; // more than one range
+        final Random random = new Random(42);
+        final int[][] refs = new int[size][];
+        final int[] links = new int[size];
+        for (int i = 0; i < size; i++) {
+            refs[i] = new int[random.nextInt(8)];
+            for (int k = 0; k < refs[i].length; k++) {
+                // link to popular documents more often
+                final int j = random.nextBoolean() ? random.nextInt(100) : random.nextInt(size);
+                refs[i][k] = j;
+                links[j]++;
+            }
+        }
+        final CitationRankMatrix matrix = new CitationRankMatrix(size);
+        for (int i = 0; i < size; i++) {
+            for (final int j: refs[i]) matrix.setLinks(j, links[j]);
+            matrix.addReferences(i, refs[i], refs[i].length);
+        }
+
+        // the sequential reference computation
+        double[] cr = new double[size];
+        for (int i = 0; i < size; i++) cr[i] = 1.0d / size;
+        final double damping = 0.85d;
+        final int eq = 1000000;
+        final double df = (1.0d - damping) / size;
+        for (int step = 0; step < 30; step++) {
+            final double[] ncr = new double[size];
+            boolean convergence = true;
+            for (int i = 0; i < size; i++) {
+                double s = 0.0d;
+                for (final int j: refs[i]) s += cr[j] / links[j];
+                ncr[i] = df + damping * s;
+                if (((int) (ncr[i] * eq)) != ((int) (cr[i] * eq))) convergence = false;
+            }
+            cr = ncr;
+            assertEquals(convergence, matrix.convergenceStep(damping, eq));
+            if (convergence) break;
+        }
+        for (int i = 0; i < size; i++) assertEquals(cr[i], matrix.cr(i), 0.0d);
+
+        // the normalization over a sorted map
+        final TreeMap<Double, List<Integer>> reorder = new TreeMap<Double, List<Integer>>();
+        for (int i = 0; i < size; i++) {
+            List<Integer> ds = reorder.get(cr[i]);
+            if (ds == null) {ds = new ArrayList<Integer>(); reorder.put(cr[i], ds);}
+            ds.add(i);
+        }
+        final int[] expected = new int[size];
+        int nextcount = (size + 1) / 2;
+        int nextcrn = 0;
+        while (reorder.size() > 0) {
+            int count = nextcount;
+            while (reorder.size() > 0 && count > 0) {
+                final Map.Entry<Double, List<Integer>> next = reorder.pollFirstEntry();
+                count -= next.getValue().size();
+                for (final int i: next.getValue()) expected[i] = nextcrn;
+            }
+            nextcrn++;
+            nextcount = Math.max(1, (nextcount + count + 1) / 2);
+        }
+        final int[] crn = matrix.normalize();
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            assertEquals(expected[i] + 11 - nextcrn, crn[i]);
+            max = Math.max(max, crn[i]);
+        }
+        assertEquals(10, max);
+        assertTrue(matrix.references() > 0);
+    }
+}
@@ -1,10 +1,13 @@
 package net.yacy.search.ranking;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.solr.common.SolrInputDocument;
 import org.junit.Test;
@@ -12,6 +15,8 @@ import org.junit.Test;
 import net.yacy.cora.document.analysis.Classification;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.data.word.WordReferenceVars;
 import net.yacy.search.schema.CollectionConfiguration;
 
 public class ReferenceOrderTest {
@@ -51,4 +56,29 @@ public class ReferenceOrderTest {
 
     }
 
+    /**
+     * normalization with partitions of references must result in the same ranking
+     * as the normalization with each single reference
+     */
+    @Test
+    public void testNormalizeWithPartitions() throws MalformedURLException {
+        final List<WordReferenceVars> entries = new ArrayList<WordReferenceVars>();
+        for (int i = 0; i < 40; i++) {
+            final DigestURL url = new DigestURL("http://host" + (i % 3) + ".example.org/" + i + "/page" + i + ".html");
+            final WordReferenceRow row = new WordReferenceRow(url.hash(), url.toNormalform(true).length(), 2 + i % 4,
+                    i % 7, 100 + 13 * i, 10 + i % 5, 1000000000000L + i * 86400000L, 1000000000000L + i * 86400000L,
+                    null, 't', i % 9, i % 11);
+            entries.add(new WordReferenceVars(row, true));
+        }
+        final RankingProfile profile = new RankingProfile(Classification.ContentDomain.TEXT);
+        final ReferenceOrder single = new ReferenceOrder(profile, "en");
+        for (final WordReferenceVars entry: entries) single.normalizeWith(entry);
+        final ReferenceOrder partitioned = new ReferenceOrder(profile, "en");
+        partitioned.normalizeWith(entries.subList(0, 15));
+        partitioned.normalizeWith(entries.subList(15, 40));
+        for (final WordReferenceVars entry: entries) {
+            assertEquals(single.cardinal(entry), partitioned.cardinal(entry));
+        }
+    }
+
 }
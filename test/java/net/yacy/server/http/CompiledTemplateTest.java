@@ -0,0 +1,138 @@
+// CompiledTemplateTest.java
+// (C) 2026 by the YaCy contributors
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.server.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.server.serverObjects;
+
+/**
+ * Unit tests for CompiledTemplate: the compiled templates must give the same result as the TemplateEngine
+ */
+public class CompiledTemplateTest {
+
+    private static final String TEMPLATE =
+            "<html><body>\n" +
+            "#{times}#\n" +
+            "Good #(daytime)#morning::evening::night#(/daytime)#, #[name]#!(#[num]#. Greeting)<br>\n" +
+            "#(nested)#none::#{list}#<i>#[item]#</i>#(mark)#::*#(/mark)##{/list}# ::x:y#(/nested)#\n" +
+            "#{/times}#\n" +
+            "#(flag)#off::on#(/flag)# #[missing]# ##[notakey]# a#b color:#fff 1:2\n" +
+            "</body></html>\n";
+
+    private static String legacy(final String template, final serverObjects pattern) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TemplateEngine.writeTemplate("test", new ByteArrayInputStream(UTF8.getBytes(template)), out, pattern);
+        return UTF8.String(out.toByteArray());
+    }
+
+    private static String compiled(final String template, final serverObjects pattern) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledTemplate.compile("test", UTF8.getBytes(template)).writeTo(out, pattern);
+        return UTF8.String(out.toByteArray());
+    }
+
+    private static serverObjects pattern(final int times, final String daytime) {
+        final serverObjects pattern = new serverObjects();
+        pattern.put("times", times);
+        for (int i = 0; i < times; i++) {
+            pattern.put("times_" + i + "_daytime", daytime);
+            pattern.put("times_" + i + "_name", "John Connor");
+            pattern.put("times_" + i + "_num", i + 1);
+            pattern.put("times_" + i + "_nested", i % 3);
+            pattern.put("times_" + i + "_nested_list", i);
+            for (int j = 0; j < i; j++) {
+                pattern.put("times_" + i + "_nested_list_" + j + "_item", "item " + j);
+                pattern.put("times_" + i + "_nested_list_" + j + "_mark", j % 2 == 0);
+            }
+        }
+        pattern.put("flag", "true");
+        return pattern;
+    }
+
+    @Test
+    public void testSameResultAsTemplateEngine() throws IOException {
+        assertTrue(CompiledTemplate.compile("test", UTF8.getBytes(TEMPLATE)).isCompiled());
+        for (final String daytime: new String[]{"0", "1", "2", "7", "-1", "false", "true"}) {
+            for (int times = 0; times < 5; times++) {
+                final serverObjects pattern = pattern(times, daytime);
+                assertEquals(legacy(TEMPLATE, pattern), compiled(TEMPLATE, pattern));
+            }
+        }
+        assertEquals(legacy(TEMPLATE, new serverObjects()), compiled(TEMPLATE, new serverObjects()));
+        assertEquals(TEMPLATE, compiled(TEMPLATE, null));
+    }
+
+    @Test
+    public void testAlternativeByName() throws IOException {
+        final String template = "a #(mode)#%%one[first]::%%two[second]::#(/mode)# b";
+        final serverObjects pattern = new serverObjects();
+        pattern.put("mode", "two");
+        assertEquals(legacy(template, pattern), compiled(template, pattern));
+        assertEquals("a [second] b", compiled(template, pattern));
+    }
+
+    @Test
+    public void testBrokenTemplateIsWrittenByTemplateEngine() throws IOException {
+        final String template = "a #{list}# #[item]# b #[key]#";
+        assertFalse(CompiledTemplate.compile("test", UTF8.getBytes(template)).isCompiled());
+        final serverObjects pattern = new serverObjects();
+        pattern.put("list", 2);
+        pattern.put("key", "value");
+        assertEquals(legacy(template, pattern), compiled(template, pattern));
+    }
+
+    @Test
+    public void testCacheIsUpdatedWhenFileIsModified() throws IOException {
+        final File file = File.createTempFile("CompiledTemplateTest", ".html");
+        try {
+            final serverObjects pattern = new serverObjects();
+            pattern.put("key", "value");
+            FileUtils.copy(UTF8.getBytes("1 #[key]#"), file);
+            final CompiledTemplate t1 = CompiledTemplate.get(file);
+            assertTrue(t1 == CompiledTemplate.get(file));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TemplateEngine.writeTemplate(file, out, pattern);
+            assertEquals("1 value", UTF8.String(out.toByteArray()));
+
+            FileUtils.copy(UTF8.getBytes("2 #[key]# #[key]#"), file);
+            file.setLastModified(file.lastModified() + 2000);
+            out = new ByteArrayOutputStream();
+            TemplateEngine.writeTemplate(file, out, pattern);
+            assertEquals("2 value value", UTF8.String(out.toByteArray()));
+        } finally {
+            CompiledTemplate.clearCache();
+            file.delete();
+        }
+    }
+}
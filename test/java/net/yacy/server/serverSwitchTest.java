@@ -0,0 +1,87 @@
+// (C) 2026 by the YaCy contributors
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Unit tests for the config persistence of serverSwitch
+ */
+public class serverSwitchTest {
+
+    private File root;
+
+    @Before
+    public void setUp() {
+        this.root = new File(System.getProperty("java.io.tmpdir"), "serverSwitchTest" + System.currentTimeMillis());
+        this.root.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deletedelete(this.root);
+    }
+
+    /**
+     * many changes are written together; a flush writes the last value of each key
+     */
+    @Test
+    public void testFlushConfig() {
+        final serverSwitch ss = new serverSwitch(this.root, this.root, "test.init", "SETTINGS/test.conf");
+        final File conf = new File(this.root, "SETTINGS/test.conf");
+        for (int i = 0; i < 1000; i++) ss.setConfig("counter", i);
+        ss.setConfig("other", "value");
+        ss.flushConfig();
+        Map<String, String> saved = FileUtils.loadMap(conf);
+        assertEquals("999", saved.get("counter"));
+        assertEquals("value", saved.get("other"));
+
+        ss.removeConfig("other");
+        ss.flushConfig();
+        saved = FileUtils.loadMap(conf);
+        assertNull(saved.get("other"));
+        assertFalse("no temporary files are left", new File(this.root, "SETTINGS").list().length > 1);
+    }
+
+    /**
+     * a change is written in the background without a flush
+     */
+    @Test
+    public void testBackgroundSave() throws InterruptedException {
+        final serverSwitch ss = new serverSwitch(this.root, this.root, "test.init", "SETTINGS/test.conf");
+        final File conf = new File(this.root, "SETTINGS/test.conf");
+        ss.setConfig("key", "background");
+        final long timeout = System.currentTimeMillis() + 10000;
+        while (!"background".equals(FileUtils.loadMap(conf).get("key")) && System.currentTimeMillis() < timeout) Thread.sleep(100);
+        assertEquals("background", FileUtils.loadMap(conf).get("key"));
+    }
+}